@@ -0,0 +1,125 @@
+package com.VCS.LocalGit.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.LocalGitApplication;
+import com.VCS.LocalGit.Dto.FileUpdate;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Service.FileService;
+
+/**
+ * Builds the data the benchmarks run against: an application context over a fresh in-memory H2 database,
+ * and generated file content with controlled size and change density. Content is derived from a seed,
+ * so every run of a benchmark works on the same data.
+ */
+final class BenchmarkFixture {
+
+	private static final String[] WORDS = { "version", "content", "folder", "merge", "diff", "commit", "line",
+			"value", "return", "final", "static", "private", "string", "index", "result", "update" };
+
+	private final Random random;
+
+	BenchmarkFixture(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Starts the application without a web server on its own in-memory database. Background search
+	 * indexing and garbage collection are turned off so they do not compete with the measured code.
+	 */
+	static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(LocalGitApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+						"spring.main.banner-mode=off",
+						"logging.level.root=WARN",
+						"localgit.search.enabled=false",
+						"localgit.gc.enabled=false")
+				.run();
+	}
+
+	/**
+	 * Generates a line of code-like text.
+	 */
+	String line() {
+		StringBuilder line = new StringBuilder("    ".repeat(random.nextInt(4)));
+		int words = 3 + random.nextInt(8);
+		for (int i = 0; i < words; i++) {
+			line.append(WORDS[random.nextInt(WORDS.length)]).append(i + 1 < words ? ' ' : ';');
+		}
+		return line.append(' ').append(random.nextInt(1_000_000)).toString();
+	}
+
+	/**
+	 * Generates the given number of lines.
+	 */
+	List<String> lines(int count) {
+		List<String> lines = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			lines.add(line());
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns a copy of the lines with about {@code density} of the lines in {@code [from, to)} changed.
+	 * A change replaces, inserts or deletes a line, so the line count drifts only slightly.
+	 */
+	List<String> mutate(List<String> lines, double density, int from, int to) {
+		List<String> result = new ArrayList<>(lines.size() + 16);
+		result.addAll(lines.subList(0, from));
+		for (int i = from; i < to; i++) {
+			if (random.nextDouble() >= density) {
+				result.add(lines.get(i));
+				continue;
+			}
+			switch (random.nextInt(3)) {
+			case 0 -> result.add(line());
+			case 1 -> {
+				result.add(line());
+				result.add(lines.get(i));
+			}
+			default -> {
+			}
+			}
+		}
+		result.addAll(lines.subList(to, lines.size()));
+		return result;
+	}
+
+	static String join(List<String> lines) {
+		return String.join("\n", lines) + "\n";
+	}
+
+	/**
+	 * A file created by {@link #createFile}, with the lines of its last version.
+	 */
+	record Created(long fileId, List<String> lines) {
+	}
+
+	/**
+	 * Creates a file with {@code history} versions; the versions after the first are committed in one
+	 * transaction, each changing about {@code density} of the lines of the previous one.
+	 */
+	Created createFile(FileService fileService, long folderId, String name, List<String> lines, int history,
+			double density) {
+		File file = fileService.createFile(folderId, name, join(lines));
+		List<FileUpdate> updates = new ArrayList<>(history);
+		for (int i = 1; i < history; i++) {
+			lines = mutate(lines, density, 0, lines.size());
+			updates.add(new FileUpdate(file.getId(), join(lines)));
+		}
+		if (!updates.isEmpty()) {
+			fileService.bulkUpdateFiles(updates);
+		}
+		return new Created(file.getId(), lines);
+	}
+}
@@ -0,0 +1,88 @@
+package com.VCS.LocalGit.Benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.Diff.Edit;
+import com.VCS.LocalGit.Diff.LineIndex;
+import com.VCS.LocalGit.Service.DiffService;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+
+/**
+ * Measures diffs between two versions across file sizes and change densities.
+ * {@code diff} is the service call as the diff endpoint makes it, written out in unified format; after the first
+ * call its edits come from the diff cache, so it measures loading the versions and formatting. {@code computeEdits}
+ * measures what a cache miss adds: indexing both texts and running the diff engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int lines;
+
+	@Param({ "0.01", "0.1", "0.5" })
+	public double density;
+
+	private ConfigurableApplicationContext context;
+
+	private DiffService diffService;
+
+	private long fileId;
+
+	private String original;
+
+	private String revised;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkFixture.start();
+		diffService = context.getBean(DiffService.class);
+		FileService fileService = context.getBean(FileService.class);
+		long folderId = context.getBean(FolderService.class).createFolder("diffs").getId();
+		BenchmarkFixture fixture = new BenchmarkFixture(42);
+		List<String> base = fixture.lines(lines);
+		List<String> changed = fixture.mutate(base, density, 0, base.size());
+		original = BenchmarkFixture.join(base);
+		revised = BenchmarkFixture.join(changed);
+		fileId = fileService.createFile(folderId, "diff.txt", original).getId();
+		fileService.updateFile(fileId, revised);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void diff() throws IOException {
+		diffService.diff(fileId, 1, 2, 3).writeTo(Writer.nullWriter());
+	}
+
+	@Benchmark
+	public List<Edit> computeEdits() {
+		return diffService.getDiffEngine().diff(LineIndex.of(original), LineIndex.of(revised));
+	}
+}
@@ -0,0 +1,94 @@
+package com.VCS.LocalGit.Benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FolderSummary;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+
+/**
+ * Measures the service calls behind the listing endpoints on large data: the files of a folder holding
+ * {@code size} files, the folder list, and the first and a deep page of the history of a file with
+ * {@code size} versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+
+	private static final int PAGE_SIZE = 100;
+
+	@Param({ "1000", "5000" })
+	public int size;
+
+	private ConfigurableApplicationContext context;
+
+	private FileService fileService;
+
+	private FolderService folderService;
+
+	private long folderId;
+
+	private long historyFileId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkFixture.start();
+		fileService = context.getBean(FileService.class);
+		folderService = context.getBean(FolderService.class);
+		folderId = folderService.createFolder("large").getId();
+		BenchmarkFixture fixture = new BenchmarkFixture(42);
+		for (int i = 0; i < size; i++) {
+			fileService.createFile(folderId, "file-" + i + ".txt", BenchmarkFixture.join(fixture.lines(20)));
+		}
+		long historyFolderId = folderService.createFolder("history").getId();
+		historyFileId = fixture.createFile(fileService, historyFolderId, "history.txt", fixture.lines(20), size, 0.1)
+				.fileId();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<FileSummary> listFiles() {
+		return fileService.listFiles(folderId);
+	}
+
+	@Benchmark
+	public List<FolderSummary> listFolders() {
+		return folderService.listFolders();
+	}
+
+	@Benchmark
+	public void listVersionsFirstPage(Blackhole blackhole) {
+		fileService.streamFileVersions(historyFileId, null, null, PAGE_SIZE, blackhole::consume);
+	}
+
+	@Benchmark
+	public void listVersionsDeepPage(Blackhole blackhole) {
+		fileService.streamFileVersions(historyFileId, size / 2, null, PAGE_SIZE, blackhole::consume);
+	}
+}
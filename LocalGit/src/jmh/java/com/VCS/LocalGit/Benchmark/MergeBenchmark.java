@@ -0,0 +1,92 @@
+package com.VCS.LocalGit.Benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.Dto.MergeResult;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+import com.VCS.LocalGit.Service.MergeService;
+
+/**
+ * Measures three-way merges of a source file into a target file that share history.
+ * Before every merge, outside the measurement, the target changes lines in the first half of the file and
+ * the source in the second half, so each merge has real changes from both sides to combine and no conflicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int lines;
+
+	@Param({ "0.01", "0.1" })
+	public double density;
+
+	private ConfigurableApplicationContext context;
+
+	private FileService fileService;
+
+	private MergeService mergeService;
+
+	private BenchmarkFixture fixture;
+
+	private long targetId;
+
+	private long sourceId;
+
+	private List<String> target;
+
+	private List<String> source;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkFixture.start();
+		fileService = context.getBean(FileService.class);
+		mergeService = context.getBean(MergeService.class);
+		long folderId = context.getBean(FolderService.class).createFolder("merges").getId();
+		fixture = new BenchmarkFixture(42);
+		target = fixture.lines(lines);
+		source = target;
+		targetId = fileService.createFile(folderId, "target.txt", BenchmarkFixture.join(target)).getId();
+		sourceId = fileService.createFile(folderId, "source.txt", BenchmarkFixture.join(source)).getId();
+	}
+
+	@Setup(Level.Invocation)
+	public void diverge() {
+		// both sides change the source version merged last, the common ancestor of the next merge
+		target = fixture.mutate(source, density, 0, source.size() / 2);
+		source = fixture.mutate(source, density, source.size() / 2, source.size());
+		fileService.updateFile(targetId, BenchmarkFixture.join(target));
+		fileService.updateFile(sourceId, BenchmarkFixture.join(source));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public MergeResult mergeFiles() {
+		return mergeService.mergeFiles(targetId, sourceId);
+	}
+}
@@ -0,0 +1,87 @@
+package com.VCS.LocalGit.Benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+
+/**
+ * Measures committing a new version of a file against the length of the file's history.
+ * Commits go round-robin over {@value #FILES} files, so the history each one gains during the run stays
+ * small next to {@code historyLength}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionBenchmark {
+
+	private static final int FILES = 16;
+
+	@Param({ "1", "100", "1000" })
+	public int historyLength;
+
+	@Param({ "200", "5000" })
+	public int lines;
+
+	@Param({ "0.05" })
+	public double density;
+
+	private ConfigurableApplicationContext context;
+
+	private FileService fileService;
+
+	private BenchmarkFixture fixture;
+
+	private final long[] fileIds = new long[FILES];
+
+	@SuppressWarnings("unchecked")
+	private final List<String>[] contents = new List[FILES];
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkFixture.start();
+		fileService = context.getBean(FileService.class);
+		long folderId = context.getBean(FolderService.class).createFolder("versions").getId();
+		fixture = new BenchmarkFixture(42);
+		for (int i = 0; i < FILES; i++) {
+			BenchmarkFixture.Created file = fixture.createFile(fileService, folderId, "file-" + i + ".txt",
+					fixture.lines(lines), historyLength, density);
+			fileIds[i] = file.fileId();
+			contents[i] = file.lines();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public File updateFile() {
+		int file = next++ % FILES;
+		contents[file] = fixture.mutate(contents[file], density, 0, contents[file].size());
+		return fileService.updateFile(fileIds[file], BenchmarkFixture.join(contents[file]));
+	}
+}
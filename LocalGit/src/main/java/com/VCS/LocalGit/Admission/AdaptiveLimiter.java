@@ -0,0 +1,254 @@
+package com.VCS.LocalGit.Admission;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The AdaptiveLimiter class bounds how many calls of one kind run at once, adjusting the bound to the latency
+ * the calls observe.
+ * <p>
+ * The limit follows the gradient between a long-term and a short-term average of the call latency. While calls
+ * are as fast as usual, the limit grows by about the square root of itself per call; when they slow down,
+ * because they compete for the processor, the database or locks, the limit shrinks in proportion, down to half
+ * of it per step. Latency is only sampled from calls that ran while the limit was at least half used, so an
+ * idle limiter does not grow without bound. The short average adapts within about ten calls and the long one
+ * within about a hundred; the long average is pulled down quickly after an overload, so that a recovered
+ * system gets its limit back.
+ * <p>
+ * A call beyond the limit waits in a bounded queue for at most a fixed time, and is rejected at once if the queue
+ * is full. Waiting calls are served first come, first served: a freed slot is handed to the longest waiting call,
+ * and a new call queues behind the waiting ones even if a slot is free, so it cannot take the slot ahead of them.
+ * The limiter is thread-safe.
+ */
+public final class AdaptiveLimiter {
+
+    private static final double SHORT_WEIGHT = 0.1;
+
+    private static final double LONG_WEIGHT = 0.01;
+
+    /**
+     * The share of a new limit estimate taken over per sample.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final int queueCapacity;
+
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The calls waiting for a slot, longest waiting first.
+     */
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private double limit;
+
+    private int inFlight;
+
+    private double shortLatency;
+
+    private double longLatency;
+
+    /**
+     * A granted slot, to be closed when the call ends.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long start = System.nanoTime();
+
+        private final int inFlightAtStart;
+
+        private boolean succeeded;
+
+        private boolean closed;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Marks the call as completed normally, so its latency is sampled. The latency of failed calls,
+         * which may have ended early, is not.
+         */
+        public void success() {
+            succeeded = true;
+        }
+
+        /**
+         * Frees the slot.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(this);
+            }
+        }
+    }
+
+    /**
+     * A call waiting for a slot, which is handed to it when granted.
+     */
+    private final class Waiter {
+
+        private final Condition granted = lock.newCondition();
+
+        private int inFlightAtGrant;
+    }
+
+    /**
+     * Creates a limiter.
+     *
+     * @param initialLimit the limit to start from
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param tolerance how many times slower than the long-term average calls may get before the limit shrinks
+     * @param queueCapacity the number of calls that may wait for a slot
+     * @param maxWait how long a call waits for a slot before it is rejected
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, int queueCapacity,
+                           Duration maxWait) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1) {
+            throw new IllegalArgumentException("Invalid limits " + minLimit + ".." + maxLimit + " or tolerance " + tolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.tolerance = tolerance;
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Takes a slot, waiting for one if the limit is reached.
+     *
+     * @return the permit, to be closed when the call ends
+     * @throws RejectedExecutionException if the queue is full, no slot frees up in time, or the thread is interrupted
+     */
+    public Permit acquire() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                return new Permit(++inFlight);
+            }
+            if (waiters.size() >= queueCapacity) {
+                throw new RejectedExecutionException("Too many calls waiting");
+            }
+            Waiter waiter = new Waiter();
+            waiters.addLast(waiter);
+            try {
+                long nanos = maxWaitNanos;
+                while (waiter.inFlightAtGrant == 0) {
+                    if (nanos <= 0) {
+                        waiters.remove(waiter);
+                        throw new RejectedExecutionException("Timed out waiting for a slot");
+                    }
+                    nanos = waiter.granted.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                if (!waiters.remove(waiter)) {
+                    // the slot was granted while the interrupt was delivered, so pass it on
+                    inFlight--;
+                    grant();
+                }
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a slot", e);
+            }
+            return new Permit(waiter.inFlightAtGrant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Permit permit) {
+        long latency = System.nanoTime() - permit.start;
+        lock.lock();
+        try {
+            inFlight--;
+            if (permit.succeeded) {
+                sample(latency, permit.inFlightAtStart);
+            }
+            grant();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands free slots to the longest waiting calls. Called with the lock held.
+     */
+    private void grant() {
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+            Waiter waiter = waiters.removeFirst();
+            waiter.inFlightAtGrant = ++inFlight;
+            waiter.granted.signal();
+        }
+    }
+
+    private void sample(long latency, int inFlightAtStart) {
+        shortLatency = shortLatency == 0 ? latency : shortLatency * (1 - SHORT_WEIGHT) + latency * SHORT_WEIGHT;
+        longLatency = longLatency == 0 ? latency : longLatency * (1 - LONG_WEIGHT) + latency * LONG_WEIGHT;
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + estimate * SMOOTHING));
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the number of calls allowed to run at once
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of running calls.
+     *
+     * @return the number of calls holding a slot
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of calls waiting for a slot.
+     *
+     * @return the queue depth
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,14 +1,51 @@
 package com.VCS.LocalGit.Controller;
 
+import com.VCS.LocalGit.Diff.Blame;
+import com.VCS.LocalGit.Diff.UnifiedDiff;
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FileUpdate;
+import com.VCS.LocalGit.Dto.MergeConflict;
+import com.VCS.LocalGit.Dto.MergeResult;
+import com.VCS.LocalGit.Dto.VersionMetadata;
 import com.VCS.LocalGit.Entity.File;
-import com.VCS.LocalGit.Entity.Version;
 import com.VCS.LocalGit.Service.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * The FileController class handles HTTP requests related to file operations.
@@ -18,11 +55,38 @@ import java.util.List;
 @RestController
 @RequestMapping("/files")
 public class FileController {
+    private static final Logger log = LoggerFactory.getLogger(FileController.class);
+
     @Autowired
     private FileService fileService;
 
     @Autowired
     private ConflictService conflictService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The maximum number of versions returned by one history request.
+     */
+    private static final int MAX_HISTORY_LIMIT = 1000;
+
+    /**
+     * The maximum number of file updates accepted by one bulk update request.
+     */
+    private static final int MAX_BULK_UPDATES = 10000;
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    /**
+     * The format of the {@code lines} parameter: the first line and, optionally, the last line.
+     */
+    private static final Pattern LINE_RANGE = Pattern.compile("(\\d+)-(\\d*)");
+
+    /**
+     * The response header carrying the number of lines of a version when a range of lines is requested.
+     */
+    private static final String LINE_COUNT_HEADER = "X-Line-Count";
     
     /**
      * Creates a new file in the specified folder.
@@ -49,39 +113,580 @@ public class FileController {
         return fileService.updateFile(fileId, content);
     }
     
+    /**
+     * Creates a new file in the specified folder from the raw request body.
+     * The body is stored as it streams in, so files of any size can be uploaded with bounded memory.
+     *
+     * @param folderId the ID of the folder where the file will be created
+     * @param name the name of the new file
+     * @param body the request body, holding the content of the new file
+     * @return a ResponseEntity containing the created File object, or 404 if the folder does not exist
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<File> uploadFile(@RequestParam Long folderId, @RequestParam String name, InputStream body)
+            throws IOException {
+        try {
+            return ResponseEntity.ok(fileService.createFile(folderId, name, body));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Creates a new file in the specified folder from a multipart upload.
+     * Uploaded parts are spooled to disk by the servlet container and stored from there as they are read.
+     *
+     * @param folderId the ID of the folder where the file will be created
+     * @param name the name of the new file; defaults to the name of the uploaded file
+     * @param file the uploaded file
+     * @return a ResponseEntity containing the created File object, or 404 if the folder does not exist
+     * @throws IOException if the upload cannot be read
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<File> uploadMultipartFile(@RequestParam Long folderId,
+                                                    @RequestParam(required = false) String name,
+                                                    @RequestParam MultipartFile file) throws IOException {
+        String fileName = name != null ? name : file.getOriginalFilename();
+        if (fileName == null || fileName.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try (InputStream content = file.getInputStream()) {
+            return ResponseEntity.ok(fileService.createFile(folderId, fileName, content));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Updates the content of an existing file from the raw request body, streaming it into storage.
+     *
+     * @param fileId the ID of the file to be updated
+     * @param body the request body, holding the new content
+     * @return a ResponseEntity containing the updated File object, or 404 if the file does not exist
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/upload/{fileId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<File> uploadVersion(@PathVariable Long fileId, InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(fileService.updateFile(fileId, body));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Updates the content of an existing file from a multipart upload.
+     *
+     * @param fileId the ID of the file to be updated
+     * @param file the uploaded file
+     * @return a ResponseEntity containing the updated File object, or 404 if the file does not exist
+     * @throws IOException if the upload cannot be read
+     */
+    @PostMapping(value = "/upload/{fileId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<File> uploadMultipartVersion(@PathVariable Long fileId, @RequestParam MultipartFile file)
+            throws IOException {
+        try (InputStream content = file.getInputStream()) {
+            return ResponseEntity.ok(fileService.updateFile(fileId, content));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Updates the content of many files in one commit.
+     * The request body is a JSON array of {@code {"fileId": ..., "content": ...}} objects. It is parsed
+     * element by element as it streams in, without building a tree of the whole document.
+     *
+     * @param body the request body
+     * @return a ResponseEntity containing summaries of the updated files, 400 if the body is malformed,
+     *         too large or names an unknown file, or 429 if bulk updates are at their admission limit
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/bulk-update", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<FileSummary>> bulkUpdateFiles(InputStream body) throws IOException {
+        List<FileUpdate> updates = new ArrayList<>();
+        try (JsonParser json = objectMapper.getFactory().createParser(body)) {
+            if (json.nextToken() != JsonToken.START_ARRAY) {
+                return ResponseEntity.badRequest().build();
+            }
+            while (json.nextToken() == JsonToken.START_OBJECT) {
+                FileUpdate update = objectMapper.readValue(json, FileUpdate.class);
+                if (update.getFileId() == null || update.getContent() == null || updates.size() == MAX_BULK_UPDATES) {
+                    return ResponseEntity.badRequest().build();
+                }
+                updates.add(update);
+            }
+            if (json.currentToken() != JsonToken.END_ARRAY) {
+                return ResponseEntity.badRequest().build();
+            }
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(fileService.bulkUpdateFiles(updates));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
+    }
+    
     /**
      * Lists all files in the specified folder.
      *
      * @param folderId the ID of the folder
-     * @return a list of File objects in the folder
+     * @return a list of file summaries in the folder
      */
     @GetMapping("/list/{folderId}")
-    public List<File> listFiles(@PathVariable Long folderId) {
+    public List<FileSummary> listFiles(@PathVariable Long folderId) {
         return fileService.listFiles(folderId);
     }
     
     /**
-     * Lists all versions of the specified file.
+     * Lists the version history of the specified file, newest first, without content.
+     * The response is streamed as a JSON array of version metadata. Pages are requested by passing
+     * the last version number seen as {@code before}.
      *
      * @param fileId the ID of the file
-     * @return a list of Version objects for the file
+     * @param before only list versions with a lower version number
+     * @param after only list versions with a higher version number
+     * @param limit the maximum number of versions to list
+     * @return the streamed JSON array of version summaries, 400 if the limit is out of range,
+     *         or 404 if the file does not exist
      */
     @GetMapping("/versions/{fileId}")
-    public List<Version> listFileVersions(@PathVariable Long fileId) {
-        return fileService.listFileVersions(fileId);
+    public ResponseEntity<StreamingResponseBody> listFileVersions(
+            @PathVariable Long fileId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            fileService.getFile(fileId);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                fileService.streamFileVersions(fileId, before, after, limit, version -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeNumberField("versionNumber", version.getVersionNumber());
+                        json.writeStringField("timestamp", version.getTimestamp().toString());
+                        json.writeNumberField("size", version.getSize());
+                        json.writeStringField("contentHash", version.getContentHash());
+                        json.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
-    
+
+    /**
+     * Returns the content of a specific version of a file as text.
+     * A window of the content can be requested with a {@code Range: bytes=...} header or a
+     * {@code lines=from-to} parameter (1-based and inclusive; {@code from-} reads to the end).
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @param lines the range of lines to return, or null
+     * @param range the Range header, or null
+     * @return the content of the version or the requested part of it, or 404 if the version does not exist
+     * @throws IOException if the content cannot be read
+     */
+    @GetMapping("/versions/{fileId}/{versionNumber}/content")
+    public ResponseEntity<StreamingResponseBody> getFileVersionContent(
+            @PathVariable Long fileId,
+            @PathVariable int versionNumber,
+            @RequestParam(required = false) String lines,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) throws IOException {
+        VersionMetadata version;
+        try {
+            version = fileService.getFileVersion(fileId, versionNumber);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(version, lines, range, TEXT_PLAIN_UTF8);
+    }
+
+    /**
+     * Downloads the current content of a file as bytes.
+     * Like the version content endpoint, it accepts a Range header or a {@code lines} parameter.
+     *
+     * @param fileId the ID of the file
+     * @param lines the range of lines to return, or null
+     * @param range the Range header, or null
+     * @return the streamed content or the requested part of it, or 404 if the file does not exist
+     * @throws IOException if the content cannot be read
+     */
+    @GetMapping("/download/{fileId}")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable Long fileId,
+            @RequestParam(required = false) String lines,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) throws IOException {
+        VersionMetadata version;
+        try {
+            version = fileService.getLatestVersion(fileId);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(version, lines, range, MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Shows which version last changed each line of the current content of a file.
+     * The response is streamed as a JSON array with the number, origin version and text of each line;
+     * a window of lines can be requested with a {@code lines=from-to} parameter.
+     *
+     * @param fileId the ID of the file
+     * @param lines the range of lines to return, or null for all lines
+     * @return the streamed blame, 400 if the line range is malformed, or 404 if the file does not exist
+     * @throws IOException if the content cannot be read
+     */
+    @GetMapping("/blame/{fileId}")
+    public ResponseEntity<StreamingResponseBody> blameFile(
+            @PathVariable Long fileId,
+            @RequestParam(required = false) String lines) throws IOException {
+        VersionMetadata version;
+        try {
+            version = fileService.getLatestVersion(fileId);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return blame(version, lines);
+    }
+
+    /**
+     * Shows which version last changed each line of a specific version of a file.
+     * Accepts the same {@code lines} parameter as the blame of the current content.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @param lines the range of lines to return, or null for all lines
+     * @return the streamed blame, 400 if the line range is malformed, or 404 if the version does not exist
+     * @throws IOException if the content cannot be read
+     */
+    @GetMapping("/blame/{fileId}/{versionNumber}")
+    public ResponseEntity<StreamingResponseBody> blameFileVersion(
+            @PathVariable Long fileId,
+            @PathVariable int versionNumber,
+            @RequestParam(required = false) String lines) throws IOException {
+        VersionMetadata version;
+        try {
+            version = fileService.getFileVersion(fileId, versionNumber);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return blame(version, lines);
+    }
+
+    /**
+     * Streams the blame of a range of lines of a version, reading only those lines of the content. The lines are
+     * written out as they are read and their origins walked alongside, so memory does not grow with the range.
+     */
+    private ResponseEntity<StreamingResponseBody> blame(VersionMetadata version, String lines) throws IOException {
+        int[] lineRange = lines == null ? new int[] {1, Integer.MAX_VALUE} : parseLineRange(lines);
+        if (lineRange == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        Blame blame;
+        try {
+            blame = fileService.getBlame(version);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                BlameChannel channel = new BlameChannel(json, blame.cursor(lineRange[0]), lineRange[0], lineRange[1]);
+                if (channel.hasNext()) {
+                    fileService.transferLines(version, lineRange[0], lineRange[1], channel);
+                }
+                channel.finish();
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(LINE_COUNT_HEADER, String.valueOf(blame.lineCount()))
+                .body(body);
+    }
+
     /**
-     * Compares two versions of a file and returns the differences.
+     * Writes the lines of content passed to it as blame entries, one JSON object per line with the origin of the
+     * line. Only the line being read is buffered.
+     */
+    private static final class BlameChannel implements WritableByteChannel {
+
+        private final JsonGenerator json;
+
+        private final Blame.Cursor origins;
+
+        private final int to;
+
+        /**
+         * The number of the line being read.
+         */
+        private int line;
+
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+
+        private final byte[] scratch = new byte[8192];
+
+        BlameChannel(JsonGenerator json, Blame.Cursor origins, int from, int to) {
+            this.json = json;
+            this.origins = origins;
+            this.line = from;
+            this.to = to;
+        }
+
+        /**
+         * Tells whether a line of the range is left to write.
+         */
+        boolean hasNext() {
+            return line <= to && origins.hasNext();
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int count = src.remaining();
+            while (src.hasRemaining()) {
+                int end = src.position();
+                while (end < src.limit() && src.get(end) != '\n') {
+                    end++;
+                }
+                while (src.position() < end) {
+                    int length = Math.min(end - src.position(), scratch.length);
+                    src.get(scratch, 0, length);
+                    current.write(scratch, 0, length);
+                }
+                if (end < src.limit()) {
+                    src.get();
+                    writeLine();
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Writes the last line, which has no newline, and any lines of the blame past the end of the content.
+         */
+        void finish() throws IOException {
+            while (hasNext()) {
+                writeLine();
+            }
+        }
+
+        private void writeLine() throws IOException {
+            if (hasNext()) {
+                json.writeStartObject();
+                json.writeNumberField("line", line++);
+                json.writeNumberField("versionNumber", origins.next());
+                json.writeStringField("content", current.toString(StandardCharsets.UTF_8));
+                json.writeEndObject();
+            }
+            current.reset();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Downloads the content of a specific version of a file as bytes.
+     * Like the version content endpoint, it accepts a Range header or a {@code lines} parameter.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @param lines the range of lines to return, or null
+     * @param range the Range header, or null
+     * @return the streamed content or the requested part of it, or 404 if the version does not exist
+     * @throws IOException if the content cannot be read
+     */
+    @GetMapping("/download/{fileId}/{versionNumber}")
+    public ResponseEntity<StreamingResponseBody> downloadFileVersion(
+            @PathVariable Long fileId,
+            @PathVariable int versionNumber,
+            @RequestParam(required = false) String lines,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) throws IOException {
+        VersionMetadata version;
+        try {
+            version = fileService.getFileVersion(fileId, versionNumber);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return serve(version, lines, range, MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Parses a {@code lines} parameter into the first and last line, or returns null if it is malformed.
+     */
+    private static int[] parseLineRange(String lines) {
+        Matcher matcher = LINE_RANGE.matcher(lines);
+        if (!matcher.matches() || matcher.group(1).length() > 9 || matcher.group(2).length() > 9) {
+            return null;
+        }
+        int from = Integer.parseInt(matcher.group(1));
+        int to = matcher.group(2).isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(matcher.group(2));
+        return from < 1 || to < from ? null : new int[] {from, to};
+    }
+
+    /**
+     * Streams the content of a version straight from storage, one stored piece at a time, or the part of it
+     * selected by a line range or a single byte range. Multiple byte ranges are answered with the whole content.
+     * The content hash doubles as a strong entity tag.
+     */
+    private ResponseEntity<StreamingResponseBody> serve(VersionMetadata version, String lines, String range, MediaType contentType)
+            throws IOException {
+        String eTag = "\"" + version.contentHash() + "\"";
+        if (lines != null) {
+            int[] lineRange = parseLineRange(lines);
+            if (lineRange == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            int from = lineRange[0];
+            int to = lineRange[1];
+            int lineCount = fileService.getLineCount(version);
+            if (from > lineCount) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(LINE_COUNT_HEADER, String.valueOf(lineCount))
+                        .build();
+            }
+            StreamingResponseBody body = out -> fileService.transferLines(version, from, to, Channels.newChannel(out));
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .eTag(eTag)
+                    .header(LINE_COUNT_HEADER, String.valueOf(lineCount))
+                    .body(body);
+        }
+
+        List<HttpRange> ranges = List.of();
+        if (range != null) {
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+            }
+        }
+        if (ranges.size() == 1) {
+            long length = fileService.getContentLength(version);
+            long start;
+            long end;
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(length);
+            }
+            if (start >= length) {
+                return rangeNotSatisfiable(length);
+            }
+            StreamingResponseBody body = out -> fileService.transferContent(version, start, end - start + 1,
+                    Channels.newChannel(out));
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(contentType)
+                    .eTag(eTag)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length)
+                    .contentLength(end - start + 1)
+                    .body(body);
+        }
+
+        StreamingResponseBody body = out -> fileService.transferContent(version, 0, Long.MAX_VALUE, Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(eTag)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+    }
+
+    /**
+     * Compares two versions of a file and streams the differences as a unified diff.
      *
      * @param fileId the ID of the file
      * @param version1 the first version number to compare
      * @param version2 the second version number to compare
-     * @return a list of strings describing the differences between the two versions
+     * @param context the number of unchanged lines shown around each change
+     * @return the streamed unified diff between the two versions, 404 if a version does not exist,
+     *         or 429 if diffs are at their admission limit
      */
     @GetMapping("/diff")
-    public List<String> diff(@RequestParam Long fileId, @RequestParam int version1, @RequestParam int version2) {
-        return fileService.diffVersions(fileId, version1, version2);
+    public ResponseEntity<StreamingResponseBody> diff(
+            @RequestParam Long fileId,
+            @RequestParam int version1,
+            @RequestParam int version2,
+            @RequestParam(defaultValue = "0") int context) {
+        try {
+            return diffResponse(fileService.diffVersions(fileId, version1, version2, Math.max(0, context)));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RejectedExecutionException e) {
+            return busy();
+        }
+    }
+
+    /**
+     * Compares two versions of a file like {@link #diff}, computing the diff on the heavy task pool so the
+     * request thread is released while it runs.
+     *
+     * @param fileId the ID of the file
+     * @param version1 the first version number to compare
+     * @param version2 the second version number to compare
+     * @param context the number of unchanged lines shown around each change
+     * @return the streamed unified diff, 404 if a version does not exist, or 429 if the heavy task pool is saturated
+     *         or diffs are at their admission limit
+     */
+    @GetMapping("/diff/async")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> diffAsync(
+            @RequestParam Long fileId,
+            @RequestParam int version1,
+            @RequestParam int version2,
+            @RequestParam(defaultValue = "0") int context) {
+        try {
+            return fileService.diffVersionsAsync(fileId, version1, version2, Math.max(0, context))
+                    .handle((diff, e) -> e == null ? diffResponse(diff) : asyncError(e));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> diffResponse(UnifiedDiff diff) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            diff.writeTo(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(TEXT_PLAIN_UTF8).body(body);
+    }
+    
+    /**
+     * Returns the hit and miss counters of the diff cache.
+     *
+     * @return the diff cache statistics
+     */
+    @GetMapping("/diff/cache-stats")
+    public CacheStatistics diffCacheStatistics() {
+        return fileService.getDiffCacheStatistics();
     }
     
     /**
@@ -89,26 +694,81 @@ public class FileController {
      *
      * @param targetFileId the ID of the target file to merge into
      * @param sourceFileId the ID of the source file to merge from
-     * @return a ResponseEntity containing the merged File object
+     * @return a ResponseEntity containing the merged file, its new version number and any conflicts,
+     *         400 if a file is merged into itself, 404 if a file does not exist,
+     *         or 429 if merges are at their admission limit
      */
     @PostMapping("/merge")
-    public ResponseEntity<File> mergeFiles(@RequestParam Long targetFileId, @RequestParam Long sourceFileId) {
+    public ResponseEntity<MergeResult> mergeFiles(@RequestParam Long targetFileId, @RequestParam Long sourceFileId) {
         try {
-            File mergedFile = fileService.mergeFiles(targetFileId, sourceFileId);
-            return ResponseEntity.ok(mergedFile);
+            MergeResult result = fileService.mergeFiles(targetFileId, sourceFileId);
+            return ResponseEntity.ok(result);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(null);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RejectedExecutionException e) {
+            return busy();
         } catch (Exception e) {
+            log.error("Merge of file {} into file {} failed", sourceFileId, targetFileId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    /**
+     * Merges the content of two files like {@link #mergeFiles}, running the merge on the heavy task pool
+     * so the request thread is released while it runs.
+     *
+     * @param targetFileId the ID of the target file to merge into
+     * @param sourceFileId the ID of the source file to merge from
+     * @return the merge result, 400 if a file is merged into itself, 404 if a file does not exist,
+     *         or 429 if the heavy task pool is saturated or merges are at their admission limit
+     */
+    @PostMapping("/merge/async")
+    public CompletableFuture<ResponseEntity<MergeResult>> mergeFilesAsync(@RequestParam Long targetFileId,
+                                                                         @RequestParam Long sourceFileId) {
+        try {
+            return fileService.mergeFilesAsync(targetFileId, sourceFileId)
+                    .handle((result, e) -> e == null ? ResponseEntity.ok(result) : asyncError(e));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+    }
+
+    /**
+     * Maps the failure of asynchronous work to a response. Unexpected failures are logged, since the
+     * container never sees them.
+     */
+    private static <T> ResponseEntity<T> asyncError(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof NoSuchElementException) {
+            return ResponseEntity.notFound().build();
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return busy();
+        }
+        log.error("Asynchronous request failed", cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    }
+
+    /**
+     * The response to work turned away because the heavy task pool is saturated or the operation is at its
+     * admission limit. The client is told to back off for a second.
+     */
+    private static <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
     
     /**
      * Resolves conflicts in a file by setting its content to the resolved content.
      *
      * @param fileId the ID of the file with conflicts
      * @param resolvedContent the resolved content for the file
-     * @return a ResponseEntity containing the resolved File object
+     * @return a ResponseEntity containing the resolved File object, 400 if the resolved content still contains
+     *         conflicts, or 404 if the file does not exist
      */
     @PostMapping("/resolve-conflicts")
     public ResponseEntity<File> resolveConflicts(@RequestParam Long fileId, @RequestParam String resolvedContent) {
@@ -117,22 +777,47 @@ public class FileController {
             return ResponseEntity.ok(resolvedFile);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(null);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
+            log.error("Resolving the conflicts of file {} failed", fileId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
     
+    /**
+     * Lists the unresolved conflicts left by a merge in the current content of a file.
+     *
+     * @param fileId the ID of the file
+     * @return a ResponseEntity containing the conflicts, in order of appearance
+     */
+    @GetMapping("/conflicts/{fileId}")
+    public ResponseEntity<List<MergeConflict>> listConflicts(@PathVariable Long fileId) {
+        try {
+            return ResponseEntity.ok(fileService.findConflicts(fileId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     /**
      * Checks and resolves conflicts in a file by comparing its content with new content.
      *
      * @param fileId the ID of the file to check for conflicts
      * @param newContent the new content to compare with the file's current content
-     * @return the File object with resolved conflicts
+     * @return a ResponseEntity containing the File object with resolved conflicts, 400 if the new content still
+     *         contains conflicts, or 404 if the file does not exist
      */
     @GetMapping("/conflict")
-    public File resolveConflict(
+    public ResponseEntity<File> resolveConflict(
             @RequestParam Long fileId,
             @RequestParam String newContent) {
-        return conflictService.resolveConflict(fileId, newContent);
+        try {
+            return ResponseEntity.ok(conflictService.resolveConflict(fileId, newContent));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 }
@@ -1,21 +1,44 @@
 package com.VCS.LocalGit.Controller;
 
+import com.VCS.LocalGit.Dto.FolderChange;
+import com.VCS.LocalGit.Dto.FolderSummary;
 import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Entity.FolderCommit;
+import com.VCS.LocalGit.Service.FolderCommitService;
 import com.VCS.LocalGit.Service.FolderService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * The FolderController class handles HTTP requests related to folder operations.
- * This includes creating, updating, deleting, and listing folders.
+ * This includes creating, updating, deleting, and listing folders, and reading and comparing folder commits.
  */
 @RestController
 @RequestMapping("/folders")
 public class FolderController {
     @Autowired
     private FolderService folderService;
+
+    @Autowired
+    private FolderCommitService folderCommitService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The maximum number of folder commits returned by one request.
+     */
+    private static final int MAX_COMMITS_LIMIT = 1000;
     
     /**
      * Creates a new folder with the specified name.
@@ -53,10 +76,92 @@ public class FolderController {
     /**
      * Lists all folders.
      *
-     * @return a list of Folder objects
+     * @return a list of folder summaries
      */
     @GetMapping("/list")
-    public List<Folder> listFolders() {
+    public List<FolderSummary> listFolders() {
         return folderService.listFolders();
     }
+
+    /**
+     * Lists the commits of a folder, newest first. Pages are requested by passing the last commit number
+     * seen as {@code before}.
+     *
+     * @param folderId the ID of the folder
+     * @param before only list commits with a lower commit number
+     * @param limit the maximum number of commits to list
+     * @return a ResponseEntity containing the commits, or 400 if the limit is out of range
+     */
+    @GetMapping("/commits/{folderId}")
+    public ResponseEntity<List<FolderCommit>> listCommits(
+            @PathVariable Long folderId,
+            @RequestParam(required = false) Integer before,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_COMMITS_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(folderCommitService.listCommits(folderId, before, limit));
+    }
+
+    /**
+     * Lists the files of a folder as they were at a commit, with the version and content hash of each.
+     * The response is streamed as a JSON array.
+     *
+     * @param folderId the ID of the folder
+     * @param commitNumber the commit number
+     * @return the streamed files, or 404 if the commit does not exist
+     */
+    @GetMapping("/commits/{folderId}/{commitNumber}")
+    public ResponseEntity<StreamingResponseBody> getCommitFiles(@PathVariable Long folderId, @PathVariable int commitNumber) {
+        FolderCommit commit;
+        try {
+            commit = folderCommitService.getCommit(folderId, commitNumber);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                folderCommitService.forEachFile(commit, file -> {
+                    try {
+                        json.writeStartObject();
+                        json.writeNumberField("fileId", file.fileId());
+                        json.writeStringField("name", file.name());
+                        json.writeNumberField("versionNumber", file.versionNumber());
+                        json.writeStringField("contentHash", file.contentHash());
+                        json.writeEndObject();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Lists the files that differ between two commits of a folder. Only the parts of the folder trees that
+     * differ are read, so the cost depends on the number of changes rather than on the size of the folder.
+     *
+     * @param folderId the ID of the folder
+     * @param commit1 the number of the older commit, or 0 for the empty folder
+     * @param commit2 the number of the newer commit
+     * @return a ResponseEntity containing the changed files, 400 if a commit number is negative,
+     *         or 404 if a commit does not exist
+     */
+    @GetMapping("/compare")
+    public ResponseEntity<List<FolderChange>> compareCommits(
+            @RequestParam Long folderId,
+            @RequestParam int commit1,
+            @RequestParam int commit2) {
+        if (commit1 < 0 || commit2 < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(folderCommitService.compare(folderId, commit1, commit2));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package com.VCS.LocalGit.Controller;
+
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Dto.CodecStatistics;
+import com.VCS.LocalGit.Dto.GcStatus;
+import com.VCS.LocalGit.Service.MaintenanceService;
+import com.VCS.LocalGit.Service.MetadataCache;
+import com.VCS.LocalGit.Storage.ContentCodecs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * The MaintenanceController class handles HTTP requests that control background storage maintenance.
+ * It reports the progress of garbage collection and starts, pauses and resumes it,
+ * and reports how much storage content compression saves and how well the metadata caches serve reads.
+ */
+@RestController
+@RequestMapping("/maintenance")
+public class MaintenanceController {
+    @Autowired
+    private MaintenanceService maintenanceService;
+
+    @Autowired
+    private ContentCodecs contentCodecs;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    /**
+     * Returns the progress of the current garbage collection run, or the outcome of the last one.
+     *
+     * @return the garbage collection status
+     */
+    @GetMapping("/gc")
+    public GcStatus gcStatus() {
+        return maintenanceService.getStatus();
+    }
+
+    /**
+     * Starts a garbage collection run in the background.
+     *
+     * @return a ResponseEntity containing the status, with 202 if the run was started
+     *         or 409 if one is already in progress
+     */
+    @PostMapping("/gc/run")
+    public ResponseEntity<GcStatus> runGc() {
+        HttpStatus status = maintenanceService.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(maintenanceService.getStatus());
+    }
+
+    /**
+     * Pauses garbage collection at its next step.
+     *
+     * @return the garbage collection status
+     */
+    @PostMapping("/gc/pause")
+    public GcStatus pauseGc() {
+        maintenanceService.pause();
+        return maintenanceService.getStatus();
+    }
+
+    /**
+     * Resumes paused garbage collection.
+     *
+     * @return the garbage collection status
+     */
+    @PostMapping("/gc/resume")
+    public GcStatus resumeGc() {
+        maintenanceService.resume();
+        return maintenanceService.getStatus();
+    }
+
+    /**
+     * Returns the counters of content compression since startup: bytes written before and after encoding,
+     * and the time spent encoding and decoding.
+     *
+     * @return the codec statistics
+     */
+    @GetMapping("/codec-stats")
+    public CodecStatistics codecStatistics() {
+        return contentCodecs.getStatistics();
+    }
+
+    /**
+     * Returns the hit and miss counters of the caches of versions, file heads, and file and folder listings.
+     *
+     * @return the cache statistics by cache name
+     */
+    @GetMapping("/cache-stats")
+    public Map<String, CacheStatistics> cacheStatistics() {
+        return metadataCache.getStatistics();
+    }
+}
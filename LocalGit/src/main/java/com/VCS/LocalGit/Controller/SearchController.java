@@ -0,0 +1,54 @@
+package com.VCS.LocalGit.Controller;
+
+import com.VCS.LocalGit.Dto.SearchResult;
+import com.VCS.LocalGit.Service.SearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The SearchController class handles HTTP requests that search the content of all files and versions.
+ */
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private static final int MAX_SEARCH_LIMIT = 1000;
+
+    @Autowired
+    private SearchService searchService;
+
+    /**
+     * Finds the file versions whose content contains a string, one page at a time.
+     * Hits are ordered by file ID and version number and report the first matching line of each version.
+     *
+     * @param q the string to find, at least three bytes long
+     * @param ignoreCase whether ASCII letters match regardless of case
+     * @param folderId only search the files of this folder
+     * @param fileId only search this file
+     * @param fromVersion only search versions from this version number on
+     * @param toVersion only search versions up to this version number
+     * @param after the cursor returned with the previous page
+     * @param limit the maximum number of hits to return
+     * @return a ResponseEntity containing the page of hits, or 400 if the query is too short,
+     *         the cursor is malformed or the limit is out of range
+     */
+    @GetMapping
+    public ResponseEntity<SearchResult> search(@RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean ignoreCase,
+            @RequestParam(required = false) Long folderId,
+            @RequestParam(required = false) Long fileId,
+            @RequestParam(required = false) Integer fromVersion,
+            @RequestParam(required = false) Integer toVersion,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(searchService.search(q, ignoreCase, folderId, fileId, fromVersion, toVersion, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.VCS.LocalGit.Diff;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The Blame class records, for every line of a version, the version that last changed it.
+ * <p>
+ * Lines changed together tend to stay together, so the map is kept as runs of consecutive lines with the same
+ * origin. The blame of a version is derived from the blame of its predecessor and the edits between the two:
+ * unchanged lines keep their origin and inserted or replaced lines get the new version. Deriving it costs
+ * time proportional to the number of runs and edits, not to the length of the history.
+ */
+public final class Blame {
+
+    private final int lineCount;
+
+    /**
+     * The length of each run, in lines.
+     */
+    private final int[] lengths;
+
+    /**
+     * The version number the lines of each run originate from.
+     */
+    private final int[] origins;
+
+    private Blame(int lineCount, int[] lengths, int[] origins) {
+        this.lineCount = lineCount;
+        this.lengths = lengths;
+        this.origins = origins;
+    }
+
+    /**
+     * Creates the blame of a version whose lines all originate from it, such as the first version of a file.
+     *
+     * @param lineCount the number of lines of the version
+     * @param versionNumber the version number
+     * @return the blame
+     */
+    public static Blame of(int lineCount, int versionNumber) {
+        return lineCount == 0
+                ? new Blame(0, new int[0], new int[0])
+                : new Blame(lineCount, new int[] {lineCount}, new int[] {versionNumber});
+    }
+
+    /**
+     * Derives the blame of the next version from this blame and the edits turning this version into it.
+     *
+     * @param edits the edits from this version to the next, in ascending order
+     * @param nextLineCount the number of lines of the next version
+     * @param versionNumber the version number of the next version
+     * @return the blame of the next version
+     */
+    public Blame next(List<Edit> edits, int nextLineCount, int versionNumber) {
+        Builder builder = new Builder(lengths.length + 2 * edits.size() + 1);
+        int run = 0;
+        int runStart = 0;
+        int line = 0;
+        for (Edit edit : edits) {
+            // copy the unchanged lines before the edit, then skip the lines it removes
+            while (line < edit.getBeginA()) {
+                while (runStart + lengths[run] <= line) {
+                    runStart += lengths[run++];
+                }
+                int end = Math.min(runStart + lengths[run], edit.getBeginA());
+                builder.add(end - line, origins[run]);
+                line = end;
+            }
+            line = edit.getEndA();
+            builder.add(edit.getEndB() - edit.getBeginB(), versionNumber);
+        }
+        while (line < lineCount) {
+            while (runStart + lengths[run] <= line) {
+                runStart += lengths[run++];
+            }
+            builder.add(runStart + lengths[run] - line, origins[run]);
+            line = runStart + lengths[run];
+        }
+        Blame next = builder.build();
+        if (next.lineCount != nextLineCount) {
+            throw new IllegalArgumentException("Edits do not turn " + lineCount + " lines into " + nextLineCount);
+        }
+        return next;
+    }
+
+    /**
+     * Returns the number of lines of the version.
+     *
+     * @return the number of lines
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the version each of a range of lines originates from.
+     *
+     * @param from the first line, 1-based
+     * @param to the last line, inclusive; lines past the end are left out
+     * @return the origin of each line of the range, in order
+     */
+    public int[] origins(int from, int to) {
+        int last = Math.min(to, lineCount);
+        if (from > last) {
+            return new int[0];
+        }
+        int[] result = new int[last - from + 1];
+        int run = 0;
+        int runStart = 1;
+        for (int line = from; line <= last; line++) {
+            while (runStart + lengths[run] <= line) {
+                runStart += lengths[run++];
+            }
+            result[line - from] = origins[run];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the origins of successive lines, for ranges too long to hold their origins in an array.
+     *
+     * @param from the first line, 1-based
+     * @return the cursor, positioned before {@code from}
+     */
+    public Cursor cursor(int from) {
+        return new Cursor(from);
+    }
+
+    /**
+     * Walks the runs of the blame line by line, in order.
+     */
+    public final class Cursor {
+
+        private int line;
+
+        private int run;
+
+        private int runStart = 1;
+
+        private Cursor(int line) {
+            this.line = line;
+        }
+
+        /**
+         * Tells whether a line is left before the end of the version.
+         *
+         * @return true if {@link #next()} returns the origin of a line
+         */
+        public boolean hasNext() {
+            return line <= lineCount;
+        }
+
+        /**
+         * Returns the version the next line originates from, and moves past it.
+         *
+         * @return the origin of the line
+         */
+        public int next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Line " + line + " is past the end of " + lineCount);
+            }
+            while (runStart + lengths[run] <= line) {
+                runStart += lengths[run++];
+            }
+            line++;
+            return origins[run];
+        }
+    }
+
+    /**
+     * Serializes the blame for storage.
+     *
+     * @return the serialized blame
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + lengths.length * 2 * Integer.BYTES).putInt(lineCount);
+        for (int i = 0; i < lengths.length; i++) {
+            buffer.putInt(lengths[i]).putInt(origins[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a blame serialized by {@link #toBytes()}.
+     *
+     * @param data the serialized blame
+     * @return the blame
+     */
+    public static Blame parse(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int lineCount = buffer.getInt();
+        int runs = buffer.remaining() / (2 * Integer.BYTES);
+        int[] lengths = new int[runs];
+        int[] origins = new int[runs];
+        for (int i = 0; i < runs; i++) {
+            lengths[i] = buffer.getInt();
+            origins[i] = buffer.getInt();
+        }
+        return new Blame(lineCount, lengths, origins);
+    }
+
+    /**
+     * Collects runs, merging adjacent runs with the same origin.
+     */
+    private static final class Builder {
+
+        private int[] lengths;
+
+        private int[] origins;
+
+        private int size;
+
+        private int lineCount;
+
+        Builder(int capacity) {
+            lengths = new int[capacity];
+            origins = new int[capacity];
+        }
+
+        void add(int length, int origin) {
+            if (length <= 0) {
+                return;
+            }
+            lineCount += length;
+            if (size > 0 && origins[size - 1] == origin) {
+                lengths[size - 1] += length;
+                return;
+            }
+            if (size == lengths.length) {
+                lengths = Arrays.copyOf(lengths, size * 2 + 1);
+                origins = Arrays.copyOf(origins, size * 2 + 1);
+            }
+            lengths[size] = length;
+            origins[size++] = origin;
+        }
+
+        Blame build() {
+            return new Blame(lineCount, Arrays.copyOf(lengths, size), Arrays.copyOf(origins, size));
+        }
+    }
+}
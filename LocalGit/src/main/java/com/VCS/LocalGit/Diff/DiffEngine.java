@@ -0,0 +1,451 @@
+package com.VCS.LocalGit.Diff;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The DiffEngine class computes line edits between two texts.
+ * Lines are interned to int IDs, common prefixes and suffixes are trimmed, and the remaining region is diffed
+ * with either a histogram diff or Myers' algorithm.
+ * <p>
+ * Work is bounded by a line budget and a time budget. A region larger than the line budget, or any region
+ * still pending when the time budget runs out, is reported as a single coarse edit replacing the whole region.
+ */
+public class DiffEngine {
+
+    /**
+     * The diff algorithm used on the trimmed region.
+     */
+    public enum Algorithm {
+        /**
+         * Anchors on the rarest common lines and recurses around them; fast and readable on source text.
+         */
+        HISTOGRAM,
+        /**
+         * Myers' minimal diff over the line IDs, in linear space by bisecting on the middle snake.
+         */
+        MYERS
+    }
+
+    /**
+     * Lines occurring more often than this in a region are never used as anchors by the histogram diff.
+     */
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    private final Algorithm algorithm;
+
+    private final int maxLines;
+
+    private final long timeBudgetNanos;
+
+    /**
+     * The edits between two texts.
+     *
+     * @param edits the edits, in ascending order
+     * @param timedOut whether the time budget ran out and some regions were reported coarsely; such edits
+     *                 may come out finer when computed again
+     */
+    public record Result(List<Edit> edits, boolean timedOut) {
+    }
+
+    /**
+     * Creates a diff engine.
+     *
+     * @param algorithm the algorithm to use
+     * @param maxLines the largest trimmed region, in lines of both texts together, that is diffed line by line
+     * @param timeBudget the time after which pending regions are reported coarsely
+     */
+    public DiffEngine(Algorithm algorithm, int maxLines, Duration timeBudget) {
+        this.algorithm = algorithm;
+        this.maxLines = maxLines;
+        this.timeBudgetNanos = timeBudget.toNanos();
+    }
+
+    /**
+     * Computes the edits turning the first text into the second.
+     *
+     * @param a the line index of the first text
+     * @param b the line index of the second text
+     * @return the edits, in ascending order
+     */
+    public List<Edit> diff(LineIndex a, LineIndex b) {
+        return compute(a, b).edits();
+    }
+
+    /**
+     * Computes the edits turning the first text into the second, reporting whether the time budget ran out.
+     *
+     * @param a the line index of the first text
+     * @param b the line index of the second text
+     * @return the edits
+     */
+    public Result compute(LineIndex a, LineIndex b) {
+        LineInterner interner = new LineInterner();
+        int[] idsA = interner.intern(a);
+        int[] idsB = interner.intern(b);
+        return compute(idsA, idsB, interner.size());
+    }
+
+    /**
+     * Computes the edits turning a range of one sequence of line IDs into a range of another.
+     * The returned edits are relative to the start of each range.
+     *
+     * @param a the line IDs of the first text
+     * @param aStart the start of the range in the first text
+     * @param aEnd the end of the range in the first text
+     * @param b the line IDs of the second text
+     * @param bStart the start of the range in the second text
+     * @param bEnd the end of the range in the second text
+     * @param idCount one more than the largest line ID
+     * @return the edits, in ascending order
+     */
+    public List<Edit> diff(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, int idCount) {
+        return diff(Arrays.copyOfRange(a, aStart, aEnd), Arrays.copyOfRange(b, bStart, bEnd), idCount);
+    }
+
+    /**
+     * Computes the edits turning one sequence of line IDs into another.
+     *
+     * @param a the line IDs of the first text
+     * @param b the line IDs of the second text
+     * @param idCount one more than the largest line ID
+     * @return the edits, in ascending order
+     */
+    public List<Edit> diff(int[] a, int[] b, int idCount) {
+        return compute(a, b, idCount).edits();
+    }
+
+    private Result compute(int[] a, int[] b, int idCount) {
+        int aStart = 0;
+        int bStart = 0;
+        int aEnd = a.length;
+        int bEnd = b.length;
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            aStart++;
+            bStart++;
+        }
+        while (aEnd > aStart && bEnd > bStart && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        if (aStart == aEnd && bStart == bEnd) {
+            return new Result(edits, false);
+        }
+        if ((aEnd - aStart) + (bEnd - bStart) > maxLines) {
+            edits.add(new Edit(aStart, aEnd, bStart, bEnd));
+            return new Result(edits, false);
+        }
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        boolean timedOut = algorithm == Algorithm.MYERS
+                ? new Myers(a, b, (aEnd - aStart) + (bEnd - bStart), deadline).run(aStart, aEnd, bStart, bEnd, edits)
+                : new Histogram(a, b, idCount, deadline).run(aStart, aEnd, bStart, bEnd, edits);
+        return new Result(edits, timedOut);
+    }
+
+    /**
+     * Myers diff over one pair of ID sequences.
+     * Each region is split at a point on one of its shortest edit paths, found by searching from both ends
+     * at once, so only two vectors of diagonals are kept whatever the region's size. Regions are processed
+     * from an explicit stack, left before right, and the time budget is checked at every step of the search.
+     */
+    private static final class Myers {
+
+        private final int[] a;
+
+        private final int[] b;
+
+        private final long deadline;
+
+        /**
+         * The furthest position in the first text reached on each diagonal, searching forward.
+         */
+        private final int[] forward;
+
+        /**
+         * The furthest distance from the end of the first text reached on each diagonal, searching backward.
+         */
+        private final int[] backward;
+
+        Myers(int[] a, int[] b, int lines, long deadline) {
+            this.a = a;
+            this.b = b;
+            this.deadline = deadline;
+            this.forward = new int[lines + 2];
+            this.backward = new int[lines + 2];
+        }
+
+        /**
+         * Adds the edits of the given region.
+         *
+         * @return true if the time budget ran out before every region was diffed line by line
+         */
+        boolean run(int aStart, int aEnd, int bStart, int bEnd, List<Edit> edits) {
+            boolean timedOut = false;
+            Deque<int[]> regions = new ArrayDeque<>();
+            regions.push(new int[] {aStart, aEnd, bStart, bEnd});
+            while (!regions.isEmpty()) {
+                int[] region = regions.pop();
+                int as = region[0];
+                int ae = region[1];
+                int bs = region[2];
+                int be = region[3];
+                while (as < ae && bs < be && a[as] == b[bs]) {
+                    as++;
+                    bs++;
+                }
+                while (ae > as && be > bs && a[ae - 1] == b[be - 1]) {
+                    ae--;
+                    be--;
+                }
+                if (as == ae && bs == be) {
+                    continue;
+                }
+                int[] split = as == ae || bs == be ? null : bisect(as, ae, bs, be);
+                if (split == null && as != ae && bs != be) {
+                    timedOut = true;
+                }
+                if (split == null || (split[0] == as && split[1] == bs) || (split[0] == ae && split[1] == be)) {
+                    add(edits, new Edit(as, ae, bs, be));
+                    continue;
+                }
+                regions.push(new int[] {split[0], ae, split[1], be});
+                regions.push(new int[] {as, split[0], bs, split[1]});
+            }
+            return timedOut;
+        }
+
+        /**
+         * Finds a point where a shortest edit path of the region crosses from its first to its second half.
+         *
+         * @return the point in the first and second text, or null if the time budget ran out
+         */
+        private int[] bisect(int as, int ae, int bs, int be) {
+            int n = ae - as;
+            int m = be - bs;
+            int maxD = (n + m + 1) / 2;
+            int offset = maxD;
+            int length = 2 * maxD;
+            Arrays.fill(forward, 0, length, -1);
+            Arrays.fill(backward, 0, length, -1);
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+            int delta = n - m;
+            // With an odd delta the paths meet while searching forward, otherwise while searching backward.
+            boolean front = (delta & 1) != 0;
+            int kfStart = 0;
+            int kfEnd = 0;
+            int kbStart = 0;
+            int kbEnd = 0;
+            for (int d = 0; d < maxD; d++) {
+                if (System.nanoTime() >= deadline) {
+                    return null;
+                }
+                for (int k = -d + kfStart; k <= d - kfEnd; k += 2) {
+                    int i = offset + k;
+                    int x = k == -d || (k != d && forward[i - 1] < forward[i + 1]) ? forward[i + 1] : forward[i - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && a[as + x] == b[bs + y]) {
+                        x++;
+                        y++;
+                    }
+                    forward[i] = x;
+                    if (x > n) {
+                        kfEnd += 2;
+                    } else if (y > m) {
+                        kfStart += 2;
+                    } else if (front) {
+                        int j = offset + delta - k;
+                        if (j >= 0 && j < length && backward[j] != -1 && x >= n - backward[j]) {
+                            return new int[] {as + x, bs + y};
+                        }
+                    }
+                }
+                for (int k = -d + kbStart; k <= d - kbEnd; k += 2) {
+                    int i = offset + k;
+                    int x = k == -d || (k != d && backward[i - 1] < backward[i + 1]) ? backward[i + 1] : backward[i - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && a[ae - x - 1] == b[be - y - 1]) {
+                        x++;
+                        y++;
+                    }
+                    backward[i] = x;
+                    if (x > n) {
+                        kbEnd += 2;
+                    } else if (y > m) {
+                        kbStart += 2;
+                    } else if (!front) {
+                        int j = offset + delta - k;
+                        if (j >= 0 && j < length && forward[j] != -1) {
+                            int fx = forward[j];
+                            int fy = fx - (j - offset);
+                            if (fx >= n - x) {
+                                return new int[] {as + fx, bs + fy};
+                            }
+                        }
+                    }
+                }
+            }
+            return new int[] {ae, be};
+        }
+
+        /**
+         * Adds an edit, merging it into the previous one if the two touch.
+         */
+        private static void add(List<Edit> edits, Edit edit) {
+            if (!edits.isEmpty()) {
+                Edit last = edits.get(edits.size() - 1);
+                if (last.getEndA() == edit.getBeginA() && last.getEndB() == edit.getBeginB()) {
+                    edits.set(edits.size() - 1, new Edit(last.getBeginA(), edit.getEndA(), last.getBeginB(), edit.getEndB()));
+                    return;
+                }
+            }
+            edits.add(edit);
+        }
+    }
+
+    /**
+     * Histogram diff over one pair of ID sequences.
+     * Regions are processed from an explicit stack, left before right, so edits come out in order
+     * and deep inputs cannot overflow the call stack.
+     */
+    private static final class Histogram {
+
+        private final int[] a;
+
+        private final int[] b;
+
+        private final long deadline;
+
+        /**
+         * Occurrence count of each line ID within the current region of the first text.
+         */
+        private final int[] counts;
+
+        /**
+         * First occurrence of each line ID within the current region of the first text.
+         */
+        private final int[] heads;
+
+        /**
+         * Next occurrence of the same line ID, by position in the first text.
+         */
+        private final int[] next;
+
+        Histogram(int[] a, int[] b, int idCount, long deadline) {
+            this.a = a;
+            this.b = b;
+            this.deadline = deadline;
+            this.counts = new int[idCount];
+            this.heads = new int[idCount];
+            this.next = new int[a.length];
+            Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Adds the edits of the given region.
+         *
+         * @return true if the time budget ran out before every region was diffed line by line
+         */
+        boolean run(int aStart, int aEnd, int bStart, int bEnd, List<Edit> edits) {
+            boolean timedOut = false;
+            Deque<int[]> regions = new ArrayDeque<>();
+            regions.push(new int[] {aStart, aEnd, bStart, bEnd});
+            while (!regions.isEmpty()) {
+                int[] region = regions.pop();
+                int as = region[0];
+                int ae = region[1];
+                int bs = region[2];
+                int be = region[3];
+                while (as < ae && bs < be && a[as] == b[bs]) {
+                    as++;
+                    bs++;
+                }
+                while (ae > as && be > bs && a[ae - 1] == b[be - 1]) {
+                    ae--;
+                    be--;
+                }
+                if (as == ae && bs == be) {
+                    continue;
+                }
+                if (as == ae || bs == be) {
+                    edits.add(new Edit(as, ae, bs, be));
+                    continue;
+                }
+                if (System.nanoTime() >= deadline) {
+                    timedOut = true;
+                    edits.add(new Edit(as, ae, bs, be));
+                    continue;
+                }
+
+                int[] anchor = findAnchor(as, ae, bs, be);
+                if (anchor == null) {
+                    edits.add(new Edit(as, ae, bs, be));
+                    continue;
+                }
+                regions.push(new int[] {anchor[0] + anchor[2], ae, anchor[1] + anchor[2], be});
+                regions.push(new int[] {as, anchor[0], bs, anchor[1]});
+            }
+            return timedOut;
+        }
+
+        /**
+         * Finds the common run built around the rarest line of the region, preferring longer runs on ties
+     * and then runs nearer the middle of the region.
+         *
+         * @return the start in the first text, the start in the second text and the length of the run,
+         *         or null if the region has no usable common line
+         */
+        private int[] findAnchor(int as, int ae, int bs, int be) {
+            for (int i = ae - 1; i >= as; i--) {
+                int id = a[i];
+                next[i] = heads[id];
+                heads[id] = i;
+                counts[id]++;
+            }
+
+            // Equally good runs are broken towards the middle of the region, so evenly spread changes
+            // split the region in halves instead of peeling one run off at a time.
+            int middle = bs + be;
+            int[] best = null;
+            int bestCount = MAX_CHAIN_LENGTH;
+            for (int j = bs; j < be; j++) {
+                int count = counts[b[j]];
+                if (count == 0 || count > bestCount) {
+                    continue;
+                }
+                int skipTo = j;
+                for (int i = heads[b[j]]; i >= 0; i = next[i]) {
+                    int start = 0;
+                    while (i - start > as && j - start > bs && a[i - start - 1] == b[j - start - 1]) {
+                        start++;
+                    }
+                    int end = 1;
+                    while (i + end < ae && j + end < be && a[i + end] == b[j + end]) {
+                        end++;
+                    }
+                    int length = start + end;
+                    if (best == null || count < bestCount || length > best[2]
+                            || (length == best[2] && Math.abs(2 * (j - start) + length - middle) < Math.abs(2 * best[1] + best[2] - middle))) {
+                        best = new int[] {i - start, j - start, length};
+                        bestCount = count;
+                    }
+                    skipTo = Math.max(skipTo, j + end - 1);
+                }
+                // Lines inside the run just found would only find the same run again.
+                j = skipTo;
+            }
+
+            for (int i = as; i < ae; i++) {
+                heads[a[i]] = -1;
+                counts[a[i]] = 0;
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.VCS.LocalGit.Diff;
+
+import lombok.Value;
+
+/**
+ * The Edit class describes one change between two texts: lines {@code [beginA, endA)} of the first text
+ * are replaced by lines {@code [beginB, endB)} of the second. Either range may be empty.
+ */
+@Value
+public class Edit {
+
+    /**
+     * The first changed line in the first text.
+     */
+    int beginA;
+
+    /**
+     * One past the last changed line in the first text.
+     */
+    int endA;
+
+    /**
+     * The first changed line in the second text.
+     */
+    int beginB;
+
+    /**
+     * One past the last changed line in the second text.
+     */
+    int endB;
+}
@@ -0,0 +1,100 @@
+package com.VCS.LocalGit.Diff;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The LineIndex class records the line boundaries of a text without materializing the lines as strings.
+ * Lines are separated by {@code '\n'}, which is not part of the line; a trailing newline does not start an extra line.
+ */
+public final class LineIndex {
+
+    private final String text;
+
+    /**
+     * The start offset of each line, followed by a sentinel one past the end of the text.
+     */
+    private final int[] starts;
+
+    private LineIndex(String text, int[] starts) {
+        this.text = text;
+        this.starts = starts;
+    }
+
+    /**
+     * Indexes the lines of the given text.
+     *
+     * @param text the text to index
+     * @return the line index
+     */
+    public static LineIndex of(String text) {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        boolean unterminated = !text.isEmpty() && text.charAt(text.length() - 1) != '\n';
+        int[] starts = new int[count + (unterminated ? 1 : 0) + 1];
+
+        int line = 1;
+        for (int i = text.indexOf('\n'); i >= 0 && line < starts.length; i = text.indexOf('\n', i + 1)) {
+            starts[line++] = i + 1;
+        }
+        starts[starts.length - 1] = text.length() + (unterminated ? 1 : 0);
+        return new LineIndex(text, starts);
+    }
+
+    /**
+     * @return the number of lines
+     */
+    public int size() {
+        return starts.length - 1;
+    }
+
+    /**
+     * @return the indexed text
+     */
+    public String text() {
+        return text;
+    }
+
+    /**
+     * Returns the offset of the first character of a line.
+     *
+     * @param line the zero-based line number
+     * @return the start offset of the line
+     */
+    public int start(int line) {
+        return starts[line];
+    }
+
+    /**
+     * Returns the offset one past the last character of a line, excluding its newline.
+     *
+     * @param line the zero-based line number
+     * @return the end offset of the line
+     */
+    public int end(int line) {
+        return starts[line + 1] - 1;
+    }
+
+    /**
+     * Tells whether a line ends with a newline; only the last line of a text may not.
+     *
+     * @param line the zero-based line number
+     * @return true if the line is followed by a newline
+     */
+    public boolean isTerminated(int line) {
+        return end(line) < text.length();
+    }
+
+    /**
+     * Writes a line, without its newline, to the given writer.
+     *
+     * @param out the writer
+     * @param line the zero-based line number
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out, int line) throws IOException {
+        out.write(text, start(line), end(line) - start(line));
+    }
+}
@@ -0,0 +1,117 @@
+package com.VCS.LocalGit.Diff;
+
+import java.util.Arrays;
+
+/**
+ * The LineInterner class maps lines to small integer IDs, so that equal lines get equal IDs.
+ * A last line without a newline differs from the same line with one, as in {@code diff}.
+ * Diffing then compares primitive int arrays instead of strings, and no per-line strings are allocated.
+ */
+final class LineInterner {
+
+    private LineIndex[] sources = new LineIndex[2];
+
+    private int sourceCount;
+
+    /**
+     * Open-addressing hash table of line IDs plus one; zero marks an empty slot.
+     */
+    private int[] table = new int[1024];
+
+    private int[] hashes = new int[256];
+
+    private int[] ownerSource = new int[256];
+
+    private int[] ownerLine = new int[256];
+
+    private int size;
+
+    /**
+     * Interns all lines of the given text.
+     *
+     * @param index the line index of the text
+     * @return the ID of each line
+     */
+    int[] intern(LineIndex index) {
+        if (sourceCount == sources.length) {
+            sources = Arrays.copyOf(sources, sourceCount * 2);
+        }
+        int source = sourceCount;
+        sources[sourceCount++] = index;
+        int[] ids = new int[index.size()];
+        for (int line = 0; line < ids.length; line++) {
+            ids[line] = intern(source, line);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of distinct lines seen so far
+     */
+    int size() {
+        return size;
+    }
+
+    private int intern(int source, int line) {
+        int hash = hash(sources[source], line);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return add(slot, hash, source, line);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && equal(sources[ownerSource[id]], ownerLine[id], sources[source], line)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(int slot, int hash, int source, int line) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            ownerSource = Arrays.copyOf(ownerSource, size * 2);
+            ownerLine = Arrays.copyOf(ownerLine, size * 2);
+        }
+        int id = size++;
+        hashes[id] = hash;
+        ownerSource[id] = source;
+        ownerLine[id] = line;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    private static int hash(LineIndex index, int line) {
+        String text = index.text();
+        int hash = 0;
+        for (int i = index.start(line), end = index.end(line); i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        if (!index.isTerminated(line)) {
+            hash = ~hash;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equal(LineIndex a, int lineA, LineIndex b, int lineB) {
+        int length = a.end(lineA) - a.start(lineA);
+        return length == b.end(lineB) - b.start(lineB)
+                && a.isTerminated(lineA) == b.isTerminated(lineB)
+                && a.text().regionMatches(a.start(lineA), b.text(), b.start(lineB), length);
+    }
+}
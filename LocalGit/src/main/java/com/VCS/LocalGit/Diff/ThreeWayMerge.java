@@ -0,0 +1,288 @@
+package com.VCS.LocalGit.Diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.VCS.LocalGit.Dto.MergeConflict;
+
+/**
+ * The ThreeWayMerge class merges two texts that both descend from a common base text.
+ * <p>
+ * Both texts are diffed against the base, and the edits are grouped into chunks of the base where
+ * one or both sides changed. A chunk changed on one side only, or changed identically on both, is merged
+ * automatically. A chunk changed differently on both sides is a conflict: the two sides are diffed against
+ * each other, lines they agree on are kept, and each remaining difference is enclosed in conflict markers.
+ * The two diffs against the base run in parallel. Conflicting chunks are independent of each other, so when
+ * there are many they are refined in parallel too.
+ */
+public class ThreeWayMerge {
+
+    /**
+     * The marker opening a conflict, followed by the target side.
+     */
+    public static final String TARGET_MARKER = "<<<<<<<";
+
+    /**
+     * The marker separating the target side of a conflict from the source side.
+     */
+    public static final String SEPARATOR = "=======";
+
+    /**
+     * The marker closing a conflict, after the source side.
+     */
+    public static final String SOURCE_MARKER = ">>>>>>>";
+
+    private final DiffEngine diffEngine;
+
+    private final ForkJoinPool pool;
+
+    private final int parallelThreshold;
+
+    /**
+     * Creates a three-way merge.
+     *
+     * @param diffEngine the engine used to diff the texts
+     * @param pool the pool on which the source is diffed against the base and conflicting chunks are refined
+     * @param parallelThreshold the number of conflicting chunks from which refinement runs in parallel
+     */
+    public ThreeWayMerge(DiffEngine diffEngine, ForkJoinPool pool, int parallelThreshold) {
+        this.diffEngine = diffEngine;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * The merged content together with the conflicts left in it.
+     *
+     * @param content the merged content, with conflict markers around each conflict
+     * @param conflicts the conflicts, in order of appearance
+     */
+    public record Result(String content, List<MergeConflict> conflicts) {
+    }
+
+    /**
+     * Merges the target and source texts, which both descend from the base text.
+     *
+     * @param base the common ancestor text
+     * @param target the target text
+     * @param source the source text
+     * @param targetLabel the label written after the opening conflict marker
+     * @param sourceLabel the label written after the closing conflict marker
+     * @return the merge result
+     */
+    public Result merge(String base, String target, String source, String targetLabel, String sourceLabel) {
+        return new Merge(base, target, source).run(targetLabel, sourceLabel);
+    }
+
+    /**
+     * A range of lines of one text, or a conflict between a range of the target and a range of the source.
+     */
+    private record Piece(LineIndex lines, int start, int end, int sourceStart, int sourceEnd, boolean conflict) {
+
+        static Piece of(LineIndex lines, int start, int end) {
+            return new Piece(lines, start, end, 0, 0, false);
+        }
+
+        static Piece conflict(LineIndex target, int start, int end, int sourceStart, int sourceEnd) {
+            return new Piece(target, start, end, sourceStart, sourceEnd, true);
+        }
+    }
+
+    /**
+     * The state of one merge.
+     */
+    private final class Merge {
+
+        private final LineIndex base;
+
+        private final LineIndex target;
+
+        private final LineIndex source;
+
+        private final int[] baseIds;
+
+        private final int[] targetIds;
+
+        private final int[] sourceIds;
+
+        private final int idCount;
+
+        Merge(String base, String target, String source) {
+            this.base = LineIndex.of(base);
+            this.target = LineIndex.of(target);
+            this.source = LineIndex.of(source);
+            LineInterner interner = new LineInterner();
+            this.baseIds = interner.intern(this.base);
+            this.targetIds = interner.intern(this.target);
+            this.sourceIds = interner.intern(this.source);
+            this.idCount = interner.size();
+        }
+
+        Result run(String targetLabel, String sourceLabel) {
+            List<Piece> pieces = new ArrayList<>();
+            List<Piece> conflicts = new ArrayList<>();
+            chunk(pieces, conflicts);
+
+            List<List<Piece>> refined = conflicts.size() >= parallelThreshold
+                    ? pool.submit(() -> conflicts.parallelStream().map(this::refine).toList()).join()
+                    : conflicts.stream().map(this::refine).toList();
+
+            StringBuilder content = new StringBuilder(Math.max(target.text().length(), source.text().length()));
+            List<MergeConflict> found = new ArrayList<>();
+            int line = 1;
+            int next = 0;
+            for (Piece piece : pieces) {
+                for (Piece part : piece.conflict() ? refined.get(next++) : List.of(piece)) {
+                    if (!part.conflict()) {
+                        append(content, part.lines(), part.start(), part.end());
+                        line += part.end() - part.start();
+                        continue;
+                    }
+                    found.add(new MergeConflict(line, lines(target, part.start(), part.end()),
+                            lines(source, part.sourceStart(), part.sourceEnd())));
+                    content.append(TARGET_MARKER).append(' ').append(targetLabel).append('\n');
+                    append(content, target, part.start(), part.end());
+                    content.append(SEPARATOR).append('\n');
+                    append(content, source, part.sourceStart(), part.sourceEnd());
+                    content.append(SOURCE_MARKER).append(' ').append(sourceLabel).append('\n');
+                    line += (part.end() - part.start()) + (part.sourceEnd() - part.sourceStart()) + 3;
+                }
+            }
+
+            String reference = target.size() > 0 ? target.text() : source.text();
+            if (content.length() > 0 && !reference.isEmpty() && !reference.endsWith("\n")) {
+                content.setLength(content.length() - 1);
+            }
+            return new Result(content.toString(), found);
+        }
+
+        /**
+         * Splits the merge into pieces: unchanged base ranges, ranges taken from one side, and conflicts.
+         * Conflicts are also collected separately so they can be refined independently.
+         */
+        private void chunk(List<Piece> pieces, List<Piece> conflicts) {
+            ForkJoinTask<List<Edit>> sourceDiff = pool.submit(() -> diffEngine.diff(baseIds, sourceIds, idCount));
+            List<Edit> targetEdits = diffEngine.diff(baseIds, targetIds, idCount);
+            List<Edit> sourceEdits = sourceDiff.join();
+
+            int t = 0;
+            int s = 0;
+            int position = 0;
+            int targetShift = 0;
+            int sourceShift = 0;
+            while (t < targetEdits.size() || s < sourceEdits.size()) {
+                boolean targetFirst = s >= sourceEdits.size()
+                        || (t < targetEdits.size() && targetEdits.get(t).getBeginA() <= sourceEdits.get(s).getBeginA());
+                Edit first = targetFirst ? targetEdits.get(t) : sourceEdits.get(s);
+                int chunkStart = first.getBeginA();
+                int chunkEnd = first.getEndA();
+
+                // Grow the chunk over every edit, on either side, that overlaps or touches it.
+                int tFirst = t;
+                int sFirst = s;
+                boolean grown = true;
+                while (grown) {
+                    grown = false;
+                    while (t < targetEdits.size() && targetEdits.get(t).getBeginA() <= chunkEnd) {
+                        chunkEnd = Math.max(chunkEnd, targetEdits.get(t++).getEndA());
+                        grown = true;
+                    }
+                    while (s < sourceEdits.size() && sourceEdits.get(s).getBeginA() <= chunkEnd) {
+                        chunkEnd = Math.max(chunkEnd, sourceEdits.get(s++).getEndA());
+                        grown = true;
+                    }
+                }
+
+                if (position < chunkStart) {
+                    pieces.add(Piece.of(base, position, chunkStart));
+                }
+                position = chunkEnd;
+
+                boolean targetChanged = t > tFirst;
+                boolean sourceChanged = s > sFirst;
+                if (targetChanged) {
+                    targetShift = targetEdits.get(tFirst).getBeginB() - targetEdits.get(tFirst).getBeginA();
+                }
+                if (sourceChanged) {
+                    sourceShift = sourceEdits.get(sFirst).getBeginB() - sourceEdits.get(sFirst).getBeginA();
+                }
+                int targetStart = chunkStart + targetShift;
+                int sourceStart = chunkStart + sourceShift;
+                if (targetChanged) {
+                    Edit last = targetEdits.get(t - 1);
+                    targetShift = last.getEndB() - last.getEndA();
+                }
+                if (sourceChanged) {
+                    Edit last = sourceEdits.get(s - 1);
+                    sourceShift = last.getEndB() - last.getEndA();
+                }
+                int targetEnd = chunkEnd + targetShift;
+                int sourceEnd = chunkEnd + sourceShift;
+
+                if (!sourceChanged || (targetChanged && sameLines(targetStart, targetEnd, sourceStart, sourceEnd))) {
+                    pieces.add(Piece.of(target, targetStart, targetEnd));
+                } else if (!targetChanged) {
+                    pieces.add(Piece.of(source, sourceStart, sourceEnd));
+                } else {
+                    Piece conflict = Piece.conflict(target, targetStart, targetEnd, sourceStart, sourceEnd);
+                    pieces.add(conflict);
+                    conflicts.add(conflict);
+                }
+            }
+            if (position < base.size()) {
+                pieces.add(Piece.of(base, position, base.size()));
+            }
+        }
+
+        /**
+         * Narrows a conflicting chunk to the lines where the two sides actually differ.
+         */
+        private List<Piece> refine(Piece conflict) {
+            List<Edit> edits = diffEngine.diff(targetIds, conflict.start(), conflict.end(),
+                    sourceIds, conflict.sourceStart(), conflict.sourceEnd(), idCount);
+            List<Piece> parts = new ArrayList<>();
+            int position = 0;
+            for (Edit edit : edits) {
+                if (position < edit.getBeginA()) {
+                    parts.add(Piece.of(target, conflict.start() + position, conflict.start() + edit.getBeginA()));
+                }
+                parts.add(Piece.conflict(target, conflict.start() + edit.getBeginA(), conflict.start() + edit.getEndA(),
+                        conflict.sourceStart() + edit.getBeginB(), conflict.sourceStart() + edit.getEndB()));
+                position = edit.getEndA();
+            }
+            if (conflict.start() + position < conflict.end()) {
+                parts.add(Piece.of(target, conflict.start() + position, conflict.end()));
+            }
+            return parts;
+        }
+
+        private boolean sameLines(int targetStart, int targetEnd, int sourceStart, int sourceEnd) {
+            if (targetEnd - targetStart != sourceEnd - sourceStart) {
+                return false;
+            }
+            for (int i = 0; i < targetEnd - targetStart; i++) {
+                if (targetIds[targetStart + i] != sourceIds[sourceStart + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void append(StringBuilder content, LineIndex lines, int start, int end) {
+        String text = lines.text();
+        for (int line = start; line < end; line++) {
+            content.append(text, lines.start(line), lines.end(line)).append('\n');
+        }
+    }
+
+    private static List<String> lines(LineIndex lines, int start, int end) {
+        List<String> result = new ArrayList<>(end - start);
+        for (int line = start; line < end; line++) {
+            result.add(lines.text().substring(lines.start(line), lines.end(line)));
+        }
+        return result;
+    }
+}
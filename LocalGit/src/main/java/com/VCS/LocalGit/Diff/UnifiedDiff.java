@@ -0,0 +1,137 @@
+package com.VCS.LocalGit.Diff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * The UnifiedDiff class holds the edits between two texts and writes them in unified diff format.
+ * Output is written line by line to a writer, so a diff of any size can be streamed without building it in memory.
+ */
+public class UnifiedDiff {
+
+    private final String labelA;
+
+    private final String labelB;
+
+    private final LineIndex a;
+
+    private final LineIndex b;
+
+    private final List<Edit> edits;
+
+    private final int context;
+
+    /**
+     * Creates a unified diff.
+     *
+     * @param labelA the label of the first text
+     * @param labelB the label of the second text
+     * @param a the line index of the first text
+     * @param b the line index of the second text
+     * @param edits the edits turning the first text into the second, in ascending order
+     * @param context the number of unchanged lines shown around each change
+     */
+    public UnifiedDiff(String labelA, String labelB, LineIndex a, LineIndex b, List<Edit> edits, int context) {
+        this.labelA = labelA;
+        this.labelB = labelB;
+        this.a = a;
+        this.b = b;
+        this.edits = edits;
+        this.context = context;
+    }
+
+    /**
+     * @return the edits of the diff
+     */
+    public List<Edit> getEdits() {
+        return edits;
+    }
+
+    /**
+     * Returns the number of hunks the diff is written as: edits whose context would touch or overlap
+     * share one hunk.
+     *
+     * @return the number of hunks
+     */
+    public int getHunkCount() {
+        int hunks = 0;
+        for (int i = 0; i < edits.size(); i++) {
+            if (i == 0 || edits.get(i).getBeginA() - edits.get(i - 1).getEndA() > 2 * context) {
+                hunks++;
+            }
+        }
+        return hunks;
+    }
+
+    /**
+     * Writes the diff in unified format. Nothing is written if the texts have no differences.
+     * A line without a newline is followed by a {@code \ No newline at end of file} marker.
+     *
+     * @param out the writer
+     * @throws IOException if writing fails
+     */
+    public void writeTo(Writer out) throws IOException {
+        if (edits.isEmpty()) {
+            return;
+        }
+        out.write("--- " + labelA + "\n");
+        out.write("+++ " + labelB + "\n");
+
+        int first = 0;
+        while (first < edits.size()) {
+            // Edits whose context would touch or overlap go into the same hunk.
+            int last = first;
+            while (last + 1 < edits.size() && edits.get(last + 1).getBeginA() - edits.get(last).getEndA() <= 2 * context) {
+                last++;
+            }
+            writeHunk(out, first, last);
+            first = last + 1;
+        }
+    }
+
+    private void writeHunk(Writer out, int first, int last) throws IOException {
+        Edit head = edits.get(first);
+        Edit tail = edits.get(last);
+        int startA = Math.max(0, head.getBeginA() - context);
+        int startB = head.getBeginB() - (head.getBeginA() - startA);
+        int endA = Math.min(a.size(), tail.getEndA() + context);
+        int endB = tail.getEndB() + (endA - tail.getEndA());
+
+        out.write("@@ -" + range(startA, endA) + " +" + range(startB, endB) + " @@\n");
+        int line = startA;
+        for (int e = first; e <= last; e++) {
+            Edit edit = edits.get(e);
+            for (; line < edit.getBeginA(); line++) {
+                writeLine(out, ' ', a, line);
+            }
+            for (int i = edit.getBeginA(); i < edit.getEndA(); i++) {
+                writeLine(out, '-', a, i);
+            }
+            for (int i = edit.getBeginB(); i < edit.getEndB(); i++) {
+                writeLine(out, '+', b, i);
+            }
+            line = edit.getEndA();
+        }
+        for (; line < endA; line++) {
+            writeLine(out, ' ', a, line);
+        }
+    }
+
+    /**
+     * Formats a hunk range; an empty range is numbered by the line before it, as in GNU diff.
+     */
+    private static String range(int start, int end) {
+        int length = end - start;
+        return (length == 0 ? start : start + 1) + "," + length;
+    }
+
+    private static void writeLine(Writer out, char prefix, LineIndex index, int line) throws IOException {
+        out.write(prefix);
+        index.write(out, line);
+        out.write('\n');
+        if (!index.isTerminated(line)) {
+            out.write("\\ No newline at end of file\n");
+        }
+    }
+}
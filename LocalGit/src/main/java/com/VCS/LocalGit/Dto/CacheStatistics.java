@@ -0,0 +1,52 @@
+package com.VCS.LocalGit.Dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The CacheStatistics class is a snapshot of the counters of an in-memory cache.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+
+    /**
+     * The number of lookups that found a cached entry.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that did not find a cached entry.
+     */
+    private long misses;
+
+    /**
+     * The fraction of lookups that found a cached entry.
+     */
+    private double hitRate;
+
+    /**
+     * The number of entries evicted because of size or expiry.
+     */
+    private long evictions;
+
+    /**
+     * The number of entries currently cached.
+     */
+    private long size;
+
+    /**
+     * Creates a snapshot from Caffeine cache statistics.
+     *
+     * @param stats the Caffeine statistics
+     * @param size the current number of entries
+     * @return the snapshot
+     */
+    public static CacheStatistics of(CacheStats stats, long size) {
+        return new CacheStatistics(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), size);
+    }
+}
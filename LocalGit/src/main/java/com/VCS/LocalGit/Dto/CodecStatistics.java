@@ -0,0 +1,65 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The CodecStatistics class is a snapshot of the counters of the content codec layer since startup.
+ * It shows the storage saved by compression against the time spent encoding and decoding.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodecStatistics {
+
+    /**
+     * The name of the codec used for new content.
+     */
+    private String codec;
+
+    /**
+     * The size in bytes below which content is stored uncompressed.
+     */
+    private int minSize;
+
+    /**
+     * The number of contents written.
+     */
+    private long written;
+
+    /**
+     * The number of contents written compressed.
+     */
+    private long compressed;
+
+    /**
+     * The total size in bytes of the written content before encoding.
+     */
+    private long rawBytes;
+
+    /**
+     * The total size in bytes of the written content as stored.
+     */
+    private long storedBytes;
+
+    /**
+     * The fraction of the raw size saved by encoding.
+     */
+    private double savedRatio;
+
+    /**
+     * The total time spent encoding, in milliseconds.
+     */
+    private double encodeMillis;
+
+    /**
+     * The number of contents decoded from compressed form.
+     */
+    private long decoded;
+
+    /**
+     * The total time spent decoding, in milliseconds.
+     */
+    private double decodeMillis;
+}
@@ -0,0 +1,40 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The FileSummary class is a listing view of a file.
+ * It carries the file's metadata and current content hash, without loading content or versions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileSummary {
+
+    /**
+     * The unique identifier for the file.
+     */
+    private Long id;
+
+    /**
+     * The name of the file.
+     */
+    private String name;
+
+    /**
+     * The ID of the folder containing the file.
+     */
+    private Long folderId;
+
+    /**
+     * The hash of the current content of the file.
+     */
+    private String contentHash;
+
+    /**
+     * The number of the latest version of the file.
+     */
+    private int versionCounter;
+}
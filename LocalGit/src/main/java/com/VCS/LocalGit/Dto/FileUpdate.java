@@ -0,0 +1,24 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The FileUpdate class is one element of a bulk commit: the new content of one existing file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileUpdate {
+
+    /**
+     * The ID of the file to update.
+     */
+    private Long fileId;
+
+    /**
+     * The new content of the file.
+     */
+    private String content;
+}
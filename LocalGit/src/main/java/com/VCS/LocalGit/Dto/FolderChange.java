@@ -0,0 +1,67 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The FolderChange class describes how one file differs between two snapshots of a folder.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderChange {
+
+    /**
+     * The kind of change.
+     */
+    public enum Type {
+        /**
+         * The file is only in the newer snapshot.
+         */
+        ADDED,
+        /**
+         * The file is only in the older snapshot.
+         */
+        REMOVED,
+        /**
+         * The file is in both snapshots, at different versions.
+         */
+        MODIFIED
+    }
+
+    /**
+     * The kind of change.
+     */
+    private Type type;
+
+    /**
+     * The ID of the file.
+     */
+    private Long fileId;
+
+    /**
+     * The name of the file.
+     */
+    private String name;
+
+    /**
+     * The version of the file in the older snapshot, or null if it was not there.
+     */
+    private Integer fromVersion;
+
+    /**
+     * The version of the file in the newer snapshot, or null if it is not there.
+     */
+    private Integer toVersion;
+
+    /**
+     * The hash of the content of the file in the older snapshot, or null if it was not there.
+     */
+    private String fromContentHash;
+
+    /**
+     * The hash of the content of the file in the newer snapshot, or null if it is not there.
+     */
+    private String toContentHash;
+}
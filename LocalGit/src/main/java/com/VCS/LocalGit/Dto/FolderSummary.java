@@ -0,0 +1,30 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The FolderSummary class is a listing view of a folder.
+ * It carries the folder's ID, name and number of files, without loading the files themselves.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FolderSummary {
+
+    /**
+     * The unique identifier for the folder.
+     */
+    private Long id;
+
+    /**
+     * The name of the folder.
+     */
+    private String name;
+
+    /**
+     * The number of files in the folder.
+     */
+    private long fileCount;
+}
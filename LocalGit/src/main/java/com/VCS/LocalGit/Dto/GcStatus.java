@@ -0,0 +1,62 @@
+package com.VCS.LocalGit.Dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The GcStatus class reports the progress of the storage garbage collector.
+ * The counters describe the current run while one is in progress, and the last run otherwise.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GcStatus {
+
+    /**
+     * The phase of the current run: IDLE, MARKING, SWEEPING or COMPACTING.
+     */
+    private String phase;
+
+    /**
+     * Whether the collector is paused.
+     */
+    private boolean paused;
+
+    /**
+     * When the current or last run started, or null if it never ran.
+     */
+    private LocalDateTime startedAt;
+
+    /**
+     * When the last run finished, or null while a run is in progress or if it never ran.
+     */
+    private LocalDateTime finishedAt;
+
+    /**
+     * The number of distinct stored contents referenced by versions.
+     */
+    private long liveContent;
+
+    /**
+     * The number of stored contents examined by the sweep.
+     */
+    private long contentScanned;
+
+    /**
+     * The number of unreferenced contents deleted.
+     */
+    private long contentDeleted;
+
+    /**
+     * The number of bytes of storage reclaimed, by deletion or compaction.
+     */
+    private long bytesReclaimed;
+
+    /**
+     * The error that ended the last run, or null if it succeeded.
+     */
+    private String error;
+}
@@ -0,0 +1,33 @@
+package com.VCS.LocalGit.Dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The MergeConflict class describes one conflicting region of merged content.
+ * In the content, the region is enclosed in conflict markers: the target's lines follow a {@code <<<<<<<} line,
+ * a {@code =======} line separates them from the source's lines, and a {@code >>>>>>>} line ends the region.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeConflict {
+
+    /**
+     * The one-based line number of the opening {@code <<<<<<<} marker in the merged content.
+     */
+    private int startLine;
+
+    /**
+     * The lines of the target side of the conflict.
+     */
+    private List<String> targetLines;
+
+    /**
+     * The lines of the source side of the conflict.
+     */
+    private List<String> sourceLines;
+}
@@ -0,0 +1,34 @@
+package com.VCS.LocalGit.Dto;
+
+import java.util.List;
+
+import com.VCS.LocalGit.Entity.File;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The MergeResult class is the outcome of merging one file into another.
+ * It carries the updated target file, the version holding the merged content and any conflicts left in it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeResult {
+
+    /**
+     * The target file after the merge.
+     */
+    private File file;
+
+    /**
+     * The number of the version holding the merged content.
+     */
+    private int versionNumber;
+
+    /**
+     * The conflicts left in the merged content, marked with conflict markers; empty for a clean merge.
+     */
+    private List<MergeConflict> conflicts;
+}
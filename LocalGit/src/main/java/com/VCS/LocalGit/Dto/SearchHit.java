@@ -0,0 +1,44 @@
+package com.VCS.LocalGit.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The SearchHit class is one file version whose content contains a searched string.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+
+    /**
+     * The ID of the file.
+     */
+    private Long fileId;
+
+    /**
+     * The name of the file.
+     */
+    private String fileName;
+
+    /**
+     * The ID of the folder containing the file.
+     */
+    private Long folderId;
+
+    /**
+     * The number of the matching version.
+     */
+    private int versionNumber;
+
+    /**
+     * The 1-based number of the line of the first match in the version.
+     */
+    private int line;
+
+    /**
+     * The line of the first match, shortened if it is long.
+     */
+    private String preview;
+}
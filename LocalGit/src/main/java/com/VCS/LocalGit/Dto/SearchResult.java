@@ -0,0 +1,32 @@
+package com.VCS.LocalGit.Dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The SearchResult class is one page of search hits.
+ * Hits are ordered by file ID and version number; the next page is requested by passing {@code next} as the cursor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResult {
+
+    /**
+     * The hits of this page.
+     */
+    private List<SearchHit> hits;
+
+    /**
+     * The cursor of the next page, or null if there are no more hits.
+     */
+    private String next;
+
+    /**
+     * The number of committed versions not indexed yet; they are missing from the results until they are.
+     */
+    private long pendingVersions;
+}
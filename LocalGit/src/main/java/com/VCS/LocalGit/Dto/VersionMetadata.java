@@ -0,0 +1,41 @@
+package com.VCS.LocalGit.Dto;
+
+import java.time.LocalDateTime;
+
+import com.VCS.LocalGit.Entity.Version;
+
+/**
+ * The VersionMetadata record is an immutable, detached copy of a version's columns.
+ * Unlike the Version entity, it holds no reference to a persistence context or to the lazily loaded file,
+ * so it can be cached and shared between requests and threads.
+ *
+ * @param fileId the ID of the file
+ * @param versionNumber the version number
+ * @param contentHash the hash of the content of the version
+ * @param deltaHash the hash of the delta against the previous version, or null for keyframes
+ * @param manifestHash the hash of the chunk manifest of uploaded content stored in chunks, or null
+ * @param lineIndexHash the hash of the line index of large content, or null
+ * @param blameHash the hash of the blame of the version, or null
+ * @param size the length of the content in bytes, encoded as UTF-8
+ * @param timestamp the timestamp when the version was created
+ * @param mergeSourceFileId the ID of the file merged into the version, or null
+ * @param mergeSourceVersion the version number of the merged file, or null
+ */
+public record VersionMetadata(long fileId, int versionNumber, String contentHash, String deltaHash,
+                              String manifestHash, String lineIndexHash, String blameHash, long size,
+                              LocalDateTime timestamp, Long mergeSourceFileId, Integer mergeSourceVersion) {
+
+    /**
+     * Copies the columns of a version entity. The file ID is read from the file of a version that has not been
+     * reloaded since it was created, whose own file ID column is still unset.
+     *
+     * @param version the version
+     * @return the metadata of the version
+     */
+    public static VersionMetadata of(Version version) {
+        return new VersionMetadata(version.getFileId() != null ? version.getFileId() : version.getFile().getId(),
+                version.getVersionNumber(), version.getContentHash(), version.getDeltaHash(), version.getManifestHash(),
+                version.getLineIndexHash(), version.getBlameHash(), version.getSize(), version.getTimestamp(),
+                version.getMergeSourceFileId(), version.getMergeSourceVersion());
+    }
+}
@@ -0,0 +1,30 @@
+package com.VCS.LocalGit.Dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The VersionSummary interface is a projection of the Version entity carrying only version metadata.
+ * It is used to list version history without loading content or the associated file.
+ */
+public interface VersionSummary {
+
+    /**
+     * @return the version number
+     */
+    int getVersionNumber();
+
+    /**
+     * @return the timestamp when the version was created
+     */
+    LocalDateTime getTimestamp();
+
+    /**
+     * @return the length of the version's content
+     */
+    long getSize();
+
+    /**
+     * @return the hash of the version's content
+     */
+    String getContentHash();
+}
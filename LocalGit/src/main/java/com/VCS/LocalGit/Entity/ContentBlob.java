@@ -0,0 +1,87 @@
+package com.VCS.LocalGit.Entity;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The ContentBlob class represents a piece of stored content in the system.
+ * Blobs are content-addressable: the identifier is the SHA-256 hash of the content,
+ * so identical content is stored exactly once no matter how many versions or files refer to it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "content_blob")
+public class ContentBlob implements Persistable<String> {
+
+    /**
+     * The SHA-256 hash of the content, in lowercase hex.
+     */
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    /**
+     * The bytes of the content, encoded with the blob's codec.
+     */
+    @Lob
+    private byte[] data;
+
+    /**
+     * The name of the codec the data is encoded with.
+     */
+    @Column(length = 16, nullable = false)
+    private String codec;
+
+    /**
+     * The length of the content in bytes.
+     */
+    private long size;
+
+    /**
+     * Whether the blob has already been persisted.
+     * Blobs use an assigned identifier, so this lets new blobs be inserted without a prior select.
+     */
+    @Transient
+    private boolean persisted;
+
+    /**
+     * Creates a new, not yet persisted blob.
+     *
+     * @param hash the hash of the content
+     * @param codec the name of the codec the data is encoded with
+     * @param data the encoded content
+     * @param size the length of the content in bytes
+     */
+    public ContentBlob(String hash, String codec, byte[] data, long size) {
+        this(hash, data, codec, size, false);
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
@@ -2,14 +2,21 @@ package com.VCS.LocalGit.Entity;
 
 import java.util.List;
 
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -17,20 +24,24 @@ import lombok.NoArgsConstructor;
 
 /**
  * The File class represents a file entity in the system.
- * It includes attributes for file ID, name, content, folder, and versions.
+ * It includes attributes for file ID, name, content hash, folder, and versions.
+ * The files of a deleted folder are tombstones until their rows are reclaimed, and are left out of every
+ * entity query.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 @Table(name = "file")
+@SQLRestriction("deleted = false")
 public class File {
 
     /**
      * The unique identifier for the file.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_seq")
+    @SequenceGenerator(name = "file_seq", sequenceName = "file_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -39,20 +50,54 @@ public class File {
     private String name;
    
     /**
-     * The content of the file.
+     * The hash of the current content of the file in the blob store.
+     */
+    @Column(length = 64)
+    private String contentHash;
+
+    /**
+     * The hash of the blame of the current version, from which the blame of the next version is derived.
+     */
+    @Column(length = 64)
+    private String blameHash;
+
+    /**
+     * The number of the latest version of the file.
+     * New version numbers are allocated by incrementing this counter.
+     */
+    private int versionCounter;
+
+    /**
+     * The optimistic lock version, guarding concurrent updates of the version counter.
+     */
+    @jakarta.persistence.Version
+    private Long lockVersion;
+
+    /**
+     * Whether the folder of the file has been deleted and the file waits for its rows to be reclaimed.
+     */
+    @JsonIgnore
+    private boolean deleted;
+
+    /**
+     * The ID of the folder to which the file belongs.
      */
-    private String content;
+    @Column(name = "folder_id", insertable = false, updatable = false)
+    private Long folderId;
 
     /**
      * The folder to which the file belongs.
+     * The relationship is lazy and is not serialized.
      */
-    @ManyToOne
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folder_id", nullable = false)
     private Folder folder;
 
     /**
      * The list of versions associated with the file.
      */
+    @JsonIgnore
     @OneToMany(mappedBy = "file", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Version> versions;
 }
@@ -3,12 +3,18 @@ package com.VCS.LocalGit.Entity;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -17,19 +23,22 @@ import lombok.NoArgsConstructor;
 /**
  * The Folder class represents a folder entity in the system.
  * It includes attributes for folder ID, name, and the list of files it contains.
+ * Deleted folders are tombstones until their rows are reclaimed, and are left out of every entity query.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
 @Table(name = "folder")
+@SQLRestriction("deleted = false")
 public class Folder {
 
     /**
      * The unique identifier for the folder.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "folder_seq")
+    @SequenceGenerator(name = "folder_seq", sequenceName = "folder_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -37,10 +46,26 @@ public class Folder {
      */
     private String name;
 
+    /**
+     * The number of folder commits of the folder, which is also the number of the latest one.
+     * It is only advanced by {@link com.VCS.LocalGit.Repository.FolderRepository#incrementCommitCount}, so saving
+     * a folder loaded before a concurrent folder commit does not set it back.
+     */
+    @JsonIgnore
+    @Column(updatable = false)
+    private int commitCount;
+
+    /**
+     * Whether the folder has been deleted and waits for its rows to be reclaimed.
+     */
+    @JsonIgnore
+    private boolean deleted;
+
     /**
      * The list of files contained in the folder.
-     * The relationship is managed with cascade operations and orphan removal.
+     * The relationship is managed with cascade operations and orphan removal, and is not serialized.
      */
+    @JsonIgnore
     @OneToMany(mappedBy = "folder", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<File> files = new ArrayList<>();
 }
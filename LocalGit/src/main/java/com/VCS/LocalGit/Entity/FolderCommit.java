@@ -0,0 +1,70 @@
+package com.VCS.LocalGit.Entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The FolderCommit class represents a snapshot of a whole folder, written in the same database transaction as
+ * the file versions committed together, so it is committed or rolled back with them.
+ * The snapshot is a {@link com.VCS.LocalGit.Storage.FolderTree} mapping every file of the folder to the content
+ * of its version at that point, identified by the hash of its root node.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "folder_commit", uniqueConstraints = @UniqueConstraint(columnNames = {"folder_id", "commit_number"}))
+public class FolderCommit {
+
+    /**
+     * The unique identifier for the folder commit.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "folder_commit_seq")
+    @SequenceGenerator(name = "folder_commit_seq", sequenceName = "folder_commit_seq", allocationSize = 50)
+    private Long id;
+
+    /**
+     * The ID of the folder.
+     */
+    @Column(name = "folder_id")
+    private Long folderId;
+
+    /**
+     * The number of the commit within the folder, starting at 1.
+     */
+    @Column(name = "commit_number")
+    private int commitNumber;
+
+    /**
+     * The hash of the root node of the folder tree.
+     */
+    @Column(length = 64)
+    private String rootHash;
+
+    /**
+     * The number of files in the folder.
+     */
+    private int fileCount;
+
+    /**
+     * The number of files changed by the commit.
+     */
+    private int changedFiles;
+
+    /**
+     * The timestamp when the commit was created.
+     */
+    private LocalDateTime timestamp;
+}
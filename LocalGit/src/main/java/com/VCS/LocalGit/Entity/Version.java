@@ -2,34 +2,42 @@ package com.VCS.LocalGit.Entity;
 
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
  * The Version class represents a version of a file in the system.
- * It includes attributes for version ID, file ID, version number, content, timestamp, and the associated file.
+ * It includes attributes for version ID, file ID, version number, content hash, size, timestamp, and the associated file.
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "version")
+@Table(name = "version", uniqueConstraints = @UniqueConstraint(columnNames = {"file_id", "version_number"}),
+        indexes = @Index(name = "idx_version_content_hash", columnList = "content_hash, file_id"))
 public class Version {
 
     /**
      * The unique identifier for the version.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "version_seq")
+    @SequenceGenerator(name = "version_seq", sequenceName = "version_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -44,20 +52,67 @@ public class Version {
     private int versionNumber;
 
     /**
-     * The content of the version.
+     * The hash of the content of the version in the blob store.
+     */
+    @Column(length = 64)
+    private String contentHash;
+
+    /**
+     * The hash of the delta against the previous version in the blob store.
+     * Null for keyframe versions, whose full content is stored under the content hash.
+     */
+    @Column(length = 64)
+    private String deltaHash;
+
+    /**
+     * The hash of the {@link com.VCS.LocalGit.Storage.ChunkManifest} listing the chunks of the version's content,
+     * for uploaded content stored in more than one chunk; null otherwise. The content hash of such a version
+     * is the hash of the whole content, which is not stored as one piece.
+     */
+    @Column(length = 64)
+    private String manifestHash;
+
+    /**
+     * The hash of the {@link com.VCS.LocalGit.Storage.LineOffsetIndex} of the version's content, built at commit
+     * time for large content; null for smaller content, which is read whole to find lines.
+     */
+    @Column(length = 64)
+    private String lineIndexHash;
+
+    /**
+     * The hash of the {@link com.VCS.LocalGit.Diff.Blame} of the version, recording which version last changed
+     * each of its lines; derived at commit time from the blame of the previous version.
+     */
+    @Column(length = 64)
+    private String blameHash;
+
+    /**
+     * The length of the content of the version in bytes, encoded as UTF-8.
      */
-    private String content;
+    private long size;
 
     /**
      * The timestamp when the version was created.
      */
     private LocalDateTime timestamp;
 
+    /**
+     * The ID of the file merged into this version, or null if the version is not the result of a merge.
+     */
+    private Long mergeSourceFileId;
+
+    /**
+     * The version number of the merged file that was merged into this version, or null if the version
+     * is not the result of a merge. Later merges between the same files use it as their common ancestor.
+     */
+    private Integer mergeSourceVersion;
+
     /**
      * The associated file.
-     * The relationship is managed with a many-to-one association.
+     * The relationship is managed with a lazy many-to-one association and is not serialized.
      */
-    @ManyToOne
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "file_id", nullable = false)
     private File file;
 }
@@ -0,0 +1,36 @@
+package com.VCS.LocalGit.Metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Wires the application's own metrics into the frameworks that produce them.
+ * Timers of the service methods come from their {@code @Observed} annotations.
+ */
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Registers the {@link QueryCounter} as Hibernate's statement inspector.
+     *
+     * @return the customizer of the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    /**
+     * Counts the statements of streamed response bodies towards their requests.
+     *
+     * @param configurer the asynchronous request configuration
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(QueryCountFilter.callableInterceptor());
+    }
+}
@@ -0,0 +1,91 @@
+package com.VCS.LocalGit.Metrics;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the number of SQL statements each request prepares, as the {@code localgit.http.db.queries}
+ * distribution summary tagged with the request's method and URI pattern. Its count is the number of requests
+ * and its total the number of statements, so a rise in statements per request shows up per endpoint.
+ * <p>
+ * Asynchronous requests are recorded once, when their last dispatch ends: the count is kept as a request
+ * attribute across dispatches, and is bound to the threads writing streamed bodies by {@link #callableInterceptor}.
+ */
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private static final String COUNT_ATTRIBUTE = QueryCountFilter.class.getName() + ".count";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Runs for the dispatches that resume asynchronous requests too, so their statements are counted.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryCounter.Count count = (QueryCounter.Count) request.getAttribute(COUNT_ATTRIBUTE);
+        if (count == null) {
+            count = new QueryCounter.Count();
+            request.setAttribute(COUNT_ATTRIBUTE, count);
+        }
+        QueryCounter.Count previous = QueryCounter.bind(count);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCounter.bind(previous);
+            if (!request.isAsyncStarted()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder("localgit.http.db.queries")
+                        .description("SQL statements prepared per request")
+                        .baseUnit("statements")
+                        .tag("method", request.getMethod())
+                        .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                        .register(meterRegistry)
+                        .record(count.get());
+            }
+        }
+    }
+
+    /**
+     * Returns an interceptor binding the count of a request to the thread that runs its asynchronous work,
+     * such as writing a streamed response body.
+     *
+     * @return the interceptor
+     */
+    public static CallableProcessingInterceptor callableInterceptor() {
+        return new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                QueryCounter.bind((QueryCounter.Count) request.getAttribute(COUNT_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST));
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                QueryCounter.bind(null);
+            }
+        };
+    }
+}
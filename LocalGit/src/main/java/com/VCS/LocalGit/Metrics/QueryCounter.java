@@ -0,0 +1,76 @@
+package com.VCS.LocalGit.Metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * The QueryCounter class counts the SQL statements Hibernate prepares on threads bound to an open count.
+ * It is registered as Hibernate's statement inspector, so it sees every statement of the application, including
+ * those of repository queries, flushes and batches; a batch counts once, however many rows it writes.
+ * <p>
+ * A count belongs to one request and is bound to each thread that works for it: the request thread, the thread
+ * writing a streamed response body, and the heavy task pool thread computing an asynchronous result.
+ * Statements prepared on threads without a bound count, such as background jobs, are not counted.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The number of statements prepared for one request, possibly on several threads.
+     */
+    public static final class Count {
+
+        private final AtomicInteger statements = new AtomicInteger();
+
+        /**
+         * Returns the number of statements counted so far.
+         *
+         * @return the number of statements
+         */
+        public int get() {
+            return statements.get();
+        }
+    }
+
+    /**
+     * Returns the count bound to the current thread.
+     *
+     * @return the count, or null if none is bound
+     */
+    public static Count current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a count to the current thread, so its statements are counted there.
+     *
+     * @param count the count to bind, or null to stop counting
+     * @return the count bound before, to be restored with another call once the work is done
+     */
+    public static Count bind(Count count) {
+        Count previous = CURRENT.get();
+        if (count == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(count);
+        }
+        return previous;
+    }
+
+    /**
+     * Counts a statement and returns it unchanged.
+     *
+     * @param sql the statement
+     * @return the same statement
+     */
+    @Override
+    public String inspect(String sql) {
+        Count count = CURRENT.get();
+        if (count != null) {
+            count.statements.incrementAndGet();
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,57 @@
+package com.VCS.LocalGit.Repository;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import com.VCS.LocalGit.Entity.ContentBlob;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * The ContentBlobRepository interface provides methods for interacting with the ContentBlob entity in the database.
+ * It extends JpaRepository to provide basic CRUD operations keyed by content hash.
+ */
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    /**
+     * Streams the hashes of all stored blobs without loading their content.
+     *
+     * @return a stream of hashes, which must be consumed within a transaction
+     */
+    @Query("select b.hash from ContentBlob b")
+    Stream<String> streamAllHashes();
+
+    /**
+     * Counts the committed blobs with the given hash without loading their content.
+     * The query does not flush the current transaction, so it does not see blobs the transaction has not flushed yet.
+     *
+     * @param hash the hash of the blob
+     * @return 1 if the blob is stored, 0 otherwise
+     */
+    @Query("select count(b.hash) from ContentBlob b where b.hash = :hash")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    long countByHash(String hash);
+
+    /**
+     * Finds the size of a blob without loading its content.
+     *
+     * @param hash the hash of the blob
+     * @return an Optional containing the size in bytes, or an empty Optional if the blob is not stored
+     */
+    @Query("select b.size from ContentBlob b where b.hash = :hash")
+    Optional<Long> findSizeByHash(String hash);
+
+    /**
+     * Deletes a blob without loading it.
+     *
+     * @param hash the hash of the blob
+     * @return the number of deleted blobs
+     */
+    @Modifying
+    @Query("delete from ContentBlob b where b.hash = :hash")
+    int deleteByHash(String hash);
+}
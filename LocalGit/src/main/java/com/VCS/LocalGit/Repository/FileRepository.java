@@ -1,7 +1,13 @@
 package com.VCS.LocalGit.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import com.VCS.LocalGit.Dto.FileSummary;
 import com.VCS.LocalGit.Entity.File;
 
 /**
@@ -17,4 +23,93 @@ public interface FileRepository extends JpaRepository<File, Long> {
      * @return a list of files in the specified folder
      */
     List<File> findByFolderId(Long folderId);
+
+    /**
+     * Lists the files of a specific folder as summaries in a single query, without loading content or versions.
+     *
+     * @param folderId the ID of the folder
+     * @return a list of file summaries ordered by ID
+     */
+    @Query("select new com.VCS.LocalGit.Dto.FileSummary(f.id, f.name, f.folderId, f.contentHash, f.versionCounter) "
+            + "from File f where f.folderId = :folderId order by f.id")
+    List<FileSummary> findSummariesByFolderId(Long folderId);
+
+    /**
+     * Finds the summary of a file, which holds its current version number, without loading the entity.
+     *
+     * @param id the ID of the file
+     * @return the file summary, or an empty Optional if the file does not exist
+     */
+    @Query("select new com.VCS.LocalGit.Dto.FileSummary(f.id, f.name, f.folderId, f.contentHash, f.versionCounter) "
+            + "from File f where f.id = :id")
+    Optional<FileSummary> findSummaryById(Long id);
+
+    /**
+     * Lists the IDs of the files of a specific folder.
+     *
+     * @param folderId the ID of the folder
+     * @return the file IDs
+     */
+    @Query("select f.id from File f where f.folderId = :folderId")
+    List<Long> findIdsByFolderId(Long folderId);
+
+    /**
+     * Streams the summaries of all files, ordered by ID.
+     *
+     * @return a stream of file summaries, which must be consumed within a transaction
+     */
+    @Query("select new com.VCS.LocalGit.Dto.FileSummary(f.id, f.name, f.folderId, f.contentHash, f.versionCounter) "
+            + "from File f order by f.id")
+    Stream<FileSummary> streamAllSummaries();
+
+    /**
+     * Tombstones the files of a folder. Their lock version is advanced, so commits of the files that are
+     * in flight fail and are retried against the tombstones.
+     *
+     * @param folderId the ID of the folder
+     * @return the number of tombstoned files
+     */
+    @Modifying
+    @Query("update File f set f.deleted = true, f.lockVersion = f.lockVersion + 1 where f.folderId = :folderId")
+    int markDeletedByFolderId(Long folderId);
+
+    /**
+     * Lists the IDs of a batch of files of a folder, including tombstoned ones.
+     *
+     * @param folderId the ID of the folder
+     * @param limit the maximum number of IDs to return
+     * @return the file IDs
+     */
+    @Query(value = "select id from file where folder_id = :folderId fetch first :limit rows only", nativeQuery = true)
+    List<Long> findAllIdsByFolderId(Long folderId, int limit);
+
+    /**
+     * Deletes files in one statement, without loading them or their versions.
+     *
+     * @param ids the IDs of the files
+     * @return the number of deleted files
+     */
+    @Modifying
+    @Query(value = "delete from file where id in :ids", nativeQuery = true)
+    int deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * Inserts a file without versions with a given ID, when a file is restored from the commit journal.
+     *
+     * @param id the ID of the file
+     * @param name the name of the file
+     * @param folderId the ID of the folder of the file
+     */
+    @Modifying
+    @Query(value = "insert into file (id, name, folder_id, version_counter, lock_version, deleted) "
+            + "values (:id, :name, :folderId, 0, 0, false)", nativeQuery = true)
+    void insert(Long id, String name, Long folderId);
+
+    /**
+     * Returns the highest file ID ever assigned, including tombstoned files.
+     *
+     * @return the highest ID, or 0 if there are no files
+     */
+    @Query(value = "select coalesce(max(id), 0) from file", nativeQuery = true)
+    long findMaxId();
 }
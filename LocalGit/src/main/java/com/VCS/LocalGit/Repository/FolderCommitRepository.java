@@ -0,0 +1,83 @@
+package com.VCS.LocalGit.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.VCS.LocalGit.Entity.FolderCommit;
+
+/**
+ * The FolderCommitRepository interface provides methods for interacting with the FolderCommit entity in the database.
+ */
+public interface FolderCommitRepository extends JpaRepository<FolderCommit, Long> {
+
+    /**
+     * Finds a specific commit of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @param commitNumber the commit number
+     * @return an Optional containing the commit, or an empty Optional if not found
+     */
+    Optional<FolderCommit> findByFolderIdAndCommitNumber(Long folderId, int commitNumber);
+
+    /**
+     * Finds the latest commit of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @return an Optional containing the commit with the highest number, or an empty Optional if there is none
+     */
+    Optional<FolderCommit> findFirstByFolderIdOrderByCommitNumberDesc(Long folderId);
+
+    /**
+     * Finds the commits of a folder below a commit number, newest first.
+     *
+     * @param folderId the ID of the folder
+     * @param commitNumber the exclusive upper bound for the commit number
+     * @param limit the maximum number of commits to return
+     * @return the commits
+     */
+    List<FolderCommit> findByFolderIdAndCommitNumberLessThanOrderByCommitNumberDesc(Long folderId, int commitNumber, Limit limit);
+
+    /**
+     * Streams the distinct root hashes of all folder commits.
+     *
+     * @return a stream of root hashes, which must be consumed within a transaction
+     */
+    @Query("select distinct c.rootHash from FolderCommit c")
+    Stream<String> streamRootHashes();
+
+    /**
+     * Finds which of the given hashes are the root of a folder commit.
+     *
+     * @param hashes the hashes to check
+     * @return the root hashes among them
+     */
+    @Query("select distinct c.rootHash from FolderCommit c where c.rootHash in :hashes")
+    List<String> findReferencedRootHashes(Collection<String> hashes);
+
+    /**
+     * Lists the IDs of a batch of commits of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @param limit the maximum number of IDs to return
+     * @return the commit IDs
+     */
+    @Query("select c.id from FolderCommit c where c.folderId = :folderId")
+    List<Long> findIdsByFolderId(Long folderId, Limit limit);
+
+    /**
+     * Deletes folder commits in one statement.
+     *
+     * @param ids the IDs of the commits
+     * @return the number of deleted commits
+     */
+    @Modifying
+    @Query("delete from FolderCommit c where c.id in :ids")
+    int deleteByIdIn(Collection<Long> ids);
+}
@@ -1,6 +1,10 @@
 package com.VCS.LocalGit.Repository;
 
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import com.VCS.LocalGit.Dto.FolderSummary;
 import com.VCS.LocalGit.Entity.Folder;
 
 /**
@@ -9,4 +13,78 @@ import com.VCS.LocalGit.Entity.Folder;
  */
 public interface FolderRepository extends JpaRepository<Folder, Long> {
 
+    /**
+     * Lists all folders with their file counts in a single query.
+     *
+     * @return a list of folder summaries ordered by ID
+     */
+    @Query("select new com.VCS.LocalGit.Dto.FolderSummary(f.id, f.name, count(fi)) "
+            + "from Folder f left join f.files fi group by f.id, f.name order by f.id")
+    List<FolderSummary> findAllSummaries();
+
+    /**
+     * Allocates the next folder commit number of a folder. The update locks the folder row until the end of
+     * the transaction, so concurrent folder commits of the same folder are taken one after the other.
+     *
+     * @param folderId the ID of the folder
+     * @return the number of updated folders, 0 if the folder does not exist or is deleted
+     */
+    @Modifying
+    @Query("update Folder f set f.commitCount = f.commitCount + 1 where f.id = :folderId and f.deleted = false")
+    int incrementCommitCount(Long folderId);
+
+    /**
+     * Reads the number of folder commits of a folder from the database.
+     *
+     * @param folderId the ID of the folder
+     * @return the number of folder commits
+     */
+    @Query("select f.commitCount from Folder f where f.id = :folderId")
+    int findCommitCount(Long folderId);
+
+    /**
+     * Tombstones a folder.
+     *
+     * @param folderId the ID of the folder
+     * @return 1 if the folder was tombstoned, 0 if it does not exist or is already deleted
+     */
+    @Modifying
+    @Query("update Folder f set f.deleted = true where f.id = :folderId and f.deleted = false")
+    int markDeleted(Long folderId);
+
+    /**
+     * Lists the IDs of the tombstoned folders.
+     *
+     * @return the folder IDs
+     */
+    @Query(value = "select id from folder where deleted", nativeQuery = true)
+    List<Long> findDeletedIds();
+
+    /**
+     * Deletes a tombstoned folder whose files and commits have been deleted.
+     *
+     * @param folderId the ID of the folder
+     * @return the number of deleted folders
+     */
+    @Modifying
+    @Query(value = "delete from folder where id = :folderId and deleted", nativeQuery = true)
+    int deleteDeleted(Long folderId);
+
+    /**
+     * Inserts a folder with a given ID, when a folder is restored from the commit journal.
+     *
+     * @param id the ID of the folder
+     * @param name the name of the folder
+     */
+    @Modifying
+    @Query(value = "insert into folder (id, name, commit_count, deleted) values (:id, :name, 0, false)", nativeQuery = true)
+    void insert(Long id, String name);
+
+    /**
+     * Returns the highest folder ID ever assigned, including tombstoned folders.
+     *
+     * @return the highest ID, or 0 if there are no folders
+     */
+    @Query(value = "select coalesce(max(id), 0) from folder", nativeQuery = true)
+    long findMaxId();
 }
@@ -1,11 +1,18 @@
 package com.VCS.LocalGit.Repository;
 
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Dto.VersionSummary;
 import com.VCS.LocalGit.Entity.Version;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The VersionRepository interface provides methods for interacting with the Version entity in the database.
@@ -22,6 +29,38 @@ public interface VersionRepository extends JpaRepository<Version, Long> {
      */
     List<Version> findByFileIdOrderByVersionNumberDesc(Long fileId);
 
+    /**
+     * Finds the latest keyframe version of a given file below the given version number.
+     * Keyframe versions store their full content rather than a delta.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the exclusive upper bound for the version number
+     * @return an Optional containing the keyframe version, or an empty Optional if there is none
+     */
+    Optional<Version> findFirstByFileIdAndVersionNumberLessThanAndDeltaHashIsNullOrderByVersionNumberDesc(Long fileId, int versionNumber);
+
+    /**
+     * Finds the versions of a given file within a range of version numbers, in ascending order.
+     *
+     * @param fileId the ID of the file
+     * @param from the lowest version number, inclusive
+     * @param to the highest version number, inclusive
+     * @return a list of versions within the range
+     */
+    List<Version> findByFileIdAndVersionNumberBetweenOrderByVersionNumberAsc(Long fileId, int from, int to);
+
+    /**
+     * Streams the metadata of the versions of a given file within a range of version numbers, newest first.
+     * Only the projected columns are selected, so no content is loaded.
+     *
+     * @param fileId the ID of the file
+     * @param from the lowest version number, inclusive
+     * @param to the highest version number, inclusive
+     * @param limit the maximum number of versions to return
+     * @return a stream of version summaries, which must be consumed within a transaction
+     */
+    Stream<VersionSummary> findByFileIdAndVersionNumberBetweenOrderByVersionNumberDesc(Long fileId, int from, int to, Limit limit);
+
     /**
      * Finds a specific version of a file by its file ID and version number.
      *
@@ -30,4 +69,127 @@ public interface VersionRepository extends JpaRepository<Version, Long> {
      * @return an Optional containing the found version, or an empty Optional if not found
      */
     Optional<Version> findByFileIdAndVersionNumber(Long fileId, int versionNumber);
+
+    /**
+     * Finds the metadata of a specific version of a file, as a detached copy that does not join the persistence
+     * context.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @return an Optional containing the version metadata, or an empty Optional if not found
+     */
+    @Query("select new com.VCS.LocalGit.Dto.VersionMetadata(v.fileId, v.versionNumber, v.contentHash, v.deltaHash, "
+            + "v.manifestHash, v.lineIndexHash, v.blameHash, v.size, v.timestamp, v.mergeSourceFileId, "
+            + "v.mergeSourceVersion) from Version v where v.fileId = :fileId and v.versionNumber = :versionNumber")
+    Optional<VersionMetadata> findMetadataByFileIdAndVersionNumber(Long fileId, int versionNumber);
+
+    /**
+     * Finds the latest version of a given file that was created by merging another given file into it.
+     *
+     * @param fileId the ID of the file merged into
+     * @param mergeSourceFileId the ID of the merged file
+     * @return an Optional containing the latest merge version, or an empty Optional if the file was never merged in
+     */
+    Optional<Version> findFirstByFileIdAndMergeSourceFileIdOrderByVersionNumberDesc(Long fileId, Long mergeSourceFileId);
+
+    /**
+     * Finds the latest versions of a given file whose content also appears in the history of another file,
+     * newest first.
+     *
+     * @param fileId the ID of the file
+     * @param otherFileId the ID of the other file
+     * @param limit the maximum number of versions to return
+     * @return the versions whose content the other file has also had
+     */
+    @Query("select v from Version v where v.fileId = :fileId and exists ("
+            + "select o.id from Version o where o.fileId = :otherFileId and o.contentHash = v.contentHash) "
+            + "order by v.versionNumber desc")
+    List<Version> findSharedVersions(Long fileId, Long otherFileId, Limit limit);
+
+    /**
+     * Streams the hashes of all stored content that versions reference directly: the content of keyframe
+     * versions, the deltas of the other versions and the manifests of chunked versions. The chunks listed
+     * in manifests are not included. Hashes referenced more than once appear more than once.
+     *
+     * @return a stream of hashes, which must be consumed within a transaction
+     */
+    @Query("select case when v.manifestHash is not null then v.manifestHash "
+            + "when v.deltaHash is null then v.contentHash else v.deltaHash end from Version v")
+    Stream<String> streamReferencedContentHashes();
+
+    /**
+     * Streams the hashes of the chunk manifests that versions reference.
+     *
+     * @return a stream of manifest hashes, which must be consumed within a transaction
+     */
+    @Query("select distinct v.manifestHash from Version v where v.manifestHash is not null")
+    Stream<String> streamManifestHashes();
+
+    /**
+     * Streams the hashes of the line indexes that versions reference.
+     *
+     * @return a stream of line index hashes, which must be consumed within a transaction
+     */
+    @Query("select v.lineIndexHash from Version v where v.lineIndexHash is not null")
+    Stream<String> streamLineIndexHashes();
+
+    /**
+     * Finds which of the given hashes are the line index of a version.
+     *
+     * @param hashes the hashes to check
+     * @return the line index hashes among them
+     */
+    @Query("select distinct v.lineIndexHash from Version v where v.lineIndexHash in :hashes")
+    List<String> findReferencedLineIndexHashes(Collection<String> hashes);
+
+    /**
+     * Streams the hashes of the blames that versions reference. Versions sharing a blame share its hash.
+     *
+     * @return a stream of blame hashes, which must be consumed within a transaction
+     */
+    @Query("select distinct v.blameHash from Version v where v.blameHash is not null")
+    Stream<String> streamBlameHashes();
+
+    /**
+     * Finds which of the given hashes are the blame of a version.
+     *
+     * @param hashes the hashes to check
+     * @return the blame hashes among them
+     */
+    @Query("select distinct v.blameHash from Version v where v.blameHash in :hashes")
+    List<String> findReferencedBlameHashes(Collection<String> hashes);
+
+    /**
+     * Finds which of the given hashes of stored content are referenced directly by a version.
+     *
+     * @param hashes the hashes to check
+     * @return the referenced hashes among them
+     */
+    @Query("select distinct case when v.manifestHash is not null then v.manifestHash "
+            + "when v.deltaHash is null then v.contentHash else v.deltaHash end from Version v "
+            + "where (v.deltaHash is null and v.contentHash in :hashes) or v.deltaHash in :hashes "
+            + "or v.manifestHash in :hashes")
+    List<String> findReferencedContentHashes(Collection<String> hashes);
+
+    /**
+     * Lists the IDs of a batch of versions of the files of a folder, including the tombstoned files
+     * of a deleted folder.
+     *
+     * @param folderId the ID of the folder
+     * @param limit the maximum number of IDs to return
+     * @return the version IDs
+     */
+    @Query(value = "select v.id from version v join file f on f.id = v.file_id where f.folder_id = :folderId "
+            + "fetch first :limit rows only", nativeQuery = true)
+    List<Long> findIdsByFolderId(Long folderId, int limit);
+
+    /**
+     * Deletes versions in one statement, without loading them.
+     *
+     * @param ids the IDs of the versions
+     * @return the number of deleted versions
+     */
+    @Modifying
+    @Query("delete from Version v where v.id in :ids")
+    int deleteByIdIn(Collection<Long> ids);
 }
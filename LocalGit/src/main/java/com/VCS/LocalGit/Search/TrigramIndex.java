@@ -0,0 +1,311 @@
+package com.VCS.LocalGit.Search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * The TrigramIndex class is an inverted index from byte trigrams to the file versions whose content contains them.
+ * <p>
+ * Trigrams are taken over the UTF-8 bytes of the content with ASCII letters folded to lower case, so a substring
+ * of the content, in any script, contains only trigrams of the content. Consecutive versions of a file mostly
+ * share their trigrams, so instead of listing every version that contains a trigram, the index records the
+ * versions at which a trigram appears in or disappears from a file. A trigram is present in a version if
+ * it was toggled an odd number of times up to it. The toggles of a version depend only on its content and
+ * its predecessor's, so versions can be indexed in any order and the index grows with the changes made to
+ * files rather than with their number of versions.
+ * <p>
+ * A query yields candidate version ranges that contain every trigram of the query; the caller confirms
+ * matches against the content. The index is thread-safe.
+ */
+public class TrigramIndex {
+
+    /**
+     * The number of distinct byte trigrams.
+     */
+    private static final int TRIGRAMS = 1 << 24;
+
+    /**
+     * The toggles of every trigram, by trigram.
+     */
+    private final Map<Integer, PostingList> postings = new ConcurrentHashMap<>();
+
+    /**
+     * A range of versions of one file that contain every trigram of a query.
+     *
+     * @param fileId the ID of the file
+     * @param from the first version of the range
+     * @param to the version after the last version of the range, or {@link Integer#MAX_VALUE} if open-ended
+     */
+    public record Candidate(long fileId, int from, int to) {
+    }
+
+    /**
+     * Returns the distinct trigrams of the given content, in ascending order.
+     *
+     * @param content the content
+     * @return the sorted trigrams
+     */
+    public static int[] trigrams(String content) {
+        return trigrams(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the distinct trigrams of the given bytes, in ascending order.
+     *
+     * @param data the bytes
+     * @return the sorted trigrams
+     */
+    public static int[] trigrams(byte[] data) {
+        if (data.length < 3) {
+            return new int[0];
+        }
+        int[] trigrams = new int[data.length - 2];
+        int trigram = (fold(data[0]) << 8) | fold(data[1]);
+        for (int i = 2; i < data.length; i++) {
+            trigram = ((trigram << 8) | fold(data[i])) & (TRIGRAMS - 1);
+            trigrams[i - 2] = trigram;
+        }
+        Arrays.sort(trigrams);
+        int length = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (length == 0 || trigrams[length - 1] != trigrams[i]) {
+                trigrams[length++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, length);
+    }
+
+    /**
+     * Returns the trigrams present in exactly one of two sorted trigram sets, in ascending order.
+     *
+     * @param a the first sorted set
+     * @param b the second sorted set
+     * @return the sorted symmetric difference
+     */
+    public static int[] difference(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                out[length++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                out[length++] = b[j++];
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * Folds ASCII letters to lower case, the way the index does.
+     *
+     * @param text the text
+     * @return the text with ASCII letters in lower case
+     */
+    public static String foldCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    private static int fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b & 0xff;
+    }
+
+    /**
+     * Records that the given trigrams appear in or disappear from a file at the given version.
+     * Recording the same toggles twice has no further effect.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @param toggled the trigrams present in exactly one of the version and its predecessor
+     */
+    public void toggle(long fileId, int versionNumber, int[] toggled) {
+        long entry = (fileId << 32) | versionNumber;
+        for (int trigram : toggled) {
+            postings.computeIfAbsent(trigram, key -> new PostingList()).add(entry);
+        }
+    }
+
+    /**
+     * Finds the version ranges whose content contains every trigram of a query, ordered by file and version.
+     *
+     * @param query the query, at least three bytes long in UTF-8
+     * @param files the files to consider
+     * @return the candidate ranges
+     * @throws IllegalArgumentException if the query is shorter than a trigram
+     */
+    public List<Candidate> candidates(String query, LongPredicate files) {
+        int[] trigrams = trigrams(query);
+        if (trigrams.length == 0) {
+            throw new IllegalArgumentException("Query must be at least three bytes long");
+        }
+        List<PostingList> lists = new ArrayList<>();
+        for (int trigram : trigrams) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (long fileId : lists.get(0).files()) {
+            if (!files.test(fileId)) {
+                continue;
+            }
+            int[] ranges = presence(lists.get(0).toggles(fileId));
+            for (int i = 1; i < lists.size() && ranges.length > 0; i++) {
+                ranges = intersect(ranges, presence(lists.get(i).toggles(fileId)));
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                candidates.add(new Candidate(fileId, ranges[i], ranges[i + 1]));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the number of trigrams with at least one toggle.
+     *
+     * @return the number of indexed trigrams
+     */
+    public int size() {
+        return postings.size();
+    }
+
+    /**
+     * Turns sorted toggles into the version ranges they delimit, as start and end pairs.
+     */
+    private static int[] presence(int[] toggles) {
+        int[] ranges = Arrays.copyOf(toggles, toggles.length + (toggles.length & 1));
+        if ((toggles.length & 1) == 1) {
+            ranges[toggles.length] = Integer.MAX_VALUE;
+        }
+        return ranges;
+    }
+
+    /**
+     * Intersects two sorted lists of disjoint version ranges.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int from = Math.max(a[i], b[j]);
+            int to = Math.min(a[i + 1], b[j + 1]);
+            if (from < to) {
+                out[length++] = from;
+                out[length++] = to;
+            }
+            if (a[i + 1] < b[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    /**
+     * The toggles of one trigram, as file ID and version number packed into one long, sorted on demand.
+     */
+    private static final class PostingList {
+
+        private long[] entries = new long[4];
+
+        private int size;
+
+        private boolean sorted = true;
+
+        synchronized void add(long entry) {
+            if (size == entries.length) {
+                sort();
+                if (size == entries.length) {
+                    entries = Arrays.copyOf(entries, size * 2);
+                }
+            }
+            if (size > 0 && entries[size - 1] >= entry) {
+                sorted = false;
+            }
+            entries[size++] = entry;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long[] files() {
+            sort();
+            long[] files = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long fileId = entries[i] >>> 32;
+                if (count == 0 || files[count - 1] != fileId) {
+                    files[count++] = fileId;
+                }
+            }
+            return Arrays.copyOf(files, count);
+        }
+
+        synchronized int[] toggles(long fileId) {
+            sort();
+            int from = lowerBound(fileId << 32);
+            int to = lowerBound((fileId + 1) << 32);
+            int[] versions = new int[to - from];
+            for (int i = from; i < to; i++) {
+                versions[i - from] = (int) entries[i];
+            }
+            return versions;
+        }
+
+        private int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entries[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Sorts the entries and drops duplicates, which come from indexing a version twice.
+         */
+        private void sort() {
+            if (sorted) {
+                return;
+            }
+            Arrays.sort(entries, 0, size);
+            int length = 0;
+            for (int i = 0; i < size; i++) {
+                if (length == 0 || entries[length - 1] != entries[i]) {
+                    entries[length++] = entries[i];
+                }
+            }
+            size = length;
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.VCS.LocalGit.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import com.VCS.LocalGit.Admission.AdaptiveLimiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class for admission control of the expensive operations: diffs, merges and bulk updates.
+ * <p>
+ * Each operation has its own {@link AdaptiveLimiter}, so a burst of one kind of request backs off without taking
+ * the capacity of the others. The limiters are configured by the {@code localgit.admission.*} properties, which
+ * {@code localgit.admission.<operation>.*} overrides per operation. A call that cannot be admitted fails fast with
+ * a {@link RejectedExecutionException}, which the controllers answer with 429 Too Many Requests.
+ * <p>
+ * The limit, running calls and queue depth of each operation are gauges, and rejections a counter, all under
+ * {@code localgit.admission} with an {@code operation} tag.
+ */
+@Service
+public class AdmissionService {
+
+    /**
+     * Diffing two versions.
+     */
+    public static final String DIFF = "diff";
+
+    /**
+     * Merging two files.
+     */
+    public static final String MERGE = "merge";
+
+    /**
+     * Updating files in bulk.
+     */
+    public static final String BULK = "bulk";
+
+    private static final String PREFIX = "localgit.admission.";
+
+    private final boolean enabled;
+
+    private final Map<String, Limited> limiters = new TreeMap<>();
+
+    private record Limited(AdaptiveLimiter limiter, Counter rejected) {
+    }
+
+    public AdmissionService(Environment environment, MeterRegistry meterRegistry) {
+        this.enabled = environment.getProperty(PREFIX + "enabled", Boolean.class, true);
+        for (String operation : new String[] {DIFF, MERGE, BULK}) {
+            AdaptiveLimiter limiter = new AdaptiveLimiter(
+                    setting(environment, operation, "initial-limit", Integer.class, 4),
+                    setting(environment, operation, "min-limit", Integer.class, 1),
+                    setting(environment, operation, "max-limit", Integer.class, 64),
+                    setting(environment, operation, "tolerance", Double.class, 1.5),
+                    setting(environment, operation, "queue-capacity", Integer.class, 32),
+                    setting(environment, operation, "max-wait", Duration.class, Duration.ofSeconds(2)));
+            Gauge.builder("localgit.admission.limit", limiter, AdaptiveLimiter::getLimit)
+                    .tag("operation", operation).register(meterRegistry);
+            Gauge.builder("localgit.admission.inflight", limiter, AdaptiveLimiter::getInFlight)
+                    .tag("operation", operation).register(meterRegistry);
+            Gauge.builder("localgit.admission.queued", limiter, AdaptiveLimiter::getQueued)
+                    .tag("operation", operation).register(meterRegistry);
+            Counter rejected = Counter.builder("localgit.admission.rejected")
+                    .tag("operation", operation).register(meterRegistry);
+            limiters.put(operation, new Limited(limiter, rejected));
+        }
+    }
+
+    private static <T> T setting(Environment environment, String operation, String key, Class<T> type, T fallback) {
+        T value = environment.getProperty(PREFIX + operation + "." + key, type);
+        return value != null ? value : environment.getProperty(PREFIX + key, type, fallback);
+    }
+
+    /**
+     * Runs an expensive operation once it is admitted.
+     *
+     * @param operation the operation: {@link #DIFF}, {@link #MERGE} or {@link #BULK}
+     * @param work the work
+     * @param <T> the type of the result
+     * @return the result of the work
+     * @throws RejectedExecutionException if the operation is at its limit and no slot frees up in time
+     */
+    public <T> T call(String operation, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Limited limited = limiters.get(operation);
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = limited.limiter().acquire();
+        } catch (RejectedExecutionException e) {
+            limited.rejected().increment();
+            throw e;
+        }
+        try (permit) {
+            T result = work.get();
+            permit.success();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.VCS.LocalGit.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.VCS.LocalGit.Diff.Blame;
+import com.VCS.LocalGit.Diff.DiffEngine;
+import com.VCS.LocalGit.Diff.LineIndex;
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.VersionRepository;
+import com.VCS.LocalGit.Storage.ContentStore;
+
+/**
+ * Service class for recording and reading the blame of versions, which tells for each line the version
+ * that last changed it.
+ * <p>
+ * The blame of every new version is derived at commit time from the blame of the current version and the diff
+ * between the two, and stored next to the content. The file keeps the hash of its current blame, so a commit
+ * reads no other version's blame, and reading a blame never walks the history.
+ * <p>
+ * The diff is bounded by {@code localgit.blame.max-lines} and {@code localgit.blame.time-budget}; a region beyond
+ * them is attributed to the new version as a whole. Versions of more than {@code localgit.blame.max-content-size}
+ * characters, and the versions following them, are attributed to themselves entirely.
+ */
+@Service
+public class BlameService {
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private MaintenanceService maintenanceService;
+
+    private final DiffEngine diffEngine;
+
+    private final long maxContentSize;
+
+    public BlameService(@Value("${localgit.diff.algorithm:histogram}") String algorithm,
+                        @Value("${localgit.blame.max-lines:200000}") int maxLines,
+                        @Value("${localgit.blame.time-budget:PT0.5S}") Duration timeBudget,
+                        @Value("${localgit.blame.max-content-size:16777216}") long maxContentSize) {
+        this.diffEngine = new DiffEngine(DiffEngine.Algorithm.valueOf(algorithm.toUpperCase(Locale.ROOT)), maxLines, timeBudget);
+        this.maxContentSize = maxContentSize;
+    }
+
+    /**
+     * Returns the current content of a file if the blame of its next version can be derived from it,
+     * or null if the next version will be attributed to itself entirely.
+     * Must be called before the next version is allocated.
+     *
+     * @param file the file
+     * @return the current content of the file, or null
+     */
+    public String getBlameBase(File file) {
+        if (file.getBlameHash() == null) {
+            return null;
+        }
+        Version head = versionRepository.findByFileIdAndVersionNumber(file.getId(), file.getVersionCounter()).orElseThrow();
+        return head.getSize() > maxContentSize ? null : contentService.getContent(head);
+    }
+
+    /**
+     * A blame derived for the next version of a file that is not stored yet.
+     *
+     * @param hash the hash of the serialized blame
+     * @param data the serialized blame
+     */
+    public record Pending(String hash, byte[] data) {
+    }
+
+    /**
+     * Derives the blame of the next version of a file and makes it the current blame of the file.
+     * Must be called before the next version is allocated; the blame is written by {@link #store}.
+     *
+     * @param file the file
+     * @param previousContent the current content of the file, or null if it is not available
+     * @param content the content of the next version
+     * @return the blame of the next version
+     */
+    public Pending record(File file, String previousContent, String content) {
+        return record(file, previousContent, content, 0);
+    }
+
+    /**
+     * Derives the blame of the next version of a file from uploaded content, and makes it the current blame
+     * of the file. Must be called before the next version is allocated; the blame is written by {@link #store}.
+     *
+     * @param file the file
+     * @param previousContent the current content of the file, or null if it is not available
+     * @param content the uploaded content of the next version
+     * @return the blame of the next version
+     */
+    public Pending record(File file, String previousContent, ContentService.StoredContent content) {
+        return content.size() > maxContentSize
+                ? record(file, null, null, content.lineCount())
+                : record(file, previousContent, contentService.getContent(content), 0);
+    }
+
+    private Pending record(File file, String previousContent, String content, int lineCount) {
+        int versionNumber = file.getVersionCounter() + 1;
+        Blame blame = null;
+        if (content != null) {
+            LineIndex revised = LineIndex.of(content);
+            lineCount = revised.size();
+            if (previousContent != null && file.getBlameHash() != null && ContentStore.utf8Length(content) <= maxContentSize
+                    && ContentStore.utf8Length(previousContent) <= maxContentSize) {
+                LineIndex original = LineIndex.of(previousContent);
+                Blame previous = Blame.parse(contentStore.loadBytes(file.getBlameHash()));
+                if (previous.lineCount() == original.size()) {
+                    blame = previous.next(diffEngine.diff(original, revised), lineCount, versionNumber);
+                }
+            }
+        }
+        if (blame == null) {
+            blame = Blame.of(lineCount, versionNumber);
+        }
+        byte[] data = blame.toBytes();
+        String hash = ContentStore.hash(data);
+        file.setBlameHash(hash);
+        return new Pending(hash, data);
+    }
+
+    /**
+     * Stores a blame derived by {@link #record}. Called once the version it belongs to is allocated, so that
+     * commits racing for the same version number, which derive identical blames, fail on the file's version
+     * counter rather than on the blame they write.
+     *
+     * @param blame the derived blame
+     * @return the hash of the blame
+     */
+    public String store(Pending blame) {
+        maintenanceService.holdUntilCompletion(blame.hash());
+        contentStore.storeBytes(blame.data());
+        return blame.hash();
+    }
+
+    /**
+     * Returns the blame of a version.
+     *
+     * @param version the version metadata
+     * @return the blame
+     * @throws NoSuchElementException if no blame was recorded for the version
+     */
+    public Blame getBlame(VersionMetadata version) {
+        if (version.blameHash() == null) {
+            throw new NoSuchElementException("No blame recorded for version " + version.versionNumber());
+        }
+        return Blame.parse(contentStore.loadBytes(version.blameHash()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.VCS.LocalGit.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service class for running commits in their own transaction, retrying them when they lose a race.
+ * Commits that update the same file concurrently are detected through the file's optimistic lock
+ * (or, as a backstop, the unique version number constraint) and are retried with a fresh view of the file. Other
+ * integrity violations are not retried.
+ * <p>
+ * Work that must follow a commit but should not hold its database connection, such as waiting for the commit
+ * journal, is registered with {@link #afterRelease} and runs once the transaction has completed.
+ */
+@Service
+public class CommitExecutor {
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxAttempts;
+
+    /**
+     * The work registered by the commits of the outermost {@link #execute} call running on this thread.
+     */
+    private final ThreadLocal<List<Runnable>> released = new ThreadLocal<>();
+
+    public CommitExecutor(PlatformTransactionManager transactionManager,
+                          @Value("${localgit.commit.max-attempts:50}") int maxAttempts) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Runs the given commit in a new transaction, retrying it on concurrency conflicts.
+     * When called inside an existing transaction, the commit joins it and is not retried,
+     * since only the outermost transaction can be rolled back and run again.
+     *
+     * @param commit the commit to run
+     * @param <T> the result type of the commit
+     * @return the result of the commit
+     */
+    public <T> T execute(Supplier<T> commit) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return commit.get();
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        released.set(tasks);
+        T result;
+        try {
+            result = run(commit);
+        } finally {
+            released.remove();
+        }
+        runAll(tasks);
+        return result;
+    }
+
+    /**
+     * Runs every task, even when an earlier one fails, and then rethrows the first failure.
+     */
+    private static void runAll(List<Runnable> tasks) {
+        RuntimeException failure = null;
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs a task once the current transaction has committed and, when the transaction was started by
+     * {@link #execute}, returned its connection to the pool. The task is dropped if the transaction rolls back,
+     * so a retried commit registers it again. Without a transaction the task runs at once; in a transaction
+     * not started by {@link #execute} it runs on completion, and must then use a transaction of its own.
+     *
+     * @param task the task to run
+     */
+    public void afterRelease(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        List<Runnable> tasks = released.get();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    return;
+                }
+                if (tasks != null) {
+                    tasks.add(task);
+                } else {
+                    task.run();
+                }
+            }
+        });
+    }
+
+    private <T> T run(Supplier<T> commit) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> commit.get());
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= maxAttempts || !isConflict(e)) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Tells whether a failure was caused by a concurrent commit, and may succeed when retried. Integrity violations
+     * other than duplicate keys, such as a missing value or one too long for its column, fail on every attempt.
+     */
+    private static boolean isConflict(RuntimeException e) {
+        if (e instanceof ConcurrencyFailureException || e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 1L << Math.min(attempt, 4)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying commit", e);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.VCS.LocalGit.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.VCS.LocalGit.Diff.ThreeWayMerge;
+import com.VCS.LocalGit.Dto.MergeConflict;
 import com.VCS.LocalGit.Entity.File;
 import com.VCS.LocalGit.Repository.FileRepository;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.observation.annotation.Observed;
 
 /**
  * The ConflictService class provides methods for resolving conflicts in files.
  * It interacts with the FileRepository to retrieve and save file data, and the VersionService to create new versions of files.
+ * Conflicts are the regions a merge left between conflict markers; see {@link ThreeWayMerge}.
  */
 @Service
 public class ConflictService {
@@ -21,6 +27,9 @@ public class ConflictService {
     @Autowired
     private VersionService versionService;
 
+    @Autowired
+    private CommitExecutor commitExecutor;
+
     /**
      * Resolves conflicts in a file by updating its content with the provided resolved content.
      * Creates a new version of the file with the resolved content.
@@ -28,16 +37,72 @@ public class ConflictService {
      * @param fileId the ID of the file to resolve conflicts for
      * @param resolvedContent the resolved content to update the file with
      * @return the updated File entity
+     * @throws IllegalArgumentException if the resolved content still contains conflict markers
      */
-    @Transactional
+    @Observed(name = "localgit.conflict.resolve")
     public File resolveConflict(Long fileId, String resolvedContent) {
-        File file = fileRepository.findById(fileId).orElseThrow();
+        List<MergeConflict> remaining = parseConflicts(resolvedContent);
+        if (!remaining.isEmpty()) {
+            throw new IllegalArgumentException("Resolved content still contains " + remaining.size()
+                    + " conflict(s), the first at line " + remaining.get(0).getStartLine());
+        }
+        return commitExecutor.execute(() -> {
+            File file = fileRepository.findById(fileId).orElseThrow();
 
-        file.setContent(resolvedContent);
-        file = fileRepository.save(file);
+            versionService.createVersion(file, resolvedContent);
+
+            return file;
+        });
+    }
+
+    /**
+     * Lists the unresolved conflicts in the current content of a file.
+     *
+     * @param fileId the ID of the file
+     * @return the conflicts, in order of appearance; empty if the file has none
+     */
+    public List<MergeConflict> findConflicts(Long fileId) {
+        File file = fileRepository.findById(fileId).orElseThrow();
+        return file.getVersionCounter() == 0 ? List.of() : parseConflicts(versionService.getContent(file));
+    }
 
-        versionService.createVersion(file, resolvedContent);
+    /**
+     * Parses the conflicts enclosed in conflict markers in the given content.
+     * A conflict is only recognised when its opening, separator and closing markers all appear, in that order.
+     *
+     * @param content the content to parse
+     * @return the conflicts, in order of appearance
+     */
+    public List<MergeConflict> parseConflicts(String content) {
+        List<MergeConflict> conflicts = new ArrayList<>();
+        if (!content.contains(ThreeWayMerge.TARGET_MARKER)) {
+            return conflicts;
+        }
+        String[] lines = content.split("\n", -1);
+        int start = -1;
+        List<String> targetLines = null;
+        List<String> sourceLines = null;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (isMarker(line, ThreeWayMerge.TARGET_MARKER)) {
+                start = i;
+                targetLines = new ArrayList<>();
+                sourceLines = null;
+            } else if (start < 0) {
+                continue;
+            } else if (sourceLines == null && line.equals(ThreeWayMerge.SEPARATOR)) {
+                sourceLines = new ArrayList<>();
+            } else if (sourceLines != null && isMarker(line, ThreeWayMerge.SOURCE_MARKER)) {
+                conflicts.add(new MergeConflict(start + 1, targetLines, sourceLines));
+                start = -1;
+            } else {
+                (sourceLines == null ? targetLines : sourceLines).add(line);
+            }
+        }
+        return conflicts;
+    }
 
-        return file;
+    private static boolean isMarker(String line, String marker) {
+        return line.startsWith(marker) && (line.length() == marker.length() || line.charAt(marker.length()) == ' ');
     }
 }
@@ -0,0 +1,508 @@
+package com.VCS.LocalGit.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.VersionRepository;
+import com.VCS.LocalGit.Storage.ChunkManifest;
+import com.VCS.LocalGit.Storage.ContentStore;
+import com.VCS.LocalGit.Storage.LineDelta;
+import com.VCS.LocalGit.Storage.LineOffsetIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Service class for storing and reconstructing version content.
+ * Versions are stored either as full keyframes or as line deltas against the previous version,
+ * with a keyframe every {@code localgit.storage.keyframe-interval} versions.
+ * Reconstructed content is kept in a bounded LRU cache keyed by content hash.
+ * <p>
+ * Uploaded content is stored as it is read, in chunks of {@code localgit.storage.chunk-size} bytes, so an upload
+ * never holds more than one chunk in memory. Content of more than one chunk is described by a
+ * {@link ChunkManifest}; such versions are always keyframes and are written out chunk by chunk.
+ * <p>
+ * Versions of at least {@code localgit.storage.line-index-min-size} bytes get a {@link LineOffsetIndex} at commit
+ * time, so byte ranges and line ranges of them are read without loading the whole content where the storage
+ * allows it.
+ */
+@Service
+public class ContentService {
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private MaintenanceService maintenanceService;
+
+    private final int keyframeInterval;
+
+    private final int chunkSize;
+
+    private final int lineIndexInterval;
+
+    private final long lineIndexMinSize;
+
+    private final Cache<String, String> contentCache;
+
+    public ContentService(@Value("${localgit.storage.keyframe-interval:10}") int keyframeInterval,
+                          @Value("${localgit.storage.chunk-size:1048576}") int chunkSize,
+                          @Value("${localgit.storage.line-index-interval:64}") int lineIndexInterval,
+                          @Value("${localgit.storage.line-index-min-size:65536}") long lineIndexMinSize,
+                          @Value("${localgit.storage.cache-max-chars:67108864}") long cacheMaxChars) {
+        this.keyframeInterval = keyframeInterval;
+        this.chunkSize = chunkSize;
+        this.lineIndexInterval = lineIndexInterval;
+        this.lineIndexMinSize = lineIndexMinSize;
+        this.contentCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxChars)
+                .weigher((String hash, String content) -> content.length())
+                .build();
+    }
+
+    /**
+     * Stores the content of a new version, as a keyframe or as a delta against the previous version's content.
+     * Sets the content hash, size and, for delta versions, the delta hash on the given version,
+     * and the line index hash if the content is large enough to be indexed.
+     *
+     * @param version the new version, with its version number already assigned
+     * @param previousContent the content of the previous version, or {@code null} for the first version
+     * @param content the content of the new version
+     */
+    public void store(Version version, String previousContent, String content) {
+        String contentHash = ContentStore.hash(content);
+        version.setContentHash(contentHash);
+        version.setSize(ContentStore.utf8Length(content));
+
+        // held before the lookup, so content found already stored cannot be collected before the commit
+        maintenanceService.holdUntilCompletion(contentHash);
+        if (previousContent == null || isKeyframe(version.getVersionNumber()) || contentStore.exists(contentHash)) {
+            store(contentHash, content);
+        } else {
+            String delta = LineDelta.encode(previousContent, content);
+            if (delta.length() < content.length()) {
+                version.setDeltaHash(store(ContentStore.hash(delta), delta));
+            } else {
+                store(contentHash, content);
+            }
+        }
+        if (version.getSize() >= lineIndexMinSize) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            byte[] index = new LineOffsetIndex.Builder(lineIndexInterval).update(bytes, 0, bytes.length).build().toBytes();
+            String indexHash = ContentStore.hash(index);
+            maintenanceService.holdUntilCompletion(indexHash);
+            version.setLineIndexHash(contentStore.storeBytes(index));
+        }
+        contentCache.put(contentHash, content);
+    }
+
+    /**
+     * Uploaded content stored ahead of the version that will reference it.
+     * The content stays held against garbage collection until it is {@linkplain #release released}.
+     *
+     * @param contentHash the hash of the whole content
+     * @param manifestHash the hash of the chunk manifest, or null if the content fits in one chunk
+     *                     and is stored under its content hash
+     * @param size the length of the content in bytes
+     * @param lineCount the number of lines of the content
+     * @param lineIndexHash the hash of the line index, or null if the content is too small to be indexed
+     * @param held the hashes of the stored chunks, manifest and line index
+     */
+    public record StoredContent(String contentHash, String manifestHash, long size, int lineCount,
+                                String lineIndexHash, List<String> held) {
+    }
+
+    /**
+     * Stores content read from a stream, chunk by chunk, hashing the whole content on the way.
+     * Every chunk is held against garbage collection; the caller must {@linkplain #release release} the result
+     * once the version referencing it has committed or failed.
+     *
+     * @param in the stream to read the content from; it is read to the end but not closed
+     * @return the stored content
+     * @throws IOException if the stream cannot be read
+     */
+    public StoredContent storeStream(InputStream in) throws IOException {
+        MessageDigest digest = ContentStore.newDigest();
+        LineOffsetIndex.Builder lineIndex = new LineOffsetIndex.Builder(lineIndexInterval);
+        List<ChunkManifest.Chunk> chunks = new ArrayList<>();
+        List<String> held = new ArrayList<>();
+        byte[] buffer = new byte[chunkSize];
+        try {
+            int read;
+            do {
+                read = in.readNBytes(buffer, 0, chunkSize);
+                if (read == 0 && !chunks.isEmpty()) {
+                    break;
+                }
+                byte[] chunk = Arrays.copyOf(buffer, read);
+                digest.update(chunk);
+                lineIndex.update(chunk, 0, read);
+                chunks.add(new ChunkManifest.Chunk(hold(ContentStore.hash(chunk), held), read));
+                contentStore.storeBytes(chunk);
+            } while (read == chunkSize);
+
+            ChunkManifest manifest = new ChunkManifest(chunks);
+            String manifestHash = null;
+            if (chunks.size() > 1) {
+                String text = manifest.format();
+                manifestHash = hold(ContentStore.hash(text), held);
+                contentStore.store(text);
+            }
+            LineOffsetIndex index = lineIndex.build();
+            String lineIndexHash = null;
+            if (index.byteLength() >= lineIndexMinSize) {
+                byte[] data = index.toBytes();
+                lineIndexHash = hold(ContentStore.hash(data), held);
+                contentStore.storeBytes(data);
+            }
+            return new StoredContent(HexFormat.of().formatHex(digest.digest()), manifestHash, manifest.size(),
+                    index.lineCount(), lineIndexHash, held);
+        } catch (IOException | RuntimeException e) {
+            release(new StoredContent(null, null, 0, 0, null, held));
+            throw e;
+        }
+    }
+
+    /**
+     * Makes a new version reference content stored by {@link #storeStream}.
+     * Sets the content hash, size, line index hash and, for content of more than one chunk, the manifest hash
+     * on the given version.
+     *
+     * @param version the new version
+     * @param content the stored content
+     */
+    public void store(Version version, StoredContent content) {
+        version.setContentHash(content.contentHash());
+        version.setManifestHash(content.manifestHash());
+        version.setLineIndexHash(content.lineIndexHash());
+        version.setSize(content.size());
+    }
+
+    /**
+     * Releases the hold on uploaded content once the version referencing it has committed or failed.
+     *
+     * @param content the stored content
+     */
+    public void release(StoredContent content) {
+        content.held().forEach(maintenanceService::release);
+    }
+
+    private String hold(String hash, List<String> held) {
+        maintenanceService.hold(hash);
+        held.add(hash);
+        return hash;
+    }
+
+    /**
+     * Stores content a new version will reference, holding it first so a garbage collection
+     * cannot delete it before the version is committed.
+     */
+    private String store(String hash, String content) {
+        maintenanceService.holdUntilCompletion(hash);
+        contentStore.store(content);
+        return hash;
+    }
+
+    /**
+     * Returns the content of the given version, reconstructing it from the nearest keyframe if needed.
+     *
+     * @param version the version
+     * @return the content of the version
+     */
+    public String getContent(Version version) {
+        return getContent(VersionMetadata.of(version));
+    }
+
+    /**
+     * Returns the content of a version from its metadata, reconstructing it from the nearest keyframe if needed.
+     *
+     * @param version the version metadata
+     * @return the content of the version
+     */
+    public String getContent(VersionMetadata version) {
+        String cached = contentCache.getIfPresent(version.contentHash());
+        if (cached != null) {
+            return cached;
+        }
+        if (version.manifestHash() != null) {
+            return new String(loadChunked(version.manifestHash()), StandardCharsets.UTF_8);
+        }
+        if (version.deltaHash() == null) {
+            return load(version.contentHash());
+        }
+
+        Version keyframe = versionRepository
+                .findFirstByFileIdAndVersionNumberLessThanAndDeltaHashIsNullOrderByVersionNumberDesc(
+                        version.fileId(), version.versionNumber())
+                .orElseThrow();
+        List<Version> chain = versionRepository.findByFileIdAndVersionNumberBetweenOrderByVersionNumberAsc(
+                version.fileId(), keyframe.getVersionNumber() + 1, version.versionNumber());
+
+        // Start from the most recent version in the chain whose content is already cached.
+        int start = chain.size();
+        String content = null;
+        while (start > 0 && content == null) {
+            content = contentCache.getIfPresent(chain.get(--start).getContentHash());
+        }
+        if (content == null) {
+            content = keyframe.getManifestHash() != null
+                    ? new String(loadChunked(keyframe.getManifestHash()), StandardCharsets.UTF_8)
+                    : load(keyframe.getContentHash());
+            start = -1;
+        }
+        for (int i = start + 1; i < chain.size(); i++) {
+            Version next = chain.get(i);
+            content = LineDelta.apply(content, contentStore.load(next.getDeltaHash()));
+            contentCache.put(next.getContentHash(), content);
+        }
+        return content;
+    }
+
+    /**
+     * Returns uploaded content stored by {@link #storeStream} as text.
+     *
+     * @param content the stored content
+     * @return the content
+     */
+    public String getContent(StoredContent content) {
+        return content.manifestHash() != null
+                ? new String(loadChunked(content.manifestHash()), StandardCharsets.UTF_8)
+                : contentStore.load(content.contentHash());
+    }
+
+    /**
+     * Returns the current content of the given file.
+     *
+     * @param file the file
+     * @return the current content of the file
+     */
+    public String getContent(File file) {
+        String cached = contentCache.getIfPresent(file.getContentHash());
+        if (cached != null) {
+            return cached;
+        }
+        return getContent(versionRepository.findByFileIdAndVersionNumber(file.getId(), file.getVersionCounter()).orElseThrow());
+    }
+
+    /**
+     * Returns the content the next version of the given file is delta-encoded against,
+     * or null if the next version must be a keyframe because the current one is stored in chunks.
+     *
+     * @param file the file
+     * @return the current content of the file, or null
+     */
+    public String getDeltaBase(File file) {
+        String cached = contentCache.getIfPresent(file.getContentHash());
+        if (cached != null) {
+            return cached;
+        }
+        Version head = versionRepository.findByFileIdAndVersionNumber(file.getId(), file.getVersionCounter()).orElseThrow();
+        return head.getManifestHash() != null ? null : getContent(head);
+    }
+
+    /**
+     * Writes the content of the given version to a channel as bytes. Keyframes and chunks are handed
+     * to the content store one stored piece at a time; only delta versions are reconstructed in memory.
+     *
+     * @param version the version
+     * @param target the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void transferTo(Version version, WritableByteChannel target) throws IOException {
+        transferTo(VersionMetadata.of(version), 0, Long.MAX_VALUE, target);
+    }
+
+    /**
+     * Writes a byte range of the content of the given version to a channel. Only the chunks overlapping
+     * the range are read, and keyframes are read only as far as the content store needs; delta versions
+     * are reconstructed in memory. A range reaching past the end of the content is cut short.
+     *
+     * @param version the version
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void transferTo(VersionMetadata version, long offset, long length, WritableByteChannel target)
+            throws IOException {
+        if (version.manifestHash() != null) {
+            long end = offset + Math.min(length, Long.MAX_VALUE - offset);
+            long position = 0;
+            for (ChunkManifest.Chunk chunk : ChunkManifest.parse(contentStore.load(version.manifestHash())).chunks()) {
+                long next = position + chunk.length();
+                if (next > offset && position < end) {
+                    long from = Math.max(offset - position, 0);
+                    contentStore.transferTo(chunk.hash(), from, Math.min(end, next) - position - from, target);
+                }
+                position = next;
+            }
+        } else if (version.deltaHash() == null) {
+            contentStore.transferTo(version.contentHash(), offset, length, target);
+        } else {
+            ContentStore.writeRange(getContent(version).getBytes(StandardCharsets.UTF_8), offset, length, target);
+        }
+    }
+
+    /**
+     * Returns the length of the content of the given version in bytes, as recorded when it was stored.
+     *
+     * @param version the version
+     * @return the length in bytes
+     */
+    public long getByteLength(VersionMetadata version) {
+        return version.size();
+    }
+
+    /**
+     * Returns the number of lines of the given version, from its line index where it has one;
+     * versions without one are small and counted whole.
+     *
+     * @param version the version
+     * @return the number of lines
+     */
+    public int getLineCount(VersionMetadata version) {
+        if (version.lineIndexHash() != null) {
+            return loadLineIndex(version).lineCount();
+        }
+        byte[] content = loadUnindexed(version);
+        return new LineOffsetIndex.Builder(Integer.MAX_VALUE).update(content, 0, content.length).build().lineCount();
+    }
+
+    /**
+     * Writes a range of lines of the given version to a channel. With a line index, only the bytes between
+     * the index checkpoints around the range are read, and they pass through to the channel as they are read,
+     * with newlines counted on the way to cut the range out; versions without one are small and read whole.
+     *
+     * @param version the version
+     * @param from the first line, 1-based
+     * @param to the last line, inclusive; lines past the end are left out
+     * @param target the channel to write to; nothing is written if {@code from} is past the end
+     * @return the number of lines of the whole version
+     * @throws IOException if the channel cannot be written
+     */
+    public int transferLines(VersionMetadata version, int from, int to, WritableByteChannel target) throws IOException {
+        if (version.lineIndexHash() == null) {
+            byte[] content = loadUnindexed(version);
+            new LineRangeChannel(target, 1, from, to).write(ByteBuffer.wrap(content));
+            return new LineOffsetIndex.Builder(Integer.MAX_VALUE).update(content, 0, content.length).build().lineCount();
+        }
+        LineOffsetIndex index = loadLineIndex(version);
+        if (from <= index.lineCount()) {
+            LineOffsetIndex.Window range = index.window(from, Math.min(to, index.lineCount()));
+            transferTo(version, range.offset(), range.length(), new LineRangeChannel(target, range.firstLine(), from, to));
+        }
+        return index.lineCount();
+    }
+
+    /**
+     * Passes on the bytes of a range of lines written to it and drops the others, counting newlines as the bytes
+     * go by. Bytes are always fully consumed.
+     */
+    private static final class LineRangeChannel implements WritableByteChannel {
+
+        private final WritableByteChannel target;
+
+        private final int from;
+
+        private final int to;
+
+        /**
+         * The number of the line the next byte belongs to.
+         */
+        private int line;
+
+        LineRangeChannel(WritableByteChannel target, int firstLine, int from, int to) {
+            this.target = target;
+            this.line = firstLine;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int count = src.remaining();
+            int position = src.position();
+            int limit = src.limit();
+            while (line < from && position < limit) {
+                if (src.get(position++) == '\n') {
+                    line++;
+                }
+            }
+            int start = position;
+            while (line <= to && position < limit) {
+                if (src.get(position++) == '\n') {
+                    line++;
+                }
+            }
+            if (start < position) {
+                ByteBuffer lines = src.slice(start, position - start);
+                while (lines.hasRemaining()) {
+                    target.write(lines);
+                }
+            }
+            src.position(limit);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Loads the bytes of a version that has no line index, which is small.
+     */
+    private byte[] loadUnindexed(VersionMetadata version) {
+        return version.deltaHash() == null && version.manifestHash() == null
+                ? contentStore.loadBytes(version.contentHash())
+                : getContent(version).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private LineOffsetIndex loadLineIndex(VersionMetadata version) {
+        return LineOffsetIndex.parse(contentStore.loadBytes(version.lineIndexHash()));
+    }
+
+    /**
+     * Reassembles content stored in chunks. Chunked content is not cached, since it is usually large.
+     */
+    private byte[] loadChunked(String manifestHash) {
+        ChunkManifest manifest = ChunkManifest.parse(contentStore.load(manifestHash));
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.min(manifest.size(), Integer.MAX_VALUE - 8));
+        for (ChunkManifest.Chunk chunk : manifest.chunks()) {
+            content.writeBytes(contentStore.loadBytes(chunk.hash()));
+        }
+        return content.toByteArray();
+    }
+
+    private boolean isKeyframe(int versionNumber) {
+        return keyframeInterval <= 1 || (versionNumber - 1) % keyframeInterval == 0;
+    }
+
+    private String load(String contentHash) {
+        String content = contentStore.load(contentHash);
+        contentCache.put(contentHash, content);
+        return content;
+    }
+}
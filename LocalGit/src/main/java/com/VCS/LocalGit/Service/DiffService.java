@@ -1,42 +1,119 @@
 package com.VCS.LocalGit.Service;
 
+import com.VCS.LocalGit.Diff.DiffEngine;
+import com.VCS.LocalGit.Diff.Edit;
+import com.VCS.LocalGit.Diff.LineIndex;
+import com.VCS.LocalGit.Diff.UnifiedDiff;
+import com.VCS.LocalGit.Dto.CacheStatistics;
 import com.VCS.LocalGit.Entity.Version;
 import com.VCS.LocalGit.Repository.VersionRepository;
-import com.github.difflib.DiffUtils;
-import com.github.difflib.UnifiedDiffUtils;
-import com.github.difflib.patch.Patch;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The DiffService class provides methods for generating diffs between versions of files.
- * It interacts with the VersionRepository to retrieve version data and uses DiffUtils to compute the differences.
+ * It interacts with the VersionRepository to retrieve version data and uses the DiffEngine to compute the differences.
+ * Edits are cached by the content hashes of the two versions; versions are immutable, so cached edits never go stale
+ * and identical content pairs share one entry across files. Edits coarsened because the time budget ran out
+ * are not cached, so the next request for the pair tries again.
  */
 @Service
 public class DiffService {
 
+    /**
+     * Approximate heap cost of one cached edit, used to weigh cache entries.
+     */
+    private static final int EDIT_BYTES = 32;
+
     @Autowired
     private VersionRepository versionRepository;
 
+    @Autowired
+    private VersionService versionService;
+
+    private final DiffEngine diffEngine;
+
+    private final Cache<String, List<Edit>> diffCache;
+
+    private final DistributionSummary hunkCount;
+
+    public DiffService(MeterRegistry meterRegistry,
+                       @Value("${localgit.diff.algorithm:histogram}") String algorithm,
+                       @Value("${localgit.diff.max-lines:1000000}") int maxLines,
+                       @Value("${localgit.diff.time-budget:PT2S}") Duration timeBudget,
+                       @Value("${localgit.diff.cache-max-bytes:16777216}") long cacheMaxBytes,
+                       @Value("${localgit.diff.cache-ttl:PT30M}") Duration cacheTtl) {
+        this.diffEngine = new DiffEngine(DiffEngine.Algorithm.valueOf(algorithm.toUpperCase(Locale.ROOT)), maxLines, timeBudget);
+        this.diffCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String key, List<Edit> edits) -> EDIT_BYTES * (edits.size() + 1))
+                .expireAfterAccess(cacheTtl)
+                .recordStats()
+                .build();
+        this.hunkCount = DistributionSummary.builder("localgit.diff.hunks")
+                .description("Hunks per generated diff")
+                .register(meterRegistry);
+    }
+
     /**
      * Generates a unified diff between two versions of a file.
+     * The edits are computed up front; the diff text is produced only when the result is written out.
      *
      * @param fileId the ID of the file
      * @param version1 the number of the first version
      * @param version2 the number of the second version
-     * @return a list of strings representing the unified diff
+     * @param context the number of unchanged lines shown around each change
+     * @return the unified diff, ready to be written
      */
-    public List<String> diff(Long fileId, int version1, int version2) {
+    @Observed(name = "localgit.diff")
+    public UnifiedDiff diff(Long fileId, int version1, int version2, int context) {
         Version v1 = versionRepository.findByFileIdAndVersionNumber(fileId, version1).orElseThrow();
         Version v2 = versionRepository.findByFileIdAndVersionNumber(fileId, version2).orElseThrow();
 
-        List<String> original = List.of(v1.getContent().split("\n"));
-        List<String> revised = List.of(v2.getContent().split("\n"));
+        LineIndex original = LineIndex.of(versionService.getContent(v1));
+        LineIndex revised = LineIndex.of(versionService.getContent(v2));
+        String key = v1.getContentHash() + ":" + v2.getContentHash();
+        List<Edit> edits = diffCache.getIfPresent(key);
+        if (edits == null) {
+            DiffEngine.Result result = diffEngine.compute(original, revised);
+            edits = result.edits();
+            if (!result.timedOut()) {
+                diffCache.put(key, edits);
+            }
+        }
 
-        Patch<String> patch = DiffUtils.diff(original, revised);
-        return UnifiedDiffUtils.generateUnifiedDiff("v" + version1, "v" + version2, original, patch, 0);
+        UnifiedDiff diff = new UnifiedDiff("v" + version1, "v" + version2, original, revised, edits, context);
+        hunkCount.record(diff.getHunkCount());
+        return diff;
+    }
+
+    /**
+     * Returns the configured diff engine, so that other services compute edits with the same settings.
+     *
+     * @return the diff engine
+     */
+    public DiffEngine getDiffEngine() {
+        return diffEngine;
+    }
+
+    /**
+     * Returns the hit and miss counters of the diff cache.
+     *
+     * @return the diff cache statistics
+     */
+    public CacheStatistics getCacheStatistics() {
+        return CacheStatistics.of(diffCache.stats(), diffCache.estimatedSize());
     }
 }
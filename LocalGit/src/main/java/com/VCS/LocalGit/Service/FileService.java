@@ -1,12 +1,31 @@
 package com.VCS.LocalGit.Service;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.VCS.LocalGit.Diff.Blame;
+import com.VCS.LocalGit.Diff.UnifiedDiff;
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FileUpdate;
+import com.VCS.LocalGit.Dto.MergeConflict;
+import com.VCS.LocalGit.Dto.MergeResult;
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Dto.VersionSummary;
 import com.VCS.LocalGit.Entity.File;
 import com.VCS.LocalGit.Entity.Folder;
 import com.VCS.LocalGit.Entity.Version;
@@ -14,7 +33,8 @@ import com.VCS.LocalGit.Repository.FileRepository;
 import com.VCS.LocalGit.Repository.FolderRepository;
 import com.VCS.LocalGit.Repository.VersionRepository;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.observation.annotation.Observed;
+
 
 /**
  * Service class for handling file-related operations, including creation, update, versioning,
@@ -31,6 +51,12 @@ public class FileService {
     @Autowired
     private VersionRepository versionRepository;
     
+    @Autowired
+    private VersionService versionService;
+
+    @Autowired
+    private CommitExecutor commitExecutor;
+
     @Autowired
     private MergeService mergeService;
     
@@ -40,19 +66,124 @@ public class FileService {
     @Autowired
     private DiffService diffService;
 
+    @Autowired
+    private BlameService blameService;
+
+    @Autowired
+    private HeavyTaskExecutor heavyTaskExecutor;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private JournalService journalService;
+
     /**
-     * Retrieves a specific version of a file by file ID and version number.
+     * Retrieves the metadata of a specific version of a file by file ID and version number. Versions are served
+     * from the {@link MetadataCache} once read, as immutable copies detached from any persistence context. The versions of files in a deleted folder are not found,
+     * even before their rows are reclaimed.
      *
      * @param fileId the ID of the file
      * @param versionNumber the version number to retrieve
-     * @return the specified version of the file
-     * @throws NoSuchElementException if the version is not found
+     * @return the metadata of the specified version of the file
+     * @throws NoSuchElementException if the file or the version is not found
      */
-    public Version getFileVersion(Long fileId, int versionNumber) {
-        return versionRepository.findByFileIdAndVersionNumber(fileId, versionNumber)
+    public VersionMetadata getFileVersion(Long fileId, int versionNumber) {
+        getFileHead(fileId);
+        return metadataCache.getVersion(fileId, versionNumber,
+                        () -> versionRepository.findMetadataByFileIdAndVersionNumber(fileId, versionNumber))
                 .orElseThrow(() -> new NoSuchElementException("File version not found"));
     }
 
+    /**
+     * Retrieves the metadata of the current version of a file.
+     *
+     * @param fileId the ID of the file
+     * @return the metadata of the latest version of the file
+     * @throws NoSuchElementException if the file is not found
+     */
+    public VersionMetadata getLatestVersion(Long fileId) {
+        return getFileVersion(fileId, getFileHead(fileId).getVersionCounter());
+    }
+
+    /**
+     * Retrieves the summary of a file, including its current version number.
+     *
+     * @param fileId the ID of the file
+     * @return the summary of the file
+     * @throws NoSuchElementException if the file is not found
+     */
+    public FileSummary getFile(Long fileId) {
+        return getFileHead(fileId);
+    }
+
+    private FileSummary getFileHead(Long fileId) {
+        return metadataCache.getFileHead(fileId, () -> fileRepository.findSummaryById(fileId))
+                .orElseThrow(() -> new NoSuchElementException("File not found"));
+    }
+
+    /**
+     * Writes a byte range of the content of a version to a channel, straight from storage where possible.
+     *
+     * @param version the version
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void transferContent(VersionMetadata version, long offset, long length, WritableByteChannel target) throws IOException {
+        versionService.transferTo(version, offset, length, target);
+    }
+
+    /**
+     * Returns the length of the content of a version in bytes.
+     *
+     * @param version the version
+     * @return the length in bytes
+     */
+    public long getContentLength(VersionMetadata version) {
+        return versionService.getByteLength(version);
+    }
+
+    /**
+     * Returns the number of lines of a version, from its line index where it has one.
+     *
+     * @param version the version
+     * @return the number of lines
+     */
+    public int getLineCount(VersionMetadata version) {
+        return versionService.getLineCount(version);
+    }
+
+    /**
+     * Writes a range of lines of a version to a channel, reading only the part of the content around
+     * them where the version has a line index.
+     *
+     * @param version the version
+     * @param from the first line, 1-based
+     * @param to the last line, inclusive
+     * @param target the channel to write to
+     * @return the number of lines of the version
+     * @throws IOException if the channel cannot be written
+     */
+    public int transferLines(VersionMetadata version, int from, int to, WritableByteChannel target) throws IOException {
+        return versionService.transferLines(version, from, to, target);
+    }
+
+    /**
+     * Returns which version last changed each line of a version.
+     *
+     * @param version the version
+     * @return the blame of the version
+     * @throws NoSuchElementException if no blame was recorded for the version
+     */
+    public Blame getBlame(VersionMetadata version) {
+        return blameService.getBlame(version);
+    }
+
     /**
      * Creates a new file in the specified folder with the given name and content.
      *
@@ -61,32 +192,129 @@ public class FileService {
      * @param content the content of the new file
      * @return the created file
      */
-    @Transactional
+    @Observed(name = "localgit.file.create")
     public File createFile(Long folderId, String name, String content) {
-        Folder folder = folderRepository.findById(folderId).orElseThrow();
-        File file = new File();
-        file.setName(name);
-        file.setContent(content);
-        file.setFolder(folder);
-        file = fileRepository.save(file);
-        createVersion(file, content);
-        return file;
+        return commitExecutor.execute(() -> {
+            Folder folder = folderRepository.findById(folderId).orElseThrow();
+            File file = new File();
+            file.setName(name);
+            file.setFolder(folder);
+            file.setFolderId(folderId);
+            file = fileRepository.save(file);
+            journalService.fileCreated(file);
+            createVersion(file, content);
+            return file;
+        });
     }
 
     /**
      * Updates the content of an existing file.
+     * Saving content identical to the current content still creates a new version, which stores no new content.
+     * Concurrent updates of the same file are retried until each gets its own version number.
      *
      * @param fileId the ID of the file to update
      * @param content the new content for the file
      * @return the updated file
      */
-    @Transactional
+    @Observed(name = "localgit.file.update")
     public File updateFile(Long fileId, String content) {
-        File file = fileRepository.findById(fileId).orElseThrow();
-        file.setContent(content);
-        file = fileRepository.save(file);
-        createVersion(file, content);
-        return file;
+        return commitExecutor.execute(() -> {
+            File file = fileRepository.findById(fileId).orElseThrow();
+            createVersion(file, content);
+            return file;
+        });
+    }
+
+    /**
+     * Creates a new file in the specified folder with content read from a stream.
+     * The content is stored chunk by chunk while it is read, before the commit starts, so memory use does not
+     * depend on its size and a retried commit does not need to read it again.
+     *
+     * @param folderId the ID of the folder
+     * @param name the name of the new file
+     * @param content the stream to read the content of the new file from
+     * @return the created file
+     * @throws NoSuchElementException if the folder is not found
+     * @throws IOException if the stream cannot be read
+     */
+    @Observed(name = "localgit.file.create")
+    public File createFile(Long folderId, String name, InputStream content) throws IOException {
+        folderRepository.findById(folderId).orElseThrow();
+        ContentService.StoredContent stored = versionService.storeContent(content);
+        try {
+            return commitExecutor.execute(() -> {
+                Folder folder = folderRepository.findById(folderId).orElseThrow();
+                File file = new File();
+                file.setName(name);
+                file.setFolder(folder);
+                file.setFolderId(folderId);
+                file = fileRepository.save(file);
+                journalService.fileCreated(file);
+                versionService.createVersion(file, stored);
+                return file;
+            });
+        } finally {
+            versionService.release(stored);
+        }
+    }
+
+    /**
+     * Updates the content of an existing file with content read from a stream.
+     * Like {@link #createFile(Long, String, InputStream)}, the content is stored before the commit starts.
+     *
+     * @param fileId the ID of the file to update
+     * @param content the stream to read the new content from
+     * @return the updated file
+     * @throws NoSuchElementException if the file is not found
+     * @throws IOException if the stream cannot be read
+     */
+    @Observed(name = "localgit.file.update")
+    public File updateFile(Long fileId, InputStream content) throws IOException {
+        fileRepository.findById(fileId).orElseThrow();
+        ContentService.StoredContent stored = versionService.storeContent(content);
+        try {
+            return commitExecutor.execute(() -> {
+                File file = fileRepository.findById(fileId).orElseThrow();
+                versionService.createVersion(file, stored);
+                return file;
+            });
+        } finally {
+            versionService.release(stored);
+        }
+    }
+
+    /**
+     * Updates the content of many existing files in one transaction.
+     * All files are loaded with one query and every new version is staged without flushing, so the version,
+     * content and counter writes reach the database as JDBC batches when the transaction commits.
+     * The commit is all or nothing; if a concurrent commit touches one of the files, the whole batch is retried.
+     * A file may appear more than once, in which case its updates are applied in order.
+     *
+     * @param updates the file updates, in order
+     * @return the updated files, in order of their first update
+     * @throws NoSuchElementException if a file is not found
+     * @throws RejectedExecutionException if bulk updates are at their admission limit
+     */
+    public List<FileSummary> bulkUpdateFiles(List<FileUpdate> updates) {
+        return admissionService.call(AdmissionService.BULK, () -> commitExecutor.execute(() -> {
+            Map<Long, File> files = new LinkedHashMap<>();
+            for (File file : fileRepository.findAllById(updates.stream().map(FileUpdate::getFileId).distinct().toList())) {
+                files.put(file.getId(), file);
+            }
+            Map<Long, File> updated = new LinkedHashMap<>();
+            for (FileUpdate update : updates) {
+                File file = files.get(update.getFileId());
+                if (file == null) {
+                    throw new NoSuchElementException("File not found: " + update.getFileId());
+                }
+                versionService.stageVersion(file, update.getContent());
+                updated.put(file.getId(), file);
+            }
+            return updated.values().stream()
+                    .map(file -> new FileSummary(file.getId(), file.getName(), file.getFolderId(),
+                            file.getContentHash(), file.getVersionCounter()))
+                    .toList();
+        }));
     }
 
     /**
@@ -98,48 +326,67 @@ public class FileService {
      */
     @Transactional
     public Version createVersion(File file, String content) {
-        Version version = new Version();
-        version.setFile(file);
-        version.setContent(content);
-        version.setTimestamp(LocalDateTime.now());
-        
-        List<Version> versions = versionRepository.findByFileIdOrderByVersionNumberDesc(file.getId());
-        int latestVersionNumber = versions.stream().findFirst().map(Version::getVersionNumber).orElse(0);
-        
-        version.setVersionNumber(latestVersionNumber + 1);
-        return versionRepository.save(version);
+        return versionService.createVersion(file, content);
     }
 
     /**
-     * Lists all files in a specified folder.
+     * Lists all files in a specified folder. The listing is cached until a file of the folder changes.
      *
      * @param folderId the ID of the folder
-     * @return the list of files in the folder
+     * @return the list of file summaries in the folder
      */
-    public List<File> listFiles(Long folderId) {
-        return fileRepository.findByFolderId(folderId);
+    public List<FileSummary> listFiles(Long folderId) {
+        return metadataCache.getFolderFiles(folderId, () -> fileRepository.findSummariesByFolderId(folderId));
     }
 
     /**
-     * Lists all versions of a specified file.
+     * Streams the version history of a specified file, newest first, as content-free summaries.
+     * The history is paged by version number: only versions strictly between {@code after} and
+     * {@code before} are returned, so the next page starts before the last version number seen.
+     * Bounds that leave no version number in between, including the extreme integer values, give an empty page.
      *
      * @param fileId the ID of the file
-     * @return the list of versions for the file
+     * @param before the exclusive upper bound for version numbers, or null for no bound
+     * @param after the exclusive lower bound for version numbers, or null for no bound
+     * @param limit the maximum number of versions to return
+     * @param consumer the consumer receiving each version summary
      */
-    public List<Version> listFileVersions(Long fileId) {
-        return versionRepository.findByFileIdOrderByVersionNumberDesc(fileId);
+    @Transactional(readOnly = true)
+    public void streamFileVersions(Long fileId, Integer before, Integer after, int limit, Consumer<VersionSummary> consumer) {
+        long from = after == null ? 1 : Math.max(1, after + 1L);
+        long to = before == null ? Integer.MAX_VALUE : before - 1L;
+        if (from > to) {
+            return;
+        }
+        try (Stream<VersionSummary> versions = versionRepository
+                .findByFileIdAndVersionNumberBetweenOrderByVersionNumberDesc(fileId, (int) from, (int) to, Limit.of(limit))) {
+            versions.forEach(consumer);
+        }
     }
-    
+
     /**
      * Merges the content of two files, specified by their IDs.
      *
      * @param targetFileId the ID of the target file
      * @param sourceFileId the ID of the source file
-     * @return the merged file
+     * @return the merge result, including any conflicts left in the merged content
+     * @throws RejectedExecutionException if merges are at their admission limit
      */
-    @Transactional
-    public File mergeFiles(Long targetFileId, Long sourceFileId) {
-        return mergeService.mergeFiles(targetFileId, sourceFileId);
+    public MergeResult mergeFiles(Long targetFileId, Long sourceFileId) {
+        return admissionService.call(AdmissionService.MERGE, () -> mergeService.mergeFiles(targetFileId, sourceFileId));
+    }
+
+    /**
+     * Merges the content of two files on the heavy task pool, without blocking the caller.
+     *
+     * @param targetFileId the ID of the target file
+     * @param sourceFileId the ID of the source file
+     * @return a future completed with the merge result, or exceptionally with a {@link RejectedExecutionException}
+     *         if merges are at their admission limit
+     * @throws RejectedExecutionException if the heavy task pool is saturated
+     */
+    public CompletableFuture<MergeResult> mergeFilesAsync(Long targetFileId, Long sourceFileId) {
+        return heavyTaskExecutor.submit(() -> mergeFiles(targetFileId, sourceFileId));
     }
 
     /**
@@ -149,20 +396,55 @@ public class FileService {
      * @param resolvedContent the resolved content for the file
      * @return the file with resolved content
      */
-    @Transactional
     public File resolveConflicts(Long fileId, String resolvedContent) {
         return conflictService.resolveConflict(fileId, resolvedContent);
     }
 
+    /**
+     * Lists the unresolved conflicts in the current content of a file.
+     *
+     * @param fileId the ID of the file
+     * @return the conflicts, in order of appearance
+     */
+    public List<MergeConflict> findConflicts(Long fileId) {
+        return conflictService.findConflicts(fileId);
+    }
+
     /**
      * Generates a diff between two versions of a file.
      *
      * @param fileId the ID of the file
      * @param version1 the first version number
      * @param version2 the second version number
-     * @return a list of strings representing the diff
+     * @param context the number of unchanged lines shown around each change
+     * @return the unified diff, ready to be written
+     * @throws RejectedExecutionException if diffs are at their admission limit
+     */
+    public UnifiedDiff diffVersions(Long fileId, int version1, int version2, int context) {
+        return admissionService.call(AdmissionService.DIFF, () -> diffService.diff(fileId, version1, version2, context));
+    }
+
+    /**
+     * Computes the differences between two versions of a file on the heavy task pool, without blocking the caller.
+     *
+     * @param fileId the ID of the file
+     * @param version1 the first version number
+     * @param version2 the second version number
+     * @param context the number of unchanged lines shown around each change
+     * @return a future completed with the unified diff, ready to be written, or exceptionally with a
+     *         {@link RejectedExecutionException} if diffs are at their admission limit
+     * @throws RejectedExecutionException if the heavy task pool is saturated
+     */
+    public CompletableFuture<UnifiedDiff> diffVersionsAsync(Long fileId, int version1, int version2, int context) {
+        return heavyTaskExecutor.submit(() -> diffVersions(fileId, version1, version2, context));
+    }
+
+    /**
+     * Returns the hit and miss counters of the diff cache.
+     *
+     * @return the diff cache statistics
      */
-    public List<String> diffVersions(Long fileId, int version1, int version2) {
-        return diffService.diff(fileId, version1, version2);
+    public CacheStatistics getDiffCacheStatistics() {
+        return diffService.getCacheStatistics();
     }
 }
@@ -0,0 +1,227 @@
+package com.VCS.LocalGit.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.VCS.LocalGit.Dto.FolderChange;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.FolderCommit;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.FolderCommitRepository;
+import com.VCS.LocalGit.Repository.FolderRepository;
+import com.VCS.LocalGit.Storage.ContentStore;
+import com.VCS.LocalGit.Storage.FolderTree;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Service class for folder commits: snapshots of whole folders, kept as {@link FolderTree} Merkle trees.
+ * <p>
+ * The file versions created in one transaction are collected per folder, and just before the transaction commits
+ * each affected folder gets one new commit whose tree is the previous tree with those files updated. The folder
+ * commit is therefore atomic with the versions it records: both commit, or neither does. Commits of the same folder
+ * are serialized by the update of the folder's commit counter, which locks the folder row until the transaction
+ * ends. The update is made after every other write of the transaction has been flushed, and before the commit
+ * journal reserves its frame, so the lock is held only for the tree update and the commit itself; folders are
+ * locked in ID order, so transactions touching several folders cannot deadlock.
+ * <p>
+ * Comparing two commits descends only into the subtrees whose hashes differ, so its cost depends on the number
+ * of changed files rather than on the size of the folder or the length of its history.
+ */
+@Service
+public class FolderCommitService {
+
+    /**
+     * The size bound of the cache of tree nodes, in bytes.
+     */
+    private static final long NODE_CACHE_BYTES = 16 * 1024 * 1024;
+
+    @Autowired
+    private FolderCommitRepository folderCommitRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private MaintenanceService maintenanceService;
+
+    /**
+     * Recently read and written tree nodes. Nodes are immutable, so they are cached by hash.
+     */
+    private final Cache<String, byte[]> nodeCache = Caffeine.newBuilder()
+            .maximumWeight(NODE_CACHE_BYTES)
+            .weigher((String hash, byte[] node) -> node.length)
+            .build();
+
+    /**
+     * The folder trees in the content store. Nodes are held until the transaction completes, so a garbage
+     * collection does not delete them before their commit is visible.
+     */
+    private final FolderTree tree = new FolderTree(new FolderTree.NodeStore() {
+        @Override
+        public byte[] load(String hash) {
+            return nodeCache.get(hash, contentStore::loadBytes);
+        }
+
+        @Override
+        public String store(byte[] node) {
+            String hash = ContentStore.hash(node);
+            maintenanceService.holdUntilCompletion(hash);
+            contentStore.storeBytes(node);
+            nodeCache.put(hash, node);
+            return hash;
+        }
+    });
+
+    /**
+     * Records a new version of a file for the commit of its folder at the end of the current transaction.
+     * Called by {@link VersionService} for every version it creates.
+     *
+     * @param version the new version
+     */
+    public void versionCreated(Version version) {
+        File file = version.getFile();
+        FolderTree.Entry entry = new FolderTree.Entry(file.getName(), file.getId(), version.getVersionNumber(),
+                version.getContentHash());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Folder commits must be made in a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Map<Long, FolderTree.Entry>> pending =
+                (Map<Long, Map<Long, FolderTree.Entry>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Map<Long, FolderTree.Entry>> changes = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Runs before the commit journal, which reserves its frame only once the folder rows are locked.
+                 */
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commit(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FolderCommitService.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.computeIfAbsent(file.getFolderId(), key -> new LinkedHashMap<>()).put(file.getId(), entry);
+    }
+
+    /**
+     * Creates one commit per folder, locking the folders in ID order once everything else has been flushed.
+     * Folders deleted in the meantime get no commit.
+     */
+    private void commit(Map<Long, Map<Long, FolderTree.Entry>> changes) {
+        folderRepository.flush();
+        for (Map.Entry<Long, Map<Long, FolderTree.Entry>> folder : changes.entrySet()) {
+            if (folderRepository.incrementCommitCount(folder.getKey()) == 0) {
+                continue;
+            }
+            commit(folder.getKey(), folderRepository.findCommitCount(folder.getKey()), folder.getValue().values());
+        }
+    }
+
+    /**
+     * Creates a commit of a folder on top of the one before it, under the lock of the folder row.
+     */
+    private void commit(Long folderId, int commitNumber, Collection<FolderTree.Entry> entries) {
+        FolderCommit head = commitNumber == 1 ? null
+                : folderCommitRepository.findByFolderIdAndCommitNumber(folderId, commitNumber - 1).orElseThrow();
+        FolderTree.Update update = tree.put(head == null ? null : head.getRootHash(), entries);
+
+        FolderCommit commit = new FolderCommit();
+        commit.setFolderId(folderId);
+        commit.setCommitNumber(commitNumber);
+        commit.setRootHash(update.rootHash());
+        commit.setFileCount((head == null ? 0 : head.getFileCount()) + update.added());
+        commit.setChangedFiles(entries.size());
+        commit.setTimestamp(LocalDateTime.now());
+        folderCommitRepository.save(commit);
+    }
+
+    /**
+     * Retrieves a commit of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @param commitNumber the commit number
+     * @return the commit
+     * @throws NoSuchElementException if the commit is not found
+     */
+    public FolderCommit getCommit(Long folderId, int commitNumber) {
+        return folderCommitRepository.findByFolderIdAndCommitNumber(folderId, commitNumber)
+                .orElseThrow(() -> new NoSuchElementException("Folder commit not found"));
+    }
+
+    /**
+     * Lists the commits of a folder, newest first.
+     *
+     * @param folderId the ID of the folder
+     * @param before only list commits with a lower commit number, or null for no bound
+     * @param limit the maximum number of commits to return
+     * @return the commits
+     */
+    public List<FolderCommit> listCommits(Long folderId, Integer before, int limit) {
+        return folderCommitRepository.findByFolderIdAndCommitNumberLessThanOrderByCommitNumberDesc(
+                folderId, before == null ? Integer.MAX_VALUE : before, Limit.of(limit));
+    }
+
+    /**
+     * Visits the files of a folder as they were at a commit.
+     *
+     * @param commit the commit
+     * @param consumer the consumer receiving each file
+     */
+    public void forEachFile(FolderCommit commit, Consumer<FolderTree.Entry> consumer) {
+        tree.forEach(commit.getRootHash(), consumer);
+    }
+
+    /**
+     * Lists the files that differ between two commits of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @param fromCommit the number of the older commit, or 0 for the empty folder
+     * @param toCommit the number of the newer commit
+     * @return the changed files, grouped by subtree
+     * @throws NoSuchElementException if a commit is not found
+     */
+    public List<FolderChange> compare(Long folderId, int fromCommit, int toCommit) {
+        String from = fromCommit == 0 ? null : getCommit(folderId, fromCommit).getRootHash();
+        String to = toCommit == 0 ? null : getCommit(folderId, toCommit).getRootHash();
+        List<FolderChange> changes = new ArrayList<>();
+        tree.compare(from, to, (before, after) -> {
+            FolderTree.Entry file = after != null ? after : before;
+            FolderChange.Type type = before == null ? FolderChange.Type.ADDED
+                    : after == null ? FolderChange.Type.REMOVED : FolderChange.Type.MODIFIED;
+            changes.add(new FolderChange(type, file.fileId(), file.name(),
+                    before == null ? null : before.versionNumber(), after == null ? null : after.versionNumber(),
+                    before == null ? null : before.contentHash(), after == null ? null : after.contentHash()));
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,140 @@
+package com.VCS.LocalGit.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.FolderCommitRepository;
+import com.VCS.LocalGit.Repository.FolderRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service class reclaiming the rows of deleted folders in the background.
+ * <p>
+ * {@link FolderService#deleteFolder} only tombstones a folder and its files. Every {@code localgit.reaper.interval}
+ * the reaper deletes the versions, folder commits and files of each tombstoned folder, and then the folder itself,
+ * with set-based DELETE statements of at most {@code localgit.reaper.batch-size} rows, each in its own short
+ * transaction. No entity is loaded, so reclaiming a folder takes constant memory and never locks its tables
+ * for long. A folder that cannot be reclaimed completely, for example because a commit raced its deletion,
+ * stays tombstoned and is retried by the next run. The content the deleted versions referenced is reclaimed
+ * by the next garbage collection run of {@link MaintenanceService}.
+ * <p>
+ * The number of reclaimed rows is counted by {@code localgit.reaper.rows}, tagged by table.
+ */
+@Service
+public class FolderReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(FolderReaper.class);
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private FolderCommitRepository folderCommitRepository;
+
+    private final TransactionTemplate transaction;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final Counter versionRows;
+
+    private final Counter commitRows;
+
+    private final Counter fileRows;
+
+    private final Counter folderRows;
+
+    public FolderReaper(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                        @Value("${localgit.reaper.enabled:true}") boolean enabled,
+                        @Value("${localgit.reaper.batch-size:1000}") int batchSize) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.versionRows = rows(meterRegistry, "version");
+        this.commitRows = rows(meterRegistry, "folder_commit");
+        this.fileRows = rows(meterRegistry, "file");
+        this.folderRows = rows(meterRegistry, "folder");
+    }
+
+    private static Counter rows(MeterRegistry meterRegistry, String table) {
+        return Counter.builder("localgit.reaper.rows")
+                .description("Rows of deleted folders reclaimed")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reclaims the tombstoned folders, unless the reaper is disabled.
+     */
+    @Scheduled(initialDelayString = "${localgit.reaper.interval:PT10S}", fixedDelayString = "${localgit.reaper.interval:PT10S}")
+    public void scheduledRun() {
+        if (enabled) {
+            reap();
+        }
+    }
+
+    /**
+     * Reclaims the rows of every tombstoned folder.
+     *
+     * @return the number of folders reclaimed completely
+     */
+    public synchronized int reap() {
+        int reclaimed = 0;
+        for (Long folderId : folderRepository.findDeletedIds()) {
+            try {
+                reclaimed += reap(folderId);
+            } catch (DataAccessException e) {
+                log.warn("Could not reclaim deleted folder {}, retrying on the next run", folderId, e);
+            }
+        }
+        return reclaimed;
+    }
+
+    private int reap(Long folderId) {
+        deleteAll(() -> versionRepository.findIdsByFolderId(folderId, batchSize), versionRepository::deleteByIdIn, versionRows);
+        deleteAll(() -> folderCommitRepository.findIdsByFolderId(folderId, Limit.of(batchSize)),
+                folderCommitRepository::deleteByIdIn, commitRows);
+        deleteAll(() -> fileRepository.findAllIdsByFolderId(folderId, batchSize), fileRepository::deleteByIdIn, fileRows);
+        int deleted = transaction.execute(status -> folderRepository.deleteDeleted(folderId));
+        folderRows.increment(deleted);
+        return deleted;
+    }
+
+    /**
+     * Deletes batches of rows until a batch comes out short.
+     */
+    private void deleteAll(Supplier<List<Long>> batch, Function<Collection<Long>, Integer> delete, Counter counter) {
+        int deleted;
+        do {
+            deleted = transaction.execute(status -> {
+                List<Long> ids = batch.get();
+                return ids.isEmpty() ? 0 : delete.apply(ids);
+            });
+            counter.increment(deleted);
+        } while (deleted == batchSize);
+    }
+}
@@ -1,10 +1,11 @@
 package com.VCS.LocalGit.Service;
 
+import com.VCS.LocalGit.Dto.FolderSummary;
 import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Repository.FileRepository;
 import com.VCS.LocalGit.Repository.FolderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -16,17 +17,33 @@ public class FolderService {
     @Autowired
     private FolderRepository folderRepository;
 
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private CommitExecutor commitExecutor;
+
     /**
      * Creates a new folder with the given name.
      *
      * @param name the name of the new folder
      * @return the created folder
      */
-    @Transactional
     public Folder createFolder(String name) {
-        Folder folder = new Folder();
-        folder.setName(name);
-        return folderRepository.save(folder);
+        return commitExecutor.execute(() -> {
+            Folder folder = new Folder();
+            folder.setName(name);
+            metadataCache.foldersChanged();
+            folder = folderRepository.save(folder);
+            journalService.folderCreated(folder);
+            return folder;
+        });
     }
 
     /**
@@ -37,29 +54,41 @@ public class FolderService {
      * @return the updated folder
      * @throws NoSuchElementException if the folder is not found
      */
-    @Transactional
     public Folder updateFolder(Long folderId, String name) {
-        Folder folder = folderRepository.findById(folderId).orElseThrow();
-        folder.setName(name);
-        return folderRepository.save(folder);
+        return commitExecutor.execute(() -> {
+            Folder folder = folderRepository.findById(folderId).orElseThrow();
+            folder.setName(name);
+            metadataCache.foldersChanged();
+            journalService.folderRenamed(folderId, name);
+            return folderRepository.save(folder);
+        });
     }
 
     /**
-     * Deletes a folder by its ID.
+     * Deletes a folder by its ID, together with its files and folder commits.
+     * The folder and its files are only tombstoned, with two set-based updates, and disappear from every query
+     * at once; {@link FolderReaper} reclaims their rows in the background.
      *
      * @param folderId the ID of the folder to delete
      */
-    @Transactional
     public void deleteFolder(Long folderId) {
-        folderRepository.deleteById(folderId);
+        commitExecutor.execute(() -> {
+            if (folderRepository.markDeleted(folderId) == 0) {
+                return null;
+            }
+            metadataCache.folderDeleted(folderId, fileRepository.findIdsByFolderId(folderId));
+            fileRepository.markDeletedByFolderId(folderId);
+            journalService.folderDeleted(folderId);
+            return null;
+        });
     }
 
     /**
-     * Lists all folders.
+     * Lists all folders with their file counts. The listing is cached until a folder or the set of files changes.
      *
-     * @return the list of all folders
+     * @return the list of all folder summaries
      */
-    public List<Folder> listFolders() {
-        return folderRepository.findAll();
+    public List<FolderSummary> listFolders() {
+        return metadataCache.getFolders(folderRepository::findAllSummaries);
     }
 }
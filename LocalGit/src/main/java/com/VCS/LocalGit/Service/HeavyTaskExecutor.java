@@ -0,0 +1,75 @@
+package com.VCS.LocalGit.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.VCS.LocalGit.Metrics.QueryCounter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs CPU-heavy work, such as the diffs and merges of the asynchronous endpoints, on a bounded pool of its own.
+ * <p>
+ * The pool has {@code localgit.heavy.threads} threads and a queue of {@code localgit.heavy.queue-capacity} tasks.
+ * Heavy requests wait for a pool thread instead of holding a request thread, so they queue against their own
+ * capacity and cheap requests keep being served; once the queue is full, new work is rejected at once.
+ * The pool reports its queue and activity as {@code localgit.heavy} executor metrics.
+ */
+@Service
+public class HeavyTaskExecutor {
+
+    private final ThreadPoolExecutor pool;
+
+    public HeavyTaskExecutor(MeterRegistry meterRegistry,
+                             @Value("${localgit.heavy.threads:0}") int threads,
+                             @Value("${localgit.heavy.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "localgit-heavy-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        new ExecutorServiceMetrics(pool, "localgit.heavy", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Queues work on the pool. The statements the work prepares are counted towards the submitting request.
+     *
+     * @param task the work
+     * @param <T> the type of the result
+     * @return a future completed with the result of the work, or exceptionally with what it threw
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        QueryCounter.Count count = QueryCounter.current();
+        return CompletableFuture.supplyAsync(() -> {
+            QueryCounter.Count previous = QueryCounter.bind(count);
+            try {
+                return task.get();
+            } finally {
+                QueryCounter.bind(previous);
+            }
+        }, pool);
+    }
+
+    /**
+     * Stops the pool; queued work is dropped.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
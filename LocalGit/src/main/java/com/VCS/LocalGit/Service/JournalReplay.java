@@ -0,0 +1,132 @@
+package com.VCS.LocalGit.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.FolderRepository;
+
+/**
+ * Rebuilds the store from the commit journal at startup, before the application serves requests.
+ * <p>
+ * Each journaled transaction is replayed in a transaction of its own. Folders and files are restored with their
+ * original IDs, and versions are created again through {@link VersionService}, so their content, blame, folder
+ * commits and search index are rebuilt as when they were first committed. A version that does not get its
+ * journaled number means the store and the journal disagree, and startup fails. Afterwards the folder and file ID
+ * sequences are moved past the restored IDs.
+ */
+@Service
+public class JournalReplay implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalReplay.class);
+
+    /**
+     * How far a sequence is moved past the highest restored ID: one allocation block of the entities' ID
+     * generators, whichever end of the block the generator hands out first.
+     */
+    private static final int SEQUENCE_GAP = 51;
+
+    @Autowired
+    private JournalService journalService;
+
+    @Autowired
+    private VersionService versionService;
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transaction;
+
+    public JournalReplay(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Replays the journal, if it is enabled.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!journalService.isEnabled()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long transactions = journalService.replay((header, body) -> {
+                JournalService.Transaction replayed = journalService.parse(header);
+                transaction.executeWithoutResult(status -> apply(replayed, body));
+            });
+            if (transactions > 0) {
+                restartSequence("folder_seq", folderRepository.findMaxId());
+                restartSequence("file_seq", fileRepository.findMaxId());
+                log.info("Replayed {} journaled transactions in {} ms", transactions, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the commit journal", e);
+        }
+    }
+
+    private void apply(JournalService.Transaction replayed, InputStream body) {
+        for (JournalService.Entry entry : replayed.entries()) {
+            switch (entry.type()) {
+                case FOLDER_CREATED -> folderRepository.insert(entry.folderId(), entry.name());
+                case FOLDER_RENAMED -> folderService.updateFolder(entry.folderId(), entry.name());
+                case FOLDER_DELETED -> folderService.deleteFolder(entry.folderId());
+                case FILE_CREATED -> fileRepository.insert(entry.fileId(), entry.name(), entry.folderId());
+                case VERSION_CREATED -> createVersion(entry, body);
+            }
+        }
+    }
+
+    private void createVersion(JournalService.Entry entry, InputStream body) {
+        File file = fileRepository.findById(entry.fileId()).orElseThrow();
+        Version version;
+        if (entry.length() != null) {
+            ContentService.StoredContent stored;
+            try {
+                stored = versionService.storeContent(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            try {
+                version = versionService.createVersion(file, stored);
+            } finally {
+                versionService.release(stored);
+            }
+        } else {
+            File mergeSource = entry.mergeSourceFileId() == null ? null
+                    : fileRepository.findById(entry.mergeSourceFileId()).orElseThrow();
+            version = versionService.createVersion(file, entry.content(), mergeSource);
+            version.setMergeSourceVersion(entry.mergeSourceVersion());
+        }
+        if (version.getVersionNumber() != entry.versionNumber()) {
+            throw new IllegalStateException("Journal replay of file " + entry.fileId() + " created version "
+                    + version.getVersionNumber() + " instead of " + entry.versionNumber());
+        }
+        version.setTimestamp(entry.timestamp());
+    }
+
+    private void restartSequence(String sequence, long maxId) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (maxId + SEQUENCE_GAP));
+    }
+}
@@ -0,0 +1,377 @@
+package com.VCS.LocalGit.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Storage.CommitJournal;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class recording every committed change in a {@link CommitJournal}, so that the store can be rebuilt
+ * by replaying it after a restart.
+ * <p>
+ * The folder, file and version changes of a transaction are collected while it runs and written as one journal
+ * frame, so a transaction is replayed as a whole or not at all. The frame's place in the journal is reserved just
+ * before the database commit, while the transaction still holds its row locks, and the frame is submitted once
+ * the commit succeeded. Every later frame waits for a reserved one, so the journal's callbacks run before those
+ * of other transaction synchronizations, except the folder commits that lock their folder rows first, and
+ * nothing between the reservation and the submission waits for a database connection. The writing thread then
+ * waits until the frame is durable, once the transaction has returned its connection to the pool (see
+ * {@link CommitExecutor#afterRelease}), so no change is acknowledged before it is on disk, concurrent commits share
+ * one fsync, and a commit waiting for the disk holds no connection.
+ * <p>
+ * Changes become visible to readers when the database commits, shortly before their frame is durable. A journal
+ * that fails to write or sync stays failed, since the state of a file after a failed fsync is unknown: the commit
+ * whose frame failed is reported as failed, and every later journaled transaction is rolled back when it tries
+ * to reserve its frame. The store is then read-only until a restart replays the journal, so the journal never
+ * has a gap that later frames depend on.
+ * <p>
+ * Versions created from text keep their content in the frame header. The content of an uploaded version is
+ * copied from the content store to a spool file before the commit, and from there into the frame body, so the
+ * journal holds all content whatever the storage backend; a transaction may upload at most one version.
+ * <p>
+ * The journal is enabled by {@code localgit.journal.enabled} and replayed at startup by {@link JournalReplay}.
+ * Batch sizes and fsync times are published as {@code localgit.journal.*} metrics.
+ */
+@Service
+public class JournalService {
+
+    /**
+     * The kinds of recorded changes.
+     */
+    public enum Type {
+        FOLDER_CREATED, FOLDER_RENAMED, FOLDER_DELETED, FILE_CREATED, VERSION_CREATED
+    }
+
+    /**
+     * A recorded change.
+     *
+     * @param type the kind of change
+     * @param folderId the ID of the folder created, renamed or deleted, or of the folder of a created file
+     * @param fileId the ID of the created file, or of the file of a created version
+     * @param name the name of the created or renamed folder or the created file
+     * @param versionNumber the number of a created version
+     * @param content the content of a version created from text
+     * @param length the length in bytes of the content of an uploaded version, which is in the frame body
+     * @param mergeSourceFileId the file merged into a created version
+     * @param mergeSourceVersion the version of the file merged into a created version
+     * @param timestamp the time a version was created
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(Type type, Long folderId, Long fileId, String name, Integer versionNumber, String content,
+                        Long length, Long mergeSourceFileId, Integer mergeSourceVersion, LocalDateTime timestamp) {
+    }
+
+    /**
+     * The changes of one transaction, which make up the header of a journal frame.
+     *
+     * @param entries the changes, in the order they were made
+     */
+    public record Transaction(List<Entry> entries) {
+    }
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CommitExecutor commitExecutor;
+
+    private final CommitJournal journal;
+
+    private final DistributionSummary batchFrames;
+
+    private final Timer syncTime;
+
+    private volatile boolean replaying;
+
+    /**
+     * The changes collected in a transaction, with the version whose content is the frame body.
+     */
+    private static final class Pending {
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Version upload;
+
+        private byte[] header;
+
+        private Path spool;
+
+        private CommitJournal.Ticket ticket;
+    }
+
+    public JournalService(MeterRegistry meterRegistry,
+                          @Value("${localgit.journal.enabled:false}") boolean enabled,
+                          @Value("${localgit.journal.path:data/journal/commits.log}") Path path,
+                          @Value("${localgit.journal.group-commit-delay:PT0.002S}") Duration groupCommitDelay,
+                          @Value("${localgit.journal.max-batch:256}") int maxBatch,
+                          @Value("${localgit.journal.fsync:true}") boolean fsync) throws IOException {
+        this.batchFrames = DistributionSummary.builder("localgit.journal.batch.frames")
+                .description("Journal frames made durable by one fsync")
+                .register(meterRegistry);
+        this.syncTime = Timer.builder("localgit.journal.fsync")
+                .description("Time spent forcing journal batches to disk")
+                .register(meterRegistry);
+        this.journal = enabled ? CommitJournal.open(path, groupCommitDelay, maxBatch, fsync, (frames, syncNanos) -> {
+            batchFrames.record(frames);
+            syncTime.record(syncNanos, TimeUnit.NANOSECONDS);
+        }) : null;
+    }
+
+    /**
+     * Tells whether the journal is enabled.
+     *
+     * @return true if changes are journaled
+     */
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Reads every transaction of the journal, in order, and then starts journaling new ones.
+     * Changes made while the journal is replayed are not journaled again.
+     *
+     * @param reader reads each transaction and the body of its frame
+     * @return the number of replayed transactions
+     * @throws IOException if the journal cannot be read or a transaction cannot be replayed
+     */
+    public long replay(CommitJournal.FrameReader reader) throws IOException {
+        replaying = true;
+        try {
+            return journal.replay(reader);
+        } finally {
+            replaying = false;
+            journal.start();
+        }
+    }
+
+    /**
+     * Parses the header of a journal frame.
+     *
+     * @param header the header
+     * @return the transaction
+     * @throws IOException if the header is malformed
+     */
+    public Transaction parse(byte[] header) throws IOException {
+        return objectMapper.readValue(header, Transaction.class);
+    }
+
+    /**
+     * Records the creation of a folder, whose ID must be assigned.
+     *
+     * @param folder the new folder
+     */
+    public void folderCreated(Folder folder) {
+        record(new Entry(Type.FOLDER_CREATED, folder.getId(), null, folder.getName(), null, null, null, null, null, null));
+    }
+
+    /**
+     * Records the renaming of a folder.
+     *
+     * @param folderId the ID of the folder
+     * @param name the new name
+     */
+    public void folderRenamed(Long folderId, String name) {
+        record(new Entry(Type.FOLDER_RENAMED, folderId, null, name, null, null, null, null, null, null));
+    }
+
+    /**
+     * Records the deletion of a folder.
+     *
+     * @param folderId the ID of the folder
+     */
+    public void folderDeleted(Long folderId) {
+        record(new Entry(Type.FOLDER_DELETED, folderId, null, null, null, null, null, null, null, null));
+    }
+
+    /**
+     * Records the creation of a file, whose ID must be assigned.
+     *
+     * @param file the new file
+     */
+    public void fileCreated(File file) {
+        record(new Entry(Type.FILE_CREATED, file.getFolderId(), file.getId(), file.getName(), null, null, null, null,
+                null, null));
+    }
+
+    /**
+     * Records a version created from text.
+     *
+     * @param version the new version
+     * @param content its content
+     */
+    public void versionCreated(Version version, String content) {
+        record(new Entry(Type.VERSION_CREATED, null, version.getFile().getId(), null, version.getVersionNumber(),
+                content, null, version.getMergeSourceFileId(), version.getMergeSourceVersion(), version.getTimestamp()));
+    }
+
+    /**
+     * Records a version created from uploaded content, which is copied into the journal once committed.
+     *
+     * @param version the new version
+     * @throws IllegalStateException if the transaction already uploaded a version
+     */
+    public void versionUploaded(Version version) {
+        if (journal == null || replaying) {
+            return;
+        }
+        Pending pending = pending();
+        if (pending.upload != null) {
+            throw new IllegalStateException("A journaled transaction can upload only one version");
+        }
+        pending.upload = version;
+        pending.entries.add(new Entry(Type.VERSION_CREATED, null, version.getFile().getId(), null,
+                version.getVersionNumber(), null, version.getSize(), null, null,
+                version.getTimestamp()));
+    }
+
+    private void record(Entry entry) {
+        if (journal != null && !replaying) {
+            pending().entries.add(entry);
+        }
+    }
+
+    /**
+     * Returns the changes collected in the current transaction, registering them to be journaled when it commits.
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Journaled changes must be made in a transaction");
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending changes = new Pending();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Runs right after the folder commits, which lock their folder rows before the frame is reserved.
+                 */
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE + 1;
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    prepare(changes);
+                }
+
+                @Override
+                public void afterCommit() {
+                    submit(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        // the writer thread reads the spool of a committed frame, which awaitDurable deletes
+                        if (changes.ticket != null) {
+                            changes.ticket.cancel();
+                        }
+                        deleteSpool(changes);
+                    }
+                    TransactionSynchronizationManager.unbindResourceIfPossible(JournalService.this);
+                }
+            });
+            commitExecutor.afterRelease(() -> awaitDurable(changes));
+            pending = changes;
+        }
+        return pending;
+    }
+
+    /**
+     * Builds the frame of a transaction about to commit, spooling the content of its upload, and reserves its
+     * place in the journal. A failure, including that of a journal that has failed before, rolls the transaction
+     * back.
+     */
+    private void prepare(Pending pending) {
+        try {
+            pending.header = objectMapper.writeValueAsBytes(new Transaction(pending.entries));
+            if (pending.upload != null) {
+                pending.spool = Files.createTempFile("localgit-journal", ".body");
+                try (FileChannel out = FileChannel.open(pending.spool, StandardOpenOption.WRITE)) {
+                    contentService.transferTo(pending.upload, out);
+                }
+            }
+            pending.ticket = journal.reserve();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare the journal frame", e);
+        }
+    }
+
+    /**
+     * Submits the frame of a committed transaction.
+     */
+    private void submit(Pending pending) {
+        Path spool = pending.spool;
+        if (spool == null) {
+            pending.ticket.submit(pending.header, 0, null);
+        } else {
+            pending.ticket.submit(pending.header, pending.upload.getSize(),
+                    out -> Files.copy(spool, out));
+        }
+    }
+
+    /**
+     * Waits until the frame of a committed transaction is durable.
+     */
+    private void awaitDurable(Pending pending) {
+        try {
+            pending.ticket.awaitDurable();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal the commit", e);
+        } finally {
+            deleteSpool(pending);
+        }
+    }
+
+    private static void deleteSpool(Pending pending) {
+        if (pending.spool != null) {
+            try {
+                Files.deleteIfExists(pending.spool);
+            } catch (IOException e) {
+                // a leftover temporary file
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining frames and closes the journal.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.VCS.LocalGit.Service;
+
+import java.sql.SQLException;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+/**
+ * Keeps pooled connections whose statement timed out waiting for a lock.
+ * H2 reports lock timeouts as {@link java.sql.SQLTimeoutException}s, which the pool otherwise treats as a broken
+ * connection and closes, so the rollback of the losing commit fails and {@link CommitExecutor} cannot retry it.
+ * A lock timeout is a concurrency conflict like any other: the connection is still usable once rolled back.
+ */
+public class LockTimeoutOverride implements SQLExceptionOverride {
+    /**
+     * H2's error code for a lock timeout ({@code ErrorCode.LOCK_TIMEOUT_1}).
+     */
+    private static final int LOCK_TIMEOUT = 50200;
+
+    @java.lang.Override
+    public Override adjudicate(SQLException exception) {
+        return exception.getErrorCode() == LOCK_TIMEOUT ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,343 @@
+package com.VCS.LocalGit.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Dto.GcStatus;
+import com.VCS.LocalGit.Repository.FolderCommitRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
+import com.VCS.LocalGit.Storage.ChunkManifest;
+import com.VCS.LocalGit.Storage.ContentStore;
+import com.VCS.LocalGit.Storage.FolderTree;
+import com.VCS.LocalGit.Storage.IoThrottle;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for background storage maintenance.
+ * <p>
+ * A garbage collection run deletes stored content that no version or folder commit references any more, for
+ * example after a folder is deleted, and then compacts the storage to reclaim the space of deleted content. Runs are
+ * scheduled every {@code localgit.gc.interval} and can be started, paused and resumed on demand. They work
+ * on a background thread in small steps paced by an {@link IoThrottle}, and never lock out writers.
+ * <p>
+ * Writers hold the content they store, or find already stored, until their transaction completes: held content
+ * is never deleted, and is pinned when it is released, so a run whose snapshot of referenced content predates
+ * the commit keeps it too. A hold and a deletion of the same hash are atomic with respect to each other, so
+ * a writer either holds the content first or finds it gone and stores it again. Streamed uploads store their
+ * chunks long before the transaction that commits them starts, so they hold them until they release them.
+ */
+@Service
+public class MaintenanceService {
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private FolderCommitRepository folderCommitRepository;
+
+    /**
+     * Reads the folder trees of folder commits, to mark their nodes.
+     */
+    private final FolderTree folderTree = new FolderTree(hash -> contentStore.loadBytes(hash));
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TransactionTemplate transaction;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final double compactRatio;
+
+    private final IoThrottle throttle;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "localgit-gc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The content pinned by writers during the current run, mapped to true; deleted content maps to false.
+     * Null while no run is in progress.
+     */
+    private volatile Map<String, Boolean> pins;
+
+    /**
+     * The content held by uncommitted writers, mapped to the number of holds on it.
+     */
+    private final Map<String, Integer> holds = new ConcurrentHashMap<>();
+
+    private volatile String phase = "IDLE";
+
+    private volatile LocalDateTime startedAt;
+
+    private volatile LocalDateTime finishedAt;
+
+    private volatile String error;
+
+    private final AtomicLong liveContent = new AtomicLong();
+
+    private final AtomicLong contentScanned = new AtomicLong();
+
+    private final AtomicLong contentDeleted = new AtomicLong();
+
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+
+    public MaintenanceService(PlatformTransactionManager transactionManager,
+                              @Value("${localgit.gc.enabled:true}") boolean enabled,
+                              @Value("${localgit.gc.batch-size:500}") int batchSize,
+                              @Value("${localgit.gc.compact-ratio:0.3}") double compactRatio,
+                              @Value("${localgit.gc.max-bytes-per-second:8388608}") long maxBytesPerSecond) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.compactRatio = compactRatio;
+        this.throttle = new IoThrottle(maxBytesPerSecond);
+    }
+
+    /**
+     * Starts a scheduled run, unless scheduled runs are disabled or a run is already in progress.
+     */
+    @Scheduled(initialDelayString = "${localgit.gc.interval:PT6H}", fixedDelayString = "${localgit.gc.interval:PT6H}")
+    public void scheduledRun() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Starts a garbage collection run in the background.
+     *
+     * @return true if a run was started, false if one is already in progress
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        pins = new ConcurrentHashMap<>();
+        phase = "MARKING";
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        error = null;
+        liveContent.set(0);
+        contentScanned.set(0);
+        contentDeleted.set(0);
+        bytesReclaimed.set(0);
+        executor.execute(this::run);
+        return true;
+    }
+
+    /**
+     * Pauses the current and future runs at their next step.
+     */
+    public void pause() {
+        throttle.pause();
+    }
+
+    /**
+     * Resumes paused runs.
+     */
+    public void resume() {
+        throttle.resume();
+    }
+
+    /**
+     * Returns the progress of the current run, or the outcome of the last one.
+     *
+     * @return the garbage collection status
+     */
+    public GcStatus getStatus() {
+        return new GcStatus(phase, throttle.isPaused(), startedAt, finishedAt, liveContent.get(),
+                contentScanned.get(), contentDeleted.get(), bytesReclaimed.get(), error);
+    }
+
+    /**
+     * Protects content from deletion by the current run; does nothing while no run is in progress.
+     *
+     * @param hash the hash of the content
+     */
+    public void pin(String hash) {
+        Map<String, Boolean> current = pins;
+        if (current != null) {
+            current.put(hash, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Protects content from deletion until it is released, whether or not a run is in progress.
+     * Called by writers before they store content that is only committed later, in another transaction.
+     *
+     * @param hash the hash of the content about to be stored
+     */
+    public void hold(String hash) {
+        holds.merge(hash, 1, Integer::sum);
+        pin(hash);
+    }
+
+    /**
+     * Protects content from deletion until the current transaction has committed or rolled back.
+     * Called by writers before they store content, or check that it is stored, for a new version or folder commit
+     * to reference.
+     *
+     * @param hash the hash of the content about to be stored or referenced
+     * @throws IllegalStateException if no transaction is active
+     */
+    public void holdUntilCompletion(String hash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Content must be stored in a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        List<String> pending = (List<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<String> held = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, held);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MaintenanceService.this);
+                    held.forEach(MaintenanceService.this::release);
+                }
+            });
+            pending = held;
+        }
+        hold(hash);
+        pending.add(hash);
+    }
+
+    /**
+     * Releases content held with {@link #hold}, once the version referencing it has committed or failed.
+     * The content is pinned first, so the current run keeps it even if its snapshot predates the commit.
+     *
+     * @param hash the hash of the held content
+     */
+    public void release(String hash) {
+        pin(hash);
+        holds.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void run() {
+        try {
+            Set<String> live = mark();
+            liveContent.set(live.size());
+
+            phase = "SWEEPING";
+            sweep(live);
+
+            phase = "COMPACTING";
+            bytesReclaimed.addAndGet(contentStore.compact(throttle, compactRatio));
+        } catch (InterruptedException e) {
+            error = "Interrupted";
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            error = e.toString();
+        } finally {
+            pins = null;
+            phase = "IDLE";
+            finishedAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+
+    private Set<String> mark() {
+        return readOnlyTransaction.execute(status -> {
+            Set<String> live = new HashSet<>();
+            try (Stream<String> hashes = versionRepository.streamReferencedContentHashes()) {
+                hashes.forEach(live::add);
+            }
+            try (Stream<String> indexes = versionRepository.streamLineIndexHashes()) {
+                indexes.forEach(live::add);
+            }
+            try (Stream<String> blames = versionRepository.streamBlameHashes()) {
+                blames.forEach(live::add);
+            }
+            try (Stream<String> roots = folderCommitRepository.streamRootHashes()) {
+                roots.forEach(root -> folderTree.collectNodes(root, live));
+            }
+            try (Stream<String> manifests = versionRepository.streamManifestHashes()) {
+                manifests.forEach(manifest -> ChunkManifest.parse(contentStore.load(manifest)).chunks()
+                        .forEach(chunk -> live.add(chunk.hash())));
+            }
+            return live;
+        });
+    }
+
+    private void sweep(Set<String> live) throws InterruptedException {
+        List<String> candidates = new ArrayList<>();
+        contentStore.forEachHash(hash -> {
+            contentScanned.incrementAndGet();
+            if (!live.contains(hash)) {
+                candidates.add(hash);
+            }
+        });
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<String> batch = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+            throttle.acquire(0);
+            // Versions committed since the snapshot may have started to reference some candidates again.
+            Set<String> referenced = readOnlyTransaction.execute(status -> {
+                Set<String> hashes = new HashSet<>(versionRepository.findReferencedContentHashes(batch));
+                hashes.addAll(versionRepository.findReferencedLineIndexHashes(batch));
+                hashes.addAll(versionRepository.findReferencedBlameHashes(batch));
+                hashes.addAll(folderCommitRepository.findReferencedRootHashes(batch));
+                return hashes;
+            });
+            for (String hash : batch) {
+                if (!referenced.contains(hash)) {
+                    delete(hash);
+                }
+            }
+        }
+    }
+
+    private void delete(String hash) throws InterruptedException {
+        long[] freed = {-1};
+        pins.computeIfAbsent(hash, key -> {
+            if (holds.containsKey(key)) {
+                return Boolean.TRUE;
+            }
+            freed[0] = transaction.execute(status -> contentStore.delete(key));
+            return Boolean.FALSE;
+        });
+        if (freed[0] >= 0) {
+            contentDeleted.incrementAndGet();
+            bytesReclaimed.addAndGet(freed[0]);
+            throttle.acquire(freed[0]);
+        }
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
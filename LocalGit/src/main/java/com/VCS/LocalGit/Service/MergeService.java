@@ -1,62 +1,132 @@
 package com.VCS.LocalGit.Service;
 
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import com.VCS.LocalGit.Diff.ThreeWayMerge;
+import com.VCS.LocalGit.Dto.MergeResult;
 import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
 import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service class for handling file merge operations.
+ * Files are merged three ways against their common ancestor: changes made on only one side since the ancestor
+ * are applied automatically, and changes made differently on both sides are left as conflict markers
+ * for {@link ConflictService}.
  */
 @Service
 public class MergeService {
     @Autowired
     private FileRepository fileRepository;
 
+    @Autowired
+    private VersionRepository versionRepository;
+
     @Autowired
     private VersionService versionService;
 
+    @Autowired
+    private CommitExecutor commitExecutor;
+
+    private final DiffService diffService;
+
+    private final ForkJoinPool mergePool;
+
+    private final int parallelThreshold;
+
+    public MergeService(DiffService diffService,
+                        @Value("${localgit.merge.parallelism:0}") int parallelism,
+                        @Value("${localgit.merge.parallel-threshold:8}") int parallelThreshold) {
+        this.diffService = diffService;
+        this.mergePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.parallelThreshold = parallelThreshold;
+    }
+
     /**
-     * Merges the content of the source file into the target file.
+     * Merges the content of the source file into the target file and commits the result as a new version
+     * of the target file. The new version records the merged source version, so a later merge between
+     * the same files starts from it rather than from an older ancestor.
      *
      * @param targetFileId the ID of the target file
      * @param sourceFileId the ID of the source file
-     * @return the merged file
+     * @return the merge result, including any conflicts left in the merged content
      * @throws NoSuchElementException if either file is not found
+     * @throws IllegalArgumentException if a file is merged into itself
      */
-    @Transactional
-    public File mergeFiles(Long targetFileId, Long sourceFileId) {
-        File targetFile = fileRepository.findById(targetFileId).orElseThrow();
-        File sourceFile = fileRepository.findById(sourceFileId).orElseThrow();
+    @Observed(name = "localgit.merge")
+    public MergeResult mergeFiles(Long targetFileId, Long sourceFileId) {
+        if (targetFileId.equals(sourceFileId)) {
+            throw new IllegalArgumentException("A file cannot be merged into itself");
+        }
+        return commitExecutor.execute(() -> {
+            File targetFile = fileRepository.findById(targetFileId).orElseThrow();
+            File sourceFile = fileRepository.findById(sourceFileId).orElseThrow();
 
-        String targetContent = targetFile.getContent();
-        String sourceContent = sourceFile.getContent();
+            String targetContent = versionService.getContent(targetFile);
+            String sourceContent = versionService.getContent(sourceFile);
+            String baseContent = findCommonAncestor(targetFile, sourceFile).map(versionService::getContent).orElse("");
 
-        String mergedContent = mergeContent(targetContent, sourceContent);
+            ThreeWayMerge.Result merged = new ThreeWayMerge(diffService.getDiffEngine(), mergePool, parallelThreshold)
+                    .merge(baseContent, targetContent, sourceContent, targetFile.getName(), sourceFile.getName());
 
-        targetFile.setContent(mergedContent);
-        targetFile = fileRepository.save(targetFile);
+            Version version = versionService.createVersion(targetFile, merged.content(), sourceFile);
 
-        versionService.createVersion(targetFile, mergedContent);
-
-        return targetFile;
+            return new MergeResult(targetFile, version.getVersionNumber(), merged.conflicts());
+        });
     }
 
     /**
-     * Merges the content of the source content into the target content.
-     * This method appends the source content to the target content.
+     * Finds the most recent common ancestor of two files. The candidates are the source version of the last merge
+     * of either file into the other, and the latest target version whose content the source has also had,
+     * such as the content a copied file started from. The candidate nearest to the target's head wins.
      *
-     * @param targetContent the content of the target file
-     * @param sourceContent the content of the source file
-     * @return the merged content
+     * @param target the target file
+     * @param source the source file
+     * @return the common ancestor version, or an empty Optional if the files share no history
+     */
+    private Optional<Version> findCommonAncestor(File target, File source) {
+        Version best = null;
+        int bestRank = -1;
+
+        // Source merged into target: the target's merge version already contains that source version.
+        Optional<Version> merge = versionRepository
+                .findFirstByFileIdAndMergeSourceFileIdOrderByVersionNumberDesc(target.getId(), source.getId());
+        if (merge.isPresent()) {
+            best = versionRepository.findByFileIdAndVersionNumber(source.getId(), merge.get().getMergeSourceVersion()).orElseThrow();
+            bestRank = merge.get().getVersionNumber();
+        }
+
+        // Target merged into source: the source already contains that target version.
+        merge = versionRepository.findFirstByFileIdAndMergeSourceFileIdOrderByVersionNumberDesc(source.getId(), target.getId());
+        if (merge.isPresent() && merge.get().getMergeSourceVersion() > bestRank) {
+            bestRank = merge.get().getMergeSourceVersion();
+            best = versionRepository.findByFileIdAndVersionNumber(target.getId(), bestRank).orElseThrow();
+        }
+
+        for (Version shared : versionRepository.findSharedVersions(target.getId(), source.getId(), Limit.of(1))) {
+            if (shared.getVersionNumber() > bestRank) {
+                best = shared;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Shuts down the pool on which conflicting regions are refined.
      */
-    private String mergeContent(String targetContent, String sourceContent) {
-     
-        return targetContent + "\n" + sourceContent;
+    @PreDestroy
+    public void shutdown() {
+        mergePool.shutdown();
     }
 }
@@ -0,0 +1,269 @@
+package com.VCS.LocalGit.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FolderSummary;
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through caches of the metadata behind the hot read paths: versions, file heads, and the file and folder
+ * listings.
+ * <p>
+ * Versions never change once committed, so they are cached by file and version number until the cache is full,
+ * as immutable {@link VersionMetadata} copies rather than entities, which belong to the persistence context
+ * of the request that loaded them.
+ * A file head, the summary holding the file's current version number, and the file listing of its folder are
+ * invalidated by every new version of the file; the folder listing, which counts files, by every new file and
+ * folder change. Invalidation happens once the writing transaction has committed, so a reader never caches
+ * a state that is rolled back. A load runs on the reading thread without holding any lock of the cache, and
+ * concurrent readers of the same key wait for it. Invalidating a key that is being loaded drops the load's
+ * result, so no stale entry outlives a commit, and a committing transaction never waits for a load, which
+ * may itself be waiting for a database connection.
+ * <p>
+ * The caches report hits, misses and evictions as {@code cache.*} metrics tagged with their name.
+ */
+@Service
+public class MetadataCache {
+
+    private static final String ALL_FOLDERS = "all";
+
+    private final AsyncCache<VersionKey, VersionMetadata> versions;
+
+    private final AsyncCache<Long, FileSummary> fileHeads;
+
+    private final AsyncCache<Long, List<FileSummary>> folderFiles;
+
+    private final AsyncCache<String, List<FolderSummary>> folders;
+
+    /**
+     * A version of a file.
+     */
+    private record VersionKey(long fileId, int versionNumber) {
+    }
+
+    /**
+     * The invalidations collected in a transaction.
+     */
+    private static final class Invalidations {
+
+        private final Set<Long> files = new HashSet<>();
+
+        private final Set<Long> folderListings = new HashSet<>();
+
+        private final Set<Long> deletedFiles = new HashSet<>();
+
+        private boolean folders;
+    }
+
+    public MetadataCache(MeterRegistry meterRegistry,
+                         @Value("${localgit.cache.max-versions:10000}") long maxVersions,
+                         @Value("${localgit.cache.max-files:10000}") long maxFiles,
+                         @Value("${localgit.cache.max-listed-files:100000}") long maxListedFiles) {
+        this.versions = Caffeine.newBuilder().maximumSize(maxVersions).recordStats().buildAsync();
+        this.fileHeads = Caffeine.newBuilder().maximumSize(maxFiles).recordStats().buildAsync();
+        this.folderFiles = Caffeine.newBuilder()
+                .maximumWeight(maxListedFiles)
+                .weigher((Long folderId, List<FileSummary> files) -> files.size() + 1)
+                .recordStats()
+                .buildAsync();
+        this.folders = Caffeine.newBuilder().maximumSize(1).recordStats().buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "localgit.versions");
+        CaffeineCacheMetrics.monitor(meterRegistry, fileHeads, "localgit.file-heads");
+        CaffeineCacheMetrics.monitor(meterRegistry, folderFiles, "localgit.folder-files");
+        CaffeineCacheMetrics.monitor(meterRegistry, folders, "localgit.folders");
+    }
+
+    /**
+     * Returns a version, loading it if it is not cached. Missing versions are not cached.
+     *
+     * @param fileId the ID of the file
+     * @param versionNumber the version number
+     * @param loader loads the version metadata from the database
+     * @return the version metadata, or an empty Optional if it does not exist
+     */
+    public Optional<VersionMetadata> getVersion(Long fileId, int versionNumber,
+                                                Supplier<Optional<VersionMetadata>> loader) {
+        return Optional.ofNullable(load(versions, new VersionKey(fileId, versionNumber), () -> loader.get().orElse(null)));
+    }
+
+    /**
+     * Returns the head of a file, loading it if it is not cached. Missing files are not cached.
+     *
+     * @param fileId the ID of the file
+     * @param loader loads the file summary from the database
+     * @return the file summary, or an empty Optional if the file does not exist
+     */
+    public Optional<FileSummary> getFileHead(Long fileId, Supplier<Optional<FileSummary>> loader) {
+        return Optional.ofNullable(load(fileHeads, fileId, () -> loader.get().orElse(null)));
+    }
+
+    /**
+     * Returns the file listing of a folder, loading it if it is not cached.
+     *
+     * @param folderId the ID of the folder
+     * @param loader loads the listing from the database
+     * @return the file summaries, which must not be modified
+     */
+    public List<FileSummary> getFolderFiles(Long folderId, Supplier<List<FileSummary>> loader) {
+        return load(folderFiles, folderId, () -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Returns the folder listing, loading it if it is not cached.
+     *
+     * @param loader loads the listing from the database
+     * @return the folder summaries, which must not be modified
+     */
+    public List<FolderSummary> getFolders(Supplier<List<FolderSummary>> loader) {
+        return load(folders, ALL_FOLDERS, () -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Returns the value cached for a key, or loads it on this thread. A null value is not cached, and neither is
+     * a failed load, whose exception is thrown to every reader waiting for it.
+     */
+    private static <K, V> V load(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> value = cache.get(key, (k, executor) -> load);
+        if (value == load) {
+            try {
+                load.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Invalidates the head and folder file listing of the file of a new version, and for the first version
+     * of a new file also the folder listing, once the current transaction commits.
+     *
+     * @param version the new version
+     */
+    public void versionCreated(Version version) {
+        File file = version.getFile();
+        Invalidations pending = pending();
+        pending.files.add(file.getId());
+        pending.folderListings.add(file.getFolderId());
+        pending.folders |= version.getVersionNumber() == 1;
+        flushIfNoTransaction(pending);
+    }
+
+    /**
+     * Invalidates the folder listing once the current transaction commits.
+     */
+    public void foldersChanged() {
+        Invalidations pending = pending();
+        pending.folders = true;
+        flushIfNoTransaction(pending);
+    }
+
+    /**
+     * Invalidates everything cached about a folder and its files once the current transaction commits.
+     *
+     * @param folderId the ID of the folder
+     * @param fileIds the IDs of the files of the folder
+     */
+    public void folderDeleted(Long folderId, List<Long> fileIds) {
+        Invalidations pending = pending();
+        pending.files.addAll(fileIds);
+        pending.deletedFiles.addAll(fileIds);
+        pending.folderListings.add(folderId);
+        pending.folders = true;
+        flushIfNoTransaction(pending);
+    }
+
+    /**
+     * Returns the statistics of each cache.
+     *
+     * @return the cache statistics by cache name
+     */
+    public Map<String, CacheStatistics> getStatistics() {
+        Map<String, CacheStatistics> statistics = new TreeMap<>();
+        statistics.put("versions", statistics(versions));
+        statistics.put("file-heads", statistics(fileHeads));
+        statistics.put("folder-files", statistics(folderFiles));
+        statistics.put("folders", statistics(folders));
+        return statistics;
+    }
+
+    private static CacheStatistics statistics(AsyncCache<?, ?> cache) {
+        return CacheStatistics.of(cache.synchronous().stats(), cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * Returns the invalidations of the current transaction, registering them to be applied after it commits,
+     * or a new set to be applied at once if there is no transaction.
+     */
+    private Invalidations pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Invalidations();
+        }
+        Invalidations pending = (Invalidations) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Invalidations invalidations = new Invalidations();
+            TransactionSynchronizationManager.bindResource(this, invalidations);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(invalidations);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MetadataCache.this);
+                }
+            });
+            pending = invalidations;
+        }
+        return pending;
+    }
+
+    private void flushIfNoTransaction(Invalidations pending) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(pending);
+        }
+    }
+
+    private void apply(Invalidations invalidations) {
+        fileHeads.synchronous().invalidateAll(invalidations.files);
+        folderFiles.synchronous().invalidateAll(invalidations.folderListings);
+        if (invalidations.folders) {
+            folders.synchronous().invalidateAll();
+        }
+        if (!invalidations.deletedFiles.isEmpty()) {
+            versions.asMap().keySet().removeIf(key -> invalidations.deletedFiles.contains(key.fileId()));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.VCS.LocalGit.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.SearchHit;
+import com.VCS.LocalGit.Dto.SearchResult;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
+import com.VCS.LocalGit.Search.TrigramIndex;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for full-text search across all files and versions.
+ * <p>
+ * Every committed version is added to an in-memory {@link TrigramIndex} by a background thread, once its
+ * transaction has committed, so commits do not wait for indexing and rolled-back versions are never indexed.
+ * The index is rebuilt from the stored versions on startup. A search looks up the version ranges containing
+ * every trigram of the query and confirms each candidate version against its content, in file and version
+ * order, until a page is full or {@code localgit.search.max-verifications} versions have been checked.
+ * Versions larger than {@code localgit.search.max-content-size} are not indexed.
+ */
+@Service
+public class SearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+    private static final int MAX_PREVIEW_LENGTH = 200;
+
+    @Autowired
+    private VersionRepository versionRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private ContentService contentService;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+
+    private final long maxContentSize;
+
+    private final int maxVerifications;
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "localgit-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * The trigrams of the last version indexed of recently indexed files, so the predecessor of a version
+     * does not have to be read again. Only used by the indexing thread.
+     */
+    private final Map<Long, IndexedVersion> lastIndexed = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long lastIndexedTrigrams;
+
+    private record IndexedVersion(int versionNumber, int[] trigrams) {
+    }
+
+    public SearchService(PlatformTransactionManager transactionManager,
+                         @Value("${localgit.search.enabled:true}") boolean enabled,
+                         @Value("${localgit.search.max-content-size:16777216}") long maxContentSize,
+                         @Value("${localgit.search.max-verifications:10000}") int maxVerifications) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxContentSize = maxContentSize;
+        this.maxVerifications = maxVerifications;
+    }
+
+    /**
+     * Queues a new version for indexing once the current transaction commits.
+     * Called by {@link VersionService} for every version it creates.
+     *
+     * @param version the new version
+     */
+    public void versionCreated(Version version) {
+        if (!enabled) {
+            return;
+        }
+        long fileId = version.getFile().getId();
+        int versionNumber = version.getVersionNumber();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(fileId, versionNumber, versionNumber);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(fileId, versionNumber, versionNumber);
+            }
+        });
+    }
+
+    /**
+     * Queues every stored version for indexing, file by file, once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        List<FileSummary> files = readOnlyTransaction.execute(status -> {
+            try (Stream<FileSummary> summaries = fileRepository.streamAllSummaries()) {
+                return summaries.toList();
+            }
+        });
+        for (FileSummary file : files) {
+            enqueue(file.getId(), 1, file.getVersionCounter());
+        }
+    }
+
+    /**
+     * Finds the file versions whose content contains a string.
+     *
+     * @param query the string to find, at least three bytes long in UTF-8
+     * @param ignoreCase whether ASCII letters match regardless of case
+     * @param folderId only search the files of this folder, or null
+     * @param fileId only search this file, or null
+     * @param fromVersion only search versions from this version number on, or null
+     * @param toVersion only search versions up to this version number, or null
+     * @param after the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of hits to return
+     * @return the page of hits
+     * @throws IllegalArgumentException if the query is too short or the cursor is malformed
+     */
+    public SearchResult search(String query, boolean ignoreCase, Long folderId, Long fileId,
+                               Integer fromVersion, Integer toVersion, String after, int limit) {
+        long afterFileId = 0;
+        int afterVersion = 0;
+        if (after != null) {
+            String[] cursor = after.split(":");
+            try {
+                afterFileId = Long.parseLong(cursor[0]);
+                afterVersion = Integer.parseInt(cursor[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Malformed cursor: " + after);
+            }
+        }
+        LongPredicate files = id -> fileId == null || id == fileId;
+        if (folderId != null) {
+            Set<Long> folderFiles = new HashSet<>();
+            fileRepository.findSummariesByFolderId(folderId).forEach(file -> folderFiles.add(file.getId()));
+            files = files.and(folderFiles::contains);
+        }
+
+        String needle = ignoreCase ? TrigramIndex.foldCase(query) : query;
+        List<SearchHit> hits = new ArrayList<>();
+        int verified = 0;
+        for (TrigramIndex.Candidate candidate : index.candidates(query, files)) {
+            if (candidate.fileId() < afterFileId) {
+                continue;
+            }
+            File file = fileRepository.findById(candidate.fileId()).orElse(null);
+            if (file == null) {
+                continue;
+            }
+            int from = Math.max(candidate.from(), fromVersion == null ? 1 : fromVersion);
+            if (candidate.fileId() == afterFileId) {
+                from = Math.max(from, afterVersion + 1);
+            }
+            int to = Math.min(candidate.to() - 1, Math.min(file.getVersionCounter(), toVersion == null ? Integer.MAX_VALUE : toVersion));
+            for (int versionNumber = from; versionNumber <= to; versionNumber++) {
+                if (hits.size() == limit || verified == maxVerifications) {
+                    return new SearchResult(hits, candidate.fileId() + ":" + (versionNumber - 1), pending.get());
+                }
+                verified++;
+                Version version = versionRepository.findByFileIdAndVersionNumber(file.getId(), versionNumber).orElse(null);
+                if (version == null || version.getSize() > maxContentSize) {
+                    continue;
+                }
+                String content = contentService.getContent(version);
+                int at = (ignoreCase ? TrigramIndex.foldCase(content) : content).indexOf(needle);
+                if (at >= 0) {
+                    hits.add(hit(file, versionNumber, content, at));
+                }
+            }
+        }
+        return new SearchResult(hits, null, pending.get());
+    }
+
+    private static SearchHit hit(File file, int versionNumber, String content, int at) {
+        int line = 1;
+        int lineStart = 0;
+        for (int i = content.indexOf('\n'); i >= 0 && i < at; i = content.indexOf('\n', i + 1)) {
+            line++;
+            lineStart = i + 1;
+        }
+        int lineEnd = content.indexOf('\n', at);
+        String preview = content.substring(lineStart, lineEnd < 0 ? content.length() : lineEnd);
+        if (preview.length() > MAX_PREVIEW_LENGTH) {
+            preview = preview.substring(0, MAX_PREVIEW_LENGTH);
+        }
+        return new SearchHit(file.getId(), file.getName(), file.getFolderId(), versionNumber, line, preview);
+    }
+
+    private void enqueue(long fileId, int from, int to) {
+        pending.addAndGet(to - from + 1);
+        executor.execute(() -> {
+            for (int versionNumber = from; versionNumber <= to; versionNumber++) {
+                int number = versionNumber;
+                try {
+                    readOnlyTransaction.executeWithoutResult(status -> index(fileId, number));
+                } catch (RuntimeException e) {
+                    log.warn("Could not index version {} of file {}", versionNumber, fileId, e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Records the trigrams that differ between a version and its predecessor. When versions of a file are
+     * indexed in order, the trigrams of the predecessor are those kept from indexing it.
+     */
+    private void index(long fileId, int versionNumber) {
+        Version version = versionRepository.findByFileIdAndVersionNumber(fileId, versionNumber).orElse(null);
+        if (version == null) {
+            return;
+        }
+        IndexedVersion last = lastIndexed.get(fileId);
+        int[] previous;
+        if (last != null && last.versionNumber() == versionNumber - 1) {
+            previous = last.trigrams();
+        } else {
+            previous = versionNumber == 1 ? new int[0] : versionRepository
+                    .findByFileIdAndVersionNumber(fileId, versionNumber - 1).map(this::trigrams).orElse(new int[0]);
+        }
+        int[] current = trigrams(version);
+        index.toggle(fileId, versionNumber, TrigramIndex.difference(previous, current));
+        remember(fileId, new IndexedVersion(versionNumber, current));
+    }
+
+    private int[] trigrams(Version version) {
+        return version.getSize() > maxContentSize ? new int[0] : TrigramIndex.trigrams(contentService.getContent(version));
+    }
+
+    /**
+     * Keeps the trigrams of the last indexed version of a file, evicting the least recently indexed files
+     * once about as many trigrams are kept as the largest indexed content has bytes.
+     */
+    private void remember(long fileId, IndexedVersion indexed) {
+        IndexedVersion replaced = lastIndexed.put(fileId, indexed);
+        lastIndexedTrigrams += indexed.trigrams().length - (replaced == null ? 0 : replaced.trigrams().length);
+        Iterator<IndexedVersion> eldest = lastIndexed.values().iterator();
+        while (lastIndexedTrigrams > maxContentSize && lastIndexed.size() > 1) {
+            lastIndexedTrigrams -= eldest.next().trigrams().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Stops the indexing thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
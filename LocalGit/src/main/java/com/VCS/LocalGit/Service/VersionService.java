@@ -1,16 +1,25 @@
 package com.VCS.LocalGit.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.time.LocalDateTime;
-import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.VCS.LocalGit.Dto.VersionMetadata;
 import com.VCS.LocalGit.Entity.File;
 import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.FileRepository;
 import com.VCS.LocalGit.Repository.VersionRepository;
+import com.VCS.LocalGit.Storage.ContentStore;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.annotation.Observed;
 
 /**
  * Service class for handling version management operations.
@@ -20,24 +29,255 @@ public class VersionService {
     @Autowired
     private VersionRepository versionRepository;
 
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private ContentService contentService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private BlameService blameService;
+
+    @Autowired
+    private FolderCommitService folderCommitService;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private JournalService journalService;
+
+    private final DistributionSummary contentSize;
+
+    private final DistributionSummary versionsPerFile;
+
+    public VersionService(MeterRegistry meterRegistry) {
+        this.contentSize = DistributionSummary.builder("localgit.version.size")
+                .description("Content size of new versions")
+                .register(meterRegistry);
+        this.versionsPerFile = DistributionSummary.builder("localgit.file.versions")
+                .description("Versions of a file, recorded at each of its commits")
+                .register(meterRegistry);
+    }
+
     /**
-     * Creates a new version for the given file with the provided content.
+     * Creates a new version for the given file with the provided content and makes it the file's current content.
+     * The version number comes from the file's version counter. The counter update is flushed before any content
+     * is stored, so a concurrent commit to the same file fails fast on the optimistic lock and can be retried
+     * by {@link CommitExecutor}.
+     * The content is stored as a keyframe or a delta against the previous version; if it is identical
+     * to the file's current content, the new version refers to the content already stored.
      *
      * @param file the file for which the version is being created
      * @param content the content of the new version
      * @return the created version
      */
     @Transactional
+    @Observed(name = "localgit.version.create")
     public Version createVersion(File file, String content) {
+        return createVersion(file, content, null);
+    }
+
+    /**
+     * Creates a new version for the given file with the provided content, recording the file merged into it.
+     * Behaves like {@link #createVersion(File, String)}; the merge source and its current version number
+     * are stored on the new version so that later merges between the two files can find their common ancestor.
+     *
+     * @param file the file for which the version is being created
+     * @param content the content of the new version
+     * @param mergeSource the file merged into the new version, or null if the version is not a merge
+     * @return the created version
+     */
+    @Transactional
+    @Observed(name = "localgit.version.create")
+    public Version createVersion(File file, String content, File mergeSource) {
+        return newVersion(file, content, mergeSource, true);
+    }
+
+    /**
+     * Creates a new version for the given file as part of a larger commit in the current transaction.
+     * Unlike {@link #createVersion(File, String)}, nothing is flushed: the version, its content and the file's
+     * counter are written when the transaction flushes, so the inserts of many files go out in JDBC batches.
+     * A concurrent commit to one of the files therefore fails the whole transaction on the optimistic lock
+     * at commit time.
+     *
+     * @param file the file for which the version is being created
+     * @param content the content of the new version
+     * @return the created version
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Version stageVersion(File file, String content) {
+        return newVersion(file, content, null, false);
+    }
+
+    /**
+     * Creates a new version for the given file from content already stored by {@link #storeContent}.
+     * Behaves like {@link #createVersion(File, String)}; the version is always a keyframe, since uploaded
+     * content is not delta-encoded.
+     *
+     * @param file the file for which the version is being created
+     * @param content the stored content of the new version
+     * @return the created version
+     */
+    @Transactional
+    @Observed(name = "localgit.version.create")
+    public Version createVersion(File file, ContentService.StoredContent content) {
+        BlameService.Pending blame = blameService.record(file, blameService.getBlameBase(file), content);
+        Version version = nextVersion(file, content.contentHash(), null, true);
+        version.setBlameHash(blameService.store(blame));
+        contentService.store(version, content);
+        version = save(version);
+        journalService.versionUploaded(version);
+        return version;
+    }
+
+    /**
+     * Stores content read from a stream ahead of the commit that creates its version, so the commit
+     * can be retried without reading the stream again.
+     *
+     * @param in the stream to read the content from
+     * @return the stored content, which must be passed to {@link #release} once its version has committed or failed
+     * @throws IOException if the stream cannot be read
+     */
+    public ContentService.StoredContent storeContent(InputStream in) throws IOException {
+        return contentService.storeStream(in);
+    }
+
+    /**
+     * Releases content stored by {@link #storeContent} to garbage collection.
+     *
+     * @param content the stored content
+     */
+    public void release(ContentService.StoredContent content) {
+        contentService.release(content);
+    }
+
+    private Version newVersion(File file, String content, File mergeSource, boolean flush) {
+        String contentHash = ContentStore.hash(content);
+        String previousContent = file.getVersionCounter() == 0 ? null : contentService.getDeltaBase(file);
+        BlameService.Pending blame = blameService.record(file,
+                previousContent != null ? previousContent : blameService.getBlameBase(file), content);
+
+        Version version = nextVersion(file, contentHash, mergeSource, flush);
+        version.setBlameHash(blameService.store(blame));
+        contentService.store(version, previousContent, content);
+        version = save(version);
+        journalService.versionCreated(version, content);
+        return version;
+    }
+
+    /**
+     * Saves a new version, records its metrics and hands it to the services that index versions,
+     * snapshot their folder or cache file metadata.
+     */
+    private Version save(Version version) {
+        version = versionRepository.save(version);
+        contentSize.record(version.getSize());
+        versionsPerFile.record(version.getVersionNumber());
+        searchService.versionCreated(version);
+        folderCommitService.versionCreated(version);
+        metadataCache.versionCreated(version);
+        return version;
+    }
+
+    /**
+     * Creates the next version of the given file, without content, and advances the file's version counter.
+     */
+    private Version nextVersion(File file, String contentHash, File mergeSource, boolean flush) {
         Version version = new Version();
         version.setFile(file);
-        version.setContent(content);
         version.setTimestamp(LocalDateTime.now());
-        
-        List<Version> versions = versionRepository.findByFileIdOrderByVersionNumberDesc(file.getId());
-        int latestVersionNumber = versions.stream().findFirst().map(Version::getVersionNumber).orElse(0);
-        
-        version.setVersionNumber(latestVersionNumber + 1);
-        return versionRepository.save(version);
+        version.setVersionNumber(file.getVersionCounter() + 1);
+        if (mergeSource != null) {
+            version.setMergeSourceFileId(mergeSource.getId());
+            version.setMergeSourceVersion(mergeSource.getVersionCounter());
+        }
+
+        file.setVersionCounter(version.getVersionNumber());
+        file.setContentHash(contentHash);
+        if (flush) {
+            fileRepository.saveAndFlush(file);
+        }
+        return version;
+    }
+
+    /**
+     * Loads the content of the given version.
+     *
+     * @param version the version
+     * @return the content of the version
+     */
+    public String getContent(Version version) {
+        return contentService.getContent(version);
+    }
+
+    /**
+     * Loads the content of a version from its metadata.
+     *
+     * @param version the version metadata
+     * @return the content of the version
+     */
+    public String getContent(VersionMetadata version) {
+        return contentService.getContent(version);
+    }
+
+    /**
+     * Writes a byte range of the content of the given version to a channel.
+     *
+     * @param version the version
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void transferTo(VersionMetadata version, long offset, long length, WritableByteChannel target) throws IOException {
+        contentService.transferTo(version, offset, length, target);
+    }
+
+    /**
+     * Returns the length of the content of the given version in bytes.
+     *
+     * @param version the version
+     * @return the length in bytes
+     */
+    public long getByteLength(VersionMetadata version) {
+        return contentService.getByteLength(version);
+    }
+
+    /**
+     * Returns the number of lines of the given version.
+     *
+     * @param version the version
+     * @return the number of lines
+     */
+    public int getLineCount(VersionMetadata version) {
+        return contentService.getLineCount(version);
+    }
+
+    /**
+     * Writes a range of lines of the given version to a channel, streaming it from storage.
+     *
+     * @param version the version
+     * @param from the first line, 1-based
+     * @param to the last line, inclusive
+     * @param target the channel to write to
+     * @return the number of lines of the version
+     * @throws IOException if the channel cannot be written
+     */
+    public int transferLines(VersionMetadata version, int from, int to, WritableByteChannel target) throws IOException {
+        return contentService.transferLines(version, from, to, target);
+    }
+
+    /**
+     * Loads the current content of the given file.
+     *
+     * @param file the file
+     * @return the current content of the file
+     */
+    public String getContent(File file) {
+        return contentService.getContent(file);
     }
 }
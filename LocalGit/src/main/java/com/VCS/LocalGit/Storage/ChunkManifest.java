@@ -0,0 +1,70 @@
+package com.VCS.LocalGit.Storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ChunkManifest record lists the chunks that make up content stored in pieces, in order.
+ * Streamed uploads larger than one chunk are stored as separately addressed chunks plus a manifest,
+ * which is itself stored as text: a header line followed by one line per chunk holding its hash and length.
+ *
+ * @param chunks the chunks, in order
+ */
+public record ChunkManifest(List<Chunk> chunks) {
+
+    private static final String HEADER = "localgit-chunks 1";
+
+    /**
+     * One chunk of content.
+     *
+     * @param hash the hash of the chunk's bytes
+     * @param length the length of the chunk in bytes
+     */
+    public record Chunk(String hash, int length) {
+    }
+
+    /**
+     * Returns the total length of the content.
+     *
+     * @return the sum of the chunk lengths in bytes
+     */
+    public long size() {
+        return chunks.stream().mapToLong(Chunk::length).sum();
+    }
+
+    /**
+     * Formats the manifest for storage.
+     *
+     * @return the text of the manifest
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder(HEADER).append('\n');
+        for (Chunk chunk : chunks) {
+            text.append(chunk.hash()).append(' ').append(chunk.length()).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses a stored manifest.
+     *
+     * @param text the text of the manifest
+     * @return the manifest
+     * @throws IllegalArgumentException if the text is not a manifest
+     */
+    public static ChunkManifest parse(String text) {
+        String[] lines = text.split("\n");
+        if (lines.length == 0 || !lines[0].equals(HEADER)) {
+            throw new IllegalArgumentException("Not a chunk manifest");
+        }
+        List<Chunk> chunks = new ArrayList<>(lines.length - 1);
+        for (int i = 1; i < lines.length; i++) {
+            int space = lines[i].indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Malformed chunk manifest line " + i);
+            }
+            chunks.add(new Chunk(lines[i].substring(0, space), Integer.parseInt(lines[i].substring(space + 1))));
+        }
+        return new ChunkManifest(chunks);
+    }
+}
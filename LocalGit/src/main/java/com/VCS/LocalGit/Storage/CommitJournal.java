@@ -0,0 +1,529 @@
+package com.VCS.LocalGit.Storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The CommitJournal class is an append-only write-ahead journal on local disk, made durable by group commit.
+ * <p>
+ * A committing writer reserves its place in the journal while it still holds its database locks, so the frames
+ * of commits that touch the same rows are written in commit order. Once the commit is decided, it submits its
+ * frame or cancels the reservation, and waits until the frame is durable. A write or sync that fails stops the
+ * journal for good, since whether a failed fsync left the data on disk is unknown: the frames of that batch
+ * fail, and so does every later reservation, so a commit that cannot be journaled is never made. A single writer thread appends the
+ * submitted frames in reservation order and forces them to disk with one fsync per batch: while a batch is being
+ * written, the commits that arrive meanwhile form the next one. If reserved frames are still undecided after
+ * the decided ones are written, the thread waits for them up to the group commit delay before it syncs, so
+ * concurrent commits share an fsync without delaying a commit that runs alone.
+ * <p>
+ * A frame is the magic number, the header length, the body length, the header, the body and the CRC-32 of header
+ * and body. {@link #open} checks every frame and cuts off a torn tail left by a crash, so replay only sees
+ * frames that were written completely.
+ */
+public final class CommitJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CommitJournal.class);
+
+    private static final int MAGIC = 0x4C474A31;
+
+    private static final int FRAME_OVERHEAD = Integer.BYTES * 3 + Long.BYTES;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final long maxDelayNanos;
+
+    private final int maxBatch;
+
+    private final boolean fsync;
+
+    private final BatchListener listener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+
+    private final Thread writer;
+
+    private boolean closed;
+
+    /**
+     * The failure that stopped the journal, after which no frame is accepted.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Writes the body of a frame.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+
+        /**
+         * Writes exactly the announced number of bytes.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the body cannot be read or written
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the frames of the journal during replay.
+     */
+    @FunctionalInterface
+    public interface FrameReader {
+
+        /**
+         * Reads one frame.
+         *
+         * @param header the header of the frame
+         * @param body the body of the frame; whatever is left unread is skipped
+         * @throws IOException if the frame cannot be processed
+         */
+        void read(byte[] header, InputStream body) throws IOException;
+    }
+
+    /**
+     * Observes the batches written by the journal.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+
+        /**
+         * Called after each batch is durable.
+         *
+         * @param frames the number of frames in the batch
+         * @param syncNanos the time spent forcing the batch to disk
+         */
+        void batchWritten(int frames, long syncNanos);
+    }
+
+    /**
+     * A place in the journal, reserved by a commit before it is decided.
+     */
+    public final class Ticket {
+
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private boolean decided;
+
+        private byte[] header;
+
+        private long bodyLength;
+
+        private BodyWriter body;
+
+        private Ticket() {
+        }
+
+        /**
+         * Hands the frame of the committed work to the writer thread.
+         *
+         * @param header the header of the frame
+         * @param bodyLength the length of the body
+         * @param body writes the body, or null if it is empty
+         */
+        public void submit(byte[] header, long bodyLength, BodyWriter body) {
+            decide(header, bodyLength, body);
+        }
+
+        /**
+         * Gives up the reservation because the work was rolled back.
+         */
+        public void cancel() {
+            decide(null, 0, null);
+        }
+
+        private void decide(byte[] header, long bodyLength, BodyWriter body) {
+            lock.lock();
+            try {
+                if (decided) {
+                    return;
+                }
+                this.header = header;
+                this.bodyLength = bodyLength;
+                this.body = body;
+                decided = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until the submitted frame is on disk.
+         *
+         * @throws IOException if the frame could not be written or synced
+         */
+        public void awaitDurable() throws IOException {
+            try {
+                durable.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+        }
+    }
+
+    private CommitJournal(Path path, FileChannel channel, Duration maxDelay, int maxBatch, boolean fsync,
+                          BatchListener listener) {
+        this.path = path;
+        this.channel = channel;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxBatch = maxBatch;
+        this.fsync = fsync;
+        this.listener = listener;
+        this.writer = new Thread(this::run, "localgit-journal");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens a journal, creating it if it does not exist, and cuts off a torn tail.
+     * Frames are only appended once {@link #start} is called, so the journal can be replayed first.
+     *
+     * @param path the journal file
+     * @param maxDelay how long a batch waits for undecided commits before it is synced
+     * @param maxBatch the largest number of frames synced at once
+     * @param fsync whether batches are forced to disk
+     * @param listener observes the written batches
+     * @return the journal
+     * @throws IOException if the journal cannot be opened
+     */
+    public static CommitJournal open(Path path, Duration maxDelay, int maxBatch, boolean fsync, BatchListener listener)
+            throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long valid = validLength(path);
+            if (valid < channel.size()) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            channel.position(valid);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CommitJournal(path, channel, maxDelay, maxBatch, fsync, listener);
+    }
+
+    /**
+     * Returns the length of the longest prefix of a journal made of complete frames.
+     */
+    static long validLength(Path path) throws IOException {
+        long size = Files.size(path);
+        long valid = 0;
+        byte[] buffer = new byte[1 << 16];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (valid + FRAME_OVERHEAD <= size) {
+                if (in.readInt() != MAGIC) {
+                    return valid;
+                }
+                int headerLength = in.readInt();
+                long bodyLength = in.readLong();
+                if (headerLength < 0 || bodyLength < 0 || valid + FRAME_OVERHEAD + headerLength + bodyLength > size) {
+                    return valid;
+                }
+                CRC32 crc = new CRC32();
+                for (long left = headerLength + bodyLength; left > 0; ) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                    if (read < 0) {
+                        return valid;
+                    }
+                    crc.update(buffer, 0, read);
+                    left -= read;
+                }
+                if (in.readInt() != (int) crc.getValue()) {
+                    return valid;
+                }
+                valid += FRAME_OVERHEAD + headerLength + bodyLength;
+            }
+        } catch (EOFException e) {
+            // a torn frame at the end
+        }
+        return valid;
+    }
+
+    /**
+     * Reads every frame of the journal, in order. Must be called before {@link #start}.
+     *
+     * @param reader reads each frame
+     * @return the number of frames read
+     * @throws IOException if the journal cannot be read, or the reader fails
+     */
+    public long replay(FrameReader reader) throws IOException {
+        long frames = 0;
+        long end = channel.position();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            long position = 0;
+            while (position < end) {
+                in.readInt();
+                int headerLength = in.readInt();
+                long bodyLength = in.readLong();
+                byte[] header = in.readNBytes(headerLength);
+                Bounded body = new Bounded(in, bodyLength);
+                reader.read(header, body);
+                in.skipNBytes(body.remaining);
+                in.readInt();
+                position += FRAME_OVERHEAD + headerLength + bodyLength;
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Starts appending frames.
+     */
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Reserves the next place in the journal.
+     *
+     * @return the ticket, which must be submitted or cancelled
+     * @throws IOException if the journal has failed or is closed
+     */
+    public Ticket reserve() throws IOException {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("The journal has failed and accepts no further frames", failure);
+            }
+            if (closed) {
+                throw new IOException("The journal is closed");
+            }
+            Ticket ticket = new Ticket();
+            queue.add(ticket);
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Ticket> batch = new ArrayList<>();
+        try {
+            while (true) {
+                if (!collect(batch)) {
+                    return;
+                }
+                boolean written = false;
+                IOException error = failure;
+                for (Ticket ticket : batch) {
+                    if (ticket.header != null && error == null) {
+                        try {
+                            write(ticket);
+                            written = true;
+                        } catch (IOException e) {
+                            error = e;
+                        }
+                    }
+                }
+                long syncNanos = 0;
+                if (written && error == null && fsync) {
+                    long start = System.nanoTime();
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                    syncNanos = System.nanoTime() - start;
+                }
+                if (error != null && failure == null) {
+                    log.error("Commit journal {} failed; no further commits are accepted", path, error);
+                    failure = error;
+                }
+                for (Ticket ticket : batch) {
+                    if (error != null && ticket.header != null) {
+                        ticket.durable.completeExceptionally(error);
+                    } else {
+                        ticket.durable.complete(null);
+                    }
+                }
+                if (written && error == null) {
+                    listener.batchWritten(batch.size(), syncNanos);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the next batch of decided tickets off the queue, waiting up to the group commit delay for undecided
+     * ones once the batch is started.
+     *
+     * @return false if the journal is closed and drained
+     */
+    private boolean collect(List<Ticket> batch) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = 0;
+            while (batch.size() < maxBatch) {
+                Ticket head = queue.peek();
+                if (head != null && head.decided) {
+                    batch.add(queue.poll());
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + maxDelayNanos;
+                    }
+                    continue;
+                }
+                if (head == null && (closed || !batch.isEmpty())) {
+                    break;
+                }
+                if (batch.isEmpty()) {
+                    changed.await();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    changed.awaitNanos(remaining);
+                }
+            }
+            return !batch.isEmpty() || !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Ticket ticket) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES)
+                .putInt(MAGIC).putInt(ticket.header.length).putLong(ticket.bodyLength).flip();
+        while (prefix.hasRemaining()) {
+            channel.write(prefix);
+        }
+        long end = channel.position() + ticket.header.length + ticket.bodyLength;
+        CRC32 crc = new CRC32();
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        CheckedOutputStream checked = new CheckedOutputStream(out, crc);
+        checked.write(ticket.header);
+        if (ticket.body != null) {
+            ticket.body.writeTo(checked);
+        }
+        checked.flush();
+        if (channel.position() != end) {
+            throw new IOException("Journal frame body does not match its announced length of " + ticket.bodyLength);
+        }
+        ByteBuffer suffix = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+        while (suffix.hasRemaining()) {
+            channel.write(suffix);
+        }
+    }
+
+    /**
+     * Stops accepting frames, writes the decided ones and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (writer.isAlive()) {
+            try {
+                writer.join(Duration.ofSeconds(5).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+    }
+
+    /**
+     * A body, limited to its announced length.
+     */
+    private static final class Bounded extends FilterInputStream {
+
+        private long remaining;
+
+        Bounded(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+            // the journal stream stays open for the next frame
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.VCS.LocalGit.Storage;
+
+import java.util.Arrays;
+
+/**
+ * The ContentCodec interface is a reversible encoding of stored content bytes, such as a compression.
+ * Each codec has a stable name and a one-byte ID, which are stored next to encoded content so that
+ * content written with any codec can be read back after the configured codec changes.
+ */
+public interface ContentCodec {
+
+    /**
+     * Returns the name of the codec, as used in configuration and in the database.
+     *
+     * @return the name
+     */
+    String name();
+
+    /**
+     * Returns the ID of the codec, as used in pack files.
+     *
+     * @return the ID
+     */
+    byte id();
+
+    /**
+     * Encodes the given bytes.
+     *
+     * @param data the bytes to encode
+     * @return the encoded bytes
+     */
+    byte[] encode(byte[] data);
+
+    /**
+     * Decodes bytes encoded by this codec.
+     *
+     * @param data the encoded bytes
+     * @return the original bytes
+     */
+    byte[] decode(byte[] data);
+
+    /**
+     * Decodes the first bytes of bytes encoded by this codec. Codecs that can stop early override this,
+     * so reading the start of large content does not decode all of it.
+     *
+     * @param data the encoded bytes
+     * @param length the number of original bytes wanted
+     * @return the first {@code length} original bytes, or all of them if there are fewer
+     */
+    default byte[] decodePrefix(byte[] data, int length) {
+        byte[] decoded = decode(data);
+        return decoded.length <= length ? decoded : Arrays.copyOf(decoded, length);
+    }
+}
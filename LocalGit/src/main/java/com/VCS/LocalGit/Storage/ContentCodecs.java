@@ -0,0 +1,200 @@
+package com.VCS.LocalGit.Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.VCS.LocalGit.Dto.CodecStatistics;
+
+/**
+ * The ContentCodecs class chooses the codec for new content and decodes content written with any codec.
+ * <p>
+ * New content is encoded with the codec configured by {@code localgit.storage.compression.codec}, unless
+ * it is smaller than {@code localgit.storage.compression.min-size} bytes or does not get smaller, in which
+ * case it is stored as is. Content stores keep the codec next to each stored content, so changing the codec
+ * only affects content written afterwards and existing content stays readable. Content is only decoded
+ * when it is loaded.
+ */
+@Component
+public class ContentCodecs {
+
+    private final List<ContentCodec> codecs;
+
+    private final ContentCodec codec;
+
+    private final int minSize;
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder compressed = new LongAdder();
+
+    private final LongAdder rawBytes = new LongAdder();
+
+    private final LongAdder storedBytes = new LongAdder();
+
+    private final LongAdder encodeNanos = new LongAdder();
+
+    private final LongAdder decoded = new LongAdder();
+
+    private final LongAdder decodeNanos = new LongAdder();
+
+    public ContentCodecs(@Value("${localgit.storage.compression.codec:deflate}") String codec,
+                         @Value("${localgit.storage.compression.min-size:512}") int minSize,
+                         @Value("${localgit.storage.compression.level:6}") int level) {
+        this.codecs = List.of(new IdentityCodec(), new DeflateCodec(level));
+        this.codec = forName(codec.toLowerCase(Locale.ROOT));
+        this.minSize = minSize;
+    }
+
+    /**
+     * Content encoded for storage, with the codec that encoded it.
+     *
+     * @param codec the codec that encoded the content
+     * @param data the encoded bytes
+     */
+    public record Encoded(ContentCodec codec, byte[] data) {
+    }
+
+    /**
+     * Encodes new content for storage.
+     *
+     * @param content the content
+     * @return the encoded content
+     */
+    public Encoded encode(String content) {
+        return encode(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes the bytes of new content for storage.
+     *
+     * @param raw the bytes of the content
+     * @return the encoded content
+     */
+    public Encoded encode(byte[] raw) {
+        Encoded encoded = new Encoded(identity(), raw);
+        if (raw.length >= minSize && codec != identity()) {
+            long start = System.nanoTime();
+            byte[] data = codec.encode(raw);
+            encodeNanos.add(System.nanoTime() - start);
+            if (data.length < raw.length) {
+                encoded = new Encoded(codec, data);
+                compressed.increment();
+            }
+        }
+        written.increment();
+        rawBytes.add(raw.length);
+        storedBytes.add(encoded.data().length);
+        return encoded;
+    }
+
+    /**
+     * Decodes stored content.
+     *
+     * @param codec the codec the content was encoded with
+     * @param data the encoded bytes
+     * @return the content
+     */
+    public String decode(ContentCodec codec, byte[] data) {
+        return new String(decodeBytes(codec, data), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes stored bytes.
+     *
+     * @param codec the codec the bytes were encoded with
+     * @param data the encoded bytes
+     * @return the original bytes
+     */
+    public byte[] decodeBytes(ContentCodec codec, byte[] data) {
+        if (codec == identity()) {
+            return data;
+        }
+        long start = System.nanoTime();
+        byte[] raw = codec.decode(data);
+        decodeNanos.add(System.nanoTime() - start);
+        decoded.increment();
+        return raw;
+    }
+
+    /**
+     * Decodes the first bytes of stored bytes.
+     *
+     * @param codec the codec the bytes were encoded with
+     * @param data the encoded bytes
+     * @param length the number of original bytes wanted
+     * @return at least the first {@code length} original bytes, or all of them if there are fewer
+     */
+    public byte[] decodePrefix(ContentCodec codec, byte[] data, int length) {
+        if (codec == identity()) {
+            return data;
+        }
+        long start = System.nanoTime();
+        byte[] raw = codec.decodePrefix(data, length);
+        decodeNanos.add(System.nanoTime() - start);
+        decoded.increment();
+        return raw;
+    }
+
+    /**
+     * Returns the codec used for new content.
+     *
+     * @return the configured codec
+     */
+    public ContentCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Returns the codec that stores content as is.
+     *
+     * @return the identity codec
+     */
+    public ContentCodec identity() {
+        return codecs.get(0);
+    }
+
+    /**
+     * Looks a codec up by name.
+     *
+     * @param name the name of the codec
+     * @return the codec
+     * @throws IllegalArgumentException if there is no codec with the name
+     */
+    public ContentCodec forName(String name) {
+        return codecs.stream().filter(c -> c.name().equals(name)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown codec: " + name));
+    }
+
+    /**
+     * Looks a codec up by ID.
+     *
+     * @param id the ID of the codec
+     * @return the codec
+     * @throws IllegalArgumentException if there is no codec with the ID
+     */
+    public ContentCodec forId(byte id) {
+        return codecs.stream().filter(c -> c.id() == id).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown codec ID: " + id));
+    }
+
+    /**
+     * Returns the counters of the codec layer since startup.
+     *
+     * @return the codec statistics
+     */
+    public CodecStatistics getStatistics() {
+        long raw = rawBytes.sum();
+        long stored = storedBytes.sum();
+        return new CodecStatistics(codec.name(), minSize, written.sum(), compressed.sum(), raw, stored,
+                raw == 0 ? 0 : 1 - (double) stored / raw,
+                encodeNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                decoded.sum(),
+                decodeNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
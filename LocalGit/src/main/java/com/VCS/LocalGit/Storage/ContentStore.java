@@ -0,0 +1,197 @@
+package com.VCS.LocalGit.Storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The ContentStore interface is the content-addressable store behind version content.
+ * Content is identified by its SHA-256 hash and stored only once, so versions and files
+ * only need to keep the hash of their content. Stored content is immutable.
+ * <p>
+ * The backend is chosen with {@code localgit.storage.backend}: {@code jpa} keeps content in the database,
+ * {@code pack} keeps it in append-only pack files on disk.
+ */
+public interface ContentStore {
+
+    /**
+     * Stores the given content if it is not stored yet.
+     *
+     * @param content the content to store
+     * @return the hash identifying the content
+     */
+    String store(String content);
+
+    /**
+     * Stores the given bytes if they are not stored yet. Content stored as a string is stored as its UTF-8 bytes,
+     * so both methods agree on the hash of the same text.
+     *
+     * @param data the bytes to store
+     * @return the hash identifying the bytes
+     */
+    String storeBytes(byte[] data);
+
+    /**
+     * Checks whether content with the given hash is stored.
+     *
+     * @param hash the hash of the content
+     * @return true if the content is stored
+     */
+    boolean exists(String hash);
+
+    /**
+     * Loads the content identified by the given hash.
+     *
+     * @param hash the hash of the content
+     * @return the stored content
+     * @throws NoSuchElementException if no content is stored under the hash
+     */
+    String load(String hash);
+
+    /**
+     * Loads the bytes identified by the given hash.
+     *
+     * @param hash the hash of the content
+     * @return the stored bytes
+     * @throws NoSuchElementException if no content is stored under the hash
+     */
+    byte[] loadBytes(String hash);
+
+    /**
+     * Writes the bytes identified by the given hash to a channel. Backends that can hand their storage
+     * to the channel directly override this to avoid copying the content onto the heap.
+     *
+     * @param hash the hash of the content
+     * @param target the channel to write to
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws IOException if the channel cannot be written
+     */
+    default void transferTo(String hash, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(loadBytes(hash));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Writes a range of the bytes identified by the given hash to a channel. A range reaching past the end
+     * of the content is cut short. Backends override this to read no more of the content than the range needs.
+     *
+     * @param hash the hash of the content
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws IOException if the channel cannot be written
+     */
+    default void transferTo(String hash, long offset, long length, WritableByteChannel target) throws IOException {
+        writeRange(loadBytes(hash), offset, length, target);
+    }
+
+    /**
+     * Passes the hash of every stored content to the given action.
+     * Content stored while the iteration runs may or may not be included.
+     *
+     * @param action the action to call for each hash
+     */
+    void forEachHash(Consumer<String> action);
+
+    /**
+     * Deletes the content with the given hash. The caller must make sure nothing references it.
+     *
+     * @param hash the hash of the content
+     * @return the number of bytes freed right away; 0 if nothing was stored under the hash
+     *         or the space is only freed by {@link #compact}
+     */
+    long delete(String hash);
+
+    /**
+     * Rewrites stored content to reclaim the space of deleted content, for backends that leave gaps.
+     * Readers and writers keep working while it runs.
+     *
+     * @param throttle the throttle paced against for every byte copied
+     * @param minGarbageRatio the share of deleted bytes from which a unit of storage is rewritten
+     * @return the number of bytes reclaimed
+     * @throws InterruptedException if the thread is interrupted while throttled
+     */
+    default long compact(IoThrottle throttle, double minGarbageRatio) throws InterruptedException {
+        return 0;
+    }
+
+    /**
+     * Writes a range of the given bytes to a channel, cutting the range short at the end of the bytes.
+     *
+     * @param data the bytes
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    static void writeRange(byte[] data, long offset, long length, WritableByteChannel target) throws IOException {
+        int from = (int) Math.min(offset, data.length);
+        ByteBuffer buffer = ByteBuffer.wrap(data, from, (int) Math.min(length, data.length - from));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the length of the given content in UTF-8, the unit in which content sizes are recorded,
+     * without encoding it.
+     *
+     * @param content the content
+     * @return the length in bytes
+     */
+    static long utf8Length(CharSequence content) {
+        long length = content.length();
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (Character.isSurrogate(c) || c >= 0x80 && c < 0x800) {
+                // two bytes, or four for a surrogate pair
+                length++;
+            } else if (c >= 0x800) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given content.
+     *
+     * @param content the content to hash
+     * @return the hash in lowercase hex
+     */
+    static String hash(String content) {
+        return hash(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given bytes.
+     *
+     * @param data the bytes to hash
+     * @return the hash in lowercase hex
+     */
+    static String hash(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    /**
+     * Creates a SHA-256 digest, for hashing content that arrives in pieces.
+     *
+     * @return a new digest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
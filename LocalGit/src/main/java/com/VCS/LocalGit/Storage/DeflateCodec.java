@@ -0,0 +1,92 @@
+package com.VCS.LocalGit.Storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The DeflateCodec class compresses content with raw Deflate.
+ * The encoded form is the length of the original bytes as a 4-byte int followed by the Deflate stream,
+ * so decoding allocates the output exactly once.
+ */
+public final class DeflateCodec implements ContentCodec {
+
+    /**
+     * The name of the Deflate codec.
+     */
+    public static final String NAME = "deflate";
+
+    private final int level;
+
+    /**
+     * Creates a Deflate codec.
+     *
+     * @param level the compression level, from 1 (fastest) to 9 (smallest)
+     */
+    public DeflateCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] out = new byte[Integer.BYTES + data.length + data.length / 1000 + 64];
+            ByteBuffer.wrap(out).putInt(data.length);
+            int length = Integer.BYTES;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] data) {
+        return decodePrefix(data, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Inflates only as much of the stream as the wanted prefix needs.
+     */
+    @Override
+    public byte[] decodePrefix(byte[] data, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] out = new byte[Math.min(ByteBuffer.wrap(data).getInt(), length)];
+            inflater.setInput(data, Integer.BYTES, data.length - Integer.BYTES);
+            int inflatedLength = 0;
+            while (inflatedLength < out.length) {
+                int inflated = inflater.inflate(out, inflatedLength, out.length - inflatedLength);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated deflate content");
+                }
+                inflatedLength += inflated;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt deflate content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
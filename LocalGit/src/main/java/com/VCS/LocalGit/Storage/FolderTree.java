@@ -0,0 +1,348 @@
+package com.VCS.LocalGit.Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The FolderTree class is a Merkle tree mapping the files of a folder to their content, stored node by node
+ * in the content store. The hash of the root node identifies the state of the whole folder.
+ * <p>
+ * Files are placed by the hex digits of the SHA-256 hash of their name: the root splits them by the first digit,
+ * its children by the second, and so on. A subtree of at most {@value #MAX_LEAF_SIZE} files is a single leaf
+ * listing them, ordered by name and file ID. The shape of the tree therefore depends only on the files it holds,
+ * so equal folders have equal root hashes, and changing one file rewrites only the nodes on its path.
+ * Comparing two trees skips every subtree whose hash is the same on both sides.
+ * <p>
+ * A leaf is the line {@code leaf} followed by one line per file: content hash, file ID, version number and name,
+ * separated by spaces, with backslashes and newlines in the name escaped. An inner node is the line {@code tree}
+ * followed by one line per hex digit, holding the hash of the child or {@code -} if it is empty.
+ */
+public final class FolderTree {
+
+    /**
+     * The largest number of files kept in one leaf.
+     */
+    public static final int MAX_LEAF_SIZE = 32;
+
+    private static final int FANOUT = 16;
+
+    /**
+     * The number of hex digits of a name hash; subtrees this deep are leaves, however many files they hold.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private static final String LEAF = "leaf";
+
+    private static final String INNER = "tree";
+
+    private static final String EMPTY = "-";
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::name).thenComparingLong(Entry::fileId);
+
+    private final NodeLoader loader;
+
+    /**
+     * The store new nodes are written to; null for a read-only view.
+     */
+    private final NodeStore store;
+
+    /**
+     * Reads the nodes of a tree.
+     */
+    @FunctionalInterface
+    public interface NodeLoader {
+
+        /**
+         * Loads a node.
+         *
+         * @param hash the hash of the node
+         * @return the node
+         */
+        byte[] load(String hash);
+    }
+
+    /**
+     * Reads and writes the nodes of a tree.
+     */
+    public interface NodeStore extends NodeLoader {
+
+        /**
+         * Stores a node.
+         *
+         * @param node the node
+         * @return the hash of the node
+         */
+        String store(byte[] node);
+    }
+
+    /**
+     * A file of a folder.
+     *
+     * @param name the name of the file
+     * @param fileId the ID of the file
+     * @param versionNumber the number of the file's version
+     * @param contentHash the hash of the content of that version
+     */
+    public record Entry(String name, long fileId, int versionNumber, String contentHash) {
+    }
+
+    /**
+     * The outcome of an update.
+     *
+     * @param rootHash the hash of the new root node
+     * @param added the number of files that were not in the tree before
+     */
+    public record Update(String rootHash, int added) {
+    }
+
+    /**
+     * Creates a view of the trees in a node store.
+     *
+     * @param store the store holding the nodes
+     */
+    public FolderTree(NodeStore store) {
+        this.loader = store;
+        this.store = store;
+    }
+
+    /**
+     * Creates a read-only view of the trees in a node store, which can be read and compared but not updated.
+     *
+     * @param loader the loader reading the nodes
+     */
+    public FolderTree(NodeLoader loader) {
+        this.loader = loader;
+        this.store = null;
+    }
+
+    /**
+     * Adds files to a tree or replaces them, writing the nodes on their paths.
+     * A file is replaced by an entry with the same name and file ID, unless the tree already holds a newer
+     * version of it, so updates of the same file may be applied in any order.
+     *
+     * @param rootHash the hash of the root node, or null for an empty tree
+     * @param entries the new or changed files
+     * @return the new root hash and the number of added files
+     * @throws IllegalStateException if this is a read-only view
+     */
+    public Update put(String rootHash, Collection<Entry> entries) {
+        if (store == null) {
+            throw new IllegalStateException("Read-only folder tree");
+        }
+        int[] added = new int[1];
+        List<Keyed> keyed = entries.stream().map(Keyed::of).toList();
+        return new Update(put(rootHash, 0, keyed, added), added[0]);
+    }
+
+    /**
+     * Visits the files of a tree, grouped by leaf.
+     *
+     * @param rootHash the hash of the root node, or null for an empty tree
+     * @param consumer the consumer receiving each file
+     */
+    public void forEach(String rootHash, Consumer<Entry> consumer) {
+        if (rootHash == null) {
+            return;
+        }
+        Node node = Node.parse(loader.load(rootHash));
+        if (node.children() == null) {
+            node.entries().forEach(consumer);
+        } else {
+            for (String child : node.children()) {
+                forEach(child, consumer);
+            }
+        }
+    }
+
+    /**
+     * Adds the hashes of the nodes of a tree to a set, skipping subtrees already in it.
+     *
+     * @param rootHash the hash of the root node
+     * @param nodes the set of visited node hashes
+     */
+    public void collectNodes(String rootHash, Set<String> nodes) {
+        if (rootHash == null || !nodes.add(rootHash)) {
+            return;
+        }
+        Node node = Node.parse(loader.load(rootHash));
+        if (node.children() != null) {
+            for (String child : node.children()) {
+                collectNodes(child, nodes);
+            }
+        }
+    }
+
+    /**
+     * Compares two trees, descending only into subtrees whose hashes differ.
+     * Files are matched by name and file ID.
+     *
+     * @param fromHash the hash of the root of the older tree, or null for an empty tree
+     * @param toHash the hash of the root of the newer tree, or null for an empty tree
+     * @param consumer the consumer receiving each differing file: its entry in the older tree, or null if it
+     *                 was added, and its entry in the newer tree, or null if it was removed
+     */
+    public void compare(String fromHash, String toHash, BiConsumer<Entry, Entry> consumer) {
+        if (fromHash != null && fromHash.equals(toHash)) {
+            return;
+        }
+        Node from = fromHash == null ? null : Node.parse(loader.load(fromHash));
+        Node to = toHash == null ? null : Node.parse(loader.load(toHash));
+        if (from != null && to != null && from.children() != null && to.children() != null) {
+            for (int digit = 0; digit < FANOUT; digit++) {
+                compare(from.children()[digit], to.children()[digit], consumer);
+            }
+            return;
+        }
+        // one side is a leaf or empty, so the two subtrees are compared file by file
+        TreeMap<Entry, Entry> before = new TreeMap<>(ORDER);
+        forEach(fromHash, entry -> before.put(entry, entry));
+        List<Entry> after = new ArrayList<>();
+        forEach(toHash, after::add);
+        for (Entry entry : after) {
+            Entry previous = before.remove(entry);
+            if (previous == null || !previous.equals(entry)) {
+                consumer.accept(previous, entry);
+            }
+        }
+        before.values().forEach(entry -> consumer.accept(entry, null));
+    }
+
+    private String put(String hash, int depth, List<Keyed> changes, int[] added) {
+        if (changes.isEmpty()) {
+            return hash;
+        }
+        Node node = hash == null ? null : Node.parse(loader.load(hash));
+        if (node != null && node.children() != null) {
+            String[] children = node.children().clone();
+            List<List<Keyed>> split = split(changes, depth);
+            for (int digit = 0; digit < FANOUT; digit++) {
+                children[digit] = put(children[digit], depth + 1, split.get(digit), added);
+            }
+            return store.store(Node.inner(children));
+        }
+
+        TreeMap<Entry, Keyed> merged = new TreeMap<>(ORDER);
+        if (node != null) {
+            node.entries().forEach(entry -> merged.put(entry, Keyed.of(entry)));
+        }
+        for (Keyed change : changes) {
+            Keyed previous = merged.get(change.entry());
+            if (previous == null) {
+                added[0]++;
+            } else if (previous.entry().versionNumber() > change.entry().versionNumber()) {
+                continue;
+            }
+            merged.put(change.entry(), change);
+        }
+        return build(depth, new ArrayList<>(merged.values()));
+    }
+
+    /**
+     * Writes the subtree holding the given files, which are sorted.
+     */
+    private String build(int depth, List<Keyed> entries) {
+        if (entries.size() <= MAX_LEAF_SIZE || depth == MAX_DEPTH) {
+            return store.store(Node.leaf(entries.stream().map(Keyed::entry).toList()));
+        }
+        String[] children = new String[FANOUT];
+        List<List<Keyed>> split = split(entries, depth);
+        for (int digit = 0; digit < FANOUT; digit++) {
+            children[digit] = split.get(digit).isEmpty() ? null : build(depth + 1, split.get(digit));
+        }
+        return store.store(Node.inner(children));
+    }
+
+    private static List<List<Keyed>> split(List<Keyed> entries, int depth) {
+        List<List<Keyed>> split = new ArrayList<>(FANOUT);
+        for (int digit = 0; digit < FANOUT; digit++) {
+            split.add(new ArrayList<>());
+        }
+        for (Keyed entry : entries) {
+            split.get(entry.digit(depth)).add(entry);
+        }
+        return split;
+    }
+
+    /**
+     * An entry with the hash of its name, which decides its place in the tree.
+     */
+    private record Keyed(Entry entry, byte[] nameHash) {
+
+        static Keyed of(Entry entry) {
+            return new Keyed(entry, ContentStore.newDigest().digest(entry.name().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        int digit(int depth) {
+            int b = nameHash[depth / 2] & 0xff;
+            return depth % 2 == 0 ? b >>> 4 : b & 0xf;
+        }
+    }
+
+    /**
+     * A parsed node: a leaf with its entries, or an inner node with its children, one per hex digit.
+     */
+    private record Node(List<Entry> entries, String[] children) {
+
+        static byte[] leaf(List<Entry> entries) {
+            StringBuilder text = new StringBuilder(LEAF).append('\n');
+            for (Entry entry : entries) {
+                text.append(entry.contentHash()).append(' ')
+                        .append(entry.fileId()).append(' ')
+                        .append(entry.versionNumber()).append(' ')
+                        .append(entry.name().replace("\\", "\\\\").replace("\n", "\\n"))
+                        .append('\n');
+            }
+            return text.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        static byte[] inner(String[] children) {
+            StringBuilder text = new StringBuilder(INNER).append('\n');
+            for (String child : children) {
+                text.append(child == null ? EMPTY : child).append('\n');
+            }
+            return text.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        static Node parse(byte[] data) {
+            String[] lines = new String(data, StandardCharsets.UTF_8).split("\n", -1);
+            if (lines[0].equals(INNER)) {
+                String[] children = new String[FANOUT];
+                for (int digit = 0; digit < FANOUT; digit++) {
+                    children[digit] = lines[digit + 1].equals(EMPTY) ? null : lines[digit + 1];
+                }
+                return new Node(null, children);
+            }
+            if (!lines[0].equals(LEAF)) {
+                throw new IllegalArgumentException("Not a folder tree node");
+            }
+            List<Entry> entries = new ArrayList<>(lines.length - 2);
+            for (int i = 1; i < lines.length - 1; i++) {
+                String[] fields = lines[i].split(" ", 4);
+                entries.add(new Entry(unescape(fields[3]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]), fields[0]));
+            }
+            return new Node(entries, null);
+        }
+
+        private static String unescape(String name) {
+            if (name.indexOf('\\') < 0) {
+                return name;
+            }
+            StringBuilder out = new StringBuilder(name.length());
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '\\' && i + 1 < name.length()) {
+                    c = name.charAt(++i) == 'n' ? '\n' : name.charAt(i);
+                }
+                out.append(c);
+            }
+            return out.toString();
+        }
+    }
+}
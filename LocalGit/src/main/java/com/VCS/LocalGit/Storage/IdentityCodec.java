@@ -0,0 +1,33 @@
+package com.VCS.LocalGit.Storage;
+
+/**
+ * The IdentityCodec class stores content bytes as they are.
+ * It is used for content below the compression threshold and for content that does not compress.
+ */
+public final class IdentityCodec implements ContentCodec {
+
+    /**
+     * The name of the identity codec.
+     */
+    public static final String NAME = "identity";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte id() {
+        return 0;
+    }
+
+    @Override
+    public byte[] encode(byte[] data) {
+        return data;
+    }
+
+    @Override
+    public byte[] decode(byte[] data) {
+        return data;
+    }
+}
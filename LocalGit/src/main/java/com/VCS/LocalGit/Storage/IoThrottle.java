@@ -0,0 +1,97 @@
+package com.VCS.LocalGit.Storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IoThrottle class paces background I/O to a byte rate and lets it be paused.
+ * Background work calls {@link #acquire(long)} before each unit of I/O; the call blocks while the throttle
+ * is paused and sleeps as needed to keep the average rate at or below the configured bytes per second.
+ * Up to one second of unused budget can be spent in a burst.
+ */
+public class IoThrottle {
+
+    private final long bytesPerSecond;
+
+    private final Object lock = new Object();
+
+    /**
+     * Bytes that may be used without sleeping; negative when the budget has been overdrawn. Guarded by the lock.
+     */
+    private double available;
+
+    /**
+     * The time the budget was last refilled. Guarded by the lock.
+     */
+    private long refilledAt = System.nanoTime();
+
+    /**
+     * Whether the throttle is paused. Guarded by the lock.
+     */
+    private boolean paused;
+
+    /**
+     * Creates a throttle.
+     *
+     * @param bytesPerSecond the maximum average rate, or 0 for no rate limit
+     */
+    public IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Waits until the given number of bytes may be processed.
+     *
+     * @param bytes the number of bytes about to be read or written
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long sleepNanos;
+        synchronized (lock) {
+            while (paused) {
+                lock.wait();
+            }
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            available = Math.min(bytesPerSecond, available + (now - refilledAt) * (double) bytesPerSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+            available -= bytes;
+            sleepNanos = available < 0 ? (long) (-available * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond) : 0;
+        }
+        if (sleepNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        }
+    }
+
+    /**
+     * Pauses the throttled work at its next {@link #acquire(long)}.
+     */
+    public void pause() {
+        synchronized (lock) {
+            paused = true;
+        }
+    }
+
+    /**
+     * Resumes paused work.
+     */
+    public void resume() {
+        synchronized (lock) {
+            paused = false;
+            refilledAt = System.nanoTime();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Checks whether the throttle is paused.
+     *
+     * @return true if paused
+     */
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.VCS.LocalGit.Storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.VCS.LocalGit.Entity.ContentBlob;
+import com.VCS.LocalGit.Repository.ContentBlobRepository;
+
+
+/**
+ * The JpaContentStore class keeps content as {@link ContentBlob} rows in the database.
+ * It is the default backend; content is written in the caller's transaction, encoded by {@link ContentCodecs}.
+ */
+@Component
+@ConditionalOnProperty(name = "localgit.storage.backend", havingValue = "jpa", matchIfMissing = true)
+public class JpaContentStore implements ContentStore {
+    @Autowired
+    private ContentBlobRepository blobRepository;
+
+    @Autowired
+    private ContentCodecs codecs;
+
+    /**
+     * Stores the given content if it is not stored yet.
+     * Blobs stored earlier in the same transaction are recognised without flushing it,
+     * so the inserts of a bulk commit stay batched until the transaction commits.
+     *
+     * @param content the content to store
+     * @return the hash identifying the content
+     */
+    @Override
+    @Transactional
+    public String store(String content) {
+        return storeBytes(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores the given bytes if they are not stored yet.
+     *
+     * @param data the bytes to store
+     * @return the hash identifying the bytes
+     */
+    @Override
+    @Transactional
+    public String storeBytes(byte[] data) {
+        String hash = ContentStore.hash(data);
+        if (!exists(hash)) {
+            ContentCodecs.Encoded encoded = codecs.encode(data);
+            blobRepository.save(new ContentBlob(hash, encoded.codec().name(), encoded.data(), data.length));
+            Set<String> stored = storedInTransaction();
+            if (stored != null) {
+                stored.add(hash);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether content with the given hash is stored, without loading it.
+     * Blobs stored earlier in the current transaction are remembered, so the check queries only for committed
+     * blobs and never flushes the transaction.
+     *
+     * @param hash the hash of the content
+     * @return true if the content is stored
+     */
+    @Override
+    public boolean exists(String hash) {
+        Set<String> stored = storedInTransaction();
+        return stored != null && stored.contains(hash) || blobRepository.countByHash(hash) > 0;
+    }
+
+    /**
+     * Returns the hashes of the blobs stored in the current transaction, or null outside a transaction.
+     */
+    private Set<String> storedInTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Set<String> stored = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (stored == null) {
+            Set<String> hashes = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, hashes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(JpaContentStore.this);
+                }
+            });
+            stored = hashes;
+        }
+        return stored;
+    }
+
+    /**
+     * Loads the content identified by the given hash.
+     *
+     * @param hash the hash of the content
+     * @return the stored content
+     * @throws NoSuchElementException if no content is stored under the hash
+     */
+    @Override
+    public String load(String hash) {
+        return blobRepository.findById(hash)
+                .map(blob -> codecs.decode(codecs.forName(blob.getCodec()), blob.getData()))
+                .orElseThrow(() -> new NoSuchElementException("Content not found: " + hash));
+    }
+
+    /**
+     * Loads the bytes identified by the given hash.
+     *
+     * @param hash the hash of the content
+     * @return the stored bytes
+     * @throws NoSuchElementException if no content is stored under the hash
+     */
+    @Override
+    public byte[] loadBytes(String hash) {
+        return blobRepository.findById(hash)
+                .map(blob -> codecs.decodeBytes(codecs.forName(blob.getCodec()), blob.getData()))
+                .orElseThrow(() -> new NoSuchElementException("Content not found: " + hash));
+    }
+
+    /**
+     * Writes a range of the bytes identified by the given hash to a channel, decoding compressed blobs
+     * only up to the end of the range.
+     *
+     * @param hash the hash of the content
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws IOException if the channel cannot be written
+     */
+    @Override
+    public void transferTo(String hash, long offset, long length, WritableByteChannel target) throws IOException {
+        ContentBlob blob = blobRepository.findById(hash)
+                .orElseThrow(() -> new NoSuchElementException("Content not found: " + hash));
+        byte[] data = codecs.decodePrefix(codecs.forName(blob.getCodec()), blob.getData(),
+                (int) Math.min(offset + Math.min(length, Integer.MAX_VALUE), Integer.MAX_VALUE));
+        ContentStore.writeRange(data, offset, length, target);
+    }
+
+    /**
+     * Passes the hash of every stored blob to the given action, streaming the hashes from the database.
+     *
+     * @param action the action to call for each hash
+     */
+    @Override
+    @Transactional
+    public void forEachHash(Consumer<String> action) {
+        try (Stream<String> hashes = blobRepository.streamAllHashes()) {
+            hashes.forEach(action);
+        }
+    }
+
+    /**
+     * Deletes the blob with the given hash in the caller's transaction.
+     *
+     * @param hash the hash of the content
+     * @return the size of the deleted blob, or 0 if it was not stored
+     */
+    @Override
+    @Transactional
+    public long delete(String hash) {
+        long size = blobRepository.findSizeByHash(hash).orElse(0L);
+        return blobRepository.deleteByHash(hash) > 0 ? size : 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.VCS.LocalGit.Storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Chunk;
+
+/**
+ * The LineDelta class encodes one text as a line-based delta against another and applies such deltas.
+ * Lines keep their terminators, so applying a delta reproduces the target text exactly.
+ * <p>
+ * The encoded form is a sequence of operations, each a header line {@code @position,deleted,length}
+ * followed by exactly {@code length} characters to insert: {@code deleted} lines of the base starting
+ * at line {@code position} are replaced by the inserted text.
+ */
+public final class LineDelta {
+
+    private LineDelta() {
+    }
+
+    /**
+     * Encodes the target text as a delta against the base text.
+     *
+     * @param base the base text
+     * @param target the target text
+     * @return the encoded delta
+     */
+    public static String encode(String base, String target) {
+        List<String> baseLines = splitLines(base);
+        List<String> targetLines = splitLines(target);
+
+        StringBuilder delta = new StringBuilder();
+        for (AbstractDelta<String> change : DiffUtils.diff(baseLines, targetLines).getDeltas()) {
+            Chunk<String> source = change.getSource();
+            String inserted = String.join("", change.getTarget().getLines());
+            delta.append('@').append(source.getPosition())
+                    .append(',').append(source.size())
+                    .append(',').append(inserted.length())
+                    .append('\n')
+                    .append(inserted);
+        }
+        return delta.toString();
+    }
+
+    /**
+     * Applies a delta produced by {@link #encode(String, String)} to the base text.
+     *
+     * @param base the base text
+     * @param delta the encoded delta
+     * @return the target text
+     * @throws IllegalArgumentException if the delta is malformed
+     */
+    public static String apply(String base, String delta) {
+        List<String> baseLines = splitLines(base);
+        StringBuilder target = new StringBuilder(base.length() + delta.length());
+
+        int line = 0;
+        int pos = 0;
+        while (pos < delta.length()) {
+            int headerEnd = delta.indexOf('\n', pos);
+            if (delta.charAt(pos) != '@' || headerEnd < 0) {
+                throw new IllegalArgumentException("Malformed delta at offset " + pos);
+            }
+            String[] header = delta.substring(pos + 1, headerEnd).split(",");
+            int position = Integer.parseInt(header[0]);
+            int deleted = Integer.parseInt(header[1]);
+            int length = Integer.parseInt(header[2]);
+
+            while (line < position) {
+                target.append(baseLines.get(line++));
+            }
+            line += deleted;
+            pos = headerEnd + 1;
+            target.append(delta, pos, pos + length);
+            pos += length;
+        }
+        while (line < baseLines.size()) {
+            target.append(baseLines.get(line++));
+        }
+        return target.toString();
+    }
+
+    /**
+     * Splits text into lines, keeping each line's terminating newline.
+     *
+     * @param text the text to split
+     * @return the lines of the text
+     */
+    static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            lines.add(text.substring(start, end + 1));
+            start = end + 1;
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,183 @@
+package com.VCS.LocalGit.Storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The LineOffsetIndex class records where lines start in stored content, so a range of lines can be read
+ * without loading or splitting the whole content.
+ * <p>
+ * The index is sparse: it keeps the byte offset of every {@code interval}-th line start, together with the
+ * length of the content in bytes and its number of lines. Reading lines {@code from} to {@code to} needs the
+ * bytes between the checkpoints around them, which hold at most {@code 2 * interval} lines more than asked for.
+ * Lines end with {@code \n}; a last line without one still counts. Offsets are in bytes of the UTF-8 content.
+ * <p>
+ * The index is built at commit time and stored next to the content in the content store.
+ */
+public final class LineOffsetIndex {
+
+    private final long byteLength;
+
+    private final int lineCount;
+
+    private final int interval;
+
+    /**
+     * The byte offset of the start of line {@code i * interval + 1}, for each checkpoint {@code i}.
+     */
+    private final long[] checkpoints;
+
+    private LineOffsetIndex(long byteLength, int lineCount, int interval, long[] checkpoints) {
+        this.byteLength = byteLength;
+        this.lineCount = lineCount;
+        this.interval = interval;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * A byte range of the content that contains a range of lines.
+     *
+     * @param offset the byte offset of the start of the window
+     * @param length the length of the window in bytes
+     * @param firstLine the number of the line the window starts with
+     */
+    public record Window(long offset, long length, int firstLine) {
+    }
+
+    /**
+     * Builds an index from content passed in one or more pieces, in order.
+     */
+    public static final class Builder {
+
+        private final int interval;
+
+        private long[] checkpoints = new long[16];
+
+        private int checkpointCount = 1;
+
+        private long byteLength;
+
+        private int newlines;
+
+        private boolean endsWithNewline;
+
+        /**
+         * Creates a builder.
+         *
+         * @param interval the number of lines between checkpoints
+         */
+        public Builder(int interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * Adds the next piece of the content.
+         *
+         * @param data the bytes of the piece
+         * @param offset the offset of the piece in the array
+         * @param length the length of the piece
+         * @return this builder
+         */
+        public Builder update(byte[] data, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (data[i] == '\n' && ++newlines % interval == 0) {
+                    if (checkpointCount == checkpoints.length) {
+                        checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                    }
+                    checkpoints[checkpointCount++] = byteLength + (i - offset) + 1;
+                }
+            }
+            if (length > 0) {
+                endsWithNewline = data[offset + length - 1] == '\n';
+            }
+            byteLength += length;
+            return this;
+        }
+
+        /**
+         * Returns the length of the content added so far in bytes.
+         *
+         * @return the length in bytes
+         */
+        public long byteLength() {
+            return byteLength;
+        }
+
+        /**
+         * Builds the index of the content added so far.
+         *
+         * @return the index
+         */
+        public LineOffsetIndex build() {
+            int lineCount = newlines + (byteLength > 0 && !endsWithNewline ? 1 : 0);
+            return new LineOffsetIndex(byteLength, lineCount, interval, Arrays.copyOf(checkpoints, checkpointCount));
+        }
+    }
+
+    /**
+     * Returns the length of the content in bytes.
+     *
+     * @return the length in bytes
+     */
+    public long byteLength() {
+        return byteLength;
+    }
+
+    /**
+     * Returns the number of lines of the content.
+     *
+     * @return the number of lines
+     */
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Finds the byte range between the checkpoints around a range of lines.
+     *
+     * @param from the first line, 1-based
+     * @param to the last line, inclusive
+     * @return the window containing the lines
+     */
+    public Window window(int from, int to) {
+        int first = (from - 1) / interval;
+        int last = (int) Math.min(((long) to + interval - 1) / interval, checkpoints.length);
+        long start = checkpoints[first];
+        long end = last < checkpoints.length ? checkpoints[last] : byteLength;
+        return new Window(start, end - start, first * interval + 1);
+    }
+
+    /**
+     * Serializes the index for storage.
+     *
+     * @return the serialized index
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES + checkpoints.length * Long.BYTES)
+                .putLong(byteLength)
+                .putInt(lineCount)
+                .putInt(interval);
+        for (long checkpoint : checkpoints) {
+            buffer.putLong(checkpoint);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads an index serialized by {@link #toBytes()}.
+     *
+     * @param data the serialized index
+     * @return the index
+     */
+    public static LineOffsetIndex parse(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long byteLength = buffer.getLong();
+        int lineCount = buffer.getInt();
+        int interval = buffer.getInt();
+        long[] checkpoints = new long[buffer.remaining() / Long.BYTES];
+        for (int i = 0; i < checkpoints.length; i++) {
+            checkpoints[i] = buffer.getLong();
+        }
+        return new LineOffsetIndex(byteLength, lineCount, interval, checkpoints);
+    }
+}
@@ -0,0 +1,575 @@
+package com.VCS.LocalGit.Storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * The PackContentStore class keeps content in append-only pack files on local disk.
+ * <p>
+ * A pack starts with an 8-byte magic and holds a sequence of records, each the payload length as a 4-byte int,
+ * the 32-byte SHA-256 hash, the one-byte ID of the {@link ContentCodec} and the encoded payload.
+ * Packs written before codecs were introduced have no codec byte; they stay readable but are never appended to,
+ * and compaction rewrites their records in the current format. New content is appended to the active pack; once a pack
+ * reaches {@code localgit.storage.pack.max-size} a new one is started. An in-memory index maps each hash
+ * to its pack and offset and is rebuilt by scanning the packs on startup. A record torn by a crash during
+ * an append can only be at the end of the last pack, and is truncated away when the store opens.
+ * <p>
+ * Reads go through read-only memory mappings of the packs, so stored content costs no heap until it is read.
+ * Content is written outside database transactions; content of a rolled-back commit stays in its pack
+ * unreferenced, which is harmless because content is immutable and addressed by hash.
+ * Deleted content is only dropped from the index; {@link #compact} reclaims its space.
+ */
+@Component
+@ConditionalOnProperty(name = "localgit.storage.backend", havingValue = "pack")
+public class PackContentStore implements ContentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PackContentStore.class);
+
+    private static final byte[] MAGIC = "LGPACK02".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The magic of packs whose records have no codec byte.
+     */
+    private static final byte[] MAGIC_V1 = "LGPACK01".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int HASH_BYTES = 32;
+
+    private static final int RECORD_HEADER = Integer.BYTES + HASH_BYTES + 1;
+
+    private static final int RECORD_HEADER_V1 = Integer.BYTES + HASH_BYTES;
+
+    /**
+     * The largest pack that can be mapped as one buffer.
+     */
+    private static final long MAX_PACK_SIZE = Integer.MAX_VALUE;
+
+    private static final Pattern PACK_NAME = Pattern.compile("pack-(\\d+)\\.pack");
+
+    private final Path directory;
+
+    private final long maxPackSize;
+
+    private final boolean fsync;
+
+    private final ContentCodecs codecs;
+
+    /**
+     * The location of every stored content, by hash.
+     */
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    /**
+     * The open packs, by ID.
+     */
+    private final Map<Integer, Pack> packs = new ConcurrentHashMap<>();
+
+    /**
+     * The pack new content is appended to. Guarded by this store.
+     */
+    private Pack active;
+
+    public PackContentStore(@Value("${localgit.storage.pack.directory:data/packs}") Path directory,
+                            @Value("${localgit.storage.pack.max-size:268435456}") long maxPackSize,
+                            @Value("${localgit.storage.pack.fsync:false}") boolean fsync,
+                            ContentCodecs codecs) throws IOException {
+        this.directory = directory;
+        this.maxPackSize = Math.min(maxPackSize, MAX_PACK_SIZE);
+        this.fsync = fsync;
+        this.codecs = codecs;
+
+        Files.createDirectories(directory);
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> PACK_NAME.matcher(path.getFileName().toString()).matches()).sorted().toList();
+        }
+        for (int i = 0; i < paths.size(); i++) {
+            active = open(paths.get(i), i == paths.size() - 1);
+        }
+        if (active == null) {
+            active = create(1);
+        } else if (active.recordHeader != RECORD_HEADER) {
+            active = create(active.id + 1);
+        }
+    }
+
+    /**
+     * The location of one stored content: its pack, the offset of its payload, the payload length in bytes
+     * and the ID of the codec the payload is encoded with.
+     */
+    private record Location(int pack, long offset, int length, byte codec) {
+    }
+
+    /**
+     * One pack file, with a read-only mapping of its written part.
+     */
+    private static final class Pack {
+
+        private final int id;
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        /**
+         * The size of the record header, which depends on the pack format.
+         */
+        private final int recordHeader;
+
+        /**
+         * The number of bytes written. Guarded by the store.
+         */
+        private long size;
+
+        /**
+         * A mapping of the first bytes of the pack; replaced by a larger one when a read goes past its end.
+         */
+        private volatile MappedByteBuffer mapped;
+
+        Pack(int id, Path path, FileChannel channel, int recordHeader, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.recordHeader = recordHeader;
+            this.size = size;
+        }
+
+        ByteBuffer read(long offset, int length) throws IOException {
+            MappedByteBuffer buffer = mapped;
+            if (buffer == null || offset + length > buffer.capacity()) {
+                buffer = remap();
+            }
+            return buffer.slice((int) offset, length);
+        }
+
+        private synchronized MappedByteBuffer remap() throws IOException {
+            long written = channel.size();
+            if (mapped == null || mapped.capacity() < written) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, written);
+            }
+            return mapped;
+        }
+    }
+
+    /**
+     * Stores the given content if it is not stored yet, appending it to the active pack.
+     *
+     * @param content the content to store
+     * @return the hash identifying the content
+     * @throws UncheckedIOException if the pack cannot be written
+     */
+    @Override
+    public String store(String content) {
+        return storeBytes(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores the given bytes if they are not stored yet, appending them to the active pack.
+     *
+     * @param data the bytes to store
+     * @return the hash identifying the bytes
+     * @throws UncheckedIOException if the pack cannot be written
+     */
+    @Override
+    public String storeBytes(byte[] data) {
+        String hash = ContentStore.hash(data);
+        if (index.containsKey(hash)) {
+            return hash;
+        }
+        ContentCodecs.Encoded encoded = codecs.encode(data);
+        synchronized (this) {
+            if (!index.containsKey(hash)) {
+                index.put(hash, append(hash, encoded));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether content with the given hash is stored.
+     *
+     * @param hash the hash of the content
+     * @return true if the content is stored
+     */
+    @Override
+    public boolean exists(String hash) {
+        return index.containsKey(hash);
+    }
+
+    /**
+     * Loads the content identified by the given hash from its memory-mapped pack.
+     *
+     * @param hash the hash of the content
+     * @return the stored content
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws UncheckedIOException if the pack cannot be mapped
+     */
+    @Override
+    public String load(String hash) {
+        return new String(loadBytes(hash), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads the bytes identified by the given hash from their memory-mapped pack.
+     *
+     * @param hash the hash of the content
+     * @return the stored bytes
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws UncheckedIOException if the pack cannot be mapped
+     */
+    @Override
+    public byte[] loadBytes(String hash) {
+        while (true) {
+            Location location = index.get(hash);
+            if (location == null) {
+                throw new NoSuchElementException("Content not found: " + hash);
+            }
+            Pack pack = packs.get(location.pack());
+            if (pack == null) {
+                // The pack was compacted away after the lookup; the index already points to the new location.
+                continue;
+            }
+            try {
+                byte[] payload = new byte[location.length()];
+                pack.read(location.offset(), location.length()).get(payload);
+                return codecs.decodeBytes(codecs.forId(location.codec()), payload);
+            } catch (ClosedChannelException e) {
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read pack " + location.pack(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes the bytes identified by the given hash to a channel. Records stored uncompressed are written
+     * straight from the memory mapping of their pack, without a copy on the heap.
+     *
+     * @param hash the hash of the content
+     * @param target the channel to write to
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws IOException if the pack cannot be mapped or the channel cannot be written
+     */
+    @Override
+    public void transferTo(String hash, WritableByteChannel target) throws IOException {
+        transferTo(hash, 0, Long.MAX_VALUE, target);
+    }
+
+    /**
+     * Writes a range of the bytes identified by the given hash to a channel. Only the range is read from
+     * records stored uncompressed, straight from the memory mapping of their pack; compressed records are
+     * decoded up to the end of the range.
+     *
+     * @param hash the hash of the content
+     * @param offset the offset of the first byte to write
+     * @param length the maximum number of bytes to write
+     * @param target the channel to write to
+     * @throws NoSuchElementException if no content is stored under the hash
+     * @throws IOException if the pack cannot be mapped or the channel cannot be written
+     */
+    @Override
+    public void transferTo(String hash, long offset, long length, WritableByteChannel target) throws IOException {
+        while (true) {
+            Location location = index.get(hash);
+            if (location == null) {
+                throw new NoSuchElementException("Content not found: " + hash);
+            }
+            Pack pack = packs.get(location.pack());
+            if (pack == null) {
+                continue;
+            }
+            boolean identity = location.codec() == codecs.identity().id();
+            ByteBuffer payload;
+            try {
+                if (identity) {
+                    int from = (int) Math.min(offset, location.length());
+                    payload = pack.read(location.offset() + from, (int) Math.min(length, location.length() - from));
+                } else {
+                    payload = pack.read(location.offset(), location.length());
+                }
+            } catch (ClosedChannelException e) {
+                continue;
+            }
+            if (!identity) {
+                byte[] encoded = new byte[location.length()];
+                payload.get(encoded);
+                ContentStore.writeRange(codecs.decodePrefix(codecs.forId(location.codec()), encoded,
+                        (int) Math.min(offset + Math.min(length, Integer.MAX_VALUE), Integer.MAX_VALUE)), offset, length, target);
+                return;
+            }
+            // A mapping stays readable after its pack is compacted away and closed.
+            while (payload.hasRemaining()) {
+                target.write(payload);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Passes the hash of every stored content to the given action.
+     *
+     * @param action the action to call for each hash
+     */
+    @Override
+    public void forEachHash(Consumer<String> action) {
+        index.keySet().forEach(action);
+    }
+
+    /**
+     * Removes the content with the given hash from the index. Its record stays in its pack until
+     * the pack is compacted, so no space is freed right away.
+     *
+     * @param hash the hash of the content
+     * @return always 0
+     */
+    @Override
+    public long delete(String hash) {
+        index.remove(hash);
+        return 0;
+    }
+
+    /**
+     * Rewrites every sealed pack whose share of deleted bytes reaches the given ratio, and every pack in the
+     * format without codecs: its live records are appended to the active pack one at a time, under the same
+     * lock as regular writes, and the old pack is deleted. Records stored uncompressed are encoded with the
+     * current codec on the way. Readers that looked a record up in the old pack before it went away retry the lookup.
+     *
+     * @param throttle the throttle paced against for every byte copied
+     * @param minGarbageRatio the share of deleted bytes from which a pack is rewritten
+     * @return the number of bytes reclaimed
+     * @throws InterruptedException if the thread is interrupted while throttled
+     */
+    @Override
+    public long compact(IoThrottle throttle, double minGarbageRatio) throws InterruptedException {
+        // Packs below the active one are sealed, so the index entries pointing into them can only go away.
+        int activeId;
+        synchronized (this) {
+            activeId = active.id;
+        }
+        Map<Integer, Long> liveBytes = new HashMap<>();
+        Map<Integer, List<String>> liveHashes = new HashMap<>();
+        index.forEach((hash, location) -> {
+            liveBytes.merge(location.pack(), (long) packs.get(location.pack()).recordHeader + location.length(), Long::sum);
+            liveHashes.computeIfAbsent(location.pack(), pack -> new ArrayList<>()).add(hash);
+        });
+
+        long reclaimed = 0;
+        for (Integer id : new TreeSet<>(packs.keySet()).headSet(activeId)) {
+            Pack pack = packs.get(id);
+            if (pack == null) {
+                continue;
+            }
+            long used = pack.size - MAGIC.length;
+            long live = liveBytes.getOrDefault(id, 0L);
+            if (used == 0 || (used - live < used * minGarbageRatio && pack.recordHeader == RECORD_HEADER)) {
+                continue;
+            }
+            long copied = 0;
+            try {
+                for (String hash : liveHashes.getOrDefault(id, List.of())) {
+                    Location location = index.get(hash);
+                    if (location == null || location.pack() != id) {
+                        continue;
+                    }
+                    throttle.acquire(pack.recordHeader + location.length());
+                    byte[] payload = new byte[location.length()];
+                    pack.read(location.offset(), location.length()).get(payload);
+                    ContentCodecs.Encoded encoded = location.codec() == codecs.identity().id()
+                            ? codecs.encode(payload)
+                            : new ContentCodecs.Encoded(codecs.forId(location.codec()), payload);
+                    synchronized (this) {
+                        // Deleted or moved while copying: nothing to relocate.
+                        if (index.get(hash) == location) {
+                            index.put(hash, append(hash, encoded));
+                            copied += RECORD_HEADER + encoded.data().length;
+                        }
+                    }
+                }
+                synchronized (this) {
+                    active.channel.force(false);
+                    packs.remove(id);
+                }
+                pack.channel.close();
+                Files.delete(pack.path);
+                reclaimed += pack.size - copied;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot compact pack " + id, e);
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Flushes and closes all packs.
+     *
+     * @throws IOException if a pack cannot be flushed or closed
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (Pack pack : packs.values()) {
+            pack.channel.force(true);
+            pack.channel.close();
+        }
+    }
+
+    /**
+     * Appends a record to the active pack, starting a new pack first if the record does not fit.
+     * Must be called while holding the store's lock.
+     */
+    private Location append(String hash, ContentCodecs.Encoded encoded) {
+        byte[] payload = encoded.data();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + payload.length)
+                .putInt(payload.length)
+                .put(HexFormat.of().parseHex(hash))
+                .put(encoded.codec().id())
+                .put(payload)
+                .flip();
+        try {
+            if (active.size > MAGIC.length && active.size + record.remaining() > maxPackSize) {
+                active.channel.force(false);
+                active = create(active.id + 1);
+            }
+            long offset = active.size;
+            while (record.hasRemaining()) {
+                active.channel.write(record, offset + record.position());
+            }
+            if (fsync) {
+                active.channel.force(false);
+            }
+            active.size += record.capacity();
+            return new Location(active.id, offset + RECORD_HEADER, payload.length, encoded.codec().id());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to pack " + active.id, e);
+        }
+    }
+
+    private Pack create(int id) throws IOException {
+        Path path = directory.resolve(packName(id));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.wrap(MAGIC), 0);
+        channel.force(true);
+        Pack pack = new Pack(id, path, channel, RECORD_HEADER, MAGIC.length);
+        packs.put(id, pack);
+        return pack;
+    }
+
+    /**
+     * Opens an existing pack and adds its records to the index.
+     * A torn record at the end of the last pack is truncated; anywhere else it means the pack is corrupt.
+     */
+    private Pack open(Path path, boolean last) throws IOException {
+        Matcher name = PACK_NAME.matcher(path.getFileName().toString());
+        name.matches();
+        int id = Integer.parseInt(name.group(1));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > MAX_PACK_SIZE) {
+            throw new IllegalStateException("Pack too large to map: " + path);
+        }
+        if (last && size < MAGIC.length) {
+            // The pack was being created when the store stopped.
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            size = MAGIC.length;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        byte[] magic = new byte[MAGIC.length];
+        if (size >= MAGIC.length) {
+            buffer.get(0, magic);
+        }
+        int recordHeader;
+        if (Arrays.equals(magic, MAGIC)) {
+            recordHeader = RECORD_HEADER;
+        } else if (Arrays.equals(magic, MAGIC_V1)) {
+            recordHeader = RECORD_HEADER_V1;
+        } else {
+            throw new IllegalStateException("Not a pack file: " + path);
+        }
+        byte identity = codecs.identity().id();
+
+        HexFormat hex = HexFormat.of();
+        byte[] hash = new byte[HASH_BYTES];
+        long position = MAGIC.length;
+        long lastRecord = -1;
+        while (position + recordHeader <= size) {
+            int length = buffer.getInt((int) position);
+            if (length < 0 || position + recordHeader + length > size) {
+                break;
+            }
+            buffer.get((int) position + Integer.BYTES, hash);
+            byte codec = recordHeader == RECORD_HEADER ? buffer.get((int) position + RECORD_HEADER_V1) : identity;
+            index.put(hex.formatHex(hash), new Location(id, position + recordHeader, length, codec));
+            lastRecord = position;
+            position += recordHeader + length;
+        }
+
+        if (last && lastRecord >= 0 && position == size && !verify(index.get(hex.formatHex(hash)), buffer, hash)) {
+            // The length of the last record made it to disk but not all of its payload.
+            buffer.get((int) lastRecord + Integer.BYTES, hash);
+            index.remove(hex.formatHex(hash));
+            position = lastRecord;
+        }
+        if (position < size) {
+            if (!last) {
+                throw new IllegalStateException("Corrupt pack " + path + " at offset " + position);
+            }
+            log.warn("Truncating torn record at offset {} of pack {}", position, path);
+            channel.truncate(position);
+        }
+
+        Pack pack = new Pack(id, path, channel, recordHeader, position);
+        if (position == size) {
+            pack.mapped = buffer;
+        }
+        packs.put(id, pack);
+        return pack;
+    }
+
+    /**
+     * Checks that a record decodes to content with the hash it was stored under.
+     */
+    private boolean verify(Location location, ByteBuffer buffer, byte[] hash) {
+        byte[] payload = new byte[location.length()];
+        buffer.get((int) location.offset(), payload);
+        try {
+            byte[] data = codecs.decodeBytes(codecs.forId(location.codec()), payload);
+            return ContentStore.hash(data).equals(HexFormat.of().formatHex(hash));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static String packName(int id) {
+        return String.format("pack-%06d.pack", id);
+    }
+}
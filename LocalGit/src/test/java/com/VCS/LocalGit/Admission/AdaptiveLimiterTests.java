@@ -0,0 +1,158 @@
+package com.VCS.LocalGit.Admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTests {
+
+	@Test
+	void callBeyondTheLimitIsRejectedWhenTheQueueIsFull() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1.5, 0, Duration.ofSeconds(10));
+		AdaptiveLimiter.Permit permit = limiter.acquire();
+		RejectedExecutionException e = assertThrows(RejectedExecutionException.class, limiter::acquire);
+		assertEquals("Too many calls waiting", e.getMessage());
+		permit.close();
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void queuedCallTakesTheSlotOfAFinishedOne() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1.5, 1, Duration.ofSeconds(30));
+		AdaptiveLimiter.Permit first = limiter.acquire();
+		CompletableFuture<AdaptiveLimiter.Permit> second = CompletableFuture.supplyAsync(limiter::acquire);
+		awaitQueued(limiter, 1);
+
+		// the queue holds one call, so a third is turned away at once
+		assertThrows(RejectedExecutionException.class, limiter::acquire);
+		assertFalse(second.isDone());
+
+		first.close();
+		AdaptiveLimiter.Permit permit = second.get(10, TimeUnit.SECONDS);
+		assertEquals(1, limiter.getInFlight());
+		assertEquals(0, limiter.getQueued());
+		permit.close();
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void freedSlotGoesToTheQueuedCallRatherThanANewOne() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1.5, 2, Duration.ofMillis(200));
+		AdaptiveLimiter.Permit first = limiter.acquire();
+		CompletableFuture<AdaptiveLimiter.Permit> second = CompletableFuture.supplyAsync(limiter::acquire);
+		awaitQueued(limiter, 1);
+
+		// the slot is handed to the queued call before it even wakes up, so a new call cannot take it
+		first.close();
+		RejectedExecutionException e = assertThrows(RejectedExecutionException.class, limiter::acquire);
+		assertEquals("Timed out waiting for a slot", e.getMessage());
+
+		AdaptiveLimiter.Permit permit = second.get(10, TimeUnit.SECONDS);
+		permit.close();
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void queuedCallTimesOut() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1.5, 4, Duration.ofMillis(50));
+		AdaptiveLimiter.Permit permit = limiter.acquire();
+		long start = System.nanoTime();
+		RejectedExecutionException e = assertThrows(RejectedExecutionException.class, limiter::acquire);
+		assertEquals("Timed out waiting for a slot", e.getMessage());
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(0, limiter.getQueued());
+		permit.close();
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void closingAPermitTwiceFreesOneSlot() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 2, 1.5, 0, Duration.ZERO);
+		AdaptiveLimiter.Permit first = limiter.acquire();
+		AdaptiveLimiter.Permit second = limiter.acquire();
+		first.close();
+		first.close();
+		assertEquals(1, limiter.getInFlight());
+		second.close();
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void limitGrowsWhileCallsStayFastAndShrinksWhenTheySlowDown() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 16, 1.5, 0, Duration.ZERO);
+		// calls of a few milliseconds, so scheduling jitter does not pass for a slowdown; a stray slow batch
+		// only delays reaching the highest limit
+		for (int i = 0; i < 500 && limiter.getLimit() < 16; i++) {
+			runBatch(limiter, 2);
+		}
+		assertEquals(16, limiter.getLimit());
+
+		runBatch(limiter, 40);
+		runBatch(limiter, 40);
+		int limit = limiter.getLimit();
+		assertTrue(limit < 16, "limit " + limit);
+
+		// once the slow calls are the norm, the long-term average catches up and the limit recovers
+		for (int i = 0; i < 60; i++) {
+			runBatch(limiter, 40);
+		}
+		assertTrue(limiter.getLimit() > limit, "limit " + limiter.getLimit());
+	}
+
+	@Test
+	void failedAndLightlyLoadedCallsDoNotMoveTheLimit() {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(8, 1, 16, 1.5, 0, Duration.ZERO);
+		for (int i = 0; i < 100; i++) {
+			// a single call uses less than half of the limit
+			try (AdaptiveLimiter.Permit permit = limiter.acquire()) {
+				permit.success();
+			}
+			List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+			for (int j = 0; j < 8; j++) {
+				permits.add(limiter.acquire());
+			}
+			permits.forEach(AdaptiveLimiter.Permit::close);
+		}
+		assertEquals(8, limiter.getLimit());
+	}
+
+	@Test
+	void invalidLimitsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(1, 0, 4, 1.5, 0, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(1, 4, 2, 1.5, 0, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(1, 1, 4, 0.5, 0, Duration.ZERO));
+	}
+
+	/**
+	 * Fills the current limit with calls that all last the given time and succeed.
+	 */
+	private static void runBatch(AdaptiveLimiter limiter, long millis) throws InterruptedException {
+		List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+		for (int i = limiter.getLimit(); i > 0; i--) {
+			permits.add(limiter.acquire());
+		}
+		Thread.sleep(millis);
+		for (AdaptiveLimiter.Permit permit : permits) {
+			permit.success();
+			permit.close();
+		}
+	}
+
+	private static void awaitQueued(AdaptiveLimiter limiter, int queued) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (limiter.getQueued() < queued) {
+			assertTrue(System.nanoTime() < deadline, "no call queued");
+			Thread.sleep(5);
+		}
+	}
+}
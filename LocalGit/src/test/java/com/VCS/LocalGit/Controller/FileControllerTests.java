@@ -0,0 +1,253 @@
+package com.VCS.LocalGit.Controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+import com.VCS.LocalGit.Service.HeavyTaskExecutor;
+
+@SpringBootTest(properties = {"localgit.heavy.threads=1", "localgit.heavy.queue-capacity=1",
+		"localgit.blame.max-content-size=1024"})
+@AutoConfigureMockMvc
+class FileControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private HeavyTaskExecutor heavyTaskExecutor;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void diffCacheStatisticsCountTheLookupsOfDiffs() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("cache-stats").getId(), "file.txt", "a\n");
+		fileService.updateFile(file.getId(), "b\n");
+		CacheStatistics before = fileService.getDiffCacheStatistics();
+
+		diff(file);
+		diff(file);
+
+		mockMvc.perform(get("/files/diff/cache-stats"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.hits").value(before.getHits() + 1))
+				.andExpect(jsonPath("$.misses").value(before.getMisses() + 1));
+	}
+
+	@Test
+	void historyBoundsAtTheIntegerLimitsGiveAnEmptyPage() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("history-bounds").getId(), "file.txt", "a\n");
+		fileService.updateFile(file.getId(), "b\n");
+		String versions = "/files/versions/" + file.getId();
+
+		mockMvc.perform(asyncDispatch(started(get(versions).param("after", String.valueOf(Integer.MAX_VALUE)))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(0));
+		mockMvc.perform(asyncDispatch(started(get(versions).param("before", String.valueOf(Integer.MIN_VALUE)))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(0));
+		mockMvc.perform(asyncDispatch(started(get(versions).param("after", String.valueOf(Integer.MIN_VALUE)))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2));
+	}
+
+	@Test
+	void historyOfAMissingOrDeletedFileIsNotFound() throws Exception {
+		Folder folder = folderService.createFolder("history-missing");
+		File file = fileService.createFile(folder.getId(), "file.txt", "a\n");
+		folderService.deleteFolder(folder.getId());
+
+		mockMvc.perform(get("/files/versions/" + file.getId())).andExpect(status().isNotFound());
+		mockMvc.perform(get("/files/versions/" + Long.MAX_VALUE)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void missingVersionsAndFilesAreNotFoundForSyncAndAsyncDiffsAndMerges() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("not-found").getId(), "file.txt", "a\n");
+		String fileId = file.getId().toString();
+		String missingId = String.valueOf(Long.MAX_VALUE);
+
+		mockMvc.perform(get("/files/diff").param("fileId", fileId).param("version1", "1").param("version2", "2"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(asyncDispatch(started(get("/files/diff/async").param("fileId", fileId)
+						.param("version1", "1").param("version2", "2"))))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(post("/files/merge").param("targetFileId", fileId).param("sourceFileId", missingId))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(asyncDispatch(started(post("/files/merge/async").param("targetFileId", fileId)
+						.param("sourceFileId", missingId))))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void asyncDiffsAndMergesAnswerFromTheHeavyTaskPool() throws Exception {
+		Long folderId = folderService.createFolder("async").getId();
+		File target = fileService.createFile(folderId, "target.txt", "a\n");
+		fileService.updateFile(target.getId(), "b\n");
+		File source = fileService.createFile(folderId, "source.txt", "c\n");
+
+		MvcResult diff = mockMvc.perform(asyncDispatch(started(get("/files/diff/async")
+						.param("fileId", target.getId().toString()).param("version1", "1").param("version2", "2"))))
+				.andExpect(status().isOk())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(diff))
+				.andExpect(content().string("--- v1\n+++ v2\n@@ -1,1 +1,1 @@\n-a\n+b\n"));
+		mockMvc.perform(asyncDispatch(started(post("/files/merge/async")
+						.param("targetFileId", target.getId().toString())
+						.param("sourceFileId", source.getId().toString()))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.file.id").value(target.getId()));
+	}
+
+	@Test
+	void asyncRequestsAreTurnedAwayWhileTheHeavyTaskPoolIsSaturated() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("saturated").getId(), "file.txt", "a\n");
+		fileService.updateFile(file.getId(), "b\n");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// one task on the pool's only thread and one in its only queue slot
+		CompletableFuture<Void> running = heavyTaskExecutor.submit(() -> {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		});
+		started.await(10, TimeUnit.SECONDS);
+		CompletableFuture<Void> queued = heavyTaskExecutor.submit(() -> null);
+		try {
+			mockMvc.perform(asyncDispatch(started(get("/files/diff/async").param("fileId", file.getId().toString())
+							.param("version1", "1").param("version2", "2"))))
+					.andExpect(status().isTooManyRequests())
+					.andExpect(header().string("Retry-After", "1"));
+			mockMvc.perform(asyncDispatch(started(post("/files/merge/async")
+							.param("targetFileId", file.getId().toString()).param("sourceFileId", "1"))))
+					.andExpect(status().isTooManyRequests());
+		} finally {
+			release.countDown();
+			running.get(10, TimeUnit.SECONDS);
+			queued.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	void savingUnchangedContentCreatesAVersionWithoutStoringContent() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("unchanged").getId(), "file.txt", "unchanged\n");
+
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/files/update").param("fileId", file.getId().toString()).param("content", "unchanged\n"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.versionCounter").value(2 + i));
+		}
+
+		// every version refers to the content and blame stored by the first one
+		assertEquals(1, jdbcTemplate.queryForObject("select count(distinct content_hash || '/' || blame_hash) from version"
+				+ " where file_id = ? and delta_hash is null", Integer.class, file.getId()));
+		assertEquals(3, jdbcTemplate.queryForObject("select count(*) from version where file_id = ? and delta_hash is null",
+				Integer.class, file.getId()));
+		mockMvc.perform(asyncDispatch(started(get("/files/versions/" + file.getId()))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3));
+		mockMvc.perform(asyncDispatch(started(get("/files/versions/" + file.getId() + "/3/content"))))
+				.andExpect(status().isOk())
+				.andExpect(content().string("unchanged\n"));
+	}
+
+	@Test
+	void resolvingTheConflictsOfAMissingFileIsNotFound() throws Exception {
+		String fileId = String.valueOf(Long.MAX_VALUE);
+
+		mockMvc.perform(post("/files/resolve-conflicts").param("fileId", fileId).param("resolvedContent", "a\n"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(get("/files/conflict").param("fileId", fileId).param("newContent", "a\n"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void bulkUpdatesOverTheLimitAreRejected() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("bulk-limit").getId(), "file.txt", "a\n");
+		StringBuilder body = new StringBuilder("[");
+		for (int i = 0; i <= 10000; i++) {
+			body.append(i == 0 ? "" : ",").append("{\"fileId\":").append(file.getId()).append(",\"content\":\"b\"}");
+		}
+		body.append(']');
+
+		mockMvc.perform(post("/files/bulk-update").contentType(MediaType.APPLICATION_JSON).content(body.toString()))
+				.andExpect(status().isBadRequest());
+		assertEquals(1, fileService.getFile(file.getId()).getVersionCounter());
+	}
+
+	@Test
+	void blameOfAnUploadOverTheSizeLimitIsStreamedWithoutALineRange() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("blame-limit").getId(), "file.txt", "a\n");
+		StringBuilder upload = new StringBuilder();
+		for (int i = 1; i <= 20000; i++) {
+			upload.append("line ").append(i).append(i < 20000 ? "\n" : "");
+		}
+		fileService.updateFile(file.getId(), new ByteArrayInputStream(upload.toString().getBytes(StandardCharsets.UTF_8)));
+
+		mockMvc.perform(asyncDispatch(started(get("/files/blame/" + file.getId()))))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Line-Count", "20000"))
+				.andExpect(jsonPath("$.length()").value(20000))
+				.andExpect(jsonPath("$[0].line").value(1))
+				.andExpect(jsonPath("$[0].versionNumber").value(2))
+				.andExpect(jsonPath("$[0].content").value("line 1"))
+				.andExpect(jsonPath("$[19999].line").value(20000))
+				.andExpect(jsonPath("$[19999].content").value("line 20000"));
+		mockMvc.perform(asyncDispatch(started(get("/files/blame/" + file.getId() + "/2").param("lines", "9999-10001"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[2].line").value(10001))
+				.andExpect(jsonPath("$[2].content").value("line 10001"));
+	}
+
+	/**
+	 * Performs a request answered asynchronously, with a future or a streamed body.
+	 */
+	private MvcResult started(MockHttpServletRequestBuilder request) throws Exception {
+		return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+	}
+
+	private void diff(File file) throws Exception {
+		mockMvc.perform(get("/files/diff").param("fileId", file.getId().toString())
+						.param("version1", "1").param("version2", "2"))
+				.andExpect(status().isOk());
+	}
+}
@@ -0,0 +1,71 @@
+package com.VCS.LocalGit.Diff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class BlameTests {
+
+	private final DiffEngine engine = new DiffEngine(DiffEngine.Algorithm.HISTOGRAM, 100_000, Duration.ofSeconds(10));
+
+	@Test
+	void unchangedLinesKeepTheirOrigin() {
+		Blame blame = Blame.of(3, 1);
+		blame = next(blame, "a\nb\nc\n", "a\nB\nc\nd\n", 2);
+		blame = next(blame, "a\nB\nc\nd\n", "x\na\nB\nc\nd\n", 3);
+		blame = next(blame, "x\na\nB\nc\nd\n", "x\na\nc\nd\n", 4);
+
+		assertEquals(4, blame.lineCount());
+		assertArrayEquals(new int[] {3, 1, 1, 2}, blame.origins(1, 4));
+		assertArrayEquals(new int[] {1, 1}, blame.origins(2, 3));
+		assertArrayEquals(new int[] {2}, blame.origins(4, 100));
+		assertArrayEquals(new int[0], blame.origins(5, 10));
+	}
+
+	@Test
+	void cursorWalksTheSameOriginsAsTheArray() {
+		Blame blame = next(Blame.of(4, 1), "1\n2\n3\n4\n", "1\nX\n3\nY\n5\n", 2);
+		Blame.Cursor cursor = blame.cursor(2);
+		int[] origins = new int[4];
+		for (int i = 0; i < origins.length; i++) {
+			origins[i] = cursor.next();
+		}
+		assertArrayEquals(blame.origins(2, 5), origins);
+		assertFalse(cursor.hasNext());
+		assertThrows(NoSuchElementException.class, cursor::next);
+		assertFalse(blame.cursor(6).hasNext());
+	}
+
+	@Test
+	void serializedBlameReadsBackTheSame() {
+		Blame blame = next(Blame.of(4, 1), "1\n2\n3\n4\n", "1\nX\n3\nY\n", 2);
+		Blame parsed = Blame.parse(blame.toBytes());
+		assertEquals(blame.lineCount(), parsed.lineCount());
+		assertArrayEquals(new int[] {1, 2, 1, 2}, parsed.origins(1, 4));
+	}
+
+	@Test
+	void editsThatDoNotMatchTheLineCountAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> Blame.of(2, 1).next(List.of(new Edit(0, 1, 0, 2)), 2, 2));
+	}
+
+	@Test
+	void emptyVersionHasNoLines() {
+		Blame blame = next(Blame.of(0, 1), "", "a\n", 2);
+		assertArrayEquals(new int[] {2}, blame.origins(1, 1));
+		assertEquals(0, Blame.of(0, 1).origins(1, 1).length);
+	}
+
+	private Blame next(Blame blame, String from, String to, int versionNumber) {
+		LineIndex a = LineIndex.of(from);
+		LineIndex b = LineIndex.of(to);
+		return blame.next(engine.diff(a, b), b.size(), versionNumber);
+	}
+}
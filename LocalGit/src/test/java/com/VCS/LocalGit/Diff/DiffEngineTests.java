@@ -0,0 +1,114 @@
+package com.VCS.LocalGit.Diff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DiffEngineTests {
+
+	@Test
+	void commonPrefixAndSuffixAreTrimmed() {
+		for (DiffEngine.Algorithm algorithm : DiffEngine.Algorithm.values()) {
+			DiffEngine engine = new DiffEngine(algorithm, 1000, Duration.ofSeconds(10));
+			List<Edit> edits = engine.diff(LineIndex.of("a\nb\nc\nd\ne\n"), LineIndex.of("a\nb\nX\nY\nd\ne\n"));
+			assertEquals(List.of(new Edit(2, 3, 2, 4)), edits, algorithm.name());
+			assertEquals(List.of(), engine.diff(LineIndex.of("a\nb\n"), LineIndex.of("a\nb\n")), algorithm.name());
+		}
+	}
+
+	@Test
+	void regionsOverTheLineBudgetAreReportedCoarsely() {
+		for (DiffEngine.Algorithm algorithm : DiffEngine.Algorithm.values()) {
+			DiffEngine engine = new DiffEngine(algorithm, 4, Duration.ofSeconds(10));
+			DiffEngine.Result result = engine.compute(LineIndex.of("p\na\nb\nc\ns\n"), LineIndex.of("p\nc\nb\na\ns\n"));
+			assertEquals(List.of(new Edit(1, 4, 1, 4)), result.edits(), algorithm.name());
+			// the line budget always gives the same answer, unlike the time budget
+			assertFalse(result.timedOut(), algorithm.name());
+		}
+	}
+
+	@Test
+	void regionsPastTheTimeBudgetAreReportedCoarsely() {
+		for (DiffEngine.Algorithm algorithm : DiffEngine.Algorithm.values()) {
+			DiffEngine engine = new DiffEngine(algorithm, 1000, Duration.ZERO);
+			DiffEngine.Result result = engine.compute(LineIndex.of("p\na\nb\nc\ns\n"), LineIndex.of("p\nc\nb\na\ns\n"));
+			assertEquals(List.of(new Edit(1, 4, 1, 4)), result.edits(), algorithm.name());
+			assertTrue(result.timedOut(), algorithm.name());
+			assertFalse(engine.compute(LineIndex.of("a\n"), LineIndex.of("a\n")).timedOut(), algorithm.name());
+		}
+	}
+
+	@Test
+	void editsTurnTheFirstSequenceIntoTheSecond() {
+		Random random = new Random(42);
+		for (DiffEngine.Algorithm algorithm : DiffEngine.Algorithm.values()) {
+			DiffEngine engine = new DiffEngine(algorithm, 1000, Duration.ofSeconds(10));
+			for (int round = 0; round < 500; round++) {
+				int[] a = random(random, random.nextInt(12), 3);
+				int[] b = random(random, random.nextInt(12), 3);
+				List<Edit> edits = engine.diff(a, b, 3);
+				assertArrayEquals(b, apply(a, b, edits), algorithm.name());
+			}
+		}
+	}
+
+	@Test
+	void myersEditsAreMinimal() {
+		Random random = new Random(7);
+		DiffEngine engine = new DiffEngine(DiffEngine.Algorithm.MYERS, 1000, Duration.ofSeconds(10));
+		for (int round = 0; round < 500; round++) {
+			int[] a = random(random, random.nextInt(15), 4);
+			int[] b = random(random, random.nextInt(15), 4);
+			int changed = 0;
+			for (Edit edit : engine.diff(a, b, 4)) {
+				changed += (edit.getEndA() - edit.getBeginA()) + (edit.getEndB() - edit.getBeginB());
+			}
+			assertEquals(a.length + b.length - 2 * lcs(a, b), changed);
+		}
+	}
+
+	private static int[] random(Random random, int length, int alphabet) {
+		int[] ids = new int[length];
+		for (int i = 0; i < length; i++) {
+			ids[i] = random.nextInt(alphabet);
+		}
+		return ids;
+	}
+
+	private static int[] apply(int[] a, int[] b, List<Edit> edits) {
+		List<Integer> result = new ArrayList<>();
+		int line = 0;
+		for (Edit edit : edits) {
+			assertEquals(edit.getBeginA() - line, edit.getBeginB() - result.size());
+			for (; line < edit.getBeginA(); line++) {
+				result.add(a[line]);
+			}
+			for (int i = edit.getBeginB(); i < edit.getEndB(); i++) {
+				result.add(b[i]);
+			}
+			line = edit.getEndA();
+		}
+		for (; line < a.length; line++) {
+			result.add(a[line]);
+		}
+		return result.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static int lcs(int[] a, int[] b) {
+		int[][] lengths = new int[a.length + 1][b.length + 1];
+		for (int i = a.length - 1; i >= 0; i--) {
+			for (int j = b.length - 1; j >= 0; j--) {
+				lengths[i][j] = a[i] == b[j] ? lengths[i + 1][j + 1] + 1 : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+			}
+		}
+		return lengths[0][0];
+	}
+}
@@ -0,0 +1,80 @@
+package com.VCS.LocalGit.Diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.VCS.LocalGit.Dto.MergeConflict;
+
+class ThreeWayMergeTests {
+
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+
+	private final DiffEngine engine = new DiffEngine(DiffEngine.Algorithm.HISTOGRAM, 100_000, Duration.ofSeconds(10));
+
+	@AfterEach
+	void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void changesOnDifferentLinesMergeCleanly() {
+		ThreeWayMerge.Result result = merge("1\n2\n3\n4\n5\n", "A\n2\n3\n4\n5\n", "1\n2\n3\n4\nE\n");
+		assertEquals("A\n2\n3\n4\nE\n", result.content());
+		assertEquals(List.of(), result.conflicts());
+	}
+
+	@Test
+	void overlappingChangesConflict() {
+		ThreeWayMerge.Result result = merge("1\n2\n3\n", "1\nX\n3\n", "1\nY\n3\n");
+		assertEquals("1\n<<<<<<< target\nX\n=======\nY\n>>>>>>> source\n3\n", result.content());
+		assertEquals(List.of(new MergeConflict(2, List.of("X"), List.of("Y"))), result.conflicts());
+	}
+
+	@Test
+	void identicalChangesMergeCleanly() {
+		ThreeWayMerge.Result result = merge("1\n2\n3\n", "1\nX\n3\n4\n", "1\nX\n3\n4\n");
+		assertEquals("1\nX\n3\n4\n", result.content());
+		assertEquals(List.of(), result.conflicts());
+	}
+
+	@Test
+	void withoutACommonAncestorOnlyDifferingLinesConflict() {
+		ThreeWayMerge.Result result = merge("", "a\nb\nc\n", "a\nB\nc\n");
+		assertEquals("a\n<<<<<<< target\nb\n=======\nB\n>>>>>>> source\nc\n", result.content());
+		assertEquals(List.of(new MergeConflict(2, List.of("b"), List.of("B"))), result.conflicts());
+	}
+
+	@Test
+	void keepsTheTargetsMissingTrailingNewline() {
+		ThreeWayMerge.Result result = merge("1\n2\n3", "A\n2\n3", "1\n2\n3");
+		assertEquals("A\n2\n3", result.content());
+	}
+
+	@Test
+	void parallelRefinementMatchesSequential() {
+		StringBuilder base = new StringBuilder();
+		StringBuilder target = new StringBuilder();
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			base.append("line ").append(i).append('\n');
+			target.append(i % 10 == 0 ? "target " : "line ").append(i).append('\n');
+			source.append(i % 10 == 0 ? "source " : "line ").append(i).append('\n');
+		}
+		ThreeWayMerge.Result sequential = new ThreeWayMerge(engine, pool, Integer.MAX_VALUE)
+				.merge(base.toString(), target.toString(), source.toString(), "target", "source");
+		ThreeWayMerge.Result parallel = new ThreeWayMerge(engine, pool, 1)
+				.merge(base.toString(), target.toString(), source.toString(), "target", "source");
+		assertEquals(20, parallel.conflicts().size());
+		assertEquals(sequential, parallel);
+	}
+
+	private ThreeWayMerge.Result merge(String base, String target, String source) {
+		return new ThreeWayMerge(engine, pool, 1).merge(base, target, source, "target", "source");
+	}
+}
@@ -0,0 +1,62 @@
+package com.VCS.LocalGit.Diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class UnifiedDiffTests {
+
+	private final DiffEngine engine = new DiffEngine(DiffEngine.Algorithm.HISTOGRAM, 1000, Duration.ofSeconds(10));
+
+	@Test
+	void writesHunksWithContext() throws IOException {
+		assertEquals("""
+				--- a
+				+++ b
+				@@ -1,3 +1,3 @@
+				 one
+				-two
+				+TWO
+				 three
+				""", write("one\ntwo\nthree\n", "one\nTWO\nthree\n"));
+	}
+
+	@Test
+	void marksLinesWithoutTrailingNewline() throws IOException {
+		assertEquals("""
+				--- a
+				+++ b
+				@@ -1,2 +1,3 @@
+				 one
+				-two
+				\\ No newline at end of file
+				+two
+				+three
+				\\ No newline at end of file
+				""", write("one\ntwo", "one\ntwo\nthree"));
+	}
+
+	@Test
+	void addingOnlyATrailingNewlineIsAChange() throws IOException {
+		assertEquals("""
+				--- a
+				+++ b
+				@@ -1,1 +1,1 @@
+				-one
+				\\ No newline at end of file
+				+one
+				""", write("one", "one\n"));
+	}
+
+	private String write(String a, String b) throws IOException {
+		LineIndex indexA = LineIndex.of(a);
+		LineIndex indexB = LineIndex.of(b);
+		StringWriter out = new StringWriter();
+		new UnifiedDiff("a", "b", indexA, indexB, engine.diff(indexA, indexB), 3).writeTo(out);
+		return out.toString();
+	}
+}
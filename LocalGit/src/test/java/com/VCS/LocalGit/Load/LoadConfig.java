@@ -0,0 +1,108 @@
+package com.VCS.LocalGit.Load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The settings of a load run. Every setting has a default and can be overridden by a {@code load.<name>}
+ * system property, or by a {@code --<name>=<value>} argument when the driver runs from the command line.
+ * <ul>
+ * <li>{@code url}: the instance to load; empty starts an embedded instance</li>
+ * <li>{@code concurrency}: the number of clients, each sending its next request when the previous one returns</li>
+ * <li>{@code warmup} / {@code duration}: how long to run before and while measuring, as ISO-8601 durations</li>
+ * <li>{@code folders} / {@code files}: the folders and files created before the run; files are created in pairs
+ * sharing their first version, and merges go from one file of a pair into the other</li>
+ * <li>{@code mix}: the weight of each operation, as {@code operation:weight} pairs</li>
+ * <li>{@code sizes}: the distribution of the size of created files, as {@code bytes:weight} pairs</li>
+ * <li>{@code density}: the share of lines an update changes</li>
+ * <li>{@code seed}: the seed of the generated traffic</li>
+ * <li>{@code output}: the directory the report is written to</li>
+ * </ul>
+ */
+public record LoadConfig(String url, int concurrency, Duration warmup, Duration duration, int folders, int files,
+		Map<LoadDriver.Operation, Integer> mix, Map<Integer, Integer> sizes, double density, long seed, Path output) {
+
+	private static final Map<String, String> DEFAULTS = Map.of(
+			"url", "",
+			"concurrency", "8",
+			"warmup", "PT5S",
+			"duration", "PT30S",
+			"folders", "4",
+			"files", "100",
+			"mix", "create:10,update:40,diff:20,merge:5,listFiles:10,listVersions:10,listFolders:5",
+			"sizes", "2048:70,32768:25,262144:5",
+			"density", "0.05",
+			"seed", "42");
+
+	private static final String DEFAULT_OUTPUT = "target/load";
+
+	/**
+	 * Reads the settings from {@code load.*} system properties.
+	 *
+	 * @return the settings
+	 */
+	public static LoadConfig fromSystemProperties() {
+		return fromArgs(new String[0]);
+	}
+
+	/**
+	 * Reads the settings from {@code load.*} system properties, overridden by {@code --<name>=<value>} arguments.
+	 *
+	 * @param args the command line arguments
+	 * @return the settings
+	 * @throws IllegalArgumentException if an argument is not of the form {@code --<name>=<value>}
+	 */
+	public static LoadConfig fromArgs(String[] args) {
+		Map<String, String> values = new HashMap<>();
+		System.getProperties().stringPropertyNames().stream()
+				.filter(name -> name.startsWith("load."))
+				.forEach(name -> values.put(name.substring("load.".length()), System.getProperty(name)));
+		for (String arg : args) {
+			int equals = arg.indexOf('=');
+			if (!arg.startsWith("--") || equals < 0) {
+				throw new IllegalArgumentException("Expected --<name>=<value>, got " + arg);
+			}
+			values.put(arg.substring(2, equals), arg.substring(equals + 1));
+		}
+		return of(values);
+	}
+
+	private static LoadConfig of(Map<String, String> values) {
+		for (String name : values.keySet()) {
+			if (!DEFAULTS.containsKey(name) && !name.equals("output")) {
+				throw new IllegalArgumentException("Unknown load setting: " + name);
+			}
+		}
+		Map<String, String> settings = new HashMap<>(DEFAULTS);
+		settings.putAll(values);
+		Map<LoadDriver.Operation, Integer> mix = new LinkedHashMap<>();
+		weights(settings.get("mix")).forEach((name, weight) -> mix.put(LoadDriver.Operation.of(name), weight));
+		Map<Integer, Integer> sizes = new LinkedHashMap<>();
+		weights(settings.get("sizes")).forEach((size, weight) -> sizes.put(Integer.parseInt(size), weight));
+		return new LoadConfig(settings.get("url"),
+				Integer.parseInt(settings.get("concurrency")),
+				Duration.parse(settings.get("warmup")),
+				Duration.parse(settings.get("duration")),
+				Integer.parseInt(settings.get("folders")),
+				Integer.parseInt(settings.get("files")),
+				mix, sizes,
+				Double.parseDouble(settings.get("density")),
+				Long.parseLong(settings.get("seed")),
+				Path.of(settings.getOrDefault("output", DEFAULT_OUTPUT)));
+	}
+
+	private static Map<String, Integer> weights(String list) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for (String pair : list.split(",")) {
+			String[] parts = pair.trim().split(":");
+			if (parts.length != 2 || Integer.parseInt(parts[1]) < 0) {
+				throw new IllegalArgumentException("Expected <key>:<weight>, got " + pair);
+			}
+			weights.put(parts[0], Integer.parseInt(parts[1]));
+		}
+		return weights;
+	}
+}
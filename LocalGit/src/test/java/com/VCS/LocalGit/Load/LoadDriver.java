@@ -0,0 +1,551 @@
+package com.VCS.LocalGit.Load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.VCS.LocalGit.LocalGitApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The LoadDriver class sends a mix of create, update, diff, merge and list requests to a running instance
+ * from a number of concurrent clients, and reports throughput and latency percentiles per operation.
+ * <p>
+ * Before the run it creates folders and pairs of files sharing their first version, so diffs and merges have
+ * history to work on. Each client sends its next request as soon as the previous one returns; latencies are
+ * therefore those seen by a fixed number of busy users, and a stall delays the requests queued behind it
+ * rather than showing up in every one of them.
+ * <p>
+ * The report is written as {@code load-report.json}, as the table {@code load-report.txt}, and as one HdrHistogram
+ * percentile distribution per operation ({@code <operation>.hgrm}, in milliseconds) that the HdrHistogram plotter
+ * can chart.
+ * <p>
+ * From the command line the driver loads the instance given by {@code --url}, or starts an embedded one:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.VCS.LocalGit.Load.LoadDriver
+ * -Dexec.args="--concurrency=16 --duration=PT60S"}. See {@link LoadConfig} for the settings.
+ */
+public class LoadDriver {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadDriver.class);
+
+	/**
+	 * Content of at least this many bytes is sent to the upload endpoints rather than as a form field,
+	 * which the container limits to 2 MB.
+	 */
+	private static final int FORM_CONTENT_LIMIT = 512 * 1024;
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+	private static final String[] WORDS = { "version", "content", "folder", "merge", "diff", "commit", "line",
+			"value", "return", "final", "static", "private", "string", "index", "result", "update" };
+
+	/**
+	 * The operations of the mix, by the name used in {@code load.mix}.
+	 */
+	public enum Operation {
+		CREATE("create"),
+		UPDATE("update"),
+		DIFF("diff"),
+		MERGE("merge"),
+		LIST_FILES("listFiles"),
+		LIST_VERSIONS("listVersions"),
+		LIST_FOLDERS("listFolders");
+
+		private final String key;
+
+		Operation(String key) {
+			this.key = key;
+		}
+
+		public String key() {
+			return key;
+		}
+
+		static Operation of(String key) {
+			for (Operation operation : values()) {
+				if (operation.key.equals(key)) {
+					return operation;
+				}
+			}
+			throw new IllegalArgumentException("Unknown operation: " + key);
+		}
+	}
+
+	/**
+	 * A file created by the driver, with the content it last sent for it.
+	 */
+	private static final class TrackedFile {
+
+		final long id;
+
+		final long folderId;
+
+		volatile List<String> lines;
+
+		volatile int versions;
+
+		TrackedFile(long id, long folderId, List<String> lines) {
+			this.id = id;
+			this.folderId = folderId;
+			this.lines = lines;
+			this.versions = 1;
+		}
+	}
+
+	/**
+	 * The outcome of a run.
+	 *
+	 * @param config the settings of the run
+	 * @param seconds the length of the measured window
+	 * @param latencies the latencies of the requests started in the window, in microseconds, by operation
+	 * @param errors the number of failed requests among them, by operation
+	 */
+	public record Report(LoadConfig config, double seconds, Map<Operation, Histogram> latencies,
+			Map<Operation, Long> errors) {
+
+		public long requests() {
+			return latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+		}
+
+		public long failures() {
+			return errors.values().stream().mapToLong(Long::longValue).sum();
+		}
+
+		/**
+		 * Writes {@code load-report.json}, {@code load-report.txt} and one {@code <operation>.hgrm} per operation
+		 * to a directory.
+		 *
+		 * @param directory the directory, created if missing
+		 * @throws IOException if a file cannot be written
+		 */
+		public void write(Path directory) throws IOException {
+			Files.createDirectories(directory);
+			Map<String, Object> operations = new LinkedHashMap<>();
+			for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+				Histogram histogram = entry.getValue();
+				operations.put(entry.getKey().key(), summary(histogram, errors.get(entry.getKey())));
+				try (PrintStream out = new PrintStream(
+						Files.newOutputStream(directory.resolve(entry.getKey().key() + ".hgrm")), false,
+						StandardCharsets.UTF_8)) {
+					histogram.outputPercentileDistribution(out, 1000.0);
+				}
+			}
+			Histogram total = new Histogram(3);
+			latencies.values().forEach(total::add);
+
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("concurrency", config.concurrency());
+			report.put("seconds", seconds);
+			report.put("total", summary(total, failures()));
+			report.put("operations", operations);
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+					.writeValue(directory.resolve("load-report.json").toFile(), report);
+			Files.writeString(directory.resolve("load-report.txt"), toString());
+		}
+
+		private Map<String, Object> summary(Histogram histogram, long errors) {
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("requests", histogram.getTotalCount());
+			summary.put("errors", errors);
+			summary.put("throughput", histogram.getTotalCount() / seconds);
+			Map<String, Object> latency = new LinkedHashMap<>();
+			latency.put("mean", histogram.getMean() / 1000.0);
+			latency.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+			latency.put("p90", histogram.getValueAtPercentile(90) / 1000.0);
+			latency.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+			latency.put("p999", histogram.getValueAtPercentile(99.9) / 1000.0);
+			latency.put("max", histogram.getMaxValue() / 1000.0);
+			summary.put("latencyMillis", latency);
+			return summary;
+		}
+
+		/**
+		 * Formats the report as a table, one line per operation.
+		 *
+		 * @return the table
+		 */
+		@Override
+		public String toString() {
+			StringBuilder table = new StringBuilder(String.format(Locale.ROOT, "%-13s %9s %7s %9s %9s %9s %9s%n",
+					"operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+			latencies.forEach((operation, histogram) -> table.append(String.format(Locale.ROOT,
+					"%-13s %9d %7d %9.1f %9.2f %9.2f %9.2f%n", operation.key(), histogram.getTotalCount(),
+					errors.get(operation), histogram.getTotalCount() / seconds,
+					histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+					histogram.getValueAtPercentile(99.9) / 1000.0)));
+			return table.toString();
+		}
+	}
+
+	private final LoadConfig config;
+
+	private final URI base;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final List<Long> folderIds = new ArrayList<>();
+
+	private final List<TrackedFile> files = Collections.synchronizedList(new ArrayList<>());
+
+	private final List<TrackedFile[]> pairs = new ArrayList<>();
+
+	private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+	private final Operation[] operations;
+
+	private final int[] operationWeights;
+
+	private final int[] sizes;
+
+	private final int[] sizeWeights;
+
+	private volatile boolean measuring;
+
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a driver for the instance at the given URL.
+	 *
+	 * @param config the settings of the run
+	 * @param url the base URL of the instance, such as {@code http://localhost:8080}
+	 */
+	public LoadDriver(LoadConfig config, String url) {
+		this.config = config;
+		this.base = URI.create(url.endsWith("/") ? url : url + "/");
+		this.operations = config.mix().keySet().toArray(Operation[]::new);
+		this.operationWeights = config.mix().values().stream().mapToInt(Integer::intValue).toArray();
+		this.sizes = config.sizes().keySet().stream().mapToInt(Integer::intValue).toArray();
+		this.sizeWeights = config.sizes().values().stream().mapToInt(Integer::intValue).toArray();
+		for (Operation operation : operations) {
+			latencies.put(operation, new ConcurrentHistogram(3));
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	/**
+	 * Creates the initial folders and files, warms the instance up, then measures for the configured duration.
+	 *
+	 * @return the report of the measured window
+	 * @throws Exception if the initial data cannot be created or a client fails unexpectedly
+	 */
+	public Report run() throws Exception {
+		SplittableRandom random = new SplittableRandom(config.seed());
+		populate(random);
+
+		ExecutorService clients = Executors.newFixedThreadPool(config.concurrency());
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < config.concurrency(); i++) {
+			SplittableRandom clientRandom = random.split();
+			futures.add(clients.submit(() -> {
+				client(clientRandom);
+				return null;
+			}));
+		}
+		Thread.sleep(config.warmup().toMillis());
+		long start = System.nanoTime();
+		measuring = true;
+		Thread.sleep(config.duration().toMillis());
+		measuring = false;
+		long end = System.nanoTime();
+		stopped = true;
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+
+		Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+		errors.forEach((operation, count) -> errorCounts.put(operation, count.sum()));
+		return new Report(config, (end - start) / 1e9, latencies, errorCounts);
+	}
+
+	private void populate(SplittableRandom random) throws IOException, InterruptedException {
+		for (int i = 0; i < config.folders(); i++) {
+			folderIds.add(json(send(post("folders/create", Map.of("name", "load-" + i)))).get("id").asLong());
+		}
+		for (int i = 0; i < Math.max(1, config.files() / 2); i++) {
+			long folderId = folderIds.get(i % folderIds.size());
+			List<String> lines = lines(random, size(random));
+			TrackedFile original = createFile(folderId, "file-" + i + ".txt", lines);
+			TrackedFile copy = createFile(folderId, "file-" + i + "-copy.txt", lines);
+			files.add(original);
+			files.add(copy);
+			pairs.add(new TrackedFile[] { original, copy });
+		}
+	}
+
+	private void client(SplittableRandom random) {
+		while (!stopped) {
+			Operation operation = operations[pick(random, operationWeights)];
+			boolean measured = measuring;
+			long start = System.nanoTime();
+			boolean ok;
+			try {
+				ok = execute(operation, random);
+			} catch (IOException e) {
+				ok = false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			long micros = (System.nanoTime() - start) / 1000;
+			if (measured) {
+				latencies.get(operation).recordValue(micros);
+				if (!ok) {
+					errors.get(operation).increment();
+				}
+			}
+		}
+	}
+
+	private boolean execute(Operation operation, SplittableRandom random) throws IOException, InterruptedException {
+		switch (operation) {
+		case CREATE -> {
+			long folderId = folderIds.get(random.nextInt(folderIds.size()));
+			files.add(createFile(folderId, "new-" + random.nextLong(Long.MAX_VALUE) + ".txt",
+					lines(random, size(random))));
+			return true;
+		}
+		case UPDATE -> {
+			TrackedFile file = randomFile(random);
+			List<String> lines = mutate(random, file.lines);
+			String content = join(lines);
+			HttpResponse<String> response = content.length() >= FORM_CONTENT_LIMIT
+					? send(upload("files/upload/" + file.id, content))
+					: send(post("files/update", Map.of("fileId", Long.toString(file.id), "content", content)));
+			file.lines = lines;
+			file.versions = json(response).get("versionCounter").asInt();
+			return true;
+		}
+		case DIFF -> {
+			TrackedFile file = randomFile(random);
+			int versions = file.versions;
+			return ok("files/diff?fileId=" + file.id + "&version1=" + (1 + random.nextInt(versions))
+					+ "&version2=" + versions + "&context=3");
+		}
+		case MERGE -> {
+			TrackedFile[] pair = pairs.get(random.nextInt(pairs.size()));
+			boolean forward = random.nextBoolean();
+			TrackedFile target = forward ? pair[0] : pair[1];
+			TrackedFile source = forward ? pair[1] : pair[0];
+			HttpResponse<String> response = send(post("files/merge", Map.of(
+					"targetFileId", Long.toString(target.id), "sourceFileId", Long.toString(source.id))));
+			target.versions = json(response).get("versionNumber").asInt();
+			return true;
+		}
+		case LIST_FILES -> {
+			return ok("files/list/" + randomFile(random).folderId);
+		}
+		case LIST_VERSIONS -> {
+			return ok("files/versions/" + randomFile(random).id + "?limit=20");
+		}
+		case LIST_FOLDERS -> {
+			return ok("folders/list");
+		}
+		default -> throw new IllegalStateException("Unexpected operation " + operation);
+		}
+	}
+
+	private TrackedFile createFile(long folderId, String name, List<String> lines)
+			throws IOException, InterruptedException {
+		String content = join(lines);
+		HttpRequest request = content.length() >= FORM_CONTENT_LIMIT
+				? upload("files/upload?folderId=" + folderId + "&name=" + encode(name), content)
+				: post("files/create", Map.of("folderId", Long.toString(folderId), "name", name, "content", content));
+		return new TrackedFile(json(send(request)).get("id").asLong(), folderId, lines);
+	}
+
+	private TrackedFile randomFile(SplittableRandom random) {
+		synchronized (files) {
+			return files.get(random.nextInt(files.size()));
+		}
+	}
+
+	private HttpRequest post(String path, Map<String, String> form) {
+		StringBuilder body = new StringBuilder();
+		form.forEach((name, value) -> body.append(body.isEmpty() ? "" : "&").append(name).append('=')
+				.append(encode(value)));
+		return HttpRequest.newBuilder(base.resolve(path))
+				.timeout(REQUEST_TIMEOUT)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+				.build();
+	}
+
+	private HttpRequest upload(String path, String content) {
+		return HttpRequest.newBuilder(base.resolve(path))
+				.timeout(REQUEST_TIMEOUT)
+				.header("Content-Type", "application/octet-stream")
+				.POST(HttpRequest.BodyPublishers.ofString(content))
+				.build();
+	}
+
+	/**
+	 * Sends a request whose response body is used, failing on any status other than 2xx.
+	 */
+	private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() / 100 != 2) {
+			throw new IOException(request.method() + " " + request.uri() + " returned " + response.statusCode());
+		}
+		return response;
+	}
+
+	/**
+	 * Sends a GET request, reading and discarding the response body.
+	 */
+	private boolean ok(String path) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(base.resolve(path)).timeout(REQUEST_TIMEOUT).GET().build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+	}
+
+	private JsonNode json(HttpResponse<String> response) throws IOException {
+		return mapper.readTree(response.body());
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private int size(SplittableRandom random) {
+		return sizes[pick(random, sizeWeights)];
+	}
+
+	private static int pick(SplittableRandom random, int[] weights) {
+		int total = 0;
+		for (int weight : weights) {
+			total += weight;
+		}
+		int value = random.nextInt(total);
+		for (int i = 0; i < weights.length; i++) {
+			value -= weights[i];
+			if (value < 0) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("No weights");
+	}
+
+	/**
+	 * Generates code-like lines adding up to about the given number of bytes.
+	 */
+	private static List<String> lines(SplittableRandom random, int bytes) {
+		List<String> lines = new ArrayList<>();
+		for (int length = 0; length < bytes;) {
+			String line = line(random);
+			lines.add(line);
+			length += line.length() + 1;
+		}
+		return lines;
+	}
+
+	private static String line(SplittableRandom random) {
+		StringBuilder line = new StringBuilder("    ".repeat(random.nextInt(4)));
+		int words = 3 + random.nextInt(8);
+		for (int i = 0; i < words; i++) {
+			line.append(WORDS[random.nextInt(WORDS.length)]).append(i + 1 < words ? ' ' : ';');
+		}
+		return line.append(' ').append(random.nextInt(1_000_000)).toString();
+	}
+
+	/**
+	 * Replaces, inserts or deletes about {@code density} of the lines, in runs of a few lines like real edits.
+	 */
+	private List<String> mutate(SplittableRandom random, List<String> lines) {
+		List<String> result = new ArrayList<>(lines.size() + 16);
+		int changes = Math.max(1, (int) (lines.size() * config.density() / 3));
+		double start = (double) changes / Math.max(1, lines.size());
+		int run = 0;
+		for (String line : lines) {
+			if (run == 0 && random.nextDouble() < start) {
+				run = 1 + random.nextInt(5);
+			}
+			if (run == 0) {
+				result.add(line);
+				continue;
+			}
+			run--;
+			switch (random.nextInt(3)) {
+			case 0 -> result.add(line(random));
+			case 1 -> {
+				result.add(line(random));
+				result.add(line);
+			}
+			default -> {
+			}
+			}
+		}
+		return result.isEmpty() ? List.of(line(random)) : result;
+	}
+
+	private static String join(List<String> lines) {
+		return String.join("\n", lines) + "\n";
+	}
+
+	/**
+	 * Runs the driver from the command line against {@code --url}, or against an embedded instance on a random
+	 * port, writes the report to the output directory and logs it.
+	 *
+	 * @param args {@code --<name>=<value>} settings, see {@link LoadConfig}
+	 * @throws Exception if the run fails
+	 */
+	public static void main(String[] args) throws Exception {
+		LoadConfig config = LoadConfig.fromArgs(args);
+		ConfigurableApplicationContext context = null;
+		String url = config.url();
+		if (url.isEmpty()) {
+			context = new SpringApplicationBuilder(LocalGitApplication.class)
+					.properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+							"logging.level.com.VCS.LocalGit.Load=INFO")
+					.run();
+			url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		}
+		try {
+			Report report = new LoadDriver(config, url).run();
+			report.write(config.output());
+			log.info("Load report written to {}\n{}", config.output().toAbsolutePath(), report);
+		} finally {
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.VCS.LocalGit.Load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Runs the {@link LoadDriver} against the application on a random port and writes its report.
+ * Tagged {@code load} and excluded from the default build; run it with {@code mvn -Pload test},
+ * passing settings as {@code -Dload.<name>=<value>} (see {@link LoadConfig}).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadTests {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadTests.class);
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void mixedTrafficCompletesWithoutErrors() throws Exception {
+		LoadConfig config = LoadConfig.fromSystemProperties();
+		LoadDriver.Report report = new LoadDriver(config, "http://localhost:" + port).run();
+		report.write(config.output());
+		log.info("Load report written to {}\n{}", config.output().toAbsolutePath(), report);
+
+		assertTrue(report.requests() > 0, "no requests completed");
+		assertEquals(0, report.failures(), "failed requests");
+	}
+}
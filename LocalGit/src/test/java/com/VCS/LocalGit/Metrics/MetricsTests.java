@@ -0,0 +1,107 @@
+package com.VCS.LocalGit.Metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Service.FileService;
+import com.VCS.LocalGit.Service.FolderService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Test
+	void fileUpdatesAreTimedAndTheirVersionSizesSummarised() {
+		File file = fileService.createFile(folderService.createFolder("metrics").getId(), "file.txt", "a\n");
+		long updates = timerCount("localgit.file.update");
+		long versions = summary("localgit.version.size").count();
+		double bytes = summary("localgit.version.size").totalAmount();
+
+		fileService.updateFile(file.getId(), "four\n");
+
+		assertEquals(updates + 1, timerCount("localgit.file.update"));
+		assertEquals(versions + 1, summary("localgit.version.size").count());
+		assertEquals(bytes + 5, summary("localgit.version.size").totalAmount());
+	}
+
+	@Test
+	void statementsOfStreamedBodiesCountTowardsTheirRequest() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("query-count").getId(), "file.txt", "a\n");
+		// the file head is cached now, so the history query runs only while the body is streamed
+		fileService.getFile(file.getId());
+		DistributionSummary queries = requestQueries("/files/versions/{fileId}");
+		long requests = queries == null ? 0 : queries.count();
+		double statements = queries == null ? 0 : queries.totalAmount();
+
+		mockMvc.perform(asyncDispatch(started(get("/files/versions/" + file.getId())))).andExpect(status().isOk());
+
+		queries = requestQueries("/files/versions/{fileId}");
+		assertEquals(requests + 1, queries.count());
+		assertTrue(queries.totalAmount() > statements, "no statement was counted");
+	}
+
+	@Test
+	void statementsOnTheHeavyTaskPoolCountTowardsTheirRequest() throws Exception {
+		File file = fileService.createFile(folderService.createFolder("async-query-count").getId(), "file.txt", "a\n");
+		fileService.updateFile(file.getId(), "b\n");
+		DistributionSummary queries = requestQueries("/files/diff/async");
+		long requests = queries == null ? 0 : queries.count();
+		double statements = queries == null ? 0 : queries.totalAmount();
+
+		MvcResult diff = mockMvc.perform(asyncDispatch(started(get("/files/diff/async")
+						.param("fileId", file.getId().toString()).param("version1", "1").param("version2", "2"))))
+				.andReturn();
+		mockMvc.perform(asyncDispatch(diff)).andExpect(status().isOk());
+
+		queries = requestQueries("/files/diff/async");
+		assertEquals(requests + 1, queries.count());
+		// the two version lookups of the diff, made on the pool thread
+		assertTrue(queries.totalAmount() >= statements + 2, "statements of the diff were not counted");
+	}
+
+	private MvcResult started(MockHttpServletRequestBuilder request) throws Exception {
+		return mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+	}
+
+	private long timerCount(String name) {
+		Timer timer = meterRegistry.find(name).timer();
+		return timer == null ? 0 : timer.count();
+	}
+
+	private DistributionSummary summary(String name) {
+		return meterRegistry.get(name).summary();
+	}
+
+	private DistributionSummary requestQueries(String uri) {
+		return meterRegistry.find("localgit.http.db.queries").tag("method", "GET").tag("uri", uri).summary();
+	}
+}
@@ -0,0 +1,73 @@
+package com.VCS.LocalGit.Search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTests {
+
+	@Test
+	void trigramsAreDistinctSortedAndCaseFolded() {
+		assertArrayEquals(new int[0], TrigramIndex.trigrams("ab"));
+		assertArrayEquals(TrigramIndex.trigrams("abcabc"), TrigramIndex.trigrams("ABCabc"));
+		assertEquals(3, TrigramIndex.trigrams("abcabc").length);
+		int[] trigrams = TrigramIndex.trigrams("the quick brown fox");
+		for (int i = 1; i < trigrams.length; i++) {
+			assertTrue(trigrams[i - 1] < trigrams[i]);
+		}
+	}
+
+	@Test
+	void differenceKeepsTrigramsInExactlyOneSet() {
+		assertArrayEquals(new int[] {1, 4, 5}, TrigramIndex.difference(new int[] {1, 2, 3}, new int[] {2, 3, 4, 5}));
+		assertArrayEquals(new int[0], TrigramIndex.difference(new int[] {7}, new int[] {7}));
+	}
+
+	@Test
+	void candidatesAreTheVersionRangesHoldingEveryTrigram() {
+		TrigramIndex index = new TrigramIndex();
+		index(index, 1, "hello world", "goodbye world", "hello again", "hello again!");
+		index(index, 2, "nothing here", "say hello");
+
+		assertEquals(List.of(new TrigramIndex.Candidate(1, 1, 2), new TrigramIndex.Candidate(1, 3, Integer.MAX_VALUE),
+				new TrigramIndex.Candidate(2, 2, Integer.MAX_VALUE)), index.candidates("hello", id -> true));
+		assertEquals(List.of(new TrigramIndex.Candidate(1, 1, 3)), index.candidates("world", id -> true));
+		assertEquals(List.of(new TrigramIndex.Candidate(2, 2, Integer.MAX_VALUE)), index.candidates("HELLO", id -> id == 2));
+		assertEquals(List.of(), index.candidates("absent", id -> true));
+		assertThrows(IllegalArgumentException.class, () -> index.candidates("he", id -> true));
+	}
+
+	@Test
+	void recordingTheSameTogglesTwiceHasNoEffect() {
+		TrigramIndex index = new TrigramIndex();
+		index(index, 1, "hello", "bye");
+		index(index, 1, "hello", "bye");
+		assertEquals(List.of(new TrigramIndex.Candidate(1, 1, 2)), index.candidates("hello", id -> true));
+	}
+
+	@Test
+	void versionsCanBeIndexedInAnyOrder() {
+		TrigramIndex index = new TrigramIndex();
+		String[] contents = {"alpha", "beta", "alpha beta"};
+		for (int version = contents.length; version >= 1; version--) {
+			int[] previous = version == 1 ? new int[0] : TrigramIndex.trigrams(contents[version - 2]);
+			index.toggle(1, version, TrigramIndex.difference(previous, TrigramIndex.trigrams(contents[version - 1])));
+		}
+		assertEquals(List.of(new TrigramIndex.Candidate(1, 1, 2), new TrigramIndex.Candidate(1, 3, Integer.MAX_VALUE)),
+				index.candidates("alpha", id -> true));
+	}
+
+	private static void index(TrigramIndex index, long fileId, String... versions) {
+		int[] previous = new int[0];
+		for (int i = 0; i < versions.length; i++) {
+			int[] current = TrigramIndex.trigrams(versions[i]);
+			index.toggle(fileId, i + 1, TrigramIndex.difference(previous, current));
+			previous = current;
+		}
+	}
+}
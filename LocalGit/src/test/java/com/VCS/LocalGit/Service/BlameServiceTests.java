@@ -0,0 +1,80 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Diff.Blame;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Storage.ContentStore;
+
+@SpringBootTest
+class BlameServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private BlameService blameService;
+
+	@Autowired
+	private FileRepository fileRepository;
+
+	@Autowired
+	private ContentStore contentStore;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void blameIsCarriedAcrossEditsAndUploads() throws IOException {
+		Folder folder = folderService.createFolder("blame");
+		File file = fileService.createFile(folder.getId(), "blame.txt", "one\ntwo\nthree\n");
+		fileService.updateFile(file.getId(), "one\nTWO\nthree\nfour\n");
+		fileService.updateFile(file.getId(), new ByteArrayInputStream("zero\none\nTWO\nthree\nfour\n".getBytes(StandardCharsets.UTF_8)));
+		fileService.updateFile(file.getId(), "zero\none\nTWO\nfour\n");
+
+		assertArrayEquals(new int[] {1, 1, 1}, blame(file, 1).origins(1, 3));
+		assertArrayEquals(new int[] {1, 2, 1, 2}, blame(file, 2).origins(1, 4));
+		assertArrayEquals(new int[] {3, 1, 2, 1, 2}, blame(file, 3).origins(1, 5));
+		Blame latest = blame(file, 4);
+		assertEquals(4, latest.lineCount());
+		assertArrayEquals(new int[] {3, 1, 2, 2}, latest.origins(1, 4));
+	}
+
+	@Test
+	void blameIsOnlyWrittenOnceItsVersionIsAllocated() {
+		Folder folder = folderService.createFolder("blame-pending");
+		File created = fileService.createFile(folder.getId(), "blame.txt", "one\n");
+		File file = fileRepository.findById(created.getId()).orElseThrow();
+
+		// racing commits derive the same blame; writing it before the version counter fails the loser on the blob
+		BlameService.Pending pending = blameService.record(file, null, "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n11\n12\n13\n");
+		assertEquals(pending.hash(), file.getBlameHash());
+		assertFalse(contentStore.exists(pending.hash()));
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> blameService.store(pending));
+		assertTrue(contentStore.exists(pending.hash()));
+		assertEquals(13, Blame.parse(contentStore.loadBytes(pending.hash())).lineCount());
+	}
+
+	private Blame blame(File file, int versionNumber) {
+		return fileService.getBlame(fileService.getFileVersion(file.getId(), versionNumber));
+	}
+}
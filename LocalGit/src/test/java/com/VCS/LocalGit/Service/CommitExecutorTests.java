@@ -0,0 +1,55 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest
+class CommitExecutorTests {
+
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void lostRacesAreRetried() {
+		assertEquals(MAX_ATTEMPTS, attempts(new OptimisticLockingFailureException("stale file")));
+		assertEquals(MAX_ATTEMPTS, attempts(violation(ConstraintViolationException.ConstraintKind.UNIQUE)));
+	}
+
+	@Test
+	void otherIntegrityViolationsFailOnTheFirstAttempt() {
+		assertEquals(1, attempts(violation(ConstraintViolationException.ConstraintKind.OTHER)));
+		assertEquals(1, attempts(new DataIntegrityViolationException("value too long")));
+	}
+
+	/**
+	 * Runs a commit that always fails with the given exception, and returns how many times it ran.
+	 */
+	private int attempts(RuntimeException failure) {
+		CommitExecutor executor = new CommitExecutor(transactionManager, MAX_ATTEMPTS);
+		AtomicInteger attempts = new AtomicInteger();
+		RuntimeException thrown = assertThrows(RuntimeException.class, () -> executor.execute(() -> {
+			attempts.incrementAndGet();
+			throw failure;
+		}));
+		assertEquals(failure, thrown);
+		return attempts.get();
+	}
+
+	private static DataIntegrityViolationException violation(ConstraintViolationException.ConstraintKind kind) {
+		return new DataIntegrityViolationException("constraint violated", new ConstraintViolationException(
+				"constraint violated", new SQLException("constraint violated"), kind, "constraint"));
+	}
+}
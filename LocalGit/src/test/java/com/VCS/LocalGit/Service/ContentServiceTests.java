@@ -0,0 +1,97 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+
+@SpringBootTest(properties = {"localgit.storage.keyframe-interval=3", "localgit.storage.chunk-size=1024",
+		"localgit.storage.cache-max-chars=0", "localgit.storage.line-index-min-size=1024",
+		"localgit.storage.line-index-interval=8"})
+class ContentServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private VersionService versionService;
+
+	@Test
+	void textVersionAfterAChunkedUploadIsAKeyframe() throws IOException {
+		Folder folder = folderService.createFolder("chunked");
+		File file = fileService.createFile(folder.getId(), "chunked.txt", numberedLines(0, 10));
+		byte[] upload = numberedLines(0, 1000).getBytes(StandardCharsets.UTF_8);
+		fileService.updateFile(file.getId(), new ByteArrayInputStream(upload));
+		String edited = numberedLines(0, 999) + "last\n";
+		fileService.updateFile(file.getId(), edited);
+
+		VersionMetadata uploaded = fileService.getFileVersion(file.getId(), 2);
+		assertNotNull(uploaded.manifestHash());
+		assertEquals(upload.length, uploaded.size());
+		ByteArrayOutputStream download = new ByteArrayOutputStream();
+		fileService.transferContent(uploaded, 0, Long.MAX_VALUE, Channels.newChannel(download));
+		assertArrayEquals(upload, download.toByteArray());
+
+		VersionMetadata next = fileService.getFileVersion(file.getId(), 3);
+		assertNull(next.deltaHash());
+		assertEquals(edited, versionService.getContent(next));
+	}
+
+	@Test
+	void lineRangesAreCutFromIndexedAndUnindexedVersions() throws IOException {
+		Folder folder = folderService.createFolder("lines");
+		File file = fileService.createFile(folder.getId(), "lines.txt", numberedLines(0, 500));
+		fileService.updateFile(file.getId(), numberedLines(0, 499) + "last");
+		fileService.updateFile(file.getId(), new ByteArrayInputStream(numberedLines(0, 1000).getBytes(StandardCharsets.UTF_8)));
+		File small = fileService.createFile(folder.getId(), "small.txt", numberedLines(0, 5));
+
+		VersionMetadata keyframe = fileService.getFileVersion(file.getId(), 1);
+		VersionMetadata delta = fileService.getFileVersion(file.getId(), 2);
+		VersionMetadata chunked = fileService.getFileVersion(file.getId(), 3);
+		assertNotNull(keyframe.lineIndexHash());
+		assertNotNull(delta.deltaHash());
+		assertNotNull(chunked.manifestHash());
+		assertNull(fileService.getFileVersion(small.getId(), 1).lineIndexHash());
+
+		assertLines(keyframe, 1, 1, "line 0\n", 500);
+		assertLines(keyframe, 100, 103, numberedLines(99, 103), 500);
+		assertLines(keyframe, 495, 900, numberedLines(494, 500), 500);
+		assertLines(keyframe, 501, 600, "", 500);
+		assertLines(delta, 498, 500, "line 497\nline 498\nlast", 500);
+		assertLines(chunked, 700, 760, numberedLines(699, 760), 1000);
+		assertLines(fileService.getFileVersion(small.getId(), 1), 2, 3, numberedLines(1, 3), 5);
+		assertEquals(1000, fileService.getLineCount(chunked));
+	}
+
+	private void assertLines(VersionMetadata version, int from, int to, String expected, int lineCount) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(lineCount, fileService.transferLines(version, from, to, Channels.newChannel(out)));
+		assertEquals(expected, out.toString(StandardCharsets.UTF_8), from + "-" + to);
+		assertEquals(lineCount, fileService.getLineCount(version));
+	}
+
+	private static String numberedLines(int from, int to) {
+		StringBuilder text = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,104 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.VCS.LocalGit.Diff.Edit;
+import com.VCS.LocalGit.Dto.CacheStatistics;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Repository.VersionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class DiffServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private VersionService versionService;
+
+	@Autowired
+	private VersionRepository versionRepository;
+
+	@Test
+	void repeatedContentPairsHitTheCacheWhateverTheirVersionNumbers() {
+		DiffService diffService = newDiffService(Duration.ofSeconds(10), 1 << 20);
+		File file = fileService.createFile(folderService.createFolder("diff-cache").getId(), "file.txt", "a\nb\n");
+		fileService.updateFile(file.getId(), "a\nc\n");
+		fileService.updateFile(file.getId(), "a\nb\n");
+		fileService.updateFile(file.getId(), "a\nc\n");
+
+		List<Edit> first = diffService.diff(file.getId(), 1, 2, 3).getEdits();
+		assertStatistics(diffService, 0, 1);
+		assertEquals(first, diffService.diff(file.getId(), 1, 2, 3).getEdits());
+		assertStatistics(diffService, 1, 1);
+
+		// versions 3 and 4 repeat the content of versions 1 and 2
+		diffService.diff(file.getId(), 3, 4, 3);
+		assertStatistics(diffService, 2, 1);
+		diffService.diff(file.getId(), 2, 3, 3);
+		assertStatistics(diffService, 2, 2);
+		assertEquals(2, diffService.getCacheStatistics().getSize());
+	}
+
+	@Test
+	void entriesAreEvictedByTheWeightOfTheirEdits() throws InterruptedException {
+		// room for one diff of one edit, weighing 64 bytes, but not for two
+		DiffService diffService = newDiffService(Duration.ofSeconds(10), 96);
+		File file = fileService.createFile(folderService.createFolder("diff-eviction").getId(), "file.txt", "a\n");
+		fileService.updateFile(file.getId(), "b\n");
+		fileService.updateFile(file.getId(), "c\n");
+
+		diffService.diff(file.getId(), 1, 2, 3);
+		diffService.diff(file.getId(), 2, 3, 3);
+
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (diffService.getCacheStatistics().getEvictions() == 0) {
+			assertTrue(System.nanoTime() < deadline, "nothing was evicted");
+			Thread.sleep(10);
+		}
+		assertEquals(1, diffService.getCacheStatistics().getEvictions());
+		assertEquals(1, diffService.getCacheStatistics().getSize());
+	}
+
+	@Test
+	void editsCoarsenedByTheTimeBudgetAreNotCached() {
+		DiffService diffService = newDiffService(Duration.ZERO, 1 << 20);
+		File file = fileService.createFile(folderService.createFolder("diff-budget").getId(), "file.txt",
+				"p\na\nb\nc\ns\n");
+		fileService.updateFile(file.getId(), "p\nc\nb\na\ns\n");
+
+		diffService.diff(file.getId(), 1, 2, 3);
+		diffService.diff(file.getId(), 1, 2, 3);
+		assertStatistics(diffService, 0, 2);
+		assertEquals(0, diffService.getCacheStatistics().getSize());
+	}
+
+	private DiffService newDiffService(Duration timeBudget, long cacheMaxBytes) {
+		DiffService diffService = new DiffService(new SimpleMeterRegistry(), "histogram", 1000000, timeBudget,
+				cacheMaxBytes, Duration.ofMinutes(30));
+		ReflectionTestUtils.setField(diffService, "versionRepository", versionRepository);
+		ReflectionTestUtils.setField(diffService, "versionService", versionService);
+		return diffService;
+	}
+
+	private static void assertStatistics(DiffService diffService, long hits, long misses) {
+		CacheStatistics statistics = diffService.getCacheStatistics();
+		assertEquals(hits, statistics.getHits(), "hits");
+		assertEquals(misses, statistics.getMisses(), "misses");
+	}
+}
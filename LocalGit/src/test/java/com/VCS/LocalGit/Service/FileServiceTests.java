@@ -0,0 +1,173 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FileUpdate;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Metrics.QueryCounter;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
+
+@SpringBootTest
+class FileServiceTests {
+
+	private static final int THREADS = 8;
+
+	private static final int UPDATES_PER_THREAD = 5;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FolderCommitService folderCommitService;
+
+	@Autowired
+	private FileRepository fileRepository;
+
+	@Autowired
+	private VersionRepository versionRepository;
+
+	@Test
+	void bulkUpdateWritesItsRowsInBatches() {
+		int small = bulkUpdateStatements(10);
+		int large = bulkUpdateStatements(30);
+
+		// Each file adds its own lookups (content, delta and blame existence, previous blame), but its four rows
+		// (delta and blame blobs, version, file) join the batches of the others; written one by one, they would
+		// bring each file well over five statements.
+		assertTrue(large - small < 20 * 5, small + " statements for 10 files, " + large + " for 30");
+	}
+
+	@Test
+	void bulkUpdateIsAllOrNothing() {
+		Long folderId = folderService.createFolder("bulk-rollback").getId();
+		File first = fileService.createFile(folderId, "first.txt", "one\n");
+		File second = fileService.createFile(folderId, "second.txt", "one\n");
+
+		List<FileUpdate> updates = List.of(new FileUpdate(first.getId(), "two\n"),
+				new FileUpdate(second.getId(), "two\n"), new FileUpdate(Long.MAX_VALUE, "two\n"));
+		assertThrows(NoSuchElementException.class, () -> fileService.bulkUpdateFiles(updates));
+
+		for (File file : List.of(first, second)) {
+			assertEquals(1, fileRepository.findById(file.getId()).orElseThrow().getVersionCounter());
+			assertEquals(1, versionRepository.findByFileIdOrderByVersionNumberDesc(file.getId()).size());
+		}
+		assertEquals(2, folderCommitService.listCommits(folderId, null, 10).size());
+	}
+
+	@Test
+	void bulkUpdatesRacingSingleUpdatesAreRetried() throws Exception {
+		Long folderId = folderService.createFolder("bulk-race").getId();
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			files.add(fileService.createFile(folderId, "file-" + i + ".txt", "initial\n"));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+					String content = "thread " + thread + " update " + i + "\n";
+					if (thread % 2 == 0) {
+						// every bulk update touches all files, so it conflicts with every other commit
+						fileService.bulkUpdateFiles(files.stream().map(file -> new FileUpdate(file.getId(), content))
+								.toList());
+					} else {
+						fileService.updateFile(files.get(i % files.size()).getId(), content);
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(2, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		int singleUpdates = (THREADS / 2) * UPDATES_PER_THREAD;
+		int bulkUpdates = (THREADS / 2) * UPDATES_PER_THREAD;
+		int versions = 0;
+		for (File file : files) {
+			int counter = fileRepository.findById(file.getId()).orElseThrow().getVersionCounter();
+			assertEquals(counter, versionRepository.findByFileIdOrderByVersionNumberDesc(file.getId()).size());
+			versions += counter - 1;
+		}
+		assertEquals(singleUpdates + bulkUpdates * files.size(), versions);
+	}
+
+	@Test
+	void fileListingsAreProjectedWithOneStatementWhateverTheFileCount() {
+		for (int fileCount : new int[] {2, 20}) {
+			Long folderId = folderService.createFolder("listing-" + fileCount).getId();
+			List<File> files = new ArrayList<>();
+			for (int i = 0; i < fileCount; i++) {
+				files.add(fileService.createFile(folderId, "file-" + i + ".txt", "one\n"));
+			}
+			fileService.updateFile(files.get(0).getId(), "two\n");
+
+			QueryCounter.Count count = new QueryCounter.Count();
+			QueryCounter.Count previous = QueryCounter.bind(count);
+			List<FileSummary> listing;
+			try {
+				listing = fileService.listFiles(folderId);
+			} finally {
+				QueryCounter.bind(previous);
+			}
+
+			assertEquals(1, count.get(), fileCount + " files");
+			assertEquals(fileCount, listing.size());
+			for (int i = 0; i < fileCount; i++) {
+				FileSummary summary = listing.get(i);
+				assertEquals(files.get(i).getId(), summary.getId());
+				assertEquals("file-" + i + ".txt", summary.getName());
+				assertEquals(folderId, summary.getFolderId());
+				assertEquals(i == 0 ? 2 : 1, summary.getVersionCounter());
+				assertEquals(fileService.getLatestVersion(summary.getId()).contentHash(), summary.getContentHash());
+			}
+		}
+	}
+
+	private int bulkUpdateStatements(int fileCount) {
+		Long folderId = folderService.createFolder("bulk-" + fileCount).getId();
+		List<FileUpdate> updates = new ArrayList<>();
+		for (int i = 0; i < fileCount; i++) {
+			Long fileId = fileService.createFile(folderId, "file-" + i + ".txt", "initial\n").getId();
+			updates.add(new FileUpdate(fileId, "file " + i + " of " + fileCount + "\n"));
+		}
+		QueryCounter.Count count = new QueryCounter.Count();
+		QueryCounter.Count previous = QueryCounter.bind(count);
+		List<FileSummary> updated;
+		try {
+			updated = fileService.bulkUpdateFiles(updates);
+		} finally {
+			QueryCounter.bind(previous);
+		}
+		assertEquals(fileCount, updated.size());
+		updated.forEach(file -> assertEquals(2, file.getVersionCounter()));
+		return count.get();
+	}
+}
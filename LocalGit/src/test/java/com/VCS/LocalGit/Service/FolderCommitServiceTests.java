@@ -0,0 +1,106 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Entity.FolderCommit;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.FolderRepository;
+
+@SpringBootTest
+class FolderCommitServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FolderCommitService folderCommitService;
+
+	@Autowired
+	private FileRepository fileRepository;
+
+	@Autowired
+	private FolderRepository folderRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void folderCommitIsMadeInTheTransactionOfItsVersions() {
+		Folder folder = folderService.createFolder("atomic");
+		File first = fileService.createFile(folder.getId(), "first.txt", "one\n");
+		File second = fileService.createFile(folder.getId(), "second.txt", "one\n");
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			fileService.updateFile(first.getId(), "two\n");
+			fileService.updateFile(second.getId(), "two\n");
+			// nothing is committed yet, so the folder has no commit for the update either
+			assertEquals(2, folderCommitService.listCommits(folder.getId(), null, 10).size());
+		});
+
+		List<FolderCommit> commits = folderCommitService.listCommits(folder.getId(), null, 10);
+		assertEquals(3, commits.size());
+		assertEquals(2, commits.get(0).getChangedFiles());
+		assertEquals(2, commits.get(0).getFileCount());
+	}
+
+	@Test
+	void rolledBackVersionsLeaveNoFolderCommit() {
+		Folder folder = folderService.createFolder("rolled-back");
+		File file = fileService.createFile(folder.getId(), "file.txt", "one\n");
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+			fileService.updateFile(file.getId(), "two\n");
+			throw new IllegalStateException("rolled back");
+		}));
+
+		assertEquals(1, fileRepository.findById(file.getId()).orElseThrow().getVersionCounter());
+		List<FolderCommit> commits = folderCommitService.listCommits(folder.getId(), null, 10);
+		assertEquals(1, commits.size());
+
+		fileService.updateFile(file.getId(), "three\n");
+		FolderCommit head = folderCommitService.listCommits(folder.getId(), null, 1).get(0);
+		assertEquals(2, head.getCommitNumber());
+		folderCommitService.forEachFile(head, entry -> assertEquals(2, entry.versionNumber()));
+	}
+
+	@Test
+	void savingAFolderLoadedBeforeAFolderCommitKeepsItsCommitNumber() {
+		Folder folder = folderService.createFolder("renamed");
+		File file = fileService.createFile(folder.getId(), "file.txt", "one\n");
+
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			Folder stale = folderRepository.findById(folder.getId()).orElseThrow();
+			try {
+				CompletableFuture.runAsync(() -> fileService.updateFile(file.getId(), "two\n")).get(1, TimeUnit.MINUTES);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			stale.setName("renamed-again");
+		});
+		fileService.updateFile(file.getId(), "three\n");
+
+		// the stale folder row would otherwise have set the counter back, and the next commit would reuse number 2
+		List<FolderCommit> commits = folderCommitService.listCommits(folder.getId(), null, 10);
+		assertEquals(3, commits.size());
+		assertEquals(3, commits.get(0).getCommitNumber());
+	}
+}
@@ -0,0 +1,104 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Repository.FolderRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {"localgit.reaper.enabled=false", "localgit.reaper.batch-size=3"})
+class FolderReaperTests {
+
+	@Autowired
+	private FolderReaper folderReaper;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FolderRepository folderRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void deletedFolderIsHiddenAtOnceAndReclaimedInBatches() {
+		Folder deleted = folderService.createFolder("reaped");
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			File file = fileService.createFile(deleted.getId(), "file-" + i + ".txt", "first\n");
+			fileService.updateFile(file.getId(), "second\n");
+			fileService.updateFile(file.getId(), "third\n");
+			files.add(file);
+		}
+		Folder kept = folderService.createFolder("kept");
+		File keptFile = fileService.createFile(kept.getId(), "kept.txt", "kept\n");
+		double versionsBefore = reclaimed("version");
+
+		folderService.deleteFolder(deleted.getId());
+
+		// tombstoned: gone from every query, while the rows are still there
+		assertTrue(folderRepository.findById(deleted.getId()).isEmpty());
+		assertFalse(folderService.listFolders().stream().anyMatch(folder -> folder.getId().equals(deleted.getId())));
+		assertTrue(fileService.listFiles(deleted.getId()).isEmpty());
+		assertThrows(NoSuchElementException.class, () -> fileService.getLatestVersion(files.get(0).getId()));
+		assertThrows(NoSuchElementException.class, () -> fileService.updateFile(files.get(0).getId(), "fourth\n"));
+		assertEquals(12, rows("version v join file f on v.file_id = f.id where f.folder_id = ?", deleted.getId()));
+		assertEquals(12, rows("folder_commit where folder_id = ?", deleted.getId()));
+
+		// 12 versions and 12 commits fill every batch of 3, so the last batch comes out empty; 4 files do not
+		assertEquals(1, folderReaper.reap());
+
+		assertEquals(0, rows("version v join file f on v.file_id = f.id where f.folder_id = ?", deleted.getId()));
+		assertEquals(0, rows("folder_commit where folder_id = ?", deleted.getId()));
+		assertEquals(0, rows("file where folder_id = ?", deleted.getId()));
+		assertEquals(0, rows("folder where id = ?", deleted.getId()));
+		assertEquals(12, reclaimed("version") - versionsBefore);
+
+		// other folders are untouched, and there is nothing left to reclaim
+		assertEquals(1, fileService.getLatestVersion(keptFile.getId()).versionNumber());
+		assertEquals(1, rows("folder_commit where folder_id = ?", kept.getId()));
+		assertEquals(0, folderReaper.reap());
+	}
+
+	@Test
+	void deletingAFolderTwiceIsHarmless() {
+		Folder folder = folderService.createFolder("twice");
+		fileService.createFile(folder.getId(), "file.txt", "content\n");
+
+		folderService.deleteFolder(folder.getId());
+		folderService.deleteFolder(folder.getId());
+
+		assertEquals(1, folderReaper.reap());
+		folderService.deleteFolder(folder.getId());
+		assertEquals(0, folderReaper.reap());
+	}
+
+	private long rows(String from, Long id) {
+		return jdbcTemplate.queryForObject("select count(*) from " + from, Long.class, id);
+	}
+
+	private double reclaimed(String table) {
+		return meterRegistry.get("localgit.reaper.rows").tag("table", table).counter().count();
+	}
+}
@@ -0,0 +1,58 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.FolderSummary;
+import com.VCS.LocalGit.Metrics.QueryCounter;
+
+@SpringBootTest
+class FolderServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Test
+	void folderListingCountsFilesWithOneStatementWhateverTheFolderCount() {
+		Long empty = folderService.createFolder("listing-empty").getId();
+		Long small = folderService.createFolder("listing-small").getId();
+		Long large = folderService.createFolder("listing-large").getId();
+		fileService.createFile(small, "file.txt", "one\n");
+		for (int i = 0; i < 20; i++) {
+			fileService.createFile(large, "file-" + i + ".txt", "one\n");
+		}
+		Long deleted = folderService.createFolder("listing-deleted").getId();
+		fileService.createFile(deleted, "file.txt", "one\n");
+		folderService.deleteFolder(deleted);
+
+		QueryCounter.Count count = new QueryCounter.Count();
+		QueryCounter.Count previous = QueryCounter.bind(count);
+		List<FolderSummary> listing;
+		try {
+			listing = folderService.listFolders();
+		} finally {
+			QueryCounter.bind(previous);
+		}
+
+		assertEquals(1, count.get());
+		Map<Long, FolderSummary> folders = listing.stream()
+				.collect(Collectors.toMap(FolderSummary::getId, Function.identity()));
+		assertEquals(0, folders.get(empty).getFileCount());
+		assertEquals(1, folders.get(small).getFileCount());
+		assertEquals(20, folders.get(large).getFileCount());
+		assertEquals("listing-large", folders.get(large).getName());
+		assertFalse(folders.containsKey(deleted));
+	}
+}
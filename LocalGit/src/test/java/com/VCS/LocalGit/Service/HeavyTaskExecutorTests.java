@@ -0,0 +1,66 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HeavyTaskExecutorTests {
+
+	@Test
+	void rejectsWorkOnceThreadsAndQueueAreFull() throws Exception {
+		HeavyTaskExecutor executor = new HeavyTaskExecutor(new SimpleMeterRegistry(), 1, 1);
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			CompletableFuture<String> running = executor.submit(() -> {
+				started.countDown();
+				await(release);
+				return "running";
+			});
+			started.await(10, TimeUnit.SECONDS);
+			CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+			assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "rejected"));
+
+			release.countDown();
+			assertEquals("running", running.get(10, TimeUnit.SECONDS));
+			assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+			assertEquals("accepted", executor.submit(() -> "accepted").get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void failuresCompleteTheFutureExceptionally() {
+		HeavyTaskExecutor executor = new HeavyTaskExecutor(new SimpleMeterRegistry(), 1, 1);
+		try {
+			CompletableFuture<String> failed = executor.submit(() -> {
+				throw new NoSuchElementException("missing");
+			});
+			ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+			assertInstanceOf(NoSuchElementException.class, e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
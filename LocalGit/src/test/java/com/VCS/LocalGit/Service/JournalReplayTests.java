@@ -0,0 +1,139 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Repository.FolderCommitRepository;
+import com.VCS.LocalGit.Storage.CommitJournal;
+
+@SpringBootTest(properties = {"localgit.journal.enabled=true", "localgit.journal.fsync=false",
+		"localgit.journal.group-commit-delay=PT0S"})
+class JournalReplayTests {
+
+	private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+
+	@TempDir
+	static Path dir;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private ContentService contentService;
+
+	@Autowired
+	private JournalService journalService;
+
+	@Autowired
+	private FolderCommitRepository folderCommitRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void journalPath(DynamicPropertyRegistry registry) {
+		registry.add("localgit.journal.path", () -> dir.resolve("commits.log").toString());
+	}
+
+	/**
+	 * Writes the journal the application replays at startup: a folder with a text file of two versions, created
+	 * in two transactions, and an uploaded file whose content is the body of the last frame.
+	 */
+	@BeforeAll
+	static void writeJournal() throws IOException {
+		try (CommitJournal journal = CommitJournal.open(dir.resolve("commits.log"), Duration.ZERO, 256, false,
+				(frames, syncNanos) -> {
+				})) {
+			journal.start();
+			write(journal, """
+					{"entries":[{"type":"FOLDER_CREATED","folderId":5,"name":"restored"},
+					{"type":"FILE_CREATED","folderId":5,"fileId":7,"name":"text.txt"},
+					{"type":"VERSION_CREATED","fileId":7,"versionNumber":1,"content":"one\\n","timestamp":"%s"}]}
+					""".formatted(TIMESTAMP), null);
+			write(journal, """
+					{"entries":[{"type":"VERSION_CREATED","fileId":7,"versionNumber":2,"content":"two\\n","timestamp":"%s"}]}
+					""".formatted(TIMESTAMP), null);
+			write(journal, """
+					{"entries":[{"type":"FILE_CREATED","folderId":5,"fileId":9,"name":"upload.txt"},
+					{"type":"VERSION_CREATED","fileId":9,"versionNumber":1,"length":9,"timestamp":"%s"}]}
+					""".formatted(TIMESTAMP), "uploaded\n");
+		}
+	}
+
+	@Test
+	void replaysTextAndUploadedVersions() {
+		VersionMetadata first = fileService.getFileVersion(7L, 1);
+		VersionMetadata second = fileService.getLatestVersion(7L);
+		assertEquals("one\n", contentService.getContent(first));
+		assertEquals(2, second.versionNumber());
+		assertEquals("two\n", contentService.getContent(second));
+		assertEquals(TIMESTAMP, second.timestamp());
+
+		VersionMetadata uploaded = fileService.getLatestVersion(9L);
+		assertEquals(1, uploaded.versionNumber());
+		assertEquals("uploaded\n", contentService.getContent(uploaded));
+		assertEquals(TIMESTAMP, uploaded.timestamp());
+
+		// the folder commits are rebuilt as when the versions were first committed
+		assertEquals(3, folderCommitRepository.findFirstByFolderIdOrderByCommitNumberDesc(5L).orElseThrow()
+				.getCommitNumber());
+	}
+
+	@Test
+	@DirtiesContext
+	void newCommitsFollowTheReplayedOnesUntilTheJournalStops() throws IOException {
+		Path path = dir.resolve("commits.log");
+		long replayed = Files.size(path);
+
+		// the ID sequences restart past the restored IDs
+		Folder folder = folderService.createFolder("after replay");
+		File file = fileService.createFile(folder.getId(), "new.txt", "new\n");
+		assertTrue(folder.getId() > 5, "folder " + folder.getId());
+		assertTrue(file.getId() > 9, "file " + file.getId());
+		assertTrue(Files.size(path) > replayed);
+
+		// a journal that accepts no frames rolls the commit back instead of leaving it unjournaled
+		journalService.shutdown();
+		assertThrows(UncheckedIOException.class, () -> folderService.createFolder("not journaled"));
+		assertThrows(UncheckedIOException.class, () -> fileService.updateFile(file.getId(), "newer\n"));
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from folder where name = ?", Long.class,
+				"not journaled"));
+		assertEquals(1, fileService.getLatestVersion(file.getId()).versionNumber());
+	}
+
+	private static void write(CommitJournal journal, String header, String body) throws IOException {
+		CommitJournal.Ticket ticket = journal.reserve();
+		if (body == null) {
+			ticket.submit(header.getBytes(StandardCharsets.UTF_8), 0, null);
+		} else {
+			byte[] content = body.getBytes(StandardCharsets.UTF_8);
+			ticket.submit(header.getBytes(StandardCharsets.UTF_8), content.length, out -> out.write(content));
+		}
+		ticket.awaitDurable();
+	}
+}
@@ -0,0 +1,26 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.SQLTimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.SQLExceptionOverride.Override;
+
+class LockTimeoutOverrideTests {
+
+	private final LockTimeoutOverride override = new LockTimeoutOverride();
+
+	@Test
+	void lockTimeoutsKeepTheirConnection() {
+		assertEquals(Override.DO_NOT_EVICT,
+				override.adjudicate(new SQLTimeoutException("Timeout trying to lock table", "HYT00", 50200)));
+	}
+
+	@Test
+	void otherTimeoutsAreLeftToThePool() {
+		assertEquals(Override.CONTINUE_EVICT,
+				override.adjudicate(new SQLTimeoutException("Statement was canceled", "57014", 57014)));
+	}
+}
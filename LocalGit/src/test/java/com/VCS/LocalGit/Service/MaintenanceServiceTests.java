@@ -0,0 +1,115 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Storage.ContentStore;
+
+@SpringBootTest(properties = "localgit.gc.max-bytes-per-second=0")
+class MaintenanceServiceTests {
+
+	@Autowired
+	private MaintenanceService maintenanceService;
+
+	@Autowired
+	private ContentStore contentStore;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void sweepsUnreferencedContentButKeepsPinnedAndHeldContent() throws InterruptedException {
+		Folder folder = folderService.createFolder("gc");
+		File file = fileService.createFile(folder.getId(), "kept.txt", "referenced content\n");
+		String referenced = fileService.getLatestVersion(file.getId()).contentHash();
+		String garbage = contentStore.store("unreferenced content\n");
+		String pinned = contentStore.store("pinned content\n");
+		String held = ContentStore.hash("held content\n");
+		maintenanceService.hold(held);
+		contentStore.store("held content\n");
+
+		// The run stops before its first deletion, so the pin is in place whatever the timing.
+		maintenanceService.pause();
+		assertTrue(maintenanceService.start());
+		maintenanceService.pin(pinned);
+		maintenanceService.resume();
+		awaitIdle();
+
+		assertTrue(contentStore.exists(referenced));
+		assertFalse(contentStore.exists(garbage));
+		assertTrue(contentStore.exists(pinned));
+		assertTrue(contentStore.exists(held));
+
+		// Once released and left unreferenced, held and pinned content goes with the next run.
+		maintenanceService.release(held);
+		assertTrue(maintenanceService.start());
+		awaitIdle();
+
+		assertTrue(contentStore.exists(referenced));
+		assertFalse(contentStore.exists(pinned));
+		assertFalse(contentStore.exists(held));
+		assertNull(maintenanceService.getStatus().getError());
+	}
+
+	@Test
+	void keepsContentFoundByAnUncommittedVersionUntilItsTransactionCompletes() throws InterruptedException {
+		Folder folder = folderService.createFolder("gc-holds");
+		String committed = contentStore.store("committed content\n");
+		String rolledBack = contentStore.store("rolled back content\n");
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		// Both contents are stored but unreferenced when the versions find them, and the runs start afterwards.
+		transaction.executeWithoutResult(status -> {
+			fileService.createFile(folder.getId(), "committed.txt", "committed content\n");
+			collectGarbage();
+		});
+		assertTrue(contentStore.exists(committed));
+
+		assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+			fileService.createFile(folder.getId(), "rolled-back.txt", "rolled back content\n");
+			collectGarbage();
+			assertTrue(contentStore.exists(rolledBack));
+			throw new IllegalStateException("rolled back");
+		}));
+		collectGarbage();
+		assertTrue(contentStore.exists(committed));
+		assertFalse(contentStore.exists(rolledBack));
+	}
+
+	private void collectGarbage() {
+		assertTrue(maintenanceService.start());
+		try {
+			awaitIdle();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+		assertNull(maintenanceService.getStatus().getError());
+	}
+
+	private void awaitIdle() throws InterruptedException {
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (maintenanceService.getStatus().getFinishedAt() == null
+				|| !maintenanceService.getStatus().getPhase().equals("IDLE")) {
+			assertTrue(System.nanoTime() < deadline, "garbage collection did not finish");
+			Thread.sleep(10);
+		}
+		assertEquals("IDLE", maintenanceService.getStatus().getPhase());
+	}
+}
@@ -0,0 +1,66 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.MergeResult;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+
+@SpringBootTest
+class MergeServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private VersionService versionService;
+
+	@Autowired
+	private MergeService mergeService;
+
+	@Test
+	void filesStartingFromTheSameContentMergeAgainstIt() {
+		Folder folder = folderService.createFolder("merge-shared");
+		File target = fileService.createFile(folder.getId(), "target.txt", "1\n2\n3\n");
+		File source = fileService.createFile(folder.getId(), "source.txt", "1\n2\n3\n");
+		fileService.updateFile(target.getId(), "T\n2\n3\n");
+		fileService.updateFile(source.getId(), "1\n2\nS\n");
+
+		MergeResult result = mergeService.mergeFiles(target.getId(), source.getId());
+
+		assertEquals(List.of(), result.getConflicts());
+		assertEquals("T\n2\nS\n", content(target));
+	}
+
+	@Test
+	void repeatMergeStartsFromThePreviouslyMergedVersion() {
+		Folder folder = folderService.createFolder("merge-repeat");
+		File target = fileService.createFile(folder.getId(), "target.txt", "1\n2\n3\n");
+		File source = fileService.createFile(folder.getId(), "source.txt", "1\n2\n3\n");
+		fileService.updateFile(target.getId(), "T\n2\n3\n");
+		fileService.updateFile(source.getId(), "1\n2\nS\n");
+		mergeService.mergeFiles(target.getId(), source.getId());
+
+		// Against the original content both sides changed the last line; against the merged
+		// source version only the source appended a line.
+		fileService.updateFile(target.getId(), "T\nx\nS\n");
+		fileService.updateFile(source.getId(), "1\n2\nS\nmore\n");
+		MergeResult result = mergeService.mergeFiles(target.getId(), source.getId());
+
+		assertEquals(List.of(), result.getConflicts());
+		assertEquals("T\nx\nS\nmore\n", content(target));
+	}
+
+	private String content(File file) {
+		return versionService.getContent(fileService.getLatestVersion(file.getId()));
+	}
+}
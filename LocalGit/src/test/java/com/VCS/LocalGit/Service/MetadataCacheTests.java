@@ -0,0 +1,186 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.VCS.LocalGit.Dto.FileSummary;
+import com.VCS.LocalGit.Dto.FolderSummary;
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Version;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MetadataCacheTests {
+
+	private static final long FOLDER_ID = 1;
+
+	private static final long FILE_ID = 10;
+
+	private final MetadataCache cache = new MetadataCache(new SimpleMeterRegistry(), 100, 100, 1000);
+
+	/**
+	 * Runs the synchronizations of the caches' transactions without a database.
+	 */
+	private final TransactionTemplate transaction = new TransactionTemplate(new AbstractPlatformTransactionManager() {
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+	});
+
+	private final AtomicInteger headLoads = new AtomicInteger();
+
+	private final AtomicInteger listingLoads = new AtomicInteger();
+
+	private final AtomicInteger folderLoads = new AtomicInteger();
+
+	private final AtomicInteger versionLoads = new AtomicInteger();
+
+	@Test
+	void committedVersionInvalidatesTheFileAfterTheCommit() {
+		readAll();
+
+		transaction.executeWithoutResult(status -> {
+			cache.versionCreated(version(2));
+			// the new version is not visible to other readers yet, so the cached state stays valid
+			readAll();
+			assertLoads(1, 1, 1, 1);
+		});
+
+		readAll();
+		// a later version of an existing file leaves the folder listing and committed versions alone
+		assertLoads(2, 2, 1, 1);
+	}
+
+	@Test
+	void rolledBackVersionInvalidatesNothing() {
+		readAll();
+
+		transaction.executeWithoutResult(status -> {
+			cache.versionCreated(version(2));
+			status.setRollbackOnly();
+		});
+
+		readAll();
+		assertLoads(1, 1, 1, 1);
+	}
+
+	@Test
+	void firstVersionOfANewFileInvalidatesTheFolderListing() {
+		readAll();
+
+		transaction.executeWithoutResult(status -> cache.versionCreated(version(1)));
+
+		readAll();
+		assertLoads(2, 2, 2, 1);
+	}
+
+	@Test
+	void deletedFolderDropsEverythingCachedAboutItsFiles() {
+		readAll();
+
+		transaction.executeWithoutResult(status -> cache.folderDeleted(FOLDER_ID, List.of(FILE_ID)));
+
+		readAll();
+		assertLoads(2, 2, 2, 2);
+	}
+
+	@Test
+	void changesOutsideATransactionInvalidateAtOnce() {
+		readAll();
+
+		cache.foldersChanged();
+
+		readAll();
+		assertLoads(1, 1, 2, 1);
+	}
+
+	@Test
+	void invalidationDuringALoadDropsItsResult() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Optional<FileSummary>> slowRead = CompletableFuture.supplyAsync(
+				() -> cache.getFileHead(FILE_ID, () -> {
+					loading.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					return Optional.of(head(1));
+				}));
+		assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+		transaction.executeWithoutResult(status -> cache.versionCreated(version(2)));
+		release.countDown();
+		assertEquals(1, slowRead.get(10, TimeUnit.SECONDS).orElseThrow().getVersionCounter());
+
+		// the version read before the commit is not served after it
+		assertEquals(2, cache.getFileHead(FILE_ID, () -> Optional.of(head(2))).orElseThrow().getVersionCounter());
+	}
+
+	private void readAll() {
+		cache.getFileHead(FILE_ID, () -> {
+			headLoads.incrementAndGet();
+			return Optional.of(head(1));
+		});
+		cache.getFolderFiles(FOLDER_ID, () -> {
+			listingLoads.incrementAndGet();
+			return List.of(head(1));
+		});
+		cache.getFolders(() -> {
+			folderLoads.incrementAndGet();
+			return List.of(new FolderSummary(FOLDER_ID, "folder", 1));
+		});
+		cache.getVersion(FILE_ID, 1, () -> {
+			versionLoads.incrementAndGet();
+			return Optional.of(VersionMetadata.of(version(1)));
+		});
+	}
+
+	private void assertLoads(int heads, int listings, int folders, int versions) {
+		assertEquals(List.of(heads, listings, folders, versions),
+				List.of(headLoads.get(), listingLoads.get(), folderLoads.get(), versionLoads.get()));
+	}
+
+	private static FileSummary head(int versionCounter) {
+		return new FileSummary(FILE_ID, "file.txt", FOLDER_ID, "hash" + versionCounter, versionCounter);
+	}
+
+	private static Version version(int versionNumber) {
+		File file = new File();
+		file.setId(FILE_ID);
+		file.setFolderId(FOLDER_ID);
+		file.setName("file.txt");
+		Version version = new Version();
+		version.setFile(file);
+		version.setVersionNumber(versionNumber);
+		return version;
+	}
+}
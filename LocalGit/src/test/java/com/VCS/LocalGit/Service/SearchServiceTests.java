@@ -0,0 +1,91 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.SearchHit;
+import com.VCS.LocalGit.Dto.SearchResult;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+
+@SpringBootTest
+class SearchServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private SearchService searchService;
+
+	@Test
+	void pagesFollowTheCursorWithoutGapsOrRepeats() throws InterruptedException {
+		Folder folder = folderService.createFolder("search-pages");
+		List<String> expected = new ArrayList<>();
+		for (int f = 0; f < 3; f++) {
+			File file = fileService.createFile(folder.getId(), "file" + f + ".txt", "first needle " + f + "\n");
+			fileService.updateFile(file.getId(), "no match\n");
+			fileService.updateFile(file.getId(), "intro\nsecond Needle " + f + "\n");
+			expected.add(file.getId() + ":1:1");
+			expected.add(file.getId() + ":3:2");
+		}
+		awaitIndexed();
+
+		assertEquals(expected, hits(searchService.search("needle", true, folder.getId(), null, null, null, null, 100)));
+		for (int limit = 1; limit <= 4; limit++) {
+			List<String> paged = new ArrayList<>();
+			String cursor = null;
+			do {
+				SearchResult page = searchService.search("needle", true, folder.getId(), null, null, null, cursor, limit);
+				assertTrue(page.getHits().size() <= limit);
+				paged.addAll(hits(page));
+				cursor = page.getNext();
+			} while (cursor != null);
+			assertEquals(expected, paged, "limit " + limit);
+		}
+	}
+
+	@Test
+	void filtersByCaseAndVersionRange() throws InterruptedException {
+		Folder folder = folderService.createFolder("search-filters");
+		File file = fileService.createFile(folder.getId(), "case.txt", "Quokka\n");
+		fileService.updateFile(file.getId(), "quokka\n");
+		fileService.updateFile(file.getId(), "QUOKKA\n");
+		awaitIndexed();
+
+		SearchResult exact = searchService.search("quokka", false, null, file.getId(), null, null, null, 10);
+		assertEquals(List.of(file.getId() + ":2:1"), hits(exact));
+		SearchResult ranged = searchService.search("quokka", true, null, file.getId(), 2, 3, null, 10);
+		assertEquals(List.of(file.getId() + ":2:1", file.getId() + ":3:1"), hits(ranged));
+		assertNull(ranged.getNext());
+		assertThrows(IllegalArgumentException.class,
+				() -> searchService.search("quokka", true, null, null, null, null, "not-a-cursor", 10));
+	}
+
+	private void awaitIndexed() throws InterruptedException {
+		long deadline = System.nanoTime() + 10_000_000_000L;
+		while (searchService.search("zzz", false, null, -1L, null, null, null, 1).getPendingVersions() > 0) {
+			assertTrue(System.nanoTime() < deadline, "indexing did not finish");
+			Thread.sleep(10);
+		}
+	}
+
+	private static List<String> hits(SearchResult result) {
+		List<String> hits = new ArrayList<>();
+		for (SearchHit hit : result.getHits()) {
+			hits.add(hit.getFileId() + ":" + hit.getVersionNumber() + ":" + hit.getLine());
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,123 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+import com.VCS.LocalGit.Entity.FolderCommit;
+import com.VCS.LocalGit.Entity.Version;
+import com.VCS.LocalGit.Repository.FileRepository;
+import com.VCS.LocalGit.Repository.VersionRepository;
+
+@SpringBootTest
+class VersionServiceConcurrencyTests {
+
+	private static final int THREADS = 16;
+
+	private static final int UPDATES_PER_THREAD = 10;
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private FolderCommitService folderCommitService;
+
+	@Autowired
+	private FileRepository fileRepository;
+
+	@Autowired
+	private VersionRepository versionRepository;
+
+	@Test
+	void concurrentUpdatesGetDistinctConsecutiveVersionNumbers() throws Exception {
+		Folder folder = folderService.createFolder("stress");
+		File file = fileService.createFile(folder.getId(), "stress.txt", "initial");
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+					fileService.updateFile(file.getId(), "thread " + thread + " update " + i);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(2, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		int expected = 1 + THREADS * UPDATES_PER_THREAD;
+		assertEquals(expected, fileRepository.findById(file.getId()).orElseThrow().getVersionCounter());
+
+		List<Version> versions = versionRepository.findByFileIdOrderByVersionNumberDesc(file.getId());
+		assertEquals(expected, versions.size());
+		for (int i = 0; i < versions.size(); i++) {
+			assertEquals(expected - i, versions.get(i).getVersionNumber());
+		}
+	}
+
+	@Test
+	void concurrentUpdatesOfOneFolderGetOneFolderCommitEach() throws Exception {
+		Folder folder = folderService.createFolder("folder-stress");
+		List<File> files = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			files.add(fileService.createFile(folder.getId(), "file-" + t + ".txt", "initial"));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+					// every other update goes to the neighbouring file, so commits of the same file race too
+					File file = files.get((thread + i % 2) % THREADS);
+					fileService.updateFile(file.getId(), "thread " + thread + " update " + i);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(2, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		int expected = THREADS + THREADS * UPDATES_PER_THREAD;
+		List<FolderCommit> commits = folderCommitService.listCommits(folder.getId(), null, expected + 1);
+		assertEquals(expected, commits.size());
+		assertEquals(expected, commits.get(0).getCommitNumber());
+
+		Map<Long, Integer> latest = new HashMap<>();
+		folderCommitService.forEachFile(commits.get(0), entry -> latest.put(entry.fileId(), entry.versionNumber()));
+		assertEquals(THREADS, latest.size());
+		for (File file : files) {
+			assertEquals(fileRepository.findById(file.getId()).orElseThrow().getVersionCounter(), latest.get(file.getId()));
+		}
+	}
+}
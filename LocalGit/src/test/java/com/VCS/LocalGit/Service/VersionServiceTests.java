@@ -0,0 +1,68 @@
+package com.VCS.LocalGit.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.VCS.LocalGit.Dto.VersionMetadata;
+import com.VCS.LocalGit.Entity.File;
+import com.VCS.LocalGit.Entity.Folder;
+
+@SpringBootTest(properties = {"localgit.storage.keyframe-interval=3", "localgit.storage.cache-max-chars=0"})
+class VersionServiceTests {
+
+	@Autowired
+	private FolderService folderService;
+
+	@Autowired
+	private FileService fileService;
+
+	@Autowired
+	private VersionService versionService;
+
+	@Test
+	void versionsAreRebuiltFromTheirKeyframeChain() {
+		Folder folder = folderService.createFolder("chain");
+		List<String> contents = new ArrayList<>();
+		String content = numberedLines(0, 100);
+		contents.add(content);
+		File file = fileService.createFile(folder.getId(), "chain.txt", content);
+		for (int i = 1; i < 8; i++) {
+			content = content.replace("line " + (i * 10) + "\n", "edit " + i + "\n");
+			contents.add(content);
+			fileService.updateFile(file.getId(), content);
+		}
+
+		for (int number = 1; number <= contents.size(); number++) {
+			VersionMetadata version = fileService.getFileVersion(file.getId(), number);
+			boolean keyframe = (number - 1) % 3 == 0;
+			assertEquals(keyframe, version.deltaHash() == null, "version " + number);
+			assertEquals(contents.get(number - 1), versionService.getContent(version), "version " + number);
+		}
+	}
+
+	@Test
+	void versionsWhoseDeltaIsNotSmallerAreStoredWhole() {
+		Folder folder = folderService.createFolder("rewrite");
+		File file = fileService.createFile(folder.getId(), "rewrite.txt", "a\nb\n");
+		fileService.updateFile(file.getId(), "c\nd\n");
+
+		VersionMetadata rewritten = fileService.getFileVersion(file.getId(), 2);
+		assertNull(rewritten.deltaHash());
+		assertEquals("c\nd\n", versionService.getContent(rewritten));
+	}
+
+	private static String numberedLines(int from, int to) {
+		StringBuilder text = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,216 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommitJournalTests {
+
+	@TempDir
+	private Path dir;
+
+	private final List<Integer> batches = new CopyOnWriteArrayList<>();
+
+	private CommitJournal journal;
+
+	@AfterEach
+	void close() throws IOException {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	@Test
+	void framesAreReplayedWithTheirBodies() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ZERO);
+		write(journal.reserve(), "first", null);
+		write(journal.reserve(), "second", "body of the second frame");
+		journal.close();
+
+		assertEquals(List.of("first:", "second:body of the second frame"), replay(path));
+	}
+
+	@Test
+	void tornTailIsCutOffOnOpen() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ZERO);
+		write(journal.reserve(), "kept", "body");
+		journal.close();
+		long valid = Files.size(path);
+
+		// a crash in the middle of the next frame, and in the middle of its length prefix
+		Files.write(path, new byte[] { 0x4C, 0x47, 0x4A, 0x31, 0, 0, 0, 9, 0, 0 }, StandardOpenOption.APPEND);
+		assertEquals(valid, CommitJournal.validLength(path));
+		assertEquals(List.of("kept:body"), replay(path));
+		assertEquals(valid, Files.size(path));
+
+		// frames appended after the cut follow the kept ones
+		journal = start(path, Duration.ZERO);
+		write(journal.reserve(), "appended", null);
+		journal.close();
+		assertEquals(List.of("kept:body", "appended:"), replay(path));
+	}
+
+	@Test
+	void frameWithAMismatchedChecksumEndsTheJournal() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ZERO);
+		write(journal.reserve(), "first", "body");
+		long first = Files.size(path);
+		write(journal.reserve(), "second", "body");
+		write(journal.reserve(), "third", "body");
+		journal.close();
+
+		// flip a byte of the second frame's body: it and everything after it are dropped
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			long position = first + 16 + "second".length();
+			file.seek(position);
+			int b = file.read();
+			file.seek(position);
+			file.write(b ^ 0xFF);
+		}
+		assertEquals(first, CommitJournal.validLength(path));
+		assertEquals(List.of("first:body"), replay(path));
+	}
+
+	@Test
+	void decidedTicketsAreWrittenInReservationOrderInOneBatch() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ofSeconds(30));
+		CommitJournal.Ticket first = journal.reserve();
+		CommitJournal.Ticket second = journal.reserve();
+		CommitJournal.Ticket third = journal.reserve();
+
+		// the later tickets are decided first, and wait for the first one
+		third.submit(bytes("third"), 0, null);
+		second.submit(bytes("second"), 0, null);
+		CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> await(third));
+		Thread.sleep(50);
+		assertFalse(waiting.isDone());
+		first.submit(bytes("first"), 0, null);
+		first.awaitDurable();
+		second.awaitDurable();
+		waiting.get(10, TimeUnit.SECONDS);
+		journal.close();
+
+		assertEquals(List.of(3), batches);
+		assertEquals(List.of("first:", "second:", "third:"), replay(path));
+	}
+
+	@Test
+	void cancelledTicketDoesNotHoldUpLaterOnes() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ofSeconds(30));
+		CommitJournal.Ticket rolledBack = journal.reserve();
+		CommitJournal.Ticket committed = journal.reserve();
+
+		committed.submit(bytes("committed"), 0, null);
+		rolledBack.cancel();
+		CompletableFuture.runAsync(() -> await(committed)).get(10, TimeUnit.SECONDS);
+		// awaiting a cancelled ticket returns at once
+		rolledBack.awaitDurable();
+		journal.close();
+
+		assertEquals(List.of("committed:"), replay(path));
+	}
+
+	@Test
+	void failedWriteStopsTheJournalForGood() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ofSeconds(30));
+		write(journal.reserve(), "durable", null);
+		long durable = Files.size(path);
+
+		CommitJournal.Ticket failing = journal.reserve();
+		CommitJournal.Ticket later = journal.reserve();
+		IOException cause = new IOException("disk gone");
+		later.submit(bytes("later"), 0, null);
+		failing.submit(bytes("failing"), 100, out -> {
+			out.write(new byte[10]);
+			throw cause;
+		});
+
+		assertSame(cause, assertThrows(IOException.class, failing::awaitDurable));
+		assertSame(cause, assertThrows(IOException.class, later::awaitDurable));
+		// no later commit can reserve a frame, so none is made past the failed one
+		IOException rejected = assertThrows(IOException.class, journal::reserve);
+		assertSame(cause, rejected.getCause());
+		journal.close();
+
+		// whatever the failed batch left behind is cut off
+		assertEquals(List.of("durable:"), replay(path));
+		assertEquals(durable, Files.size(path));
+	}
+
+	@Test
+	void bodyOfTheWrongLengthFailsItsFrame() throws Exception {
+		Path path = dir.resolve("commits.log");
+		journal = start(path, Duration.ZERO);
+		CommitJournal.Ticket ticket = journal.reserve();
+		ticket.submit(bytes("short"), 10, out -> out.write(bytes("abc")));
+
+		assertThrows(IOException.class, ticket::awaitDurable);
+		journal.close();
+		assertEquals(List.of(), replay(path));
+	}
+
+	private CommitJournal start(Path path, Duration maxDelay) throws IOException {
+		CommitJournal started = CommitJournal.open(path, maxDelay, 256, true, (frames, syncNanos) -> batches.add(frames));
+		started.start();
+		return started;
+	}
+
+	/**
+	 * Reopens a journal and reads every frame as its header and body, separated by a colon.
+	 */
+	private static List<String> replay(Path path) throws IOException {
+		List<String> frames = new ArrayList<>();
+		try (CommitJournal reopened = CommitJournal.open(path, Duration.ZERO, 256, true, (count, syncNanos) -> {
+		})) {
+			reopened.replay((header, body) -> frames.add(new String(header, StandardCharsets.UTF_8) + ":"
+					+ new String(body.readAllBytes(), StandardCharsets.UTF_8)));
+		}
+		return frames;
+	}
+
+	private static void write(CommitJournal.Ticket ticket, String header, String body) throws IOException {
+		if (body == null) {
+			ticket.submit(bytes(header), 0, null);
+		} else {
+			byte[] content = bytes(body);
+			ticket.submit(bytes(header), content.length, out -> out.write(content));
+		}
+		ticket.awaitDurable();
+	}
+
+	private static void await(CommitJournal.Ticket ticket) {
+		try {
+			ticket.awaitDurable();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,71 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class ContentCodecsTests {
+
+	private final DeflateCodec deflate = new DeflateCodec(6);
+
+	@Test
+	void deflateRoundTrips() {
+		for (byte[] data : new byte[][] { new byte[0], "x".getBytes(StandardCharsets.UTF_8),
+				"line\n".repeat(10_000).getBytes(StandardCharsets.UTF_8), PackContentStoreTests.random(100_000, 3) }) {
+			assertArrayEquals(data, deflate.decode(deflate.encode(data)));
+		}
+	}
+
+	@Test
+	void deflateDecodesOnlyThePrefixAskedFor() {
+		byte[] data = "0123456789\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+		byte[] encoded = deflate.encode(data);
+		assertArrayEquals(Arrays.copyOf(data, 25), deflate.decodePrefix(encoded, 25));
+		assertArrayEquals(data, deflate.decodePrefix(encoded, data.length + 100));
+	}
+
+	@Test
+	void truncatedDeflateContentIsRejected() {
+		byte[] encoded = deflate.encode(PackContentStoreTests.random(10_000, 4));
+		assertThrows(IllegalStateException.class, () -> deflate.decode(Arrays.copyOf(encoded, encoded.length / 2)));
+	}
+
+	@Test
+	void smallOrIncompressibleContentIsStoredAsIs() {
+		ContentCodecs codecs = new ContentCodecs("deflate", 512, 6);
+		ContentCodecs.Encoded small = codecs.encode("a".repeat(511));
+		assertSame(codecs.identity(), small.codec());
+		ContentCodecs.Encoded random = codecs.encode(PackContentStoreTests.random(4096, 5));
+		assertSame(codecs.identity(), random.codec());
+		assertArrayEquals(PackContentStoreTests.random(4096, 5), codecs.decodeBytes(random.codec(), random.data()));
+	}
+
+	@Test
+	void compressibleContentRoundTripsThroughTheConfiguredCodec() {
+		ContentCodecs codecs = new ContentCodecs("DEFLATE", 512, 6);
+		String content = "héllo wörld\n".repeat(500);
+		ContentCodecs.Encoded encoded = codecs.encode(content);
+		assertEquals(DeflateCodec.NAME, encoded.codec().name());
+		assertTrue(encoded.data().length < content.length());
+		assertEquals(content, codecs.decode(codecs.forId(encoded.codec().id()), encoded.data()));
+		assertArrayEquals(Arrays.copyOf(content.getBytes(StandardCharsets.UTF_8), 101),
+				codecs.decodePrefix(encoded.codec(), encoded.data(), 101));
+		assertEquals(1, codecs.getStatistics().getCompressed());
+	}
+
+	@Test
+	void identityCodecCanBeConfigured() {
+		ContentCodecs codecs = new ContentCodecs("identity", 0, 6);
+		ContentCodecs.Encoded encoded = codecs.encode("line\n".repeat(1000));
+		assertSame(codecs.identity(), encoded.codec());
+		assertThrows(IllegalArgumentException.class, () -> new ContentCodecs("zstd", 0, 6));
+		assertThrows(IllegalArgumentException.class, () -> codecs.forId((byte) 42));
+	}
+}
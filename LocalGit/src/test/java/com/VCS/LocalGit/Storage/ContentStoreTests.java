@@ -0,0 +1,18 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class ContentStoreTests {
+
+	@Test
+	void utf8LengthMatchesTheEncodedLength() {
+		for (String content : new String[] { "", "ascii\n", "café", "€ 5", "emoji 😀 end",
+				"é中😀a" }) {
+			assertEquals(content.getBytes(StandardCharsets.UTF_8).length, ContentStore.utf8Length(content), content);
+		}
+	}
+}
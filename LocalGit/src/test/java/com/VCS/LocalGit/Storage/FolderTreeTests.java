@@ -0,0 +1,148 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class FolderTreeTests {
+
+	private final Map<String, byte[]> nodes = new HashMap<>();
+
+	private final Set<String> loaded = new HashSet<>();
+
+	private final FolderTree tree = new FolderTree(new FolderTree.NodeStore() {
+		@Override
+		public byte[] load(String hash) {
+			loaded.add(hash);
+			return nodes.get(hash);
+		}
+
+		@Override
+		public String store(byte[] node) {
+			String hash = ContentStore.hash(node);
+			nodes.put(hash, node);
+			return hash;
+		}
+	});
+
+	@Test
+	void putAddsNewFilesAndReplacesChangedOnes() {
+		FolderTree.Update first = tree.put(null, List.of(entry("a.txt", 1, 1), entry("b.txt", 2, 1)));
+		assertEquals(2, first.added());
+
+		FolderTree.Update second = tree.put(first.rootHash(), List.of(entry("a.txt", 1, 2), entry("c.txt", 3, 1)));
+		assertEquals(1, second.added());
+		assertEquals(List.of(entry("a.txt", 1, 2), entry("b.txt", 2, 1), entry("c.txt", 3, 1)), files(second.rootHash()));
+
+		// an older version of a file does not replace the newer one
+		FolderTree.Update stale = tree.put(second.rootHash(), List.of(entry("a.txt", 1, 1)));
+		assertEquals(0, stale.added());
+		assertEquals(second.rootHash(), stale.rootHash());
+	}
+
+	@Test
+	void filesWithTheSameNameAreKeptApart() {
+		FolderTree.Update update = tree.put(null, List.of(entry("same.txt", 1, 1), entry("same.txt", 2, 1)));
+		assertEquals(2, update.added());
+
+		update = tree.put(update.rootHash(), List.of(entry("same.txt", 2, 2)));
+		assertEquals(0, update.added());
+		assertEquals(List.of(entry("same.txt", 1, 1), entry("same.txt", 2, 2)), files(update.rootHash()));
+	}
+
+	@Test
+	void equalFoldersHaveEqualRoots() {
+		List<FolderTree.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			entries.add(entry("file-" + i + ".txt", i, 1));
+		}
+		String all = tree.put(null, entries).rootHash();
+
+		Collections.shuffle(entries, new Random(7));
+		String root = null;
+		for (int i = 0; i < entries.size(); i += 50) {
+			root = tree.put(root, entries.subList(i, i + 50)).rootHash();
+		}
+		assertEquals(all, root);
+	}
+
+	@Test
+	void compareDescendsOnlyIntoDifferingSubtrees() {
+		List<FolderTree.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			entries.add(entry("file-" + i + ".txt", i, 1));
+		}
+		String before = tree.put(null, entries).rootHash();
+		String after = tree.put(before, List.of(entry("file-1234.txt", 1234, 2))).rootHash();
+		assertNotEquals(before, after);
+
+		Set<String> reachable = new HashSet<>();
+		tree.collectNodes(after, reachable);
+		int depth = 0;
+		for (String hash = after; !new String(nodes.get(hash)).startsWith("leaf"); depth++) {
+			hash = new String(nodes.get(hash)).lines().skip(1).filter(line -> !line.equals("-")).findFirst().orElseThrow();
+		}
+
+		List<FolderTree.Entry[]> changes = new ArrayList<>();
+		loaded.clear();
+		tree.compare(before, after, (from, to) -> changes.add(new FolderTree.Entry[] { from, to }));
+
+		assertEquals(1, changes.size());
+		assertEquals(entry("file-1234.txt", 1234, 1), changes.get(0)[0]);
+		assertEquals(entry("file-1234.txt", 1234, 2), changes.get(0)[1]);
+		// the nodes on the path of the changed file on both sides, and nothing else
+		assertEquals(2 * (depth + 1), loaded.size());
+		assertTrue(loaded.size() < reachable.size());
+	}
+
+	@Test
+	void compareReportsAddedAndRemovedFiles() {
+		String before = tree.put(null, List.of(entry("kept.txt", 1, 1), entry("gone.txt", 2, 1))).rootHash();
+		FolderTree reader = new FolderTree(nodes::get);
+		Map<String, FolderTree.Entry[]> changes = new HashMap<>();
+		String after = tree.put(null, List.of(entry("kept.txt", 1, 1), entry("new.txt", 3, 1))).rootHash();
+
+		reader.compare(before, after, (from, to) -> changes.put((to != null ? to : from).name(),
+				new FolderTree.Entry[] { from, to }));
+
+		assertEquals(Set.of("gone.txt", "new.txt"), changes.keySet());
+		assertNull(changes.get("gone.txt")[1]);
+		assertNull(changes.get("new.txt")[0]);
+	}
+
+	@Test
+	void namesWithNewlinesAndBackslashesRoundTrip() {
+		FolderTree.Entry entry = entry("odd\\name\nwith newline", 1, 1);
+		assertEquals(List.of(entry), files(tree.put(null, List.of(entry)).rootHash()));
+	}
+
+	@Test
+	void readOnlyViewCannotBeUpdated() {
+		FolderTree reader = new FolderTree(nodes::get);
+		assertThrows(IllegalStateException.class, () -> reader.put(null, List.of(entry("a.txt", 1, 1))));
+	}
+
+	private List<FolderTree.Entry> files(String rootHash) {
+		List<FolderTree.Entry> files = new ArrayList<>();
+		tree.forEach(rootHash, files::add);
+		files.sort((a, b) -> a.name().equals(b.name()) ? Long.compare(a.fileId(), b.fileId()) : a.name().compareTo(b.name()));
+		return files;
+	}
+
+	private static FolderTree.Entry entry(String name, long fileId, int versionNumber) {
+		return new FolderTree.Entry(name, fileId, versionNumber, ContentStore.hash(name + "@" + versionNumber));
+	}
+}
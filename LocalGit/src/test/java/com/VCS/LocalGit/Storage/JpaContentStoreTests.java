@@ -0,0 +1,47 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class JpaContentStoreTests {
+
+	@Autowired
+	private ContentStore contentStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void existsSeesBlobsOfTheCurrentTransactionWithoutFlushingIt() {
+		String committed = contentStore.store("committed blob\n");
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			String pending = contentStore.store("pending blob\n");
+
+			assertTrue(contentStore.exists(committed));
+			assertTrue(contentStore.exists(pending));
+			assertFalse(contentStore.exists(ContentStore.hash("missing blob\n")));
+			// the insert is still queued in the persistence context, on the transaction's own connection
+			assertEquals(0, count(pending));
+		});
+
+		assertEquals(1, count(ContentStore.hash("pending blob\n")));
+		assertEquals("pending blob\n", contentStore.load(ContentStore.hash("pending blob\n")));
+	}
+
+	private int count(String hash) {
+		return jdbcTemplate.queryForObject("select count(*) from content_blob where hash = ?", Integer.class, hash);
+	}
+}
@@ -0,0 +1,63 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineDeltaTests {
+
+	@Test
+	void appliedDeltaReproducesTheTarget() {
+		String[][] pairs = {
+				{ "", "" },
+				{ "", "a\nb\n" },
+				{ "a\nb\n", "" },
+				{ "a\nb\nc\n", "a\nX\nc\n" },
+				{ "a\nb", "a\nb\n" },
+				{ "a\nb\n", "a\nb" },
+				{ "a\r\nb\r\n", "a\r\nc\r\n" },
+				{ "same\n", "same\n" } };
+		for (String[] pair : pairs) {
+			assertEquals(pair[1], LineDelta.apply(pair[0], LineDelta.encode(pair[0], pair[1])));
+		}
+	}
+
+	@Test
+	void randomEditsRoundTrip() {
+		Random random = new Random(11);
+		for (int round = 0; round < 200; round++) {
+			String base = randomText(random);
+			String target = randomText(random);
+			assertEquals(target, LineDelta.apply(base, LineDelta.encode(base, target)));
+		}
+	}
+
+	@Test
+	void unchangedLinesAreNotRepeatedInTheDelta() {
+		StringBuilder base = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			base.append("line ").append(i).append('\n');
+		}
+		String target = base.toString().replace("line 500\n", "changed\n");
+		assertEquals("@500,1,8\nchanged\n", LineDelta.encode(base.toString(), target));
+	}
+
+	@Test
+	void malformedDeltaIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> LineDelta.apply("a\n", "0,1,0\n"));
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		for (int i = random.nextInt(20); i > 0; i--) {
+			text.append((char) ('a' + random.nextInt(4)));
+			if (random.nextInt(10) > 0 || i > 1) {
+				text.append('\n');
+			}
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,72 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class LineOffsetIndexTests {
+
+	@Test
+	void countsALastLineWithoutNewline() {
+		assertEquals(0, index("", 4).lineCount());
+		assertEquals(2, index("a\nb\n", 4).lineCount());
+		assertEquals(3, index("a\nb\nc", 4).lineCount());
+		assertEquals(1, index("\n", 4).lineCount());
+	}
+
+	@Test
+	void buildingInPiecesMatchesBuildingAtOnce() {
+		byte[] content = lines(100, true);
+		LineOffsetIndex.Builder builder = new LineOffsetIndex.Builder(4);
+		for (int offset = 0; offset < content.length; offset += 7) {
+			builder.update(content, offset, Math.min(7, content.length - offset));
+		}
+		assertArrayEquals(index(content, 4).toBytes(), builder.build().toBytes());
+		assertEquals(content.length, builder.byteLength());
+	}
+
+	@Test
+	void windowsHoldTheRequestedLinesAndAtMostTwoIntervalsMore() {
+		for (boolean terminated : new boolean[] { true, false }) {
+			byte[] content = lines(50, terminated);
+			LineOffsetIndex index = LineOffsetIndex.parse(index(content, 4).toBytes());
+			assertEquals(50, index.lineCount());
+			assertEquals(content.length, index.byteLength());
+			for (int from = 1; from <= 50; from++) {
+				for (int to = from; to <= 50; to++) {
+					LineOffsetIndex.Window window = index.window(from, to);
+					assertTrue(window.firstLine() <= from);
+					assertTrue(window.offset() == 0 || content[(int) window.offset() - 1] == '\n');
+					String text = new String(content, (int) window.offset(), (int) window.length(), StandardCharsets.UTF_8);
+					String[] windowLines = text.split("\n", -1);
+					int last = window.firstLine() + windowLines.length - 1 - (text.endsWith("\n") ? 1 : 0);
+					assertTrue(last >= to, from + "-" + to);
+					assertEquals("line " + from, windowLines[from - window.firstLine()]);
+					assertTrue((from - window.firstLine()) + (last - to) <= 2 * 4, from + "-" + to);
+				}
+			}
+		}
+	}
+
+	private static LineOffsetIndex index(String content, int interval) {
+		return index(content.getBytes(StandardCharsets.UTF_8), interval);
+	}
+
+	private static LineOffsetIndex index(byte[] content, int interval) {
+		return new LineOffsetIndex.Builder(interval).update(content, 0, content.length).build();
+	}
+
+	private static byte[] lines(int count, boolean terminated) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= count; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		return terminated ? bytes : Arrays.copyOf(bytes, bytes.length - 1);
+	}
+}
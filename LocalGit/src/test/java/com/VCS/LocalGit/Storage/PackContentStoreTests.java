@@ -0,0 +1,139 @@
+package com.VCS.LocalGit.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PackContentStoreTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void contentSurvivesReopening() throws IOException {
+		PackContentStore store = open();
+		String text = store.store("hello\n".repeat(1000));
+		String bytes = store.storeBytes(random(100, 1));
+		store.close();
+
+		PackContentStore reopened = open();
+		assertEquals("hello\n".repeat(1000), reopened.load(text));
+		assertArrayEquals(random(100, 1), reopened.loadBytes(bytes));
+		String more = reopened.store("more");
+		reopened.close();
+
+		assertEquals("more", open().load(more));
+	}
+
+	@Test
+	void recordWithATornHeaderIsTruncated() throws IOException {
+		PackContentStore store = open();
+		String kept = store.storeBytes(random(100, 1));
+		store.close();
+		long size = Files.size(pack());
+		try (FileChannel channel = FileChannel.open(pack(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1}));
+		}
+
+		PackContentStore reopened = open();
+		assertEquals(size, Files.size(pack()));
+		assertArrayEquals(random(100, 1), reopened.loadBytes(kept));
+	}
+
+	@Test
+	void recordWithATornPayloadIsTruncated() throws IOException {
+		PackContentStore store = open();
+		String kept = store.storeBytes(random(100, 1));
+		long size = Files.size(pack());
+		String torn = store.storeBytes(random(100, 2));
+		store.close();
+		try (FileChannel channel = FileChannel.open(pack(), StandardOpenOption.WRITE)) {
+			channel.truncate(Files.size(pack()) - 10);
+		}
+
+		PackContentStore reopened = open();
+		assertEquals(size, Files.size(pack()));
+		assertTrue(reopened.exists(kept));
+		assertFalse(reopened.exists(torn));
+	}
+
+	@Test
+	void recordWhosePayloadNeverReachedTheDiskIsTruncated() throws IOException {
+		PackContentStore store = open();
+		String kept = store.storeBytes(random(100, 1));
+		long size = Files.size(pack());
+		String torn = store.storeBytes(random(100, 2));
+		store.close();
+		// The file has its full length, but the end of the payload is still zeros.
+		try (FileChannel channel = FileChannel.open(pack(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(10), Files.size(pack()) - 10);
+		}
+
+		PackContentStore reopened = open();
+		assertEquals(size, Files.size(pack()));
+		assertTrue(reopened.exists(kept));
+		assertFalse(reopened.exists(torn));
+	}
+
+	@Test
+	void compactionRewritesPacksWithGarbage() throws IOException, InterruptedException {
+		PackContentStore store = open(1100);
+		String[] hashes = new String[12];
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = store.storeBytes(random(300, i));
+		}
+		// Three records fit in a pack; delete two of each pack but the active one.
+		for (int i = 0; i < 9; i++) {
+			if (i % 3 != 0) {
+				store.delete(hashes[i]);
+			}
+		}
+
+		long reclaimed = store.compact(new IoThrottle(0), 0.3);
+
+		assertTrue(reclaimed > 0);
+		assertFalse(Files.exists(pack()));
+		for (int i = 0; i < hashes.length; i++) {
+			assertEquals(i >= 9 || i % 3 == 0, store.exists(hashes[i]), "content " + i);
+		}
+		store.close();
+		PackContentStore reopened = open(1100);
+		for (int i = 0; i < hashes.length; i++) {
+			if (i >= 9 || i % 3 == 0) {
+				assertArrayEquals(random(300, i), reopened.loadBytes(hashes[i]), "content " + i);
+			} else {
+				assertFalse(reopened.exists(hashes[i]), "content " + i);
+			}
+		}
+	}
+
+	private PackContentStore open() throws IOException {
+		return open(1 << 20);
+	}
+
+	private PackContentStore open(long maxPackSize) throws IOException {
+		return new PackContentStore(directory, maxPackSize, false, new ContentCodecs("deflate", 512, 6));
+	}
+
+	private Path pack() {
+		return directory.resolve("pack-000001.pack");
+	}
+
+	static byte[] random(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}